@@ -0,0 +1,99 @@
+package net.eca.coremod;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 实体容器遍历开销，配合 -prof gc 看分配率(gc.alloc.rate.norm)。
+ * direct 为无隔离时的零拷贝遍历；reentrant 在遍历中途写入容器，走摘下转快照的回退路径；
+ * snapshotCopy 复刻改动前每次遍历都整表复制的做法，作为对照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EcaContainersBenchmark {
+
+    @Param({"10000"})
+    public int entities;
+
+    private EcaContainers.EcaArrayList<Object> list;
+    private EcaContainers.EcaInt2ObjectOpenHashMap<Object> map;
+    private Object extra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = new EcaContainers.EcaArrayList<>(entities);
+        map = new EcaContainers.EcaInt2ObjectOpenHashMap<>(entities);
+        for (int i = 0; i < entities; i++) {
+            Object element = new Object();
+            list.add(element);
+            map.put(i + 1, element);
+        }
+        extra = new Object();
+    }
+
+    @Benchmark
+    public int listDirect() {
+        int count = 0;
+        for (Object element : list) {
+            if (element != null) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int listReentrant() {
+        int count = 0;
+        Iterator<Object> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() != null) count++;
+            if (count == entities / 2) {
+                list.add(extra);
+                list.remove(extra);
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int listSnapshotCopy() {
+        int count = 0;
+        for (Object element : EcaContainers.rawValues(list)) {
+            if (element != null) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int mapValuesDirect() {
+        int count = 0;
+        for (Object element : map.values()) {
+            if (element != null) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int mapValuesReentrant() {
+        int count = 0;
+        Iterator<Object> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() != null) count++;
+            if (count == entities / 2) {
+                map.put(-1, extra);
+                map.remove(-1);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,129 @@
+package net.eca.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * 一次批量改血命令在一个 tick 内产生的同步流量。mobs 个生物各被改血 WRITES_PER_MOB 次
+ * （命令本身 + 同 tick 内的防护回滚/复查重写），PLAYERS 名玩家同时追踪全部生物。
+ * 每次调用模拟一个 tick，出站包交给本地假连接：按 custom payload 帧（包 id + 频道名 + 判别字节 + 载荷）编码后计数。
+ * immediate 复刻改动前的做法：每次写血都立即给每名追踪者发一个 SetHealthClientSyncPacket；
+ * queued 走 OutboundPacketQueue：同实体只留最后一次，剩余的按 BatchedPacket 成帧。
+ * packets / wireBytes 辅助计数器即每 tick 的发包数与线上字节数。
+ * 每名玩家收到的是否正是每个生物的最终血量由 OutboundPacketQueueTest 校验。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PacketBatchingBenchmark {
+
+    private static final int WRITES_PER_MOB = 3;
+    private static final int PLAYERS = 4;
+    private static final int MAX_BATCH_MESSAGES = 256;
+    private static final ResourceLocation CHANNEL = new ResourceLocation("eca", "main");
+    // 原版 custom payload 包 id，仅用于估算帧头长度
+    private static final int CUSTOM_PAYLOAD_PACKET_ID = 0x17;
+
+    @Param({"50", "500"})
+    public int mobs;
+
+    private float[][] healthWrites;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Wire {
+        public long packets;
+        public long wireBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            packets = 0;
+            wireBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //只注册编解码，不接客户端处理逻辑
+        BatchedPacket.registerCodec(SetHealthClientSyncPacket.class,
+                SetHealthClientSyncPacket::encode, SetHealthClientSyncPacket::decode, (msg, ctx) -> {});
+        healthWrites = new float[mobs][WRITES_PER_MOB];
+        for (int mob = 0; mob < mobs; mob++) {
+            for (int w = 0; w < WRITES_PER_MOB; w++) {
+                healthWrites[mob][w] = 100.0f - mob * 0.1f - w * 7.5f;
+            }
+        }
+    }
+
+    @Benchmark
+    public long immediate(Wire wire) {
+        for (int mob = 0; mob < mobs; mob++) {
+            for (int w = 0; w < WRITES_PER_MOB; w++) {
+                SetHealthClientSyncPacket packet = new SetHealthClientSyncPacket(mob, healthWrites[mob][w]);
+                for (int p = 0; p < PLAYERS; p++) {
+                    wire.wireBytes += frame(buf -> SetHealthClientSyncPacket.encode(packet, buf));
+                    wire.packets++;
+                }
+            }
+        }
+        return wire.packets;
+    }
+
+    @Benchmark
+    public long queued(Wire wire) {
+        OutboundPacketQueue<Integer> queue = new OutboundPacketQueue<>(MAX_BATCH_MESSAGES);
+        enqueueTick(queue);
+        queue.flush(new OutboundPacketQueue.Sink<>() {
+            @Override
+            public void send(Integer player, Object message) {
+                wire.wireBytes += frame(buf -> SetHealthClientSyncPacket.encode((SetHealthClientSyncPacket) message, buf));
+                wire.packets++;
+            }
+
+            @Override
+            public void sendBatch(Integer player, List<Object> messages) {
+                wire.wireBytes += frame(buf -> BatchedPacket.encode(new BatchedPacket(messages), buf));
+                wire.packets++;
+            }
+        });
+        return wire.packets;
+    }
+
+    private void enqueueTick(OutboundPacketQueue<Integer> queue) {
+        for (int mob = 0; mob < mobs; mob++) {
+            for (int w = 0; w < WRITES_PER_MOB; w++) {
+                SetHealthClientSyncPacket packet = new SetHealthClientSyncPacket(mob, healthWrites[mob][w]);
+                for (int p = 0; p < PLAYERS; p++) {
+                    queue.enqueue(p, packet);
+                }
+            }
+        }
+    }
+
+    //一个 custom payload 包在线上的字节数（不含连接层压缩与长度前缀）
+    private static int frame(Consumer<FriendlyByteBuf> payload) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(CUSTOM_PAYLOAD_PACKET_ID);
+        buf.writeResourceLocation(CHANNEL);
+        buf.writeByte(0);
+        payload.accept(buf);
+        int size = buf.readableBytes();
+        buf.release();
+        return size;
+    }
+}
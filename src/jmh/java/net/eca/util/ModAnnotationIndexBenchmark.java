@@ -0,0 +1,155 @@
+package net.eca.util;
+
+import net.eca.api.RegisterBlockExtension;
+import net.eca.api.RegisterBossShow;
+import net.eca.api.RegisterEntityExtension;
+import net.eca.api.RegisterFaction;
+import net.eca.api.RegisterItemExtension;
+import net.eca.api.RegisterRaid;
+import net.eca.api.RegisterShaderPreset;
+import net.minecraftforge.forgespi.language.ModFileScanData;
+import org.objectweb.asm.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.annotation.ElementType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 启动阶段全部注解注册器的扫描耗时随 mod 数量的变化。每个合成 mod 文件含 CLASSES_PER_MOD 个类，
+ * 每个类带若干常见的第三方注解（Mixin、EventBusSubscriber、方法级 SubscribeEvent），
+ * 每 8 个 mod 中有一个声明 ECA 注册注解，每 10 个文件中有一个是含两个 mod 的多 mod jar。
+ * perRegistrar 复刻改动前的做法：七个注册器各自遍历"文件 × IModInfo × 全部注解"，
+ * AllReturn 反查再逐文件遍历全部类直到找到目标；
+ * sharedIndex 为单遍建索引、各注册器取切片、按包定位候选文件的新做法，计入建索引开销。
+ * 两者都不加载类，只比较扫描本身；两种做法结果一致由 ModAnnotationIndexTest 校验。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModAnnotationIndexBenchmark {
+
+    private static final int CLASSES_PER_MOD = 120;
+    private static final int ECA_MOD_INTERVAL = 8;
+    private static final int MULTI_MOD_INTERVAL = 10;
+    private static final Type[] FOREIGN_ANNOTATIONS = {
+        Type.getObjectType("org/spongepowered/asm/mixin/Mixin"),
+        Type.getObjectType("net/minecraftforge/fml/common/Mod$EventBusSubscriber"),
+        Type.getObjectType("net/minecraftforge/eventbus/api/SubscribeEvent"),
+        Type.getObjectType("net/minecraftforge/api/distmarker/OnlyIn")
+    };
+    private static final List<Class<?>> ECA_ANNOTATIONS = List.of(
+        RegisterFaction.class, RegisterRaid.class, RegisterEntityExtension.class, RegisterBossShow.class,
+        RegisterItemExtension.class, RegisterBlockExtension.class, RegisterShaderPreset.class
+    );
+
+    @Param({"100", "400"})
+    public int mods;
+
+    private List<String> modIds;
+    private List<Integer> modsPerFile;
+    private List<ModAnnotationIndex.FileRef> files;
+    private Set<String> annotationTypes;
+    private String allReturnTarget;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modIds = new ArrayList<>(mods);
+        modsPerFile = new ArrayList<>(mods);
+        files = new ArrayList<>(mods);
+        annotationTypes = new LinkedHashSet<>();
+        for (Class<?> annotation : ECA_ANNOTATIONS) annotationTypes.add(annotation.getName());
+
+        for (int m = 0; m < mods; m++) {
+            String modId = "mod" + m;
+            ModFileScanData scanData = new ModFileScanData();
+            for (int c = 0; c < CLASSES_PER_MOD; c++) {
+                Type clazz = Type.getObjectType("com/example/" + modId + "/pkg" + (c % 6) + "/Class" + c);
+                scanData.getClasses().add(new ModFileScanData.ClassData(clazz, Type.getObjectType("java/lang/Object"), Set.of()));
+                Type foreign = FOREIGN_ANNOTATIONS[c % FOREIGN_ANNOTATIONS.length];
+                scanData.getAnnotations().add(new ModFileScanData.AnnotationData(foreign, ElementType.TYPE, clazz, clazz.getClassName(), Map.of()));
+                //方法级注解：同一类多条
+                for (int method = 0; method < c % 3; method++) {
+                    scanData.getAnnotations().add(new ModFileScanData.AnnotationData(FOREIGN_ANNOTATIONS[2], ElementType.METHOD, clazz, "on" + method + "()V", Map.of()));
+                }
+                if (m % ECA_MOD_INTERVAL == 0 && c < ECA_ANNOTATIONS.size()) {
+                    Type eca = Type.getType(ECA_ANNOTATIONS.get(c));
+                    scanData.getAnnotations().add(new ModFileScanData.AnnotationData(eca, ElementType.TYPE, clazz, clazz.getClassName(), Map.of("value", modId + ":preset" + c)));
+                }
+            }
+            modIds.add(modId);
+            modsPerFile.add(m % MULTI_MOD_INTERVAL == 0 ? 2 : 1);
+            files.add(new ModAnnotationIndex.FileRef(modId + ".jar", scanData));
+        }
+        allReturnTarget = "com/example/mod" + (mods * 3 / 4) + "/pkg2/Class8";
+    }
+
+    @Benchmark
+    public int perRegistrar() {
+        int found = 0;
+        for (String type : annotationTypes) {
+            found += legacyScan(type).size();
+        }
+        return found + (legacyResolve(allReturnTarget) != null ? 1 : 0);
+    }
+
+    @Benchmark
+    public int sharedIndex() {
+        ModAnnotationIndex index = ModAnnotationIndex.build(modIds, files, annotationTypes);
+        int found = 0;
+        for (String type : annotationTypes) {
+            found += index.annotated(type).size();
+        }
+        return found + (indexedResolve(index, allReturnTarget) != null ? 1 : 0);
+    }
+
+    //改动前单个注册器的扫描：每个 IModInfo 各遍历一次文件的全部注解
+    private List<String> legacyScan(String annotationType) {
+        List<String> classNames = new ArrayList<>();
+        for (int f = 0; f < files.size(); f++) {
+            ModFileScanData scanData = files.get(f).scanData();
+            for (int modInfo = 0; modInfo < modsPerFile.get(f); modInfo++) {
+                for (ModFileScanData.AnnotationData data : scanData.getAnnotations()) {
+                    if (annotationType.equals(data.annotationType().getClassName())) {
+                        classNames.add(data.clazz().getClassName());
+                    }
+                }
+            }
+        }
+        return classNames;
+    }
+
+    private String legacyResolve(String target) {
+        for (ModAnnotationIndex.FileRef file : files) {
+            if (containsClass(file.scanData(), target)) return file.fileName();
+        }
+        return null;
+    }
+
+    private static String indexedResolve(ModAnnotationIndex index, String target) {
+        for (ModAnnotationIndex.FileRef file : index.filesContainingPackageOf(target)) {
+            if (containsClass(file.scanData(), target)) return file.fileName();
+        }
+        return null;
+    }
+
+    private static boolean containsClass(ModFileScanData scanData, String internalName) {
+        boolean found = false;
+        for (ModFileScanData.ClassData classData : scanData.getClasses()) {
+            if (internalName.equals(classData.clazz().getInternalName())) found = true;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,100 @@
+package net.eca.util.bossshow;
+
+import io.netty.buffer.Unpooled;
+import net.eca.util.bossshow.BossShowDefinition.Frame;
+import net.eca.util.bossshow.BossShowDefinition.Keyframe;
+import net.minecraft.network.FriendlyByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * BossShow 帧流的原始编码与精简量化编码。两段合成的录制演出（1 分钟，每 tick 一帧）：
+ * orbit 为绕目标平滑环绕的镜头，handheld 在其上叠加手持抖动，是精简最不利的情形；每 300 帧一个显式关键帧。
+ * 往返正确性与误差上界由 BossShowFrameCodecTest 覆盖。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BossShowFrameCodecBenchmark {
+
+    private static final int FRAMES = 1200;
+    private static final double POS_TOLERANCE = 0.01;
+    private static final double ANGLE_TOLERANCE = 0.1;
+
+    @Param({"orbit", "handheld"})
+    public String show;
+
+    private List<Frame> frames;
+    private byte[] compressed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        frames = record(show.equals("handheld"));
+        compressed = encode(frames, POS_TOLERANCE, ANGLE_TOLERANCE);
+    }
+
+    @Benchmark
+    public byte[] encodeRaw() {
+        return encode(frames, 0.0, 0.0);
+    }
+
+    @Benchmark
+    public byte[] encodeCompressed() {
+        return encode(frames, POS_TOLERANCE, ANGLE_TOLERANCE);
+    }
+
+    @Benchmark
+    public List<Frame> decodeCompressed() {
+        return decode(compressed);
+    }
+
+    private static byte[] encode(List<Frame> frames, double posTolerance, double angleTolerance) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        BossShowNetCodec.writeFrames(buf, frames, posTolerance, angleTolerance);
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+
+    private static List<Frame> decode(byte[] bytes) {
+        return BossShowNetCodec.readFrames(new FriendlyByteBuf(Unpooled.wrappedBuffer(bytes)));
+    }
+
+    private static List<Frame> record(boolean handheld) {
+        Random random = new Random(42L);
+        Curve[] curves = Curve.values();
+        List<Frame> out = new ArrayList<>(FRAMES);
+        double x = 0.0, y = 2.0, z = -8.0;
+        float yaw = 170.0f;
+        for (int t = 0; t < FRAMES; t++) {
+            x += Math.cos(t / 40.0) * 0.3;
+            z += Math.sin(t / 40.0) * 0.3;
+            y += Math.sin(t / 13.0) * 0.05;
+            yaw += 1.7f;
+            if (yaw >= 180.0f) yaw -= 360.0f;
+            float pitch = (float) (20.0 * Math.sin(t / 50.0));
+            double jitter = handheld ? 0.004 : 0.0;
+            Keyframe keyframe = t % 300 == 0 ? new Keyframe("beat_" + t, null, curves[(t / 300) % curves.length]) : null;
+            out.add(new Frame(
+                    x + (random.nextDouble() - 0.5) * jitter,
+                    y + (random.nextDouble() - 0.5) * jitter,
+                    z + (random.nextDouble() - 0.5) * jitter,
+                    yaw + (handheld ? (float) ((random.nextDouble() - 0.5) * 0.2) : 0.0f),
+                    pitch,
+                    keyframe));
+        }
+        return out;
+    }
+}
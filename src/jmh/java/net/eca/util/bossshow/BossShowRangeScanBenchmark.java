@@ -0,0 +1,178 @@
+package net.eca.util.bossshow;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * range 触发扫描在定义数量增长时的开销。合成世界：4096×4096 格内 4000 个生物，类型取自 32 种；
+ * 8 名玩家随机分布。第 i 个定义指向第 i 种实体类型，类型数超过 32 后新增的定义所指类型在世界中不存在，
+ * 对应"注册了很多演出、但附近没有这些 boss"的常见情形。实体按区块分组，模拟按区块查询实体。
+ * fullScan 复刻改动前的做法：每次扫描重新分组全部定义，再遍历全部实体 × 定义 × 玩家；
+ * gridScan 走 RangeTriggerIndex 的分桶规则与 PlayerGrid：分组在 Setup 中一次完成，只查询玩家附近的区块。
+ * 不模拟观众占用与播放历史；两种扫描命中结果一致由 PlayerGridTest 覆盖。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BossShowRangeScanBenchmark {
+
+    private static final int WORLD_SIZE = 4096;
+    private static final int ENTITIES = 4000;
+    private static final int ENTITY_TYPES = 32;
+    private static final int PLAYERS = 8;
+    private static final double[] RADII = {8.0, 24.0, 48.0, 96.0};
+
+    @Param({"16", "256", "4096"})
+    public int definitions;
+
+    private double[][] entities;
+    private int[] entityTypes;
+    private double[][] players;
+    private int[] defTypes;
+    private double[] defRadii;
+    private Long2ObjectOpenHashMap<List<Integer>> sections;
+
+    //gridScan 的预分组：每个半径桶一份 类型 → 定义下标
+    private int[] bucketCellSizes;
+    private double[] bucketReach;
+    private List<Map<Integer, List<Integer>>> bucketDefs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        entities = new double[ENTITIES][];
+        entityTypes = new int[ENTITIES];
+        sections = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < ENTITIES; i++) {
+            entities[i] = new double[]{random.nextDouble() * WORLD_SIZE, 64.0 + random.nextDouble() * 16.0, random.nextDouble() * WORLD_SIZE};
+            entityTypes[i] = random.nextInt(ENTITY_TYPES);
+            sections.computeIfAbsent(chunkKey((int) entities[i][0] >> 4, (int) entities[i][2] >> 4), k -> new ArrayList<>()).add(i);
+        }
+        players = new double[PLAYERS][];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new double[]{random.nextDouble() * WORLD_SIZE, 64.0 + random.nextDouble() * 16.0, random.nextDouble() * WORLD_SIZE};
+        }
+        defTypes = new int[definitions];
+        defRadii = new double[definitions];
+        for (int i = 0; i < definitions; i++) {
+            defTypes[i] = i;
+            defRadii[i] = RADII[random.nextInt(RADII.length)];
+        }
+
+        TreeMap<Integer, Map<Integer, List<Integer>>> bucketed = new TreeMap<>();
+        TreeMap<Integer, Double> reach = new TreeMap<>();
+        for (int i = 0; i < definitions; i++) {
+            int cellSize = RangeTriggerIndex.cellSizeFor(defRadii[i]);
+            bucketed.computeIfAbsent(cellSize, k -> new HashMap<>()).computeIfAbsent(defTypes[i], k -> new ArrayList<>()).add(i);
+            reach.merge(cellSize, defRadii[i], Math::max);
+        }
+        bucketCellSizes = new int[bucketed.size()];
+        bucketReach = new double[bucketed.size()];
+        bucketDefs = new ArrayList<>();
+        int b = 0;
+        for (Map.Entry<Integer, Map<Integer, List<Integer>>> entry : bucketed.entrySet()) {
+            bucketCellSizes[b] = entry.getKey();
+            bucketReach[b] = reach.get(entry.getKey());
+            bucketDefs.add(entry.getValue());
+            b++;
+        }
+    }
+
+    @Benchmark
+    public int fullScan() {
+        Map<Integer, List<Integer>> grouped = new HashMap<>();
+        for (int d = 0; d < definitions; d++) {
+            grouped.computeIfAbsent(defTypes[d], k -> new ArrayList<>()).add(d);
+        }
+        int triggers = 0;
+        for (int e = 0; e < ENTITIES; e++) {
+            List<Integer> candidates = grouped.get(entityTypes[e]);
+            if (candidates == null) continue;
+            for (int d : candidates) {
+                double radiusSq = defRadii[d] * defRadii[d];
+                for (int p = 0; p < PLAYERS; p++) {
+                    if (distanceSq(players[p], entities[e]) > radiusSq) continue;
+                    triggers++;
+                    break;
+                }
+            }
+        }
+        return triggers;
+    }
+
+    @Benchmark
+    public int gridScan() {
+        int triggers = 0;
+        for (int b = 0; b < bucketCellSizes.length; b++) {
+            Map<Integer, List<Integer>> byType = bucketDefs.get(b);
+            PlayerGrid<Integer> grid = new PlayerGrid<>(bucketCellSizes[b]);
+            for (int p = 0; p < PLAYERS; p++) {
+                grid.add(p, players[p][0], players[p][1], players[p][2]);
+            }
+            double reach = bucketReach[b];
+            List<Integer> candidates = new ArrayList<>();
+            boolean[] seen = new boolean[ENTITIES];
+            grid.forEachCell((minX, minY, minZ, maxX, maxY, maxZ) ->
+                querySections(minX - reach, minY - reach, minZ - reach, maxX + reach, maxY + reach, maxZ + reach,
+                    byType, seen, candidates));
+
+            for (int e : candidates) {
+                for (int d : byType.get(entityTypes[e])) {
+                    Integer viewer = grid.firstWithin(entities[e][0], entities[e][1], entities[e][2], defRadii[d], p -> true);
+                    if (viewer == null) continue;
+                    triggers++;
+                }
+            }
+        }
+        return triggers;
+    }
+
+    //按区块遍历查询框覆盖的实体，等价于 level.getEntitiesOfClass 的区块分段查询
+    private void querySections(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                               Map<Integer, List<Integer>> byType, boolean[] seen, List<Integer> out) {
+        int minCx = (int) Math.floor(minX) >> 4;
+        int maxCx = (int) Math.floor(maxX) >> 4;
+        int minCz = (int) Math.floor(minZ) >> 4;
+        int maxCz = (int) Math.floor(maxZ) >> 4;
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cz = minCz; cz <= maxCz; cz++) {
+                List<Integer> section = sections.get(chunkKey(cx, cz));
+                if (section == null) continue;
+                for (int e : section) {
+                    double[] pos = entities[e];
+                    if (seen[e] || !byType.containsKey(entityTypes[e])) continue;
+                    if (pos[0] < minX || pos[0] > maxX || pos[1] < minY || pos[1] > maxY || pos[2] < minZ || pos[2] > maxZ) continue;
+                    seen[e] = true;
+                    out.add(e);
+                }
+            }
+        }
+    }
+
+    private static double distanceSq(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static long chunkKey(int cx, int cz) {
+        return (cx & 0xFFFFFFFFL) | ((long) cz << 32);
+    }
+}
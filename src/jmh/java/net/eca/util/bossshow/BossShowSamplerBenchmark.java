@@ -0,0 +1,140 @@
+package net.eca.util.bossshow;
+
+import net.eca.util.bossshow.BossShowDefinition.Frame;
+import net.eca.util.bossshow.BossShowDefinition.Keyframe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * BossShow 整段回放的取样开销。合成演出每 tick 一帧，每 100 帧一个带曲线的关键帧。
+ * 每次调用按渲染节奏（每 tick 3 个 partialTick）从头播到尾：
+ * legacyPlayback 复刻改动前的 computePose，每次取样都从第 0 帧线性找关键帧区间，整段回放 O(N²)；
+ * samplerPlayback 用同一个 BossShowSampler 顺序取样；samplerSeeks 在同样多的随机游标上取样，覆盖二分回退路径。
+ * 新旧实现逐点一致由 BossShowSamplerTest 覆盖。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BossShowSamplerBenchmark {
+
+    private static final int KEYFRAME_SPACING = 100;
+    private static final double[] PARTIALS = {0.0, 0.33, 0.66};
+
+    @Param({"1000", "10000"})
+    public int frameCount;
+
+    private List<Frame> frames;
+    private double[] seekCursors;
+    private final BossShowPose pose = new BossShowPose();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Curve[] curves = Curve.values();
+        frames = new ArrayList<>(frameCount);
+        for (int t = 0; t < frameCount; t++) {
+            Keyframe keyframe = t % KEYFRAME_SPACING == 0 && t > 0
+                ? new Keyframe(null, null, curves[(t / KEYFRAME_SPACING) % curves.length]) : null;
+            frames.add(new Frame(Math.cos(t / 40.0) * 6.0, 2.0 + Math.sin(t / 13.0), Math.sin(t / 40.0) * 6.0,
+                (t * 1.7f) % 360.0f - 180.0f, (float) (20.0 * Math.sin(t / 50.0)), keyframe));
+        }
+        Random random = new Random(42L);
+        seekCursors = new double[frameCount * PARTIALS.length];
+        for (int i = 0; i < seekCursors.length; i++) {
+            seekCursors[i] = random.nextDouble() * frameCount;
+        }
+    }
+
+    @Benchmark
+    public double legacyPlayback() {
+        double sum = 0.0;
+        for (int tick = 0; tick < frameCount; tick++) {
+            for (double partial : PARTIALS) {
+                legacyComputePose(frames, tick + partial, pose);
+                sum += pose.x;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double samplerPlayback() {
+        BossShowSampler sampler = new BossShowSampler(frames);
+        double sum = 0.0;
+        for (int tick = 0; tick < frameCount; tick++) {
+            for (double partial : PARTIALS) {
+                sampler.computePose(false, tick + partial, 0.0, 64.0, 0.0, 30.0f, pose);
+                sum += pose.x;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double samplerSeeks() {
+        BossShowSampler sampler = new BossShowSampler(frames);
+        double sum = 0.0;
+        for (double cursor : seekCursors) {
+            sampler.computePose(false, cursor, 0.0, 64.0, 0.0, 30.0f, pose);
+            sum += pose.x;
+        }
+        return sum;
+    }
+
+    //改动前的 computePose（锚点固定为 (0, 64, 0) / 30°）
+    private static void legacyComputePose(List<Frame> frames, double tickCursor, BossShowPose out) {
+        int last = frames.size() - 1;
+        if (tickCursor <= 0) tickCursor = 0;
+        if (tickCursor >= last) tickCursor = last;
+
+        int cursorInt = (int) tickCursor;
+        int segStart = -1;
+        Curve segCurve = Curve.NONE;
+        for (int i = 0; i <= cursorInt && i < frames.size(); i++) {
+            Keyframe kf = frames.get(i).keyframe();
+            if (kf != null) {
+                segStart = i;
+                segCurve = kf.curve();
+            }
+        }
+        if (segStart >= 0 && segCurve != Curve.NONE) {
+            int segEnd = last;
+            for (int i = segStart + 1; i < frames.size(); i++) {
+                if (frames.get(i).keyframe() != null) {
+                    segEnd = i;
+                    break;
+                }
+            }
+            double segLen = segEnd - segStart;
+            if (segLen > 0) {
+                tickCursor = segStart + segCurve.apply((tickCursor - segStart) / segLen) * segLen;
+            }
+        }
+
+        int i0 = (int) Math.floor(tickCursor);
+        int i1 = Math.min(last, i0 + 1);
+        double t = tickCursor - i0;
+        Frame a = frames.get(i0);
+        Frame b = frames.get(i1);
+        double dx = a.dx() + (b.dx() - a.dx()) * t;
+        double dy = a.dy() + (b.dy() - a.dy()) * t;
+        double dz = a.dz() + (b.dz() - a.dz()) * t;
+        double rad = Math.toRadians(30.0f);
+        out.x = dx * Math.cos(rad) + dz * Math.sin(rad);
+        out.y = 64.0 + dy;
+        out.z = -dx * Math.sin(rad) + dz * Math.cos(rad);
+        out.yaw = BossShowInterpolator.lerpYaw(a.yaw(), b.yaw(), t) + 30.0f;
+        out.pitch = BossShowInterpolator.lerpPitch(a.pitch(), b.pitch(), t);
+    }
+}
@@ -0,0 +1,128 @@
+package net.eca.util.entity_extension;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 强加载实体高速移动时的区块票据操作次数。实体一边沿 x 轴推进，一边以 24 格振幅来回横穿区块边界，
+ * 一组实体彼此只差几格，大多时候挤在同一区块。每次调用模拟 TICKS 个 tick。
+ * perEntityTickets 复刻改动前的做法：每个实体一张票，换区块即释放旧票、申请新票；
+ * sharedTickets 走 ChunkTicketTable：按区块引用计数、沿速度预占前方区块、归零后滞后释放、每 tick 批量落地。
+ * ticketOps 辅助计数器即每次调用产生的票据申请 + 释放次数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkTicketBenchmark {
+
+    private static final int TICKS = 2000;
+    private static final int LOOKAHEAD_TICKS = 20;
+    private static final int MAX_PREDICTED_CHUNKS = 3;
+    private static final int RELEASE_DELAY_TICKS = 100;
+
+    @Param({"1", "8"})
+    public int entities;
+
+    private double[][] xs;
+    private double[][] velocities;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TicketOps {
+        public long ticketOps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ticketOps = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        xs = new double[entities][TICKS];
+        velocities = new double[entities][TICKS];
+        for (int e = 0; e < entities; e++) {
+            double offset = e * 3.0d;
+            for (int t = 0; t < TICKS; t++) {
+                xs[e][t] = 8.0d + offset + 24.0d * Math.sin(t / 15.0d) + 0.4d * t;
+                velocities[e][t] = 24.0d / 15.0d * Math.cos(t / 15.0d) + 0.4d;
+            }
+        }
+    }
+
+    @Benchmark
+    public long perEntityTickets(TicketOps ops) {
+        int[] current = new int[entities];
+        for (int e = 0; e < entities; e++) {
+            current[e] = chunk(xs[e][0]);
+            ops.ticketOps++;
+        }
+        for (int t = 1; t < TICKS; t++) {
+            for (int e = 0; e < entities; e++) {
+                int chunk = chunk(xs[e][t]);
+                if (chunk != current[e]) {
+                    current[e] = chunk;
+                    ops.ticketOps += 2;
+                }
+            }
+        }
+        return ops.ticketOps;
+    }
+
+    @Benchmark
+    public long sharedTickets(TicketOps ops) {
+        ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        ChunkTicketTable.TicketSink sink = (chunkKey, add) -> ops.ticketOps++;
+        long[][] claimed = new long[entities][0];
+        for (int t = 0; t < TICKS; t++) {
+            for (int e = 0; e < entities; e++) {
+                claimed[e] = updateClaims(table, claimed[e], xs[e][t], velocities[e][t]);
+            }
+            table.flush(sink);
+        }
+        return ops.ticketOps;
+    }
+
+    // 与 ForceLoadingManager.updateClaims 相同的预测路径，只取 x 方向
+    private static long[] updateClaims(ChunkTicketTable table, long[] claimed, double x, double velocity) {
+        int current = chunk(x);
+        int dx = chunk(x + velocity * LOOKAHEAD_TICKS) - current;
+        int steps = Math.abs(dx);
+        if (steps > MAX_PREDICTED_CHUNKS) {
+            dx = Integer.signum(dx) * MAX_PREDICTED_CHUNKS;
+            steps = MAX_PREDICTED_CHUNKS;
+        }
+        long[] desired = new long[steps + 1];
+        for (int i = 0; i <= steps; i++) {
+            desired[i] = current + (long) Integer.signum(dx) * i;
+        }
+        for (long key : desired) {
+            if (!contains(claimed, key)) table.claim(key);
+        }
+        for (long key : claimed) {
+            if (!contains(desired, key)) table.release(key);
+        }
+        return desired;
+    }
+
+    private static boolean contains(long[] keys, long key) {
+        for (long k : keys) {
+            if (k == key) return true;
+        }
+        return false;
+    }
+
+    private static int chunk(double x) {
+        return (int) Math.floor(x) >> 4;
+    }
+}
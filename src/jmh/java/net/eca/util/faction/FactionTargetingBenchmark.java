@@ -0,0 +1,146 @@
+package net.eca.util.faction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 一个扫描 tick 的敌对索敌耗时随种群规模的变化。种群按 4 格间距铺在平面网格上，四分之一无阵营，
+ * 每 20 个有阵营的个体中有一个轮到扫描，与 HOSTILE_TARGET_SCAN_INTERVAL_TICKS 一致。
+ * sectionQuery 复刻改动前的做法：每个扫描者对 16 格分区存储做一次 AABB 查询，对区内全部实体跑谓词；
+ * factionBuckets 为单次建哈希、只看邻格中其他阵营成员的新做法，计入建表开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FactionTargetingBenchmark {
+
+    private static final int SCAN_INTERVAL = 20;
+    private static final double SPACING = 4.0d;
+    private static final String[] FACTIONS = {"red", "blue", "green", null};
+
+    @Param({"500", "2000", "8000"})
+    public int population;
+
+    @Param({"32"})
+    public int range;
+
+    private List<Point> points;
+    private List<Point> scanners;
+    private Map<Long, List<Point>> sections;
+
+    static final class Point {
+        final double x;
+        final double y;
+        final double z;
+        final String faction;
+
+        Point(double x, double y, double z, String faction) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.faction = faction;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        points = new ArrayList<>(population);
+        scanners = new ArrayList<>();
+        sections = new HashMap<>();
+        int side = (int) Math.ceil(Math.sqrt(population));
+        for (int i = 0; i < population; i++) {
+            Point point = new Point((i % side) * SPACING, 64.0d, (i / side) * SPACING, FACTIONS[i % FACTIONS.length]);
+            points.add(point);
+            sections.computeIfAbsent(sectionKey(point.x, point.y, point.z), key -> new ArrayList<>()).add(point);
+            if (point.faction != null && i % SCAN_INTERVAL == 0) {
+                scanners.add(point);
+            }
+        }
+    }
+
+    @Benchmark
+    public int sectionQuery() {
+        double rangeSq = (double) range * range;
+        int assigned = 0;
+        for (Point scanner : scanners) {
+            Point nearest = null;
+            double nearestDistanceSq = Double.MAX_VALUE;
+            int minX = section(scanner.x - range), maxX = section(scanner.x + range);
+            int minY = section(scanner.y - range), maxY = section(scanner.y + range);
+            int minZ = section(scanner.z - range), maxZ = section(scanner.z + range);
+            for (int sx = minX; sx <= maxX; sx++) {
+                for (int sy = minY; sy <= maxY; sy++) {
+                    for (int sz = minZ; sz <= maxZ; sz++) {
+                        List<Point> section = sections.get(pack(sx, sy, sz));
+                        if (section == null) continue;
+                        for (Point candidate : section) {
+                            if (candidate == scanner || !hostile(scanner, candidate)) continue;
+                            double distanceSq = distanceSq(scanner, candidate);
+                            if (distanceSq <= rangeSq && distanceSq < nearestDistanceSq) {
+                                nearest = candidate;
+                                nearestDistanceSq = distanceSq;
+                            }
+                        }
+                    }
+                }
+            }
+            if (nearest != null) assigned++;
+        }
+        return assigned;
+    }
+
+    @Benchmark
+    public int factionBuckets() {
+        double rangeSq = (double) range * range;
+        FactionSpatialHash<Point> index = new FactionSpatialHash<>(range);
+        for (Point point : points) {
+            if (point.faction != null) {
+                index.add(point.faction, point, point.x, point.y, point.z);
+            }
+        }
+        int assigned = 0;
+        for (Point scanner : scanners) {
+            Point nearest = index.nearest(scanner.x, scanner.y, scanner.z, rangeSq, scanner.faction,
+                    candidate -> candidate != scanner && hostile(scanner, candidate));
+            if (nearest != null) assigned++;
+        }
+        return assigned;
+    }
+
+    // 关系判定的替身：两方都有阵营且阵营不同即敌对
+    private static boolean hostile(Point a, Point b) {
+        return a.faction != null && b.faction != null && !a.faction.equals(b.faction);
+    }
+
+    private static double distanceSq(Point a, Point b) {
+        double dx = a.x - b.x;
+        double dy = a.y - b.y;
+        double dz = a.z - b.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int section(double coordinate) {
+        return (int) Math.floor(coordinate) >> 4;
+    }
+
+    private static long sectionKey(double x, double y, double z) {
+        return pack(section(x), section(y), section(z));
+    }
+
+    private static long pack(int sx, int sy, int sz) {
+        return ((long) (sx & 0x1FFFFF) << 42) | ((long) (sy & 0x1FFFFF) << 21) | (sz & 0x1FFFFF);
+    }
+}
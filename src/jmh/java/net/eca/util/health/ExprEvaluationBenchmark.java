@@ -0,0 +1,59 @@
+package net.eca.util.health;
+
+import net.eca.util.health.HealthDataflowAnalyzer.EvalContext;
+import net.eca.util.health.HealthDataflowAnalyzer.Expr;
+import net.eca.util.health.HealthDataflowAnalyzer.Source;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 表达式求值吞吐：同一棵血量表达式树分别走反射解释器与编译求值器。
+ * 树包含实体字段链、常量乘法、Map.get 反射调用与拆箱内建调用；choice 形态另在外层加一个恒落空的分支。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExprEvaluationBenchmark {
+
+    @Param({"sum", "choice"})
+    public String shape;
+
+    private Expr tree;
+    private EvalContext ctx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticEntity entity = new SyntheticEntity(8);
+        Source sink = entity.coreValueSource();
+        tree = shape.equals("choice") ? entity.buildChoiceExpr(sink) : entity.buildHealthExpr(sink);
+        // 合成实体不是 LivingEntity：字段链以 Reference 为根，上下文不需要实体
+        ctx = HealthDataflowAnalyzer.newContext(null);
+        // 预先越过编译阈值，测量期只走已编译的树；两条路径的结果一致性由 CompiledExprEvaluatorTest 覆盖
+        for (int i = 0; i < 8; i++) CompiledExprEvaluator.evaluate(tree, ctx);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CompiledExprEvaluator.clear();
+    }
+
+    @Benchmark
+    public Object interpreted() {
+        return HealthDataflowAnalyzer.evaluate(tree, ctx);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return CompiledExprEvaluator.evaluate(tree, ctx);
+    }
+}
@@ -0,0 +1,58 @@
+package net.eca.util.health;
+
+import net.eca.util.health.HealthDataflowAnalyzer.Expr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 字节码数据流分析耗时：对合成实体的 getHealth 形态方法做一次完整符号分析。
+ * warm 复用共享 ClassNode 缓存，只计数据流解释；cold 每次调用前清空缓存，额外计入字节码读取与展开帧解析。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HealthAnalysisBenchmark {
+
+    @Param({"getHealth", "getHealthShielded", "getHealthEncoded"})
+    public String method;
+
+    private Expr[] seeds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 局部变量 0 播种为实体占位符，字段读取展开为实体字段链
+        seeds = new Expr[]{HealthDataflowAnalyzer.entityParamMarker()};
+        if (analyze() == null) throw new IllegalStateException("analysis produced no expression for " + method);
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+        @Setup(Level.Invocation)
+        public void evict() {
+            AnalysisClassCache.clear();
+        }
+    }
+
+    @Benchmark
+    public Expr analyzeWarm() {
+        return analyze();
+    }
+
+    @Benchmark
+    public Expr analyzeCold(ColdCache cold) {
+        return analyze();
+    }
+
+    private Expr analyze() {
+        return HealthDataflowAnalyzer.analyzeSeeded(SyntheticEntity.class, method, "()F", seeds);
+    }
+}
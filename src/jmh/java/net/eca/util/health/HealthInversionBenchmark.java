@@ -0,0 +1,66 @@
+package net.eca.util.health;
+
+import net.eca.util.health.HealthDataflowAnalyzer.EvalContext;
+import net.eca.util.health.HealthDataflowAnalyzer.Expr;
+import net.eca.util.health.HealthDataflowAnalyzer.Source;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 反演延迟：symbolic 走对偶表对表达式树逐层求逆；numeric 走数值反演的单元收集与一轮扰动/回滚，
+ * 对应 NumericInverter 在符号求逆失败后的主要开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HealthInversionBenchmark {
+
+    private static final int CELL_CAP = 256;
+
+    @Param({"4", "64"})
+    public int holderDepth;
+
+    private SyntheticEntity entity;
+    private Source sink;
+    private Expr tree;
+    private EvalContext ctx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        entity = new SyntheticEntity(holderDepth);
+        sink = entity.coreValueSource();
+        tree = entity.buildHealthExpr(sink);
+        ctx = HealthDataflowAnalyzer.newContext(null);
+        if (!HealthDataflowAnalyzer.solveDetailed(tree, sink, 90.0f, ctx).solved()) {
+            throw new IllegalStateException("synthetic health expression is not invertible");
+        }
+    }
+
+    @Benchmark
+    public HealthSolveResult symbolic() {
+        return HealthDataflowAnalyzer.solveDetailed(tree, sink, 90.0f, ctx);
+    }
+
+    @Benchmark
+    public int numeric() {
+        List<NumericInverter.Cell> cells = NumericInverter.collectCells(
+                entity.snapshotRoots(), System.nanoTime() + 50_000_000L, CELL_CAP);
+        int writable = 0;
+        for (NumericInverter.Cell cell : cells) {
+            Object snapshot = cell.snapshot();
+            if (cell.write(cell.read() + 1.0d)) writable++;
+            cell.restore(snapshot);
+        }
+        return writable;
+    }
+}
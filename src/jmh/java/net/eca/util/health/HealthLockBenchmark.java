@@ -0,0 +1,78 @@
+package net.eca.util.health;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * getHealth 锁定判定的前后对比：boxedSet 复刻原快速路径(装箱 Integer 集合 + 装箱 Float 结果)，
+ * table 为现行的原始值表探测。按每次 getHealth 的单次判定计时，实体集合中只有少量被锁定。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HealthLockBenchmark {
+
+    private static final int ENTITIES = 4096;
+
+    @Param({"0", "64"})
+    public int lockedCount;
+
+    private final Set<Integer> boxedIds = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Float> boxedValues = new ConcurrentHashMap<>();
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ids = new int[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) ids[i] = 1_000 + i;
+        // 锁定实体均匀散布在 id 区间内
+        for (int i = 0; i < lockedCount; i++) {
+            int id = ids[i * (ENTITIES / Math.max(1, lockedCount))];
+            boxedIds.add(id);
+            boxedValues.put(id, 20.0f);
+            HealthLockTable.put(id, HealthLockTable.HEALTH_LOCK, 20.0f);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int id : ids) HealthLockTable.remove(id, HealthLockTable.HEALTH_LOCK);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public float boxedSet() {
+        float sum = 0.0f;
+        for (int id : ids) {
+            if (!boxedIds.contains(id)) continue;
+            Float locked = boxedValues.get(id);
+            if (locked != null) sum += locked;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public float table() {
+        float sum = 0.0f;
+        for (int id : ids) {
+            float locked = HealthLockTable.value(id, HealthLockTable.HEALTH_LOCK);
+            if (!Float.isNaN(locked)) sum += locked;
+        }
+        return sum;
+    }
+}
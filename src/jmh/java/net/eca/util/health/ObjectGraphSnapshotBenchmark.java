@@ -0,0 +1,57 @@
+package net.eca.util.health;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * 快照/回滚开销：写入事务前的对象图捕获与失败后的整体回滚。
+ * deep 对应 capture 的递归遍历，probe 对应行为探针只取根对象直接可达存储的浅快照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectGraphSnapshotBenchmark {
+
+    @Param({"4", "64"})
+    public int holderDepth;
+
+    private SyntheticEntity entity;
+    private List<Object> roots;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        entity = new SyntheticEntity(holderDepth);
+        roots = entity.snapshotRoots();
+    }
+
+    @Benchmark
+    public ObjectGraphSnapshot captureDeep() {
+        return ObjectGraphSnapshot.capture(null, roots);
+    }
+
+    @Benchmark
+    public float captureDeepAndRestore() {
+        ObjectGraphSnapshot snapshot = ObjectGraphSnapshot.capture(null, roots);
+        entity.scale = -1.0f;
+        snapshot.restore();
+        return entity.scale;
+    }
+
+    @Benchmark
+    public float captureProbeAndRestore() {
+        ObjectGraphSnapshot snapshot = ObjectGraphSnapshot.captureProbe(null, roots);
+        entity.scale = -1.0f;
+        snapshot.restore();
+        return entity.scale;
+    }
+}
@@ -0,0 +1,129 @@
+package net.eca.util.health;
+
+import net.eca.util.health.HealthDataflowAnalyzer.Call;
+import net.eca.util.health.HealthDataflowAnalyzer.ChainedFieldSource;
+import net.eca.util.health.HealthDataflowAnalyzer.Choice;
+import net.eca.util.health.HealthDataflowAnalyzer.Expr;
+import net.eca.util.health.HealthDataflowAnalyzer.FieldStep;
+import net.eca.util.health.HealthDataflowAnalyzer.Op;
+import net.eca.util.health.HealthDataflowAnalyzer.Primitive;
+import net.eca.util.health.HealthDataflowAnalyzer.Reference;
+import net.eca.util.health.HealthDataflowAnalyzer.Source;
+import org.objectweb.asm.Opcodes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 基准用的合成"类实体"：不继承 LivingEntity，不需要引导 Minecraft。
+ * 结构覆盖真实模组血量存储的几种典型形态：多级字段链、Map 条目、嵌套 holder 链与数组。
+ * getHealth 系列方法供字节码分析基准使用；build* 系列方法给出与之等价的手工表达式树，供求值/反演基准使用。
+ */
+final class SyntheticEntity {
+
+    static final String OWNER = "net/eca/util/health/SyntheticEntity";
+    static final String STATS = "net/eca/util/health/SyntheticEntity$Stats";
+    static final String CORE = "net/eca/util/health/SyntheticEntity$Core";
+    static final String BONUS_KEY = "max_bonus";
+
+    static final class Core {
+        float value = 40.0f;
+        int armor = 3;
+        double[] modifiers = {1.0d, 0.5d, 0.25d};
+    }
+
+    static final class Stats {
+        Core core = new Core();
+        float bonus = 4.0f;
+        long ticks;
+    }
+
+    static final class Holder {
+        Holder next;
+        double shield;
+        final Map<String, Float> extras = new HashMap<>();
+    }
+
+    final Stats stats = new Stats();
+    final Map<String, Float> attributes = new HashMap<>();
+    final Holder head;
+    float scale = 2.0f;
+
+    SyntheticEntity(int holderDepth) {
+        attributes.put(BONUS_KEY, 6.0f);
+        attributes.put("regen", 0.5f);
+        Holder first = null;
+        for (int i = 0; i < holderDepth; i++) {
+            Holder holder = new Holder();
+            holder.shield = i;
+            holder.extras.put("layer", (float) i);
+            holder.next = first;
+            first = holder;
+        }
+        head = first;
+    }
+
+    /* ==================== 分析目标 ==================== */
+
+    float getHealth() {
+        Float extra = attributes.get(BONUS_KEY);
+        return stats.core.value * scale + stats.bonus + (extra == null ? 0.0f : extra);
+    }
+
+    float getHealthShielded() {
+        float base = getHealth();
+        Holder holder = head;
+        if (holder == null) return base;
+        if (holder.shield > 2.0d) return base + (float) holder.shield;
+        Float layer = holder.extras.get("layer");
+        return layer == null ? base : base - layer;
+    }
+
+    float getHealthEncoded() {
+        int raw = Float.floatToIntBits(stats.core.value) ^ 0x5A5A5A5A;
+        return Float.intBitsToFloat(raw ^ 0x5A5A5A5A) * (float) stats.core.modifiers[0];
+    }
+
+    /* ==================== 等价表达式树 ==================== */
+
+    // stats.core.value：以实体实例为根的字段链，无需 LivingEntity 即可读取
+    ChainedFieldSource coreValueSource() {
+        return new ChainedFieldSource(self(), List.of(
+                new FieldStep(OWNER, "stats", "L" + STATS + ";"),
+                new FieldStep(STATS, "core", "L" + CORE + ";"),
+                new FieldStep(CORE, "value", "F")), float.class);
+    }
+
+    // stats.core.value * scale + stats.bonus + attributes.get(BONUS_KEY).floatValue()
+    Expr buildHealthExpr(Source sink) {
+        Expr scaled = new Op(Opcodes.FMUL, List.of(sink, new Primitive(scale, 'F')));
+        Expr bonus = new ChainedFieldSource(self(), List.of(
+                new FieldStep(OWNER, "stats", "L" + STATS + ";"),
+                new FieldStep(STATS, "bonus", "F")), float.class);
+        Expr mapGet = new Call("java/util/Map", "get",
+                "(Ljava/lang/Object;)Ljava/lang/Object;",
+                List.of(new Reference(attributes, "java/util/HashMap"),
+                        new Reference(BONUS_KEY, "java/lang/String")));
+        Expr extra = new Call("java/lang/Float", "floatValue", "()F", List.of(mapGet));
+        Expr sum = new Op(Opcodes.FADD, List.of(scaled, bonus));
+        return new Op(Opcodes.FADD, List.of(sum, extra));
+    }
+
+    // 外层再包一层 Choice：首个分支查不存在的键恒为 null，求值须回落到第二分支
+    Expr buildChoiceExpr(Source sink) {
+        Expr missing = new Call("java/util/Map", "get",
+                "(Ljava/lang/Object;)Ljava/lang/Object;",
+                List.of(new Reference(attributes, "java/util/HashMap"),
+                        new Reference("absent", "java/lang/String")));
+        return new Choice(List.of(missing, buildHealthExpr(sink)));
+    }
+
+    List<Object> snapshotRoots() {
+        return List.of(this, attributes);
+    }
+
+    private Reference self() {
+        return new Reference(this, OWNER);
+    }
+}
@@ -8,6 +8,8 @@ import net.eca.util.EcaLogger;
 import net.eca.util.EntityLocationManager;
 import net.eca.util.EntityUtil;
 import net.eca.util.InvulnerableEntityManager;
+import net.eca.util.InvulnerableFlagHolder;
+import net.eca.util.ModAnnotationIndex;
 import net.eca.util.ResurrectionManager;
 import net.eca.util.call_bridge.CallBridgeManager;
 import net.eca.util.health.EcaOwnedState;
@@ -15,7 +17,6 @@ import net.eca.util.health.HealthLockManager;
 import net.eca.util.reflect.UnsafeUtil;
 
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import net.eca.util.entity_extension.EntityExtension;
 import net.eca.util.entity_extension.EntityExtensionManager;
 import net.eca.util.entity_extension.ForceLoadingManager;
@@ -42,8 +43,6 @@ import net.eca.client.render.preset.ShaderPreset;
 import net.eca.client.render.preset.ShaderPresetRegistry;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
-import net.minecraftforge.fml.ModList;
-import net.minecraftforge.forgespi.language.IModFileInfo;
 import net.minecraftforge.forgespi.language.ModFileScanData;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
@@ -74,18 +73,9 @@ import java.util.function.Supplier;
 
 public final class EcaAPI {
 
-    // 无敌实体快速路径：按 entityId 记录当前处于 ECA 无敌状态的实体。
-    // isInvulnerable() 先查此集，不在则直接返回 false 跳过 SynchedEntityData 读取。
-    private static final Set<Integer> INVULNERABLE_IDS = ConcurrentHashMap.newKeySet();
-
-    // 清除快速路径条目（供 EntityUtil 内部清理调用）
-    public static void clearInvulnerableFastPath(int entityId) {
-        INVULNERABLE_IDS.remove(entityId);
-    }
-
-    // 恢复快速路径条目（由 LivingEntityMixin.readAdditionalSaveData 调用，确保重启后快速路径不为空）
-    public static void restoreInvulnerableFastPath(int entityId) {
-        INVULNERABLE_IDS.add(entityId);
+    // 清除实体上的无敌标志位（供 EntityUtil 内部清理调用）
+    public static void clearInvulnerableFastPath(Entity entity) {
+        if (entity instanceof InvulnerableFlagHolder holder) holder.eca$setInvulnerableFlag(false);
     }
 
     // 在目标来源的调用栈检测器已桥接时执行受控调用
@@ -212,7 +202,7 @@ public final class EcaAPI {
         if (entity == null) {
             throw new IllegalArgumentException("Entity cannot be null");
         }
-        return HealthLockManager.getHealBan(entity) != null;
+        return HealthLockManager.hasHealBan(entity);
     }
 
     // 获取当前锁定值（如果没有锁定返回 null）
@@ -238,7 +228,7 @@ public final class EcaAPI {
         if (entity == null) {
             throw new IllegalArgumentException("Entity cannot be null");
         }
-        return HealthLockManager.getLock(entity) != null;
+        return HealthLockManager.hasLock(entity);
     }
 
     // 获取实体真实血量
@@ -337,11 +327,10 @@ public final class EcaAPI {
         if (entity == null) {
             return false;
         }
-        if (!(entity instanceof LivingEntity livingEntity)) {
-            return false;
-        }
-        // 快速路径：绝大多数实体不无敌，直接返回 false，跳过 SynchedEntityData 读取
-        if (!INVULNERABLE_IDS.contains(entity.getId())) {
+        // 快速路径：绝大多数实体不无敌，只读注入字段即返回 false，跳过 SynchedEntityData 读取
+        if (!(entity instanceof LivingEntity livingEntity)
+                || !(entity instanceof InvulnerableFlagHolder holder)
+                || !holder.eca$isInvulnerableFlag()) {
             return false;
         }
         boolean dataInvulnerable;
@@ -393,7 +382,7 @@ public final class EcaAPI {
 
         if (invulnerable) {
             // 开启无敌：复活 + 锁血 + 设置无敌状态 + 添加记录
-            INVULNERABLE_IDS.add(entity.getId());
+            if (entity instanceof InvulnerableFlagHolder holder) holder.eca$setInvulnerableFlag(true);
             revive(livingEntity);
             float lockValue = Math.max(EntityUtil.getHealth(livingEntity), livingEntity.getMaxHealth());
             lockValue = Math.max(lockValue, 1.0f);
@@ -406,7 +395,7 @@ public final class EcaAPI {
             InvulnerableEntityManager.addInvulnerable(entity);
         } else {
             // 关闭无敌：解除无敌状态 + 解锁血量 + 移除记录
-            INVULNERABLE_IDS.remove(entity.getId());
+            if (entity instanceof InvulnerableFlagHolder holder) holder.eca$setInvulnerableFlag(false);
             if (EntityUtil.INVULNERABLE != null) {
                 livingEntity.getEntityData().set(EntityUtil.INVULNERABLE, false);
             } else {
@@ -955,7 +944,7 @@ public final class EcaAPI {
         if (entity == null) {
             throw new IllegalArgumentException("Entity cannot be null");
         }
-        return HealthLockManager.getMaxHealthLock(entity) != null;
+        return HealthLockManager.hasMaxHealthLock(entity);
     }
 
     // 添加血量白名单关键词
@@ -1541,9 +1530,9 @@ public final class EcaAPI {
 
     private static AllReturnModScope resolveAllReturnModScope(String targetInternalName) {
         try {
-            for (IModFileInfo modFileInfo : ModList.get().getModFiles()) {
-                ModFileScanData scanData = modFileInfo.getFile().getScanResult();
-                if (scanData == null) continue;
+            //只检查含目标所在包的 mod 文件，顺序与 mod 列表一致
+            for (ModAnnotationIndex.FileRef file : ModAnnotationIndex.get().filesContainingPackageOf(targetInternalName)) {
+                ModFileScanData scanData = file.scanData();
 
                 Set<String> internalNames = new HashSet<>();
                 boolean containsTarget = false;
@@ -1566,7 +1555,7 @@ public final class EcaAPI {
                         prefixes.add(prefix);
                     }
                 }
-                return new AllReturnModScope(modFileInfo.getFile().getFileName(), internalNames, prefixes);
+                return new AllReturnModScope(file.fileName(), internalNames, prefixes);
             }
         } catch (Throwable t) {
             EcaLogger.warn("AllReturn: owning mod scan failed for {}: {}",
@@ -1711,29 +1700,30 @@ public final class EcaAPI {
 
     // ==================== 线程复活 ====================
 
-    // 启动复活守护线程
+    // 启动复活管理器
     /**
-     * Start the resurrection daemon thread (idempotent).
-     * Once started, the daemon continuously monitors all tracked entities and
-     * auto-revives any that die or lose their container instances.
+     * Start the resurrection manager (idempotent).
+     * Once started, death and removal hooks queue tracked entities for revival at the end of
+     * the server tick, and a periodic safety sweep catches any that die or lose their
+     * container instances without passing through those hooks.
      * Do not use on entities that spawn in large numbers.
      */
     public static void startResurrection() {
         ResurrectionManager.start();
     }
 
-    // 停止复活守护线程
+    // 停止复活管理器
     /**
-     * Stop the resurrection daemon thread.
+     * Stop the resurrection manager.
      */
     public static void stopResurrection() {
         ResurrectionManager.stop();
     }
 
-    // 检查复活守护线程是否运行
+    // 检查复活管理器是否运行
     /**
-     * Check whether the resurrection daemon thread is currently running.
-     * @return true if the daemon is active
+     * Check whether the resurrection manager is currently running.
+     * @return true if the manager is active
      */
     public static boolean isResurrectionRunning() {
         return ResurrectionManager.isRunning();
@@ -1742,7 +1732,7 @@ public final class EcaAPI {
     // 将实体加入复活追踪
     /**
      * Add an entity to the resurrection tracking set.
-     * Tracked entities are automatically revived on death every poll cycle.
+     * Tracked entities are automatically revived at the end of the tick in which they die.
      * @param entity the entity to track
      */
     public static void addResurrectionTarget(Entity entity) {
@@ -1785,19 +1775,19 @@ public final class EcaAPI {
         ResurrectionManager.clearAll();
     }
 
-    // 设置复活轮询间隔
+    // 设置复活兜底巡检间隔
     /**
-     * Set the daemon poll interval in milliseconds.
-     * @param ms poll interval, clamped to 1–10000 (default 25)
+     * Set the safety sweep interval in milliseconds. Rounded down to whole ticks, at least one.
+     * @param ms sweep interval, clamped to 1–10000 (default 1000)
      */
     public static void setResurrectionPollInterval(long ms) {
         ResurrectionManager.setPollIntervalMs(ms);
     }
 
-    // 获取复活轮询间隔
+    // 获取复活兜底巡检间隔
     /**
-     * Get the current daemon poll interval in milliseconds.
-     * @return poll interval in ms
+     * Get the current safety sweep interval in milliseconds.
+     * @return sweep interval in ms
      */
     public static long getResurrectionPollInterval() {
         return ResurrectionManager.getPollIntervalMs();
@@ -1805,7 +1795,7 @@ public final class EcaAPI {
 
     // 获取累计复活次数
     /**
-     * Get the total number of entities revived by the daemon since start.
+     * Get the total number of entities revived since start.
      * @return total revived count
      */
     public static long getResurrectionTotalRevived() {
@@ -1814,7 +1804,7 @@ public final class EcaAPI {
 
     // 获取累计检查次数
     /**
-     * Get the total number of entity checks performed by the daemon since start.
+     * Get the total number of entity checks performed since start.
      * @return total check count
      */
     public static long getResurrectionTotalChecks() {
@@ -1,5 +1,6 @@
 package net.eca.client;
 
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 
@@ -23,17 +24,24 @@ public class FactionGlowData {
 
     private FactionGlowData() {}
 
-    // 全量替换发光映射，并设置过期时间
+    // 应用一次同步：full 先清空再写入，否则按增量写入新增/变色条目并移除消失的实体
     /**
-     * Replace the glow map with new scan results and set an expiry timestamp.
+     * Apply a glow sync from the server and refresh the expiry timestamp.
      *
-     * @param entityColorMap entity id → ARGB color
-     * @param durationTicks  how long this data is valid, in ticks
+     * @param full          whether the payload replaces the whole map
+     * @param upserts       entity id → ARGB color for added or recoloured entities
+     * @param removals      entity ids that no longer glow
+     * @param durationTicks how long this data is valid, in ticks
      */
-    public static void update(Map<Integer, Integer> entityColorMap, int durationTicks) {
-        GLOW_MAP.clear();
-        if (entityColorMap != null) {
-            GLOW_MAP.putAll(entityColorMap);
+    public static void apply(boolean full, Int2IntMap upserts, int[] removals, int durationTicks) {
+        if (full) {
+            GLOW_MAP.clear();
+        }
+        for (int id : removals) {
+            GLOW_MAP.remove(id);
+        }
+        for (Int2IntMap.Entry entry : upserts.int2IntEntrySet()) {
+            GLOW_MAP.put(entry.getIntKey(), entry.getIntValue());
         }
         expireTime = System.currentTimeMillis() + durationTicks * 50L;
     }
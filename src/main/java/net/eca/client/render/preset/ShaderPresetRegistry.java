@@ -2,6 +2,7 @@ package net.eca.client.render.preset;
 
 import net.eca.api.RegisterShaderPreset;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.eca.util.entity_extension.GlobalEffectRegistry;
 import net.minecraft.client.Minecraft;
 import net.minecraft.resources.ResourceLocation;
@@ -53,21 +54,15 @@ public final class ShaderPresetRegistry {
 
     /* 扫描 @RegisterShaderPreset 注解：读 value() 得到预设 id，作为 MCR 可发现的清单条目 */
     private static void scanAnnotations() {
-        ModList.get().forEachModFile(modFile -> {
-            for (IModInfo modInfo : modFile.getModInfos()) {
-                modFile.getScanResult().getAnnotations().forEach(annotationData -> {
-                    if (RegisterShaderPreset.class.getName().equals(annotationData.annotationType().getClassName())) {
-                        String idStr = (String) annotationData.annotationData().get("value");
-                        if (idStr != null && !idStr.isBlank()) {
-                            ResourceLocation id = ResourceLocation.tryParse(idStr);
-                            if (id != null) {
-                                register(id);
-                            }
-                        }
-                    }
-                });
+        for (ModAnnotationIndex.Entry entry : ModAnnotationIndex.get().annotated(RegisterShaderPreset.class)) {
+            String idStr = (String) entry.values().get("value");
+            if (idStr != null && !idStr.isBlank()) {
+                ResourceLocation id = ResourceLocation.tryParse(idStr);
+                if (id != null) {
+                    register(id);
+                }
             }
-        });
+        }
     }
 
     /* config/eca/shadergenerator/<namespace>/<shaderName>/ 下每个有效五文件目录为一个预设 */
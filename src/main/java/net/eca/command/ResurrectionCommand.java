@@ -22,17 +22,17 @@ import java.util.UUID;
 
 /**
  * Command handler for {@code /eca resurrection}.
- * Controls the standalone {@link ResurrectionManager} daemon thread and its tracked entity set.
+ * Controls the event-driven {@link ResurrectionManager} and its tracked entity set.
  * <pre>
- * /eca resurrection start              — start the daemon thread
- * /eca resurrection stop               — stop the daemon thread
+ * /eca resurrection start              — start the resurrection manager
+ * /eca resurrection stop               — stop the resurrection manager
  * /eca resurrection status             — show thread state + counts
  * /eca resurrection add <targets>       — add entities to tracking
  * /eca resurrection remove <targets>    — remove entities from tracking
  * /eca resurrection list               — list tracked entities with container status
  * /eca resurrection check <target>      — one-shot container check
  * /eca resurrection revive <target>     — manual force-revive
- * /eca resurrection interval <ms>       — set poll interval (100~10000)
+ * /eca resurrection interval <ms>       — set safety sweep interval (100~10000)
  * </pre>
  */
 public class ResurrectionCommand {
@@ -72,7 +72,7 @@ public class ResurrectionCommand {
         int tracked = ResurrectionManager.getTrackedCount();
 
         source.sendSuccess(() -> Component.literal(
-            String.format("§aResurrectionManager daemon started. poll=%dms tracked=%d", interval, tracked)
+            String.format("§aResurrectionManager started. sweep=%dms tracked=%d", interval, tracked)
         ), true);
         return tracked;
     }
@@ -85,7 +85,7 @@ public class ResurrectionCommand {
         ResurrectionManager.stop();
 
         source.sendSuccess(() -> Component.literal(
-            String.format("§eResurrectionManager daemon stopped. totalRevived=%d totalChecks=%d", revived, checks)
+            String.format("§eResurrectionManager stopped. totalRevived=%d totalChecks=%d", revived, checks)
         ), true);
         return 1;
     }
@@ -104,7 +104,7 @@ public class ResurrectionCommand {
         String stateText = running ? "RUNNING" : "STOPPED";
 
         source.sendSuccess(() -> Component.literal(
-            String.format("%s[ResurrectionManager] state=%s§r%s poll=%dms tracked=%d totalRevived=%d totalChecks=%d",
+            String.format("%s[ResurrectionManager] state=%s§r%s sweep=%dms tracked=%d totalRevived=%d totalChecks=%d",
                 "§6", stateColor, stateText, interval, tracked, revived, checks)
         ), false);
         return tracked;
@@ -268,7 +268,7 @@ public class ResurrectionCommand {
         ResurrectionManager.setPollIntervalMs(ms);
 
         source.sendSuccess(() -> Component.literal(
-            String.format("§aResurrectionManager poll interval set to %dms", ms)
+            String.format("§aResurrectionManager sweep interval set to %dms", ms)
         ), true);
         return ms;
     }
@@ -9,18 +9,30 @@ public class EcaConfiguration {
 
     public static ForgeConfigSpec.ConfigValue<Boolean> FORCE_COMPATIBILITY_MODE;
     public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_ENABLE_RADICAL_LOGIC;
+    public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_PERSIST_ANALYSIS_CACHE;
+    public static ForgeConfigSpec.IntValue ATTACK_ANALYSIS_THREADS;
+    public static ForgeConfigSpec.IntValue ATTACK_ANALYSIS_URGENT_PARALLELISM;
+    public static ForgeConfigSpec.IntValue ATTACK_ANALYSIS_MAINTENANCE_PARALLELISM;
+    public static ForgeConfigSpec.IntValue ATTACK_ANALYSIS_MODEL_PARALLELISM;
+    public static ForgeConfigSpec.IntValue ATTACK_ANALYSIS_WARMUP_PARALLELISM;
+    public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_ANALYSIS_COMPILE_EXPRESSIONS;
     public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_SETHEALTH_ENABLE_CONST_OVERRIDE;
     public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_SETHEALTH_ENABLE_EXTERNAL_SCAN;
     public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_SETHEALTH_ENABLE_METHOD_PROBE;
     public static ForgeConfigSpec.ConfigValue<Boolean> ATTACK_SETHEALTH_ENABLE_NUMERIC_INVERSION;
     public static ForgeConfigSpec.ConfigValue<Boolean> DEFENCE_ENABLE_RADICAL_LOGIC;
     public static ForgeConfigSpec.ConfigValue<Boolean> DEFENCE_INVULNERABLE_UNTARGETABLE;
+    public static ForgeConfigSpec.ConfigValue<Boolean> DEFENCE_VERIFY_ENTITY_INDEX;
     public static ForgeConfigSpec.ConfigValue<Boolean> ATTRIBUTE_UNLOCK_LIMITS;
     public static ForgeConfigSpec.ConfigValue<Boolean> ENABLE_CUSTOM_LOADING_BACKGROUND;
     public static ForgeConfigSpec.IntValue FORCE_LOADING_MAX_RENDER_DISTANCE;
+    public static ForgeConfigSpec.ConfigValue<Boolean> ENTITY_EXTENSION_VERIFY_COUNTS;
+    public static ForgeConfigSpec.BooleanValue PARALLEL_ANNOTATION_CLASS_LOADING;
     public static ForgeConfigSpec.IntValue BOSSSHOW_MAX_SUBTITLE_DURATION_TICKS;
     public static ForgeConfigSpec.IntValue BOSSSHOW_RANGE_SCAN_INTERVAL_TICKS;
     public static ForgeConfigSpec.IntValue BOSSSHOW_ENTITY_SELECTION_RANGE;
+    public static ForgeConfigSpec.DoubleValue BOSSSHOW_FRAME_POSITION_TOLERANCE;
+    public static ForgeConfigSpec.DoubleValue BOSSSHOW_FRAME_ANGLE_TOLERANCE;
 
     // Faction Configuration | 阵营系统配置
     public static ForgeConfigSpec.BooleanValue FACTION_ACTION_BAR_MESSAGES;
@@ -36,6 +48,8 @@ public class EcaConfiguration {
     public static ForgeConfigSpec.BooleanValue FACTION_IMMEDIATE_MEMBER_ALERT;
     public static ForgeConfigSpec.BooleanValue FACTION_LEADER_PROTECTION_ENABLED;
     public static ForgeConfigSpec.BooleanValue FACTION_IMMEDIATE_LEADER_PROTECTION;
+    public static ForgeConfigSpec.IntValue RAID_SPAWNS_PER_TICK;
+    public static ForgeConfigSpec.IntValue RAID_SPAWN_TIME_BUDGET_MICROS;
 
     static {
         // Compatibility Configuration | 兼容性配置
@@ -54,6 +68,12 @@ public class EcaConfiguration {
                      "启用激进攻击逻辑：memoryRemove、AllReturn 等。警告：可能导致游戏不稳定！")
             .define("Enable Radical Logic", false);
 
+        ATTACK_PERSIST_ANALYSIS_CACHE = BUILDER
+            .comment("Persist health dataflow analysis results to config/eca/cache so later launches skip re-analysing unchanged entity classes."
+                    + " Entries are keyed by a digest of the class bytecode and are discarded automatically when a mod updates.",
+                     "将血量数据流分析结果持久化到 config/eca/cache，后续启动对未改动的实体类跳过重分析。条目按类字节码摘要索引，模组更新后自动作废。")
+            .define("Persist Analysis Cache", true);
+
         // setHealth 子配置：改血模块各自开关。数据流逆向与玩家/原版直写一样是基础能力（常开，仅受强制兼容模式控制，
         // 见 getAttackSetHealthEnableDataflowSafely），不在此列；本子段只容纳以激进逻辑为共同前提的模块。
         BUILDER.push("setHealth");
@@ -83,6 +103,42 @@ public class EcaConfiguration {
             .define("Enable Numeric Inversion", false);
 
         BUILDER.pop();  // setHealth
+
+        // analysis 子配置：血量分析调度器的线程池与各优先级道并发上限，0 表示按核心数自动取值
+        BUILDER.push("analysis");
+
+        ATTACK_ANALYSIS_THREADS = BUILDER
+            .comment("Worker threads shared by all health analysis tasks. 0 = auto (available processors - 1, between 2 and 16). Takes effect after restart.",
+                     "所有血量分析任务共享的工作线程数。0 为自动（可用核心数 - 1，限定在 2 到 16 之间）。重启后生效。")
+            .defineInRange("Analysis Threads", 0, 0, 64);
+
+        ATTACK_ANALYSIS_URGENT_PARALLELISM = BUILDER
+            .comment("Max concurrent tasks for classes awaiting setHealth or present in a level. 0 = whole pool.",
+                     "等待改血或已在世界中出现的实体类，其分析任务的最大并发数。0 为整个线程池。")
+            .defineInRange("Urgent Parallelism", 0, 0, 64);
+
+        ATTACK_ANALYSIS_MAINTENANCE_PARALLELISM = BUILDER
+            .comment("Max concurrent tick/writer maintenance scans. 0 = whole pool.",
+                     "tick / writer 维护写集扫描的最大并发数。0 为整个线程池。")
+            .defineInRange("Maintenance Parallelism", 2, 0, 64);
+
+        ATTACK_ANALYSIS_MODEL_PARALLELISM = BUILDER
+            .comment("Max concurrent comparison prescans and effective-health model analyses. 0 = whole pool.",
+                     "比较表达式预扫与有效血量建模的最大并发数。0 为整个线程池。")
+            .defineInRange("Model Parallelism", 1, 0, 64);
+
+        ATTACK_ANALYSIS_WARMUP_PARALLELISM = BUILDER
+            .comment("Max concurrent speculative warmup tasks over loaded entity classes. 0 = pool size - 1, keeping one thread free for urgent work.",
+                     "启动期对已加载实体类投机预热的最大并发数。0 为线程池大小 - 1，为紧急任务保留一条线程。")
+            .defineInRange("Warmup Parallelism", 0, 0, 64);
+
+        ATTACK_ANALYSIS_COMPILE_EXPRESSIONS = BUILDER
+            .comment("Compile frequently evaluated health expressions into cached evaluator trees with linked method handles."
+                    + " Compiled results are periodically cross-checked against the reflective interpreter; disable to always interpret.",
+                     "将频繁求值的血量表达式编译为缓存的求值树并预先链接方法句柄。编译结果会定期与反射解释器交叉校验；关闭后始终解释求值。")
+            .define("Compile Expressions", true);
+
+        BUILDER.pop();  // analysis
         BUILDER.pop();  // Attack
 
         // Defence Configuration | 防御系统配置
@@ -98,6 +154,11 @@ public class EcaConfiguration {
                      "启用后无敌实体不可被其他实体通过 setTarget 锁定为目标。")
             .define("Invulnerable Entity Untargetable", true);
 
+        DEFENCE_VERIFY_ENTITY_INDEX = BUILDER
+            .comment("Debug: when an entity lookup misses the secondary id/UUID index, re-run the full container scan and log any entity the index missed. Slow; intended for testing.",
+                     "调试：实体查找未命中 id/UUID 二级索引时，重新执行全量容器扫描并记录索引遗漏的实体。开销较大，仅用于测试。")
+            .define("Verify Entity Index", false);
+
         BUILDER.pop();
 
         ATTRIBUTE_UNLOCK_LIMITS = BUILDER
@@ -115,6 +176,16 @@ public class EcaConfiguration {
                      "强制加载实体的最大渲染（方块）")
             .defineInRange("Force Loading Max Render Distance", 128, 2, Integer.MAX_VALUE);
 
+        ENTITY_EXTENSION_VERIFY_COUNTS = BUILDER
+            .comment("Debug: when validating entity extension active types, also count each type with a full entity scan and log any mismatch with the live counters. Slow; intended for testing.",
+                     "调试：校验实体扩展激活类型时，额外以全量实体扫描计数并记录与实时计数器不一致的类型。开销较大，仅用于测试。")
+            .define("Verify Entity Extension Counts", false);
+
+        PARALLEL_ANNOTATION_CLASS_LOADING = BUILDER
+            .comment("Load classes annotated with ECA registration annotations in parallel before initializing them in order at startup. Disable if another mod's class transformer is not thread-safe.",
+                     "启动时先并行加载带 ECA 注册注解的类，再按顺序初始化。若其他 mod 的类转换器不支持并发，请关闭。")
+            .define("Parallel Annotation Class Loading", true);
+
         // BossShow Configuration | 演出系统配置
         BUILDER.push("BossShow");
 
@@ -133,6 +204,16 @@ public class EcaConfiguration {
                      "录制选择模式下实体绑定射线追踪的触及距离（方块）。默认 64。")
             .defineInRange("Entity Selection Range", 64, 4, 256);
 
+        BOSSSHOW_FRAME_POSITION_TOLERANCE = BUILDER
+            .comment("Maximum camera position error (in blocks) allowed when compressing BossShow frames for network and JSON storage. 0 stores every frame exactly.",
+                     "BossShow 帧在网络传输与 JSON 存储时压缩所允许的最大镜头位置误差（方块）。0 表示逐帧精确存储。")
+            .defineInRange("Frame Position Tolerance", 0.01, 0.0, 1.0);
+
+        BOSSSHOW_FRAME_ANGLE_TOLERANCE = BUILDER
+            .comment("Maximum camera yaw/pitch error (in degrees) allowed when compressing BossShow frames. 0 stores every frame exactly.",
+                     "BossShow 帧压缩所允许的最大镜头偏航/俯仰误差（度）。0 表示逐帧精确存储。")
+            .defineInRange("Frame Angle Tolerance", 0.1, 0.0, 10.0);
+
         BUILDER.pop();
 
         // Faction Configuration | 阵营系统配置
@@ -210,6 +291,21 @@ public class EcaConfiguration {
 
         BUILDER.pop();
 
+        // Raid Configuration | 袭击系统配置
+        BUILDER.push("Raid");
+
+        RAID_SPAWNS_PER_TICK = BUILDER
+            .comment("Maximum raiders spawned per raid per tick. Larger waves are spread over several ticks.",
+                     "每场袭击每 tick 最多生成的袭击者数量。更大的波次会分摊到多个 tick 生成。")
+            .defineInRange("Spawns Per Tick", 8, 1, 1024);
+
+        RAID_SPAWN_TIME_BUDGET_MICROS = BUILDER
+            .comment("Time budget in microseconds for raid spawning per raid per tick. At least one raider is always spawned per tick. 0 disables the time budget.",
+                     "每场袭击每 tick 用于生成袭击者的时间预算（微秒）。每 tick 至少生成一个袭击者。0 表示不限时间。")
+            .defineInRange("Spawn Time Budget Micros", 2000, 0, 50000);
+
+        BUILDER.pop();
+
         SPEC = BUILDER.build();
     }
 
@@ -235,6 +331,35 @@ public class EcaConfiguration {
         return safeGet(ATTACK_ENABLE_RADICAL_LOGIC, false);
     }
 
+    public static boolean getAttackPersistAnalysisCacheSafely() {
+        if (getForceCompatibilityModeSafely()) return false;
+        return safeGet(ATTACK_PERSIST_ANALYSIS_CACHE, true);
+    }
+
+    public static int getAttackAnalysisThreadsSafely() {
+        return safeGet(ATTACK_ANALYSIS_THREADS, 0);
+    }
+
+    public static int getAttackAnalysisUrgentParallelismSafely() {
+        return safeGet(ATTACK_ANALYSIS_URGENT_PARALLELISM, 0);
+    }
+
+    public static int getAttackAnalysisMaintenanceParallelismSafely() {
+        return safeGet(ATTACK_ANALYSIS_MAINTENANCE_PARALLELISM, 2);
+    }
+
+    public static int getAttackAnalysisModelParallelismSafely() {
+        return safeGet(ATTACK_ANALYSIS_MODEL_PARALLELISM, 1);
+    }
+
+    public static int getAttackAnalysisWarmupParallelismSafely() {
+        return safeGet(ATTACK_ANALYSIS_WARMUP_PARALLELISM, 0);
+    }
+
+    public static boolean getAttackAnalysisCompileExpressionsSafely() {
+        return safeGet(ATTACK_ANALYSIS_COMPILE_EXPRESSIONS, true);
+    }
+
     public static boolean getAttackSetHealthEnableConstOverrideSafely() {
         if (!getAttackEnableRadicalLogicSafely()) return false;
         return safeGet(ATTACK_SETHEALTH_ENABLE_CONST_OVERRIDE, false);
@@ -274,6 +399,18 @@ public class EcaConfiguration {
         return safeGet(DEFENCE_INVULNERABLE_UNTARGETABLE, true);
     }
 
+    public static boolean getDefenceVerifyEntityIndexSafely() {
+        return safeGet(DEFENCE_VERIFY_ENTITY_INDEX, false);
+    }
+
+    public static boolean getEntityExtensionVerifyCountsSafely() {
+        return safeGet(ENTITY_EXTENSION_VERIFY_COUNTS, false);
+    }
+
+    public static boolean getParallelAnnotationClassLoadingSafely() {
+        return safeGet(PARALLEL_ANNOTATION_CLASS_LOADING, true);
+    }
+
     public static boolean getAttributeUnlockLimitsSafely() {
         return safeGet(ATTRIBUTE_UNLOCK_LIMITS, true);
     }
@@ -298,6 +435,14 @@ public class EcaConfiguration {
         return safeGet(BOSSSHOW_ENTITY_SELECTION_RANGE, 64);
     }
 
+    public static double getBossShowFramePositionToleranceSafely() {
+        return safeGet(BOSSSHOW_FRAME_POSITION_TOLERANCE, 0.01);
+    }
+
+    public static double getBossShowFrameAngleToleranceSafely() {
+        return safeGet(BOSSSHOW_FRAME_ANGLE_TOLERANCE, 0.1);
+    }
+
     // Faction Configuration Safe Access Methods | 阵营系统安全访问方法
 
     public static boolean getFactionActionBarMessagesSafely() {
@@ -352,6 +497,16 @@ public class EcaConfiguration {
         return safeGet(FACTION_IMMEDIATE_LEADER_PROTECTION, false);
     }
 
+    // Raid Configuration Safe Access Methods | 袭击系统安全访问方法
+
+    public static int getRaidSpawnsPerTickSafely() {
+        return safeGet(RAID_SPAWNS_PER_TICK, 8);
+    }
+
+    public static int getRaidSpawnTimeBudgetMicrosSafely() {
+        return safeGet(RAID_SPAWN_TIME_BUDGET_MICROS, 2000);
+    }
+
     // 将配置中的十六进制颜色字符串解析为 ARGB int
     /**
      * Parse a config hex color string (e.g. "FFFF0000") to an ARGB int.
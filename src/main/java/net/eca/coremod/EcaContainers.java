@@ -9,6 +9,7 @@ import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
 import net.eca.api.EcaAPI;
 import net.eca.util.EntityUtil;
 import net.eca.util.EntityRemovalQuarantine;
+import net.eca.util.selector.EcaEntityIndex;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.entity.ChunkEntities;
@@ -19,22 +20,30 @@ import java.util.AbstractCollection;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import it.unimi.dsi.fastutil.objects.AbstractObjectCollection;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * ECA custom container classes for entity protection.
@@ -138,6 +147,18 @@ public final class EcaContainers {
         return entity != null && EntityRemovalQuarantine.shouldBlockAdd(entity);
     }
 
+    // 实体离开分区列表或写入大来源后，交给区域查询复核它是否游离
+    private static void noteMembership(Object value) {
+        if (value == null) return;
+        EcaEntityIndex.noteMembershipChange(resolveEntityFromContainerValue(value));
+    }
+
+    private static void noteSectionMembers(Object value) {
+        if (value instanceof EntitySection<?> section) {
+            section.getEntities().forEach(EcaContainers::noteMembership);
+        }
+    }
+
     private static boolean hasProtectedEntity(Collection<?> values) {
         for (Object value : values) {
             if (shouldProtectTarget(value)) {
@@ -210,6 +231,121 @@ public final class EcaContainers {
             .anyMatch(entityAccess -> entityAccess instanceof Entity entity && shouldProtectEntity(entity));
     }
 
+    // ==================== 零拷贝迭代 ====================
+
+    /*
+     * 容器的迭代代次。迭代器创建时领取当前代次并直接遍历底层存储；
+     * 写操作改动存储前检查当前代次上是否还有未走完的迭代器，有则把底层存储整体冻结一份挂到该代次上，并开启新代次。
+     * 在途迭代器发现所属代次已冻结后，按原游标改读冻结副本，语义与原先"创建即快照"一致：
+     * 迭代中重入修改既不会抛 CME，也看不到迭代开始后的变化。
+     * 容器只引用当前代次、从不持有迭代器：中途 break 的迭代器随自身被回收，至多让下一次写操作多冻结一次。
+     * 没有迭代器在途时，写操作只多一次 volatile 读与一次原子读。
+     */
+    private static final class IterationGuard {
+        private volatile Generation current = new Generation();
+
+        Generation open() {
+            Generation generation = current;
+            generation.open.incrementAndGet();
+            return generation;
+        }
+
+        boolean hasOpenIterators() {
+            return current.open.get() > 0;
+        }
+
+        // 调用方在改动存储前传入整体副本；此后在途迭代器读副本，新迭代器读新代次
+        void freeze(Object frozen) {
+            Generation generation = current;
+            current = new Generation();
+            generation.frozen = frozen;
+        }
+    }
+
+    private static final class Generation {
+        private final AtomicInteger open = new AtomicInteger();
+        private volatile Object frozen;
+    }
+
+    /*
+     * 直接遍历底层存储的迭代器；所属代次被冻结后改读副本，隔离纪元在遍历中途变化时逐个跳过被隐藏的元素。
+     */
+    private abstract static class GuardedIterator<E> implements Iterator<E> {
+        private final Generation generation;
+        private final boolean hideQuarantined;
+        private final int epoch;
+        private boolean finished;
+        private E pending;
+        private boolean hasPending;
+        private E last;
+        private boolean hasLast;
+
+        GuardedIterator(IterationGuard guard, boolean hideQuarantined) {
+            this.generation = guard.open();
+            this.hideQuarantined = hideQuarantined;
+            this.epoch = EntityRemovalQuarantine.epoch();
+        }
+
+        // frozen 为 null 时读底层存储，否则读冻结副本；两者的游标位置一致
+        abstract boolean hasNextIn(Object frozen);
+
+        abstract E nextIn(Object frozen);
+
+        // 删除上一个返回的元素，走容器自身的受保护写入；写入会先冻结本迭代器所属代次，游标无需调整
+        abstract void removeLast(E element);
+
+        @Override
+        public final boolean hasNext() {
+            if (hasPending) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            Object frozen = generation.frozen;
+            if (hideQuarantined && epoch != EntityRemovalQuarantine.epoch() && EntityRemovalQuarantine.hasActiveRemovals()) {
+                while (hasNextIn(frozen)) {
+                    E element = nextIn(frozen);
+                    if (!shouldHideTarget(element)) {
+                        pending = element;
+                        hasPending = true;
+                        return true;
+                    }
+                }
+            } else if (hasNextIn(frozen)) {
+                return true;
+            }
+            finished = true;
+            generation.open.decrementAndGet();
+            return false;
+        }
+
+        @Override
+        public final E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (hasPending) {
+                last = pending;
+                pending = null;
+                hasPending = false;
+            } else {
+                last = nextIn(generation.frozen);
+            }
+            hasLast = true;
+            return last;
+        }
+
+        @Override
+        public final void remove() {
+            if (!hasLast) {
+                throw new IllegalStateException();
+            }
+            hasLast = false;
+            removeLast(last);
+        }
+    }
+
     /**
      * ECA自定义的ArrayList容器
      * 用于替换MC原版的ClassInstanceMultiMap.allInstances
@@ -218,6 +354,8 @@ public final class EcaContainers {
 
         private static final long serialVersionUID = 1L;
 
+        private final transient IterationGuard guard = new IterationGuard();
+
         public EcaArrayList() {
             super();
         }
@@ -244,6 +382,12 @@ public final class EcaContainers {
             return snapshot;
         }
 
+        private void beforeWrite() {
+            if (guard.hasOpenIterators()) {
+                guard.freeze(super.toArray());
+            }
+        }
+
         private List<E> readableValues() {
             List<E> snapshot = rawValues();
             if (EntityRemovalQuarantine.hasActiveRemovals()) {
@@ -254,12 +398,17 @@ public final class EcaContainers {
 
         @Override
         public boolean add(E element) {
-            return !shouldBlockAddition(element) && super.add(element);
+            if (shouldBlockAddition(element)) {
+                return false;
+            }
+            beforeWrite();
+            return super.add(element);
         }
 
         @Override
         public void add(int index, E element) {
             if (!shouldBlockAddition(element)) {
+                beforeWrite();
                 super.add(index, element);
             }
         }
@@ -279,6 +428,7 @@ public final class EcaContainers {
             boolean modified = false;
             for (E value : values) {
                 if (!shouldBlockAddition(value)) {
+                    beforeWrite();
                     super.add(insertionIndex++, value);
                     modified = true;
                 }
@@ -291,6 +441,7 @@ public final class EcaContainers {
             if (shouldBlockAddition(element)) {
                 return super.get(index);
             }
+            beforeWrite();
             return super.set(index, element);
         }
 
@@ -303,7 +454,12 @@ public final class EcaContainers {
             if (isProtectedElement(o)) {
                 return false;
             }
-            return super.remove(o);
+            beforeWrite();
+            if (!super.remove(o)) {
+                return false;
+            }
+            noteMembership(o);
+            return true;
         }
 
         @Override
@@ -312,45 +468,70 @@ public final class EcaContainers {
             if (isProtectedElement(element)) {
                 return null;
             }
-            return super.remove(index);
+            beforeWrite();
+            E removed = super.remove(index);
+            noteMembership(removed);
+            return removed;
         }
 
         @Override
         public boolean removeAll(Collection<?> c) {
-            Collection<?> filtered = c.stream()
-                .filter(item -> !isProtectedElement(item))
-                .toList();
-            return super.removeAll(filtered);
+            beforeWrite();
+            return super.removeIf(item -> !isProtectedElement(item) && c.contains(item) && noteRemoval(item));
         }
 
         @Override
         public boolean removeIf(Predicate<? super E> filter) {
-            Predicate<E> protectedFilter = item -> !isProtectedElement(item) && filter.test(item);
+            Predicate<E> protectedFilter = item -> !isProtectedElement(item) && filter.test(item) && noteRemoval(item);
+            beforeWrite();
             return super.removeIf(protectedFilter);
         }
 
         @Override
         public boolean retainAll(Collection<?> c) {
-            return super.removeIf(item -> !isProtectedElement(item) && !c.contains(item));
+            beforeWrite();
+            return super.removeIf(item -> !isProtectedElement(item) && !c.contains(item) && noteRemoval(item));
         }
 
         @Override
         public void clear() {
-            if (hasProtectedEntity(this)) {
-                super.removeIf(item -> !isProtectedElement(item));
-                return;
-            }
-            super.clear();
+            beforeWrite();
+            super.removeIf(item -> !isProtectedElement(item) && noteRemoval(item));
+        }
+
+        // 谓词内登记被移除的元素，返回 true 以继续移除
+        private static boolean noteRemoval(Object item) {
+            noteMembership(item);
+            return true;
+        }
+
+        @Override
+        public void sort(Comparator<? super E> comparator) {
+            beforeWrite();
+            super.sort(comparator);
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<E> operator) {
+            beforeWrite();
+            super.replaceAll(operator);
         }
 
+        // 无活动隔离时直接按下标遍历底层数组，不再每次复制整张列表
         @Override
         public Iterator<E> iterator() {
-            return readableValues().iterator();
+            if (EntityRemovalQuarantine.hasActiveRemovals()) {
+                return readableValues().iterator();
+            }
+            return new DirectIterator();
         }
 
         @Override
         public Spliterator<E> spliterator() {
-            return readableValues().spliterator();
+            if (EntityRemovalQuarantine.hasActiveRemovals()) {
+                return readableValues().spliterator();
+            }
+            return Spliterators.spliteratorUnknownSize(new DirectIterator(), Spliterator.ORDERED);
         }
 
         @Override
@@ -368,6 +549,29 @@ public final class EcaContainers {
             }
             return readableValues().toArray(array);
         }
+
+        private final class DirectIterator extends GuardedIterator<E> {
+            private int cursor;
+
+            DirectIterator() {
+                super(guard, true);
+            }
+
+            @Override
+            boolean hasNextIn(Object frozen) {
+                return cursor < (frozen == null ? EcaArrayList.super.size() : ((Object[]) frozen).length);
+            }
+
+            @Override
+            E nextIn(Object frozen) {
+                return frozen == null ? EcaArrayList.super.get(cursor++) : (E) ((Object[]) frozen)[cursor++];
+            }
+
+            @Override
+            void removeLast(E element) {
+                EcaArrayList.this.remove(element);
+            }
+        }
     }
 
     /**
@@ -819,7 +1023,9 @@ public final class EcaContainers {
                 SECTION_REMOVAL_CONTEXT.set(new SectionRemovalContext(this, key));
                 return null;
             }
-            return super.remove(key);
+            V removed = super.remove(key);
+            noteSectionMembers(removed);
+            return removed;
         }
 
         @Override
@@ -828,16 +1034,20 @@ public final class EcaContainers {
             if (existing != null && Objects.equals(existing, value) && hasProtectedEntityInSection(existing)) {
                 return false;
             }
-            return super.remove(key, value);
+            if (!super.remove(key, value)) {
+                return false;
+            }
+            noteSectionMembers(existing);
+            return true;
         }
 
         @Override
         public void clear() {
-            if (super.values().stream().anyMatch(EcaContainers::hasProtectedEntityInSection)) {
-                super.long2ObjectEntrySet().removeIf(entry -> !hasProtectedEntityInSection(entry.getValue()));
-                return;
-            }
-            super.clear();
+            super.long2ObjectEntrySet().removeIf(entry -> {
+                if (hasProtectedEntityInSection(entry.getValue())) return false;
+                noteSectionMembers(entry.getValue());
+                return true;
+            });
         }
 
         // EntitySectionStorage 遍历期间可能因实体复活重入修改分区表，使用快照避免 fastutil 迭代器状态损坏。
@@ -954,6 +1164,9 @@ public final class EcaContainers {
 
         private static final long serialVersionUID = 1L;
 
+        private final transient IterationGuard guard = new IterationGuard();
+        private transient ObjectCollection<V> valuesView;
+
         public EcaInt2ObjectOpenHashMap() {
             super();
         }
@@ -974,12 +1187,33 @@ public final class EcaContainers {
             return new ArrayList<>(super.values());
         }
 
+        // 冻结槽位数组：迭代器按槽位下标扫描，副本下标与冻结前一致
+        private void beforeWrite() {
+            if (guard.hasOpenIterators()) {
+                guard.freeze(new FrozenSlots(key.clone(), value.clone()));
+            }
+        }
+
         @Override
         public V put(int key, V value) {
             if (shouldBlockAddition(value)) {
                 return super.get(key);
             }
-            return super.put(key, value);
+            beforeWrite();
+            V previous = super.put(key, value);
+            noteMembership(value);
+            return previous;
+        }
+
+        @Override
+        public V putIfAbsent(int key, V value) {
+            if (shouldBlockAddition(value)) {
+                return super.get(key);
+            }
+            beforeWrite();
+            V previous = super.putIfAbsent(key, value);
+            noteMembership(value);
+            return previous;
         }
 
         @Override
@@ -987,6 +1221,7 @@ public final class EcaContainers {
             if (shouldProtectRemoval(key)) {
                 return null;
             }
+            beforeWrite();
             return super.remove(key);
         }
 
@@ -1004,11 +1239,13 @@ public final class EcaContainers {
             if (existing != null && Objects.equals(existing, value) && shouldProtectRemoval(key)) {
                 return false;
             }
+            beforeWrite();
             return super.remove(key, value);
         }
 
         @Override
         public void clear() {
+            beforeWrite();
             if (hasProtectedEntity(super.values())) {
                 super.int2ObjectEntrySet().removeIf(entry -> !shouldProtectTarget(entry.getValue()));
                 return;
@@ -1016,11 +1253,80 @@ public final class EcaContainers {
             super.clear();
         }
 
-        // ChunkMap.tick 迭代 values() 时，onRemove 可能重入修改 map，
-        // 返回快照副本避免 fastutil 迭代器状态损坏。
+        // ChunkMap.tick 迭代 values() 时，onRemove 可能重入修改 map。
+        // 迭代器直接扫描底层槽位数组；重入写入前把槽位数组冻结给在途迭代器，fastutil 迭代器状态不会被破坏。
         @Override
         public ObjectCollection<V> values() {
-            return new ObjectArrayList<>(super.values());
+            if (valuesView == null) {
+                valuesView = new AbstractObjectCollection<>() {
+                    @Override
+                    public ObjectIterator<V> iterator() {
+                        return new DirectValueIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return EcaInt2ObjectOpenHashMap.this.size;
+                    }
+
+                    @Override
+                    public boolean contains(Object value) {
+                        return EcaInt2ObjectOpenHashMap.this.containsValue(value);
+                    }
+
+                    @Override
+                    public void clear() {
+                        EcaInt2ObjectOpenHashMap.this.clear();
+                    }
+                };
+            }
+            return valuesView;
+        }
+
+        private record FrozenSlots(int[] key, Object[] value) {}
+
+        // 按 fastutil 自身迭代器的顺序扫描：先空键槽位，再从高到低扫描普通槽位
+        private final class DirectValueIterator extends GuardedIterator<V> implements ObjectIterator<V> {
+            private int index = n;
+            private boolean nullKeyPending = containsNullKey;
+            private int lastKey;
+
+            DirectValueIterator() {
+                super(guard, false);
+            }
+
+            @Override
+            boolean hasNextIn(Object frozen) {
+                if (nullKeyPending) {
+                    return true;
+                }
+                int[] keys = frozen == null ? key : ((FrozenSlots) frozen).key();
+                while (index > 0) {
+                    if (keys[index - 1] != 0) {
+                        return true;
+                    }
+                    index--;
+                }
+                return false;
+            }
+
+            @Override
+            V nextIn(Object frozen) {
+                Object[] values = frozen == null ? value : ((FrozenSlots) frozen).value();
+                if (nullKeyPending) {
+                    nullKeyPending = false;
+                    lastKey = 0;
+                    return (V) values[values.length - 1];
+                }
+                hasNextIn(frozen);
+                lastKey = (frozen == null ? key : ((FrozenSlots) frozen).key())[--index];
+                return (V) values[index];
+            }
+
+            @Override
+            void removeLast(V element) {
+                EcaInt2ObjectOpenHashMap.this.remove(lastKey);
+            }
         }
 
         private boolean shouldProtectRemoval(int entityId) {
@@ -1072,7 +1378,9 @@ public final class EcaContainers {
             if (shouldBlockAddition(value)) {
                 return super.get(key);
             }
-            return super.put(key, value);
+            V previous = super.put(key, value);
+            noteMembership(value);
+            return previous;
         }
 
         @Override
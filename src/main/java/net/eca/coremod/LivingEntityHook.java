@@ -56,15 +56,15 @@ public final class LivingEntityHook {
         if (RAW_HEALTH_READ.get()) {
             return Float.NaN;
         }
-        // 锁血：直接返回锁定值
-        Float locked = HealthLockManager.getLock(entity);
-        if (locked != null) {
+        // 锁血：直接返回锁定值(未锁为 NaN，原始表一次探测，不装箱)
+        float locked = HealthLockManager.getLockValue(entity);
+        if (!Float.isNaN(locked)) {
             return locked;
         }
 
         // 禁疗：直接返回禁疗时记录的血量值
-        Float healBan = HealthLockManager.getHealBan(entity);
-        if (healBan != null) {
+        float healBan = HealthLockManager.getHealBanValue(entity);
+        if (!Float.isNaN(healBan)) {
             return healBan;
         }
 
@@ -87,11 +87,8 @@ public final class LivingEntityHook {
         if (entity == null) {
             return Float.NaN;
         }
-        Float locked = HealthLockManager.getMaxHealthLock(entity);
-        if (locked != null) {
-            return locked;
-        }
-        return Float.NaN;
+        // 未锁定时本身即为 NaN，直接放行
+        return HealthLockManager.getMaxHealthLockValue(entity);
     }
 
     // ==================== isDeadOrDying() hook ====================
@@ -111,8 +108,7 @@ public final class LivingEntityHook {
         if (EcaAPI.isInvulnerable(entity)) {
             return 0;
         }
-        Float locked = HealthLockManager.getLock(entity);
-        if (locked != null && locked > 0.0f) {
+        if (HealthLockManager.hasLock(entity)) {
             return 0;
         }
         return -1;
@@ -135,8 +131,7 @@ public final class LivingEntityHook {
         if (EcaAPI.isInvulnerable(entity)) {
             return 1;
         }
-        Float locked = HealthLockManager.getLock(entity);
-        if (locked != null && locked > 0.0f) {
+        if (HealthLockManager.hasLock(entity)) {
             return 1;
         }
         return -1;
@@ -7,6 +7,7 @@ import java.lang.instrument.Instrumentation;
 import java.security.ProtectionDomain;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /*
  * 运行期字节码提供器：类首次加载与重转换时由永久捕获器自动缓存主转换链输出，
@@ -25,6 +26,8 @@ public final class RuntimeBytecodeProvider {
     private static final Map<String, byte[]> ANALYSIS_BYTES = new ConcurrentHashMap<>();
     private static volatile boolean captureRegistered = false;
     private static volatile boolean jvmTiRegistered = false;
+    /* 运行期字节码捕获通知：只传内部名，监听方按需回查字节，捕获线程上不做任何解析。 */
+    private static volatile Consumer<String> captureListener = null;
 
     // 注册永久捕获器：截获主转换器之后的运行期字节码，并使该类旧健康变换回执失效
     public static void registerPermanentCapture(Instrumentation inst) {
@@ -74,9 +77,12 @@ public final class RuntimeBytecodeProvider {
             if (internalName == null || internalName.isEmpty()) return;
             EcaTransformerManager.invalidateHealthTransformReceipt(internalName);
             byte[] copy = bytes.clone();
-            put(target, internalName.replace('.', '/'), copy, replace);
+            String key = internalName.replace('.', '/');
+            put(target, key, copy, replace);
             int hiddenSuffix = internalName.indexOf("/0x");
             if (hiddenSuffix > 0) put(target, internalName.substring(0, hiddenSuffix), copy, replace);
+            Consumer<String> listener = captureListener;
+            if (listener != null && target == RUNTIME_BYTES) listener.accept(key);
         } catch (Throwable ignored) {
             // 捕获器不能因异常影响类定义；调用方会回退到其他字节码来源。
         }
@@ -87,6 +93,18 @@ public final class RuntimeBytecodeProvider {
         else target.putIfAbsent(key, bytes);
     }
 
+    /* 注册运行期字节码捕获监听，并对注册前已捕获的类逐个补发一次通知；补发与并发捕获可能重复，监听方自行去重。 */
+    public static void setCaptureListener(Consumer<String> listener) {
+        captureListener = listener;
+        if (listener == null) return;
+        for (String internalName : RUNTIME_BYTES.keySet()) listener.accept(internalName);
+    }
+
+    //按内部名取运行期字节码；未缓存时返回 null
+    public static byte[] getByName(String internalName) {
+        return internalName == null ? null : RUNTIME_BYTES.get(internalName);
+    }
+
     //取该类运行期字节码；未缓存时返回 null(调用方回退磁盘字节码)
     public static byte[] get(Class<?> clazz) {
         return get(RUNTIME_BYTES, clazz);
@@ -1,5 +1,7 @@
 package net.eca.event;
 
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import net.eca.api.EcaAPI;
 import net.eca.compat.FriendModCheck;
 import net.eca.config.EcaConfiguration;
@@ -8,6 +10,7 @@ import net.eca.network.NetworkHandler;
 import net.eca.util.EntityLocationManager;
 import net.eca.util.InvulnerableEntityManager;
 import net.eca.util.ResurrectionManager;
+import net.eca.util.bossshow.BossShowHistory;
 import net.eca.util.bossshow.BossShowPlaybackTracker;
 import net.eca.util.entity_extension.EntityExtensionManager;
 import net.eca.util.entity_extension.ForceLoadingManager;
@@ -18,11 +21,15 @@ import net.eca.util.EntityRemovalQuarantine;
 import net.eca.util.health.EcaSetHealthManager;
 import net.eca.util.faction.FactionRelation;
 import net.eca.util.raid.RaidManager;
+import net.eca.util.selector.EcaEntityIndex;
+import net.eca.util.selector.EcaEntitySelector;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.AABB;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.EntityJoinLevelEvent;
@@ -45,6 +52,16 @@ public class EcaEventHandler {
 
     // 每位玩家下次发光扫描的 game time（服务端 tick 数）
     private static final Map<UUID, Long> NEXT_GLOW_SCAN = new HashMap<>();
+    // 每位玩家上次已发送的发光映射，增量同步据此求差
+    private static final Map<UUID, GlowSyncState> GLOW_SYNC_STATE = new HashMap<>();
+    // 每隔若干次扫描强制发一次全量包，纠正任何原因造成的客户端偏差
+    private static final int GLOW_FULL_RESYNC_SCANS = 30;
+
+    private static final class GlowSyncState {
+        Int2IntMap lastSent;
+        ResourceKey<Level> dimension;
+        int scansSinceFull;
+    }
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void onLivingDeath(LivingDeathEvent event) {
         if (EcaAPI.isInvulnerable(event.getEntity()) || EcaAPI.isHealthLocked(event.getEntity()) ||
@@ -71,6 +88,7 @@ public class EcaEventHandler {
             ForceLoadingManager.onEntityLeave(living, serverLevel);
             EntityExtensionManager.onEntityLeave(living, serverLevel);
         }
+        EntityLocationManager.onEntityLeave(entity);
         // 必须排在 EntityExtensionManager 之后：后者依赖 getFactionId 匹配才决定是否退营
         Entity.RemovalReason reason = entity.getRemovalReason();
         FactionManager.onEntityRemoved(entity, reason);
@@ -86,6 +104,7 @@ public class EcaEventHandler {
         if (event.getEntity() instanceof ServerPlayer player) {
             EntityExtensionManager.syncActiveType(player);
             GlobalEffectOverrideManager.syncToPlayer(player);
+            BossShowHistory.onPlayerLogin(player);
             if (!EcaConfiguration.getForceCompatibilityModeSafely()) {
                 for (String modId : FriendModCheck.getLoadedRadicalCompatModIds()) {
                     player.sendSystemMessage(Component.translatable(
@@ -99,6 +118,8 @@ public class EcaEventHandler {
     public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
         if (event.getEntity() instanceof ServerPlayer player) {
             BossShowPlaybackTracker.onPlayerLogout(player);
+            BossShowHistory.onPlayerLogout(player);
+            NetworkHandler.onPlayerLogout(player);
         }
     }
 
@@ -155,6 +176,12 @@ public class EcaEventHandler {
         //END 相位在实体 tick 之后，此处复查才能看到防护逻辑对改血的回滚
         DelayedHealthVerifier.onServerTick(event.getServer());
         EntityRemovalQuarantine.onServerTick(event.getServer());
+        //死亡/移除钩子入队的复活候选在 tick 末尾统一处理
+        ResurrectionManager.onServerTick(event.getServer());
+        //区域查询的成员变化按维度在 tick 末尾复核，无查询的维度停止记录
+        EcaEntitySelector.onServerTick(event.getServer());
+        //放在最后：本 tick 内各处排队的同步包一次发出
+        NetworkHandler.flushQueued();
     }
 
     // ==================== 阵营发光扫描 ====================
@@ -196,7 +223,7 @@ public class EcaEventHandler {
         List<LivingEntity> nearby = player.level().getEntitiesOfClass(
                 LivingEntity.class, area, e -> e != player && e.isAlive());
 
-        Map<Integer, Integer> glowMap = new HashMap<>();
+        Int2IntOpenHashMap glowMap = new Int2IntOpenHashMap();
         for (LivingEntity entity : nearby) {
             // 只对属于某个阵营的实体发光，无阵营生物（猪、牛等）不发光
             String entityFaction = FactionManager.getFactionId(entity);
@@ -226,7 +253,21 @@ public class EcaEventHandler {
 
         // 持续时间略长于扫描间隔，避免闪烁
         int duration = intervalTicks + 10;
-        NetworkHandler.sendToPlayer(new FactionGlowSyncPacket(glowMap, duration), player);
+        // 实体 id 只在所在维度内有意义：首次同步、换维度或到达纠偏周期时发全量，其余只发增量
+        // 无变化时也发空增量，只为续期客户端的过期时间
+        GlowSyncState state = GLOW_SYNC_STATE.computeIfAbsent(player.getUUID(), uuid -> new GlowSyncState());
+        ResourceKey<Level> dimension = player.level().dimension();
+        FactionGlowSyncPacket packet;
+        if (state.lastSent == null || state.dimension != dimension || state.scansSinceFull >= GLOW_FULL_RESYNC_SCANS) {
+            packet = FactionGlowSyncPacket.full(glowMap, duration);
+            state.scansSinceFull = 0;
+        } else {
+            packet = FactionGlowSyncPacket.delta(state.lastSent, glowMap, duration);
+            state.scansSinceFull++;
+        }
+        state.lastSent = glowMap;
+        state.dimension = dimension;
+        NetworkHandler.sendToPlayer(packet, player);
     }
 
     //玩家登出时清理发光扫描计时器，防止内存泄漏
@@ -234,6 +275,7 @@ public class EcaEventHandler {
     public void onPlayerLoggedOutGlowCleanup(PlayerEvent.PlayerLoggedOutEvent event) {
         if (event.getEntity() instanceof ServerPlayer player) {
             NEXT_GLOW_SCAN.remove(player.getUUID());
+            GLOW_SYNC_STATE.remove(player.getUUID());
         }
     }
 
@@ -252,6 +294,10 @@ public class EcaEventHandler {
         //实体 id 重启后重排，残留复查条目会拿旧目标值比对新实体，必须清空
         DelayedHealthVerifier.clear();
         EntityRemovalQuarantine.clear();
+        EcaEntityIndex.clearAll();
         NEXT_GLOW_SCAN.clear();
+        GLOW_SYNC_STATE.clear();
+        BossShowHistory.clearAll();
+        NetworkHandler.clearQueued();
     }
 }
@@ -22,7 +22,7 @@ public class DeathScreenMixin {
         if (EcaAPI.isInvulnerable(player)) return true;
         if (EntityUtil.RESURRECTION_TRACKED != null
             && player.getEntityData().get(EntityUtil.RESURRECTION_TRACKED)) return true;
-        if (HealthLockManager.getLock(player) != null) return true;
+        if (HealthLockManager.hasLock(player)) return true;
         return false;
     }
 
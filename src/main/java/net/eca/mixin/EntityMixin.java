@@ -4,25 +4,62 @@ import net.eca.api.EcaAPI;
 import net.eca.util.EntityLocationManager;
 import net.eca.util.EntityUtil;
 import net.eca.util.ResurrectionManager;
+import net.eca.util.faction.FactionSlotHolder;
 import net.eca.util.faction.FactionUtil;
+import net.eca.util.selector.EcaEntityIndex;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityDimensions;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.entity.EntityInLevelCallback;
 import net.minecraft.world.phys.Vec3;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import java.util.UUID;
+
 @Mixin(Entity.class)
-public class EntityMixin {
+public class EntityMixin implements FactionSlotHolder {
+
+    // 阵营槽位缓存：取代 FactionManager 按实体弱引用的 WeakHashMap，纪元 0 表示未解析
+    @Unique
+    private int eca$factionEpoch;
+
+    @Unique
+    private int eca$factionSlot;
+
+    @Override
+    public int eca$factionEpoch() {
+        return eca$factionEpoch;
+    }
+
+    @Override
+    public int eca$factionSlot() {
+        return eca$factionSlot;
+    }
+
+    @Override
+    public void eca$cacheFactionSlot(int epoch, int slot) {
+        eca$factionSlot = slot;
+        eca$factionEpoch = epoch;
+    }
+
+    // 阵营归属按 UUID 解析，UUID 被改写(读档、生成后重设)时缓存作废
+    @Inject(method = "setUUID", at = @At("HEAD"))
+    private void eca$resetFactionSlot(UUID uuid, CallbackInfo ci) {
+        eca$factionEpoch = 0;
+    }
 
     @Inject(method = "kill", at = @At("HEAD"), cancellable = true)
     private void onKill(CallbackInfo ci) {
         Entity entity = (Entity) (Object) this;
+        ResurrectionManager.notifyCandidate(entity);
         if (entity instanceof LivingEntity && EcaAPI.isInvulnerable(entity)) {
             ci.cancel();
         }
@@ -31,6 +68,7 @@ public class EntityMixin {
     @Inject(method = "discard", at = @At("HEAD"), cancellable = true)
     private void onDiscard(CallbackInfo ci) {
         Entity entity = (Entity) (Object) this;
+        ResurrectionManager.notifyCandidate(entity);
         if (entity instanceof LivingEntity && EcaAPI.isInvulnerable(entity)) {
             ci.cancel();
         }
@@ -39,6 +77,7 @@ public class EntityMixin {
     @Inject(method = "remove", at = @At("HEAD"), cancellable = true)
     private void onRemove(Entity.RemovalReason reason, CallbackInfo ci) {
         Entity entity = (Entity) (Object) this;
+        ResurrectionManager.notifyCandidate(entity);
 
         // 维度切换：必须已被 changeDimension 标记才放行
         if (reason == Entity.RemovalReason.CHANGED_DIMENSION && EntityUtil.isChangingDimension(entity)) {
@@ -54,6 +93,7 @@ public class EntityMixin {
     @Inject(method = "setRemoved", at = @At("HEAD"), cancellable = true)
     private void onSetRemoved(Entity.RemovalReason reason, CallbackInfo ci) {
         Entity entity = (Entity) (Object) this;
+        ResurrectionManager.notifyCandidate(entity);
 
         // 维度切换：必须已被 changeDimension 标记才放行
         if (reason == Entity.RemovalReason.CHANGED_DIMENSION && EntityUtil.isChangingDimension(entity)) {
@@ -70,6 +110,10 @@ public class EntityMixin {
     @Inject(method = "isRemoved", at = @At("HEAD"), cancellable = true)
     private void eca$preventRemovedState(CallbackInfoReturnable<Boolean> cir) {
         Entity entity = (Entity) (Object) this;
+        // 复活追踪：移除状态可能由字段直写产生，绕过 remove/setRemoved，在读取处补一次通知
+        if (entity.removalReason != null) {
+            ResurrectionManager.notifyCandidate(entity);
+        }
         if (entity.removalReason != null
                 && entity instanceof LivingEntity
                 && !EntityUtil.isChangingDimension(entity)
@@ -94,24 +138,21 @@ public class EntityMixin {
 
     @Inject(method = "setPosRaw(DDD)V", at = @At("HEAD"), cancellable = true)
     private void onSetPosRaw(double x, double y, double z, CallbackInfo ci) {
+        // 每个实体每次移动都会经过这里：没有任何位置锁时不取 UUID、不查表
+        if (!EntityLocationManager.hasLocks()) return;
         Entity entity = (Entity) (Object) this;
 
-        if (EntityLocationManager.isLocationLocked(entity)) {
-            if (EntityUtil.isChangingDimension(entity)) {
-                return;
-            }
-
-            Vec3 lockedPos = EntityLocationManager.getLockedPosition(entity);
-            if (lockedPos != null) {
-                double dx = x - lockedPos.x;
-                double dy = y - lockedPos.y;
-                double dz = z - lockedPos.z;
-                double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        // 一次查表同时得到"是否锁定"与锁定位置
+        Vec3 lockedPos = EntityLocationManager.getLockedPosition(entity);
+        if (lockedPos == null || EntityUtil.isChangingDimension(entity)) {
+            return;
+        }
 
-                if (distance > 0.001) {
-                    ci.cancel();
-                }
-            }
+        double dx = x - lockedPos.x;
+        double dy = y - lockedPos.y;
+        double dz = z - lockedPos.z;
+        if (dx * dx + dy * dy + dz * dz > 0.001 * 0.001) {
+            ci.cancel();
         }
     }
 
@@ -120,6 +161,50 @@ public class EntityMixin {
         ResurrectionManager.recordPosition((Entity) (Object) this);
     }
 
+    @Shadow
+    private EntityInLevelCallback levelCallback;
+
+    @Shadow
+    private EntityDimensions dimensions;
+
+    @Unique
+    private EntityDimensions eca$dimensionsBeforeRefresh;
+
+    @Shadow
+    public int tickCount;
+
+    /* 构造中、读档中的实体同样没有分区回调，但还不在任何容器里，加入时会经过容器写入口，不必报告。
+     * 受保护实体被摘出管理器时 onTrackingEnd 仍会清掉 isAddedToWorld，所以已 tick 过的实体也算在世界中。 */
+    @Unique
+    private boolean eca$inWorld() {
+        return tickCount > 0 || ((Entity) (Object) this).isAddedToWorld();
+    }
+
+    // 分区管理器的回调会把跨分区移动写进分区列表；没有回调的实体(被摘出管理器但仍留在大来源)移动时不经过任何容器，
+    // 直接报告给区域查询复核
+    @Inject(method = "setPosRaw(DDD)V", at = @At("RETURN"))
+    private void eca$noteDetachedMove(double x, double y, double z, CallbackInfo ci) {
+        if (levelCallback == EntityInLevelCallback.NULL && eca$inWorld()) {
+            EcaEntityIndex.noteMembershipChange((Entity) (Object) this);
+        }
+    }
+
+    @Inject(method = "refreshDimensions", at = @At("HEAD"))
+    private void eca$rememberDimensions(CallbackInfo ci) {
+        eca$dimensionsBeforeRefresh = dimensions;
+    }
+
+    // 尺寸变化改变包围盒相对坐标的伸出量，区域查询据此放宽分区范围；尺寸未变(多数姿态切换)时不报告
+    @Inject(method = "refreshDimensions", at = @At("TAIL"))
+    private void eca$noteDimensionsChanged(CallbackInfo ci) {
+        EntityDimensions before = eca$dimensionsBeforeRefresh;
+        eca$dimensionsBeforeRefresh = null;
+        if (before != null && before.width == dimensions.width && before.height == dimensions.height) return;
+        if (eca$inWorld()) {
+            EcaEntityIndex.noteMembershipChange((Entity) (Object) this);
+        }
+    }
+
     @Inject(method = "changeDimension*", at = @At("HEAD"))
     private void beforeChangeDimension(ServerLevel destination, CallbackInfoReturnable<Entity> cir) {
         EntityUtil.markDimensionChanging((Entity) (Object) this);
@@ -128,6 +213,8 @@ public class EntityMixin {
     @Inject(method = "changeDimension*", at = @At("RETURN"))
     private void afterChangeDimension(ServerLevel destination, CallbackInfoReturnable<Entity> cir) {
         Entity oldEntity = (Entity) (Object) this;
+        // 位置锁的实体引用与维度分桶跟随到新实例
+        EntityLocationManager.onEntityChangedDimension(oldEntity, cir.getReturnValue());
         // End→Overworld 的终末之诗流程中，changeDimension 返回 this 但实体仍为 CHANGED_DIMENSION 状态
         // 此时不应 unmark，否则无敌保护会重新激活，阻止后续 respawn 的清理操作
         // 延迟到 addPlayer TAIL 中 unmark
@@ -4,6 +4,7 @@ import net.eca.api.EcaAPI;
 import net.eca.config.EcaConfiguration;
 import net.eca.util.EntityUtil;
 import net.eca.util.InvulnerableEntityManager;
+import net.eca.util.InvulnerableFlagHolder;
 import net.eca.util.ResurrectionManager;
 import net.eca.util.faction.FactionManager;
 import net.eca.util.faction.FactionRelation;
@@ -11,6 +12,7 @@ import net.eca.util.faction.FactionUtil;
 import net.eca.util.health.EcaOwnedState;
 import net.eca.util.health.HealthLockManager;
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.syncher.EntityDataAccessor;
 import net.minecraft.world.effect.MobEffectCategory;
 import net.minecraft.world.effect.MobEffectInstance;
 import net.minecraft.nbt.CompoundTag;
@@ -24,6 +26,7 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.player.Player;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
@@ -33,7 +36,7 @@ import java.util.ArrayList;
 
 @Mixin(LivingEntity.class)
 public abstract class
-LivingEntityMixin {
+LivingEntityMixin implements InvulnerableFlagHolder {
     // 键在 EcaOwnedState 集中登记，改血分析据同一份清单排除 ECA 自身注入
     private static final String NBT_INVULNERABLE = EcaOwnedState.NBT_INVULNERABLE;
     private static final String NBT_HEALTH_LOCK_ENC   = EcaOwnedState.NBT_HEALTH_LOCK_ENC;
@@ -45,6 +48,20 @@ LivingEntityMixin {
     private static final String NBT_MAX_HEALTH_LOCK_CHECK = EcaOwnedState.NBT_MAX_HEALTH_LOCK_CHECK;
     private static final String NBT_RESURRECTION_TRACKED = EcaOwnedState.NBT_RESURRECTION_TRACKED;
 
+    // 无敌标志位：isInvulnerable 的否定判断只读此字段，取代按 entityId 查装箱集合
+    @Unique
+    private boolean eca$invulnerable;
+
+    @Override
+    public boolean eca$isInvulnerableFlag() {
+        return eca$invulnerable;
+    }
+
+    @Override
+    public void eca$setInvulnerableFlag(boolean invulnerable) {
+        eca$invulnerable = invulnerable;
+    }
+
     // 防止本钩子与其他 mod 的 setHealth 注入互相递归导致 StackOverflowError
     private static final ThreadLocal<Boolean> ECA_IN_SET_HEALTH = ThreadLocal.withInitial(() -> false);
 
@@ -83,6 +100,16 @@ LivingEntityMixin {
         entity.getEntityData().define(EntityUtil.MAX_HEALTH_LOCK_CHECK, "");
     }
 
+    // 客户端的无敌状态只来自 EntityData 同步；服务端标志位由 ECA 自己的写入路径维护，外部改写 EntityData 不影响它
+    @Inject(method = "onSyncedDataUpdated", at = @At("HEAD"))
+    private void eca$onSyncedDataUpdated(EntityDataAccessor<?> key, CallbackInfo ci) {
+        if (EntityUtil.INVULNERABLE == null || !EntityUtil.INVULNERABLE.equals(key)) return;
+        LivingEntity entity = (LivingEntity) (Object) this;
+        if (entity.level().isClientSide) {
+            eca$invulnerable = entity.getEntityData().get(EntityUtil.INVULNERABLE);
+        }
+    }
+
     @Inject(method = "addAdditionalSaveData", at = @At("TAIL"))
     private void eca$writeAdditionalSaveData(CompoundTag tag, CallbackInfo ci) {
         LivingEntity entity = (LivingEntity) (Object) this;
@@ -127,10 +154,10 @@ LivingEntityMixin {
             entity.getEntityData().set(EntityUtil.INVULNERABLE, invulnerable);
             if (invulnerable) {
                 InvulnerableEntityManager.addInvulnerable(entity);
-                EcaAPI.restoreInvulnerableFastPath(entity.getId());
             } else {
                 InvulnerableEntityManager.removeInvulnerable(entity);
             }
+            eca$invulnerable = invulnerable;
         }
         // 锁血（新加密格式 int）
         if (tag.contains(NBT_HEALTH_LOCK_ENC)) {
@@ -175,6 +202,8 @@ LivingEntityMixin {
         LivingEntity self = (LivingEntity) (Object) this;
 
         boolean invulnerable = EcaAPI.isInvulnerable(self);
+        // 服务端每 tick 复核一次加密存储，getHealth 等热路径只读已解密的快速路径表
+        HealthLockManager.revalidate(self);
         Float lockedValue = HealthLockManager.getLock(self);
         Float healBanValue = HealthLockManager.getHealBan(self);
 
@@ -248,9 +277,7 @@ LivingEntityMixin {
     @Inject(method = "hurt", at = @At("RETURN"))
     private void onHurtUpdateHealBan(DamageSource source, float amount, CallbackInfoReturnable<Boolean> cir) {
         LivingEntity self = (LivingEntity) (Object) this;
-        Float lockedValue = HealthLockManager.getLock(self);
-        Float healBanValue = HealthLockManager.getHealBan(self);
-        if (healBanValue != null && lockedValue == null && cir.getReturnValue()) {
+        if (HealthLockManager.hasHealBan(self) && !HealthLockManager.hasLock(self) && cir.getReturnValue()) {
             HealthLockManager.setHealBan(self, EntityUtil.getHealth(self));
         }
     }
@@ -306,9 +333,7 @@ LivingEntityMixin {
     @Inject(method = "heal", at = @At("HEAD"), cancellable = true)
     private void onHeal(float amount, CallbackInfo ci) {
         LivingEntity self = (LivingEntity) (Object) this;
-        Float lockedValue = HealthLockManager.getLock(self);
-        Float healBanValue = HealthLockManager.getHealBan(self);
-        if (healBanValue != null) {
+        if (HealthLockManager.hasHealBan(self)) {
             ci.cancel();
         }
     }
@@ -319,8 +344,7 @@ LivingEntityMixin {
         ECA_IN_SET_HEALTH.set(true);
         try {
             LivingEntity self = (LivingEntity) (Object) this;
-            Float healBanValue = HealthLockManager.getHealBan(self);
-            if (healBanValue != null && health > EntityUtil.getHealth(self)) {
+            if (HealthLockManager.hasHealBan(self) && health > EntityUtil.getHealth(self)) {
                 ci.cancel();
             }
         } finally {
@@ -331,8 +355,8 @@ LivingEntityMixin {
     @Inject(method = "die", at = @At("HEAD"), cancellable = true)
     private void onDie(DamageSource source, CallbackInfo ci) {
         LivingEntity self = (LivingEntity) (Object) this;
-        Float lockedValue = HealthLockManager.getLock(self);
-        if (EcaAPI.isInvulnerable(self) || lockedValue != null) {
+        ResurrectionManager.notifyCandidate(self);
+        if (EcaAPI.isInvulnerable(self) || HealthLockManager.hasLock(self)) {
             ci.cancel();
         }
     }
@@ -340,10 +364,9 @@ LivingEntityMixin {
     @Inject(method = "tickDeath", at = @At("HEAD"), cancellable = true)
     private void onTickDeath(CallbackInfo ci) {
         LivingEntity self = (LivingEntity) (Object) this;
-        Float lockedValue = HealthLockManager.getLock(self);
         boolean resurrectionTracked = EntityUtil.RESURRECTION_TRACKED != null
             && self.getEntityData().get(EntityUtil.RESURRECTION_TRACKED);
-        if (EcaAPI.isInvulnerable(self) || lockedValue != null || resurrectionTracked) {
+        if (EcaAPI.isInvulnerable(self) || HealthLockManager.hasLock(self) || resurrectionTracked) {
             ci.cancel();
         }
     }
@@ -351,8 +374,7 @@ LivingEntityMixin {
     @Inject(method = "isDeadOrDying", at = @At("HEAD"), cancellable = true)
     private void onIsDeadOrDying(CallbackInfoReturnable<Boolean> cir) {
         LivingEntity self = (LivingEntity) (Object) this;
-        Float locked = HealthLockManager.getLock(self);
-        if (EcaAPI.isInvulnerable(self) || (locked != null && locked > 0.0f)) {
+        if (EcaAPI.isInvulnerable(self) || HealthLockManager.hasLock(self)) {
             cir.setReturnValue(false);
         }
     }
@@ -360,8 +382,7 @@ LivingEntityMixin {
     @Inject(method = "isAlive", at = @At("HEAD"), cancellable = true)
     private void onIsAlive(CallbackInfoReturnable<Boolean> cir) {
         LivingEntity self = (LivingEntity) (Object) this;
-        Float locked = HealthLockManager.getLock(self);
-        if (EcaAPI.isInvulnerable(self) || (locked != null && locked > 0.0f)) {
+        if (EcaAPI.isInvulnerable(self) || HealthLockManager.hasLock(self)) {
             cir.setReturnValue(true);
         }
     }
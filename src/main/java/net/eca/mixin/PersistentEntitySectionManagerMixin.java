@@ -3,6 +3,7 @@ package net.eca.mixin;
 import net.eca.api.EcaAPI;
 
 import net.eca.util.EntityUtil;
+import net.eca.util.selector.EcaEntityIndex;
 import net.eca.util.spawn_ban.SpawnBanHook;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
@@ -30,6 +31,14 @@ public class PersistentEntitySectionManagerMixin {
         }
     }
 
+    // ServerLevel.addEntity 与区块加载最终都经过这里，每个实体加入时登记一次选择器二级索引
+    @Inject(method = "addEntity", at = @At("RETURN"))
+    private void eca$indexAddedEntity(EntityAccess entity, boolean flag, CallbackInfoReturnable<Boolean> cir) {
+        if (Boolean.TRUE.equals(cir.getReturnValue()) && entity instanceof Entity realEntity) {
+            EcaEntityIndex.record(realEntity);
+        }
+    }
+
     // 禁生成：阻止被禁实体添加到PersistentEntitySectionManager
     @Inject(method = "addNewEntity", at = @At("HEAD"), cancellable = true)
     private void eca$onAddNewEntity(EntityAccess entity, CallbackInfoReturnable<Boolean> cir) {
@@ -83,5 +92,13 @@ public class PersistentEntitySectionManagerMixin {
                 }
             }
         }
+
+        // 移除真正完成(未被保护逻辑取消)后才从二级索引摘除
+        @Inject(method = "onRemove", at = @At("TAIL"))
+        private void eca$forgetRemoved(Entity.RemovalReason reason, CallbackInfo ci) {
+            if (this.entity instanceof Entity realEntity) {
+                EcaEntityIndex.forget(realEntity);
+            }
+        }
     }
 }
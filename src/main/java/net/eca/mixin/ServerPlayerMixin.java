@@ -17,7 +17,7 @@ public class ServerPlayerMixin {
     @Inject(method = "die", at = @At("HEAD"), cancellable = true)
     private void eca$onDie(DamageSource source, CallbackInfo ci) {
         ServerPlayer self = (ServerPlayer) (Object) this;
-        if (EcaAPI.isInvulnerable(self) || HealthLockManager.getLock(self) != null) {
+        if (EcaAPI.isInvulnerable(self) || HealthLockManager.hasLock(self)) {
             ci.cancel();
         }
     }
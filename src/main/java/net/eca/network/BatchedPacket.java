@@ -0,0 +1,119 @@
+package net.eca.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ * 服务端 → 客户端：一个 tick 内发往同一玩家的多条排队包合并成的一帧。
+ *
+ * 线格式：varint 条数 | 每条：varint 子包类型下标 + varint 字节长度 + 子包原有编码。
+ * 子包类型下标来自可批量包的注册顺序，两端在 NetworkHandler.register 中以相同顺序登记，
+ * 并且包含在 PROTOCOL_VERSION 约束内。客户端按原顺序逐条交给子包自己的 handle。
+ */
+public final class BatchedPacket {
+
+    //单帧条数上限，防止畸形数据申请巨量内存
+    private static final int MAX_MESSAGES = 4096;
+
+    private record Codec<MSG>(Class<MSG> type,
+                              BiConsumer<MSG, FriendlyByteBuf> encoder,
+                              Function<FriendlyByteBuf, MSG> decoder,
+                              BiConsumer<MSG, Supplier<NetworkEvent.Context>> handler) {}
+
+    private static final List<Codec<?>> CODECS = new ArrayList<>();
+    private static final Map<Class<?>, Integer> CODEC_INDEX = new HashMap<>();
+
+    private final List<Object> messages;
+
+    public BatchedPacket(List<Object> messages) {
+        this.messages = messages;
+    }
+
+    public List<Object> messages() {
+        return messages;
+    }
+
+    //登记一种可批量的包；重复登记同一类型时忽略
+    static synchronized <MSG> void registerCodec(Class<MSG> type,
+                                                 BiConsumer<MSG, FriendlyByteBuf> encoder,
+                                                 Function<FriendlyByteBuf, MSG> decoder,
+                                                 BiConsumer<MSG, Supplier<NetworkEvent.Context>> handler) {
+        if (CODEC_INDEX.containsKey(type)) return;
+        CODEC_INDEX.put(type, CODECS.size());
+        CODECS.add(new Codec<>(type, encoder, decoder, handler));
+    }
+
+    static synchronized boolean isBatchable(Class<?> type) {
+        return CODEC_INDEX.containsKey(type);
+    }
+
+    public static void encode(BatchedPacket msg, FriendlyByteBuf buf) {
+        buf.writeVarInt(msg.messages.size());
+        FriendlyByteBuf scratch = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            for (Object message : msg.messages) {
+                Integer index = CODEC_INDEX.get(message.getClass());
+                if (index == null) {
+                    throw new IllegalArgumentException("Packet type is not batchable: " + message.getClass().getName());
+                }
+                scratch.clear();
+                encodeOne(CODECS.get(index), message, scratch);
+                buf.writeVarInt(index);
+                buf.writeVarInt(scratch.readableBytes());
+                buf.writeBytes(scratch);
+            }
+        } finally {
+            scratch.release();
+        }
+    }
+
+    public static BatchedPacket decode(FriendlyByteBuf buf) {
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_MESSAGES) {
+            throw new IllegalArgumentException("Batched packet count out of range: " + count);
+        }
+        List<Object> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = buf.readVarInt();
+            int length = buf.readVarInt();
+            if (index < 0 || index >= CODECS.size()) {
+                throw new IllegalArgumentException("Unknown batched packet type: " + index);
+            }
+            if (length < 0 || length > buf.readableBytes()) {
+                throw new IllegalArgumentException("Batched packet frame length out of range: " + length);
+            }
+            FriendlyByteBuf frame = new FriendlyByteBuf(buf.readSlice(length));
+            messages.add(CODECS.get(index).decoder().apply(frame));
+            //长度前缀与子包解码必须严格对齐，否则说明两端子包格式不一致
+            if (frame.isReadable()) {
+                throw new IllegalArgumentException("Batched packet frame " + i + " has " + frame.readableBytes() + " trailing bytes");
+            }
+        }
+        return new BatchedPacket(messages);
+    }
+
+    public static void handle(BatchedPacket msg, Supplier<NetworkEvent.Context> ctx) {
+        //子包 handle 各自 enqueueWork，主线程按入队顺序执行，与逐条收包时顺序一致
+        for (Object message : msg.messages) {
+            handleOne(CODECS.get(CODEC_INDEX.get(message.getClass())), message, ctx);
+        }
+        ctx.get().setPacketHandled(true);
+    }
+
+    private static <MSG> void encodeOne(Codec<MSG> codec, Object message, FriendlyByteBuf buf) {
+        codec.encoder().accept(codec.type().cast(message), buf);
+    }
+
+    private static <MSG> void handleOne(Codec<MSG> codec, Object message, Supplier<NetworkEvent.Context> ctx) {
+        codec.handler().accept(codec.type().cast(message), ctx);
+    }
+}
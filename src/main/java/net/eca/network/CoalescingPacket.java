@@ -0,0 +1,10 @@
+package net.eca.network;
+
+/*
+ * 可合并的状态同步包：同一 tick 内发往同一玩家、类型相同且 coalesceKey 相等的包只保留最后一个。
+ * 只适用于"整份覆盖"语义的包（血量、映射关系等），增量包不要实现此接口。
+ */
+public interface CoalescingPacket {
+
+    Object coalesceKey();
+}
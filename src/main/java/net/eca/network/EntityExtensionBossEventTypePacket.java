@@ -8,7 +8,7 @@ import net.minecraftforge.network.NetworkEvent;
 import java.util.UUID;
 import java.util.function.Supplier;
 
-public class EntityExtensionBossEventTypePacket {
+public class EntityExtensionBossEventTypePacket implements CoalescingPacket {
 
     private final UUID bossEventId;
     private final ResourceLocation typeId;
@@ -20,6 +20,12 @@ public class EntityExtensionBossEventTypePacket {
         this.entityUuid = entityUuid;
     }
 
+    //同一 boss 事件只需最新的类型映射（含解除映射）
+    @Override
+    public Object coalesceKey() {
+        return bossEventId;
+    }
+
     public static void encode(EntityExtensionBossEventTypePacket message, FriendlyByteBuf buffer) {
         buffer.writeUUID(message.bossEventId);
         buffer.writeBoolean(message.typeId != null);
@@ -1,13 +1,15 @@
 package net.eca.network;
 
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.eca.client.FactionGlowData;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.network.NetworkEvent;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 /*
@@ -16,41 +18,143 @@ import java.util.function.Supplier;
  * 服务端定期扫描玩家附近实体，解析阵营关系，将 entityId → ARGB 颜色映射
  * 通过此包发送到客户端。客户端存储在 FactionGlowData 中，由 EntityMixin
  * 注入 isCurrentlyGlowing / getTeamColor 消费。
+ *
+ * 增量编码：服务端记住上次发给该玩家的映射，只发新增/变色(upserts)与消失(removals)；
+ * full 包让客户端先清空再应用，用于首次同步、换维度与定期纠偏。
+ * 线格式：varint 时长 | bool full | varint 调色板长度 + int 颜色 |
+ *        varint 条目数 + (varint id 差值, varint 调色板下标) | varint 移除数 + varint id 差值。
+ * id 升序排列后按差值写 varint，差值按 int 回绕相加，负 id 也能还原；颜色只有四种关系色，下标一字节。
+ * 无变化时仍发一个空增量，只为续期客户端的过期时间。
  */
 public final class FactionGlowSyncPacket {
 
-    private final Map<Integer, Integer> glowMap;
+    private final boolean full;
+    private final Int2IntMap upserts;
+    private final int[] removals;
     private final int durationTicks;
 
-    public FactionGlowSyncPacket(Map<Integer, Integer> glowMap, int durationTicks) {
-        this.glowMap = glowMap;
+    private FactionGlowSyncPacket(boolean full, Int2IntMap upserts, int[] removals, int durationTicks) {
+        this.full = full;
+        this.upserts = upserts;
+        this.removals = removals;
         this.durationTicks = durationTicks;
     }
 
+    // 全量包：客户端以此替换整张映射
+    public static FactionGlowSyncPacket full(Int2IntMap glowMap, int durationTicks) {
+        return new FactionGlowSyncPacket(true, glowMap, new int[0], durationTicks);
+    }
+
+    // 增量包：previous 为上次已发送的映射，current 为本次扫描结果
+    public static FactionGlowSyncPacket delta(Int2IntMap previous, Int2IntMap current, int durationTicks) {
+        Int2IntOpenHashMap upserts = new Int2IntOpenHashMap();
+        for (Int2IntMap.Entry entry : current.int2IntEntrySet()) {
+            int id = entry.getIntKey();
+            int color = entry.getIntValue();
+            if (!previous.containsKey(id) || previous.get(id) != color) {
+                upserts.put(id, color);
+            }
+        }
+        IntArrayList removals = new IntArrayList();
+        for (int id : previous.keySet()) {
+            if (!current.containsKey(id)) {
+                removals.add(id);
+            }
+        }
+        return new FactionGlowSyncPacket(false, upserts, removals.toIntArray(), durationTicks);
+    }
+
+    boolean isFull() {
+        return full;
+    }
+
+    Int2IntMap upserts() {
+        return upserts;
+    }
+
+    int[] removals() {
+        return removals;
+    }
+
+    int durationTicks() {
+        return durationTicks;
+    }
+
     public static void encode(FactionGlowSyncPacket msg, FriendlyByteBuf buf) {
-        buf.writeInt(msg.durationTicks);
-        Map<Integer, Integer> map = msg.glowMap;
-        buf.writeInt(map.size());
-        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
-            buf.writeInt(entry.getKey());
-            buf.writeInt(entry.getValue());
+        buf.writeVarInt(msg.durationTicks);
+        buf.writeBoolean(msg.full);
+
+        int[] ids = msg.upserts.keySet().toIntArray();
+        Arrays.sort(ids);
+        IntArrayList palette = new IntArrayList();
+        int[] paletteIndex = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int color = msg.upserts.get(ids[i]);
+            int index = palette.indexOf(color);
+            if (index < 0) {
+                index = palette.size();
+                palette.add(color);
+            }
+            paletteIndex[i] = index;
+        }
+
+        buf.writeVarInt(palette.size());
+        for (int i = 0; i < palette.size(); i++) {
+            buf.writeInt(palette.getInt(i));
+        }
+        buf.writeVarInt(ids.length);
+        int previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            buf.writeVarInt(ids[i] - previous);
+            buf.writeVarInt(paletteIndex[i]);
+            previous = ids[i];
+        }
+
+        int[] removals = msg.removals.clone();
+        Arrays.sort(removals);
+        buf.writeVarInt(removals.length);
+        previous = 0;
+        for (int id : removals) {
+            buf.writeVarInt(id - previous);
+            previous = id;
         }
     }
 
     public static FactionGlowSyncPacket decode(FriendlyByteBuf buf) {
-        int durationTicks = buf.readInt();
-        int size = buf.readInt();
-        Map<Integer, Integer> map = new HashMap<>(size);
+        int durationTicks = buf.readVarInt();
+        boolean full = buf.readBoolean();
+
+        int paletteSize = buf.readVarInt();
+        int[] palette = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = buf.readInt();
+        }
+        int size = buf.readVarInt();
+        Int2IntOpenHashMap upserts = new Int2IntOpenHashMap(size);
+        int id = 0;
         for (int i = 0; i < size; i++) {
-            map.put(buf.readInt(), buf.readInt());
+            id += buf.readVarInt();
+            int index = buf.readVarInt();
+            if (index < 0 || index >= paletteSize) {
+                throw new IllegalArgumentException("Faction glow palette index out of range: " + index);
+            }
+            upserts.put(id, palette[index]);
+        }
+
+        int removalCount = buf.readVarInt();
+        int[] removals = new int[removalCount];
+        id = 0;
+        for (int i = 0; i < removalCount; i++) {
+            id += buf.readVarInt();
+            removals[i] = id;
         }
-        return new FactionGlowSyncPacket(map, durationTicks);
+        return new FactionGlowSyncPacket(full, upserts, removals, durationTicks);
     }
 
     public static void handle(FactionGlowSyncPacket msg, Supplier<NetworkEvent.Context> ctx) {
         NetworkEvent.Context context = ctx.get();
         context.enqueueWork(() -> DistExecutor.unsafeRunWhenOn(
-                Dist.CLIENT, () -> () -> FactionGlowData.update(msg.glowMap, msg.durationTicks)));
+                Dist.CLIENT, () -> () -> FactionGlowData.apply(msg.full, msg.upserts, msg.removals, msg.durationTicks)));
         context.setPacketHandled(true);
     }
 }
@@ -2,14 +2,18 @@ package net.eca.network;
 
 import net.eca.EcaMod;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ChunkMap;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerPlayerConnection;
 import net.minecraft.world.entity.Entity;
 import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.NetworkDirection;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
 
+import java.util.List;
+
 /**
  * Network handler for ECA mod.
  * Manages network communication between server and client.
@@ -17,7 +21,7 @@ import net.minecraftforge.network.simple.SimpleChannel;
 @SuppressWarnings("removal")
 public class NetworkHandler {
 
-    private static final String PROTOCOL_VERSION = "1";
+    private static final String PROTOCOL_VERSION = "4";
 
     public static final SimpleChannel CHANNEL = NetworkRegistry.newSimpleChannel(
             new ResourceLocation(EcaMod.MOD_ID, "main"),
@@ -28,6 +32,28 @@ public class NetworkHandler {
 
     private static int packetId = 0;
 
+    //单个 BatchedPacket 最多装的子包数，超出时拆成多帧
+    private static final int MAX_BATCH_MESSAGES = 256;
+
+    //排队发送的状态同步包，服务端 tick 末尾 flush
+    private static final OutboundPacketQueue<ServerPlayer> OUTBOUND = new OutboundPacketQueue<>(MAX_BATCH_MESSAGES);
+
+    private static final OutboundPacketQueue.Sink<ServerPlayer> OUTBOUND_SINK = new OutboundPacketQueue.Sink<>() {
+        @Override
+        public void send(ServerPlayer player, Object message) {
+            if (!player.hasDisconnected()) {
+                sendToPlayer(message, player);
+            }
+        }
+
+        @Override
+        public void sendBatch(ServerPlayer player, List<Object> messages) {
+            if (!player.hasDisconnected()) {
+                sendToPlayer(new BatchedPacket(List.copyOf(messages)), player);
+            }
+        }
+    };
+
     private static int id() {
         return packetId++;
     }
@@ -156,6 +182,20 @@ public class NetworkHandler {
                 .decoder(RaidBossBarSyncPacket::decode)
                 .consumerMainThread(RaidBossBarSyncPacket::handle)
                 .add();
+
+        CHANNEL.messageBuilder(BatchedPacket.class, id(), NetworkDirection.PLAY_TO_CLIENT)
+                .encoder(BatchedPacket::encode)
+                .decoder(BatchedPacket::decode)
+                .consumerMainThread(BatchedPacket::handle)
+                .add();
+
+        //可排队合并的状态同步包，登记顺序即 BatchedPacket 内的子包类型下标
+        BatchedPacket.registerCodec(SetHealthClientSyncPacket.class,
+                SetHealthClientSyncPacket::encode, SetHealthClientSyncPacket::decode, SetHealthClientSyncPacket::handle);
+        BatchedPacket.registerCodec(EntityExtensionBossEventTypePacket.class,
+                EntityExtensionBossEventTypePacket::encode, EntityExtensionBossEventTypePacket::decode, EntityExtensionBossEventTypePacket::handle);
+        BatchedPacket.registerCodec(RaidBossBarSyncPacket.class,
+                RaidBossBarSyncPacket::encode, RaidBossBarSyncPacket::decode, RaidBossBarSyncPacket::handle);
     }
 
     /**
@@ -200,4 +240,51 @@ public class NetworkHandler {
                 message
         );
     }
+
+    /**
+     * Queue a message for a specific player; it is sent at the end of the current server tick.
+     * Superseded {@link CoalescingPacket} updates are dropped and the rest share one {@link BatchedPacket}.
+     * Message types without a batch codec are sent immediately.
+     * @param message the message to send
+     * @param player the target player
+     */
+    public static <MSG> void queueToPlayer(MSG message, ServerPlayer player) {
+        if (!BatchedPacket.isBatchable(message.getClass())) {
+            sendToPlayer(message, player);
+            return;
+        }
+        OUTBOUND.enqueue(player, message);
+    }
+
+    /**
+     * Queue a message for all clients currently tracking the given entity; see {@link #queueToPlayer}.
+     * @param message the message to send
+     * @param entity the entity being tracked
+     */
+    public static <MSG> void queueToTrackingClients(MSG message, Entity entity) {
+        if (!(entity.level() instanceof ServerLevel serverLevel)) return;
+        if (!BatchedPacket.isBatchable(message.getClass())) {
+            sendToTrackingClients(message, entity);
+            return;
+        }
+        //与 PacketDistributor.TRACKING_ENTITY 相同的接收者：该实体 TrackedEntity 的 seenBy
+        ChunkMap.TrackedEntity tracked = serverLevel.getChunkSource().chunkMap.entityMap.get(entity.getId());
+        if (tracked == null) return;
+        for (ServerPlayerConnection connection : tracked.seenBy) {
+            OUTBOUND.enqueue(connection.getPlayer(), message);
+        }
+    }
+
+    //服务端 tick 末尾调用：发出本 tick 排队的全部包
+    public static void flushQueued() {
+        OUTBOUND.flush(OUTBOUND_SINK);
+    }
+
+    public static void onPlayerLogout(ServerPlayer player) {
+        OUTBOUND.remove(player);
+    }
+
+    public static void clearQueued() {
+        OUTBOUND.clear();
+    }
 }
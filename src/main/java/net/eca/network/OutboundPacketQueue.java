@@ -0,0 +1,68 @@
+package net.eca.network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 按玩家暂存的出站包队列，由 NetworkHandler 在服务端 tick 末尾统一 flush。
+ *
+ * 实现 CoalescingPacket 的包按 (包类型, coalesceKey) 去重：后写覆盖先写，但保留首次入队的位置；
+ * 其余包各占一个位置按入队顺序发送。flush 时单个包照常直发，多个包按 maxBatch 分组打成 BatchedPacket。
+ * 玩家类型是泛型参数，便于脱离服务端环境单独计数验证。
+ */
+final class OutboundPacketQueue<P> {
+
+    interface Sink<P> {
+        void send(P player, Object message);
+
+        void sendBatch(P player, List<Object> messages);
+    }
+
+    private record CoalesceKey(Class<?> type, Object key) {}
+
+    private final int maxBatch;
+    private Map<P, LinkedHashMap<Object, Object>> pending = new HashMap<>();
+
+    OutboundPacketQueue(int maxBatch) {
+        this.maxBatch = Math.max(2, maxBatch);
+    }
+
+    synchronized void enqueue(P player, Object message) {
+        Object key = message instanceof CoalescingPacket coalescing
+            ? new CoalesceKey(message.getClass(), coalescing.coalesceKey())
+            : new Object();
+        pending.computeIfAbsent(player, k -> new LinkedHashMap<>()).put(key, message);
+    }
+
+    void flush(Sink<P> sink) {
+        Map<P, LinkedHashMap<Object, Object>> drained;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            drained = pending;
+            pending = new HashMap<>();
+        }
+        //发送在锁外进行，编码/发送过程中再入队的包留到下一次 flush
+        for (Map.Entry<P, LinkedHashMap<Object, Object>> entry : drained.entrySet()) {
+            List<Object> messages = new ArrayList<>(entry.getValue().values());
+            for (int from = 0; from < messages.size(); from += maxBatch) {
+                int to = Math.min(messages.size(), from + maxBatch);
+                if (to - from == 1) {
+                    sink.send(entry.getKey(), messages.get(from));
+                } else {
+                    sink.sendBatch(entry.getKey(), messages.subList(from, to));
+                }
+            }
+        }
+    }
+
+    synchronized void remove(P player) {
+        pending.remove(player);
+    }
+
+    synchronized void clear() {
+        pending.clear();
+    }
+}
@@ -17,7 +17,7 @@ import java.util.function.Supplier;
  * RaidBossBarExtension 条件方法的唯一途径。state 为 null 表示解除映射
  * （袭击结束或玩家离开参与范围）。
  */
-public final class RaidBossBarSyncPacket {
+public final class RaidBossBarSyncPacket implements CoalescingPacket {
 
     private final UUID bossEventId;
     private final RaidBarState state;
@@ -27,6 +27,12 @@ public final class RaidBossBarSyncPacket {
         this.state = state;
     }
 
+    //同一血条只需最新的袭击状态（含解除映射）
+    @Override
+    public Object coalesceKey() {
+        return bossEventId;
+    }
+
     public static void encode(RaidBossBarSyncPacket msg, FriendlyByteBuf buf) {
         buf.writeUUID(msg.bossEventId);
         buf.writeBoolean(msg.state != null);
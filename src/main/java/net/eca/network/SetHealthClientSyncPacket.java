@@ -13,7 +13,7 @@ import java.util.function.Supplier;
  * 自定义存储型实体(RuneBank/ICU/私有字段等)客户端也有独立一份存储，服务端改动不会自动同步；
  * 客户端重跑同一条逆向链打穿本地存储，使其血条/显示随之刷新。
  */
-public final class SetHealthClientSyncPacket {
+public final class SetHealthClientSyncPacket implements CoalescingPacket {
 
     private final int entityId;
     private final float health;
@@ -23,6 +23,12 @@ public final class SetHealthClientSyncPacket {
         this.health = health;
     }
 
+    //同一实体只需最新血量
+    @Override
+    public Object coalesceKey() {
+        return entityId;
+    }
+
     public static void encode(SetHealthClientSyncPacket msg, FriendlyByteBuf buf) {
         buf.writeInt(msg.entityId);
         buf.writeFloat(msg.health);
@@ -0,0 +1,52 @@
+package net.eca.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+//待检查队列：钩子可能在任意线程入队（多生产者），只由服务端线程在 tick 末尾消费（单消费者）
+//每个候选自带入队标记，同一候选在队列中最多出现一次；另按 tick 计数决定何时做一次兜底巡检
+final class CandidateQueue<T> {
+
+    private final Queue<T> pending = new ConcurrentLinkedQueue<>();
+    private final Function<T, AtomicBoolean> queuedFlag;
+    private long ticksSinceSweep;
+
+    CandidateQueue(Function<T, AtomicBoolean> queuedFlag) {
+        this.queuedFlag = queuedFlag;
+    }
+
+    //已在队列中的候选不重复入队
+    boolean offer(T candidate) {
+        if (!queuedFlag.apply(candidate).compareAndSet(false, true)) return false;
+        pending.offer(candidate);
+        return true;
+    }
+
+    //出队即清除标记，处理期间再次触发的钩子会让它重新入队
+    T poll() {
+        T candidate = pending.poll();
+        if (candidate != null) {
+            queuedFlag.apply(candidate).set(false);
+        }
+        return candidate;
+    }
+
+    void clear() {
+        while (poll() != null) {
+            //丢弃
+        }
+    }
+
+    //每 tick 调用一次；到达巡检周期时返回 true，由调用方把全部追踪对象入队
+    boolean sweepDue(long sweepTicks) {
+        if (++ticksSinceSweep < sweepTicks) return false;
+        ticksSinceSweep = 0;
+        return true;
+    }
+
+    void resetSweep() {
+        ticksSinceSweep = 0;
+    }
+}
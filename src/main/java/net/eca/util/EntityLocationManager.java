@@ -1,14 +1,14 @@
 package net.eca.util;
 
 import net.eca.api.EcaAPI;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
 
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 //实体位置锁定管理器
 public class EntityLocationManager {
@@ -16,19 +16,12 @@ public class EntityLocationManager {
     //实体临时查不到多少 tick 后才真正删锁（防止 section 迁移/卸载瞬态误删）
     private static final int MAX_MISS_TICKS = 1200;
 
-    //位置锁定数据
-    private static class LocationLockData {
-        Vec3 lockedPosition;
-        int missCount;
+    //偏离超过 0.001 格才拉回，按平方比较省去开方
+    private static final double DRIFT_THRESHOLD_SQR = 0.001 * 0.001;
 
-        LocationLockData(Vec3 position) {
-            this.lockedPosition = position;
-            this.missCount = 0;
-        }
-    }
-
-    //存储锁定信息（使用UUID防止ID冲突）
-    private static final Map<UUID, LocationLockData> LOCKED_ENTITIES = new ConcurrentHashMap<>();
+    //UUID 总表与按维度分桶的锁；每个维度的 tick 只遍历自己的桶
+    private static final LocationLockRegistry<ResourceKey<Level>, Entity> LOCKS =
+            new LocationLockRegistry<>(MAX_MISS_TICKS, DRIFT_THRESHOLD_SQR);
 
     //锁定实体当前位置
     public static void lockLocation(Entity entity) {
@@ -38,92 +31,110 @@ public class EntityLocationManager {
     //锁定到指定位置
     public static void lockLocation(Entity entity, Vec3 position) {
         if (entity == null || position == null) return;
-        LOCKED_ENTITIES.put(entity.getUUID(), new LocationLockData(position));
+        LOCKS.lock(entity.getUUID(), entity.level().dimension(), entity, position);
     }
 
     //解除锁定
     public static void unlockLocation(Entity entity) {
         if (entity == null) return;
-        LOCKED_ENTITIES.remove(entity.getUUID());
+        LOCKS.unlock(entity.getUUID());
+    }
+
+    //setPosRaw 热路径先看这里：没有任何锁定时连 UUID 都不取
+    public static boolean hasLocks() {
+        return !LOCKS.isEmpty();
     }
 
     //检查是否锁定
     public static boolean isLocationLocked(Entity entity) {
         if (entity == null) return false;
-        return LOCKED_ENTITIES.containsKey(entity.getUUID());
+        return LOCKS.get(entity.getUUID()) != null;
     }
 
     //获取锁定的位置
     public static Vec3 getLockedPosition(Entity entity) {
         if (entity == null) return null;
-        LocationLockData data = LOCKED_ENTITIES.get(entity.getUUID());
-        return data != null ? data.lockedPosition : null;
+        LocationLockRegistry.Lock<ResourceKey<Level>, Entity> lock = LOCKS.get(entity.getUUID());
+        return lock != null ? lock.lockedPosition : null;
     }
 
-    //检查所有锁定的实体（在ServerLevel tick事件中调用）
+    //维度切换完成后重新绑定：非玩家实体会换成新实例，玩家实例不变但所在维度变了
+    public static void onEntityChangedDimension(Entity original, Entity moved) {
+        if (original == null || !hasLocks()) return;
+        if (moved == null || moved.isRemoved()) {
+            LOCKS.rebind(original.getUUID(), null, null, null);
+            return;
+        }
+        LOCKS.rebind(original.getUUID(), moved, moved.level().dimension(), moved.position());
+    }
+
+    //实体离开世界（卸载、移除、换维度）时丢弃引用缓存，锁本身由 miss 计数决定去留
+    public static void onEntityLeave(Entity entity) {
+        if (entity == null || !hasLocks()) return;
+        LOCKS.forgetEntity(entity.getUUID(), entity);
+    }
+
+    //检查本维度锁定的实体（在ServerLevel tick事件中调用）
     public static void checkLockedEntities(ServerLevel level) {
         MinecraftServer server = level.getServer();
-        if (server == null) return;
-
-        LOCKED_ENTITIES.entrySet().removeIf(entry -> {
-            UUID uuid = entry.getKey();
-            LocationLockData data = entry.getValue();
-
-            //从所有维度查找实体（防止维度切换时丢失锁定）
-            Entity entity = findEntityInAllLevels(server, uuid);
-            if (entity == null) {
-                //实体暂时查不到（可能因为字段脏写导致 section 迁移瞬态卸载）
-                //累计 miss，超过阈值才真正删锁，防止被攻击者诱导失锁
-                data.missCount++;
-                return data.missCount > MAX_MISS_TICKS;
-            }
+        if (server == null || LOCKS.isEmpty()) return;
+        LOCKS.check(level.dimension(), new ServerWorld(server));
+    }
 
-            //查到就重置 miss 计数
-            data.missCount = 0;
+    private record ServerWorld(MinecraftServer server) implements LocationLockRegistry.World<ResourceKey<Level>, Entity> {
+        @Override
+        public Entity lookup(ResourceKey<Level> dimension, UUID uuid) {
+            ServerLevel level = server.getLevel(dimension);
+            return level != null ? level.getEntity(uuid) : null;
+        }
 
-            //维度切换时更新锁定位置（维度切换放行后门）
-            if (EntityUtil.isChangingDimension(entity)) {
-                data.lockedPosition = entity.position();
-                return false;
+        //在所有维度中查找实体
+        @Override
+        public Entity lookupAnywhere(UUID uuid) {
+            for (ServerLevel level : server.getAllLevels()) {
+                Entity entity = level.getEntity(uuid);
+                if (entity != null) {
+                    return entity;
+                }
             }
+            return null;
+        }
 
-            //只检查当前维度的实体（避免跨维度操作）
-            if (entity.level() != level) {
-                return false;  //实体在其他维度，跳过检查
-            }
+        @Override
+        public boolean isRemoved(Entity entity) {
+            return entity.isRemoved();
+        }
 
-            Vec3 currentPos = entity.position();
-            Vec3 lockedPos = data.lockedPosition;
-            double distance = currentPos.distanceTo(lockedPos);
+        @Override
+        public ResourceKey<Level> dimensionOf(Entity entity) {
+            return entity.level().dimension();
+        }
 
-            //检测位置偏离，用 ECA 传送 API 强制拉回
-            //相比 setPos：同步 xOld/yOld/zOld、正确更新 bb、按 seenBy 发包（远距离也能同步客户端）
-            if (distance > 0.001) {
-                EcaAPI.teleport(entity, lockedPos.x, lockedPos.y, lockedPos.z);
-            }
+        @Override
+        public boolean isChangingDimension(Entity entity) {
+            return EntityUtil.isChangingDimension(entity);
+        }
 
-            return false;
-        });
-    }
+        @Override
+        public Vec3 position(Entity entity) {
+            return entity.position();
+        }
 
-    //在所有维度中查找实体
-    private static Entity findEntityInAllLevels(MinecraftServer server, UUID uuid) {
-        for (ServerLevel level : server.getAllLevels()) {
-            Entity entity = level.getEntity(uuid);
-            if (entity != null) {
-                return entity;
-            }
+        //用 ECA 传送 API 强制拉回
+        //相比 setPos：同步 xOld/yOld/zOld、正确更新 bb、按 seenBy 发包（远距离也能同步客户端）
+        @Override
+        public void pullBack(Entity entity, Vec3 position) {
+            EcaAPI.teleport(entity, position.x, position.y, position.z);
         }
-        return null;
     }
 
     //清理所有锁定
     public static void clearAll() {
-        LOCKED_ENTITIES.clear();
+        LOCKS.clear();
     }
 
     //获取锁定实体数量
     public static int getLockedEntityCount() {
-        return LOCKED_ENTITIES.size();
+        return LOCKS.size();
     }
 }
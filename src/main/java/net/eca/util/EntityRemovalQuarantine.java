@@ -24,6 +24,8 @@ public final class EntityRemovalQuarantine {
     private static final ConcurrentHashMap<IdentityWeakReference, Boolean> RETIRED = new ConcurrentHashMap<>();
     private static volatile boolean hasActiveRemovals;
     private static volatile boolean hasRetiredEntities;
+    // 隔离集合每次变化递增；容器的零拷贝迭代器据此判断遍历中途是否需要转为过滤快照
+    private static volatile int epoch;
 
     private EntityRemovalQuarantine() {
     }
@@ -34,6 +36,7 @@ public final class EntityRemovalQuarantine {
         synchronized (ACTIVE_LOCK) {
             ACTIVE.put(entity, level);
             hasActiveRemovals = true;
+            epoch++;
         }
     }
 
@@ -49,6 +52,10 @@ public final class EntityRemovalQuarantine {
         return hasActiveRemovals;
     }
 
+    public static int epoch() {
+        return epoch;
+    }
+
     public static boolean hasBlockedAdditions() {
         return hasActiveRemovals || hasRetiredEntities;
     }
@@ -89,6 +96,7 @@ public final class EntityRemovalQuarantine {
         synchronized (ACTIVE_LOCK) {
             ACTIVE.clear();
             hasActiveRemovals = false;
+            epoch++;
         }
         RETIRED.clear();
         hasRetiredEntities = false;
@@ -104,6 +112,7 @@ public final class EntityRemovalQuarantine {
         synchronized (ACTIVE_LOCK) {
             ACTIVE.remove(entity);
             hasActiveRemovals = !ACTIVE.isEmpty();
+            epoch++;
         }
     }
 
@@ -766,7 +766,7 @@ public class EntityUtil {
         if (entity.level() == null || entity.level().isClientSide) return;
         if (Math.abs(expectedHealth - beforeHealth) <= 0.001f) return;
         try {
-            NetworkHandler.sendToTrackingClients(new SetHealthClientSyncPacket(entity.getId(), expectedHealth), entity);
+            NetworkHandler.queueToTrackingClients(new SetHealthClientSyncPacket(entity.getId(), expectedHealth), entity);
         } catch (Exception ignored) {}
     }
 
@@ -790,7 +790,7 @@ public class EntityUtil {
         if (entity == null || damageSource == null || amount <= 0.0f) return false;
         if (entity.level() == null || entity.level().isClientSide) return false;
         try {
-            if (EcaAPI.isInvulnerable(entity) || HealthLockManager.getLock(entity) != null) {
+            if (EcaAPI.isInvulnerable(entity) || HealthLockManager.hasLock(entity)) {
                 return entity.hurt(damageSource, amount);
             }
             float before = getHealth(entity);
@@ -998,7 +998,7 @@ public class EntityUtil {
             livingEntity.getPersistentData().putBoolean(EcaOwnedState.NBT_INVULNERABLE, false);
         }
         InvulnerableEntityManager.removeInvulnerable(livingEntity);
-        EcaAPI.clearInvulnerableFastPath(entity.getId());
+        EcaAPI.clearInvulnerableFastPath(entity);
         HealthLockManager.removeLock(livingEntity);
         HealthLockManager.removeHealBan(livingEntity);
         HealthLockManager.removeMaxHealthLock(livingEntity);
@@ -6,80 +6,98 @@ import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.storage.LevelResource;
 
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+/*
+ * 激进模式下的无敌 UUID 记录，按存档路径归属，同一存档重开服务器后仍然有效。
+ * 查询走每服务器预先解析好的不可变 UUID 集：存档路径只在首次见到该服务器时计算一次，
+ * 之后的 isInvulnerable 是一次引用比较 + 一次哈希探测；增删很少，写时复制整张集合。
+ */
 public class InvulnerableEntityManager {
 
-    private static final Map<String, Set<UUID>> INVULNERABLE_ENTITIES_BY_SAVE = new ConcurrentHashMap<>();
-    private static final Map<MinecraftServer, String> SAVE_KEY_CACHE = new ConcurrentHashMap<>();
+    private static final class SaveRecord {
+        volatile Set<UUID> uuids = Set.of();
+    }
+
+    private record Binding(MinecraftServer server, SaveRecord record) {}
+
+    private static final Map<String, SaveRecord> RECORDS_BY_SAVE = new ConcurrentHashMap<>();
+    private static final Map<MinecraftServer, SaveRecord> RECORDS_BY_SERVER = new ConcurrentHashMap<>();
+    // 绝大多数时间只有一个服务器，最近一次绑定免去 Map 查找
+    private static volatile Binding lastBinding;
 
     public static void addInvulnerable(Entity entity) {
-        String saveKey = getSaveKey(entity);
-        if (saveKey == null) return;
-        INVULNERABLE_ENTITIES_BY_SAVE
-            .computeIfAbsent(saveKey, key -> ConcurrentHashMap.newKeySet())
-            .add(entity.getUUID());
+        SaveRecord record = getRecord(entity);
+        if (record == null) return;
+        UUID uuid = entity.getUUID();
+        synchronized (record) {
+            if (record.uuids.contains(uuid)) return;
+            Set<UUID> next = new HashSet<>(record.uuids);
+            next.add(uuid);
+            record.uuids = Set.copyOf(next);
+        }
     }
 
     public static void removeInvulnerable(Entity entity) {
-        String saveKey = getSaveKey(entity);
-        if (saveKey == null) return;
-        Set<UUID> uuids = INVULNERABLE_ENTITIES_BY_SAVE.get(saveKey);
-        if (uuids == null) return;
-        uuids.remove(entity.getUUID());
-        if (uuids.isEmpty()) {
-            INVULNERABLE_ENTITIES_BY_SAVE.remove(saveKey, uuids);
+        SaveRecord record = getRecord(entity);
+        if (record == null) return;
+        UUID uuid = entity.getUUID();
+        synchronized (record) {
+            if (!record.uuids.contains(uuid)) return;
+            Set<UUID> next = new HashSet<>(record.uuids);
+            next.remove(uuid);
+            record.uuids = Set.copyOf(next);
         }
     }
 
     public static boolean isInvulnerable(Entity entity) {
-        String saveKey = getSaveKey(entity);
-        if (saveKey == null) return false;
-        Set<UUID> uuids = INVULNERABLE_ENTITIES_BY_SAVE.get(saveKey);
-        return uuids != null && uuids.contains(entity.getUUID());
+        SaveRecord record = getRecord(entity);
+        return record != null && record.uuids.contains(entity.getUUID());
     }
 
+    // 返回不可变快照，调用方可直接遍历，无需再复制
     public static Set<UUID> getAllInvulnerableUUIDs(ServerLevel level) {
-        String saveKey = getSaveKey(level);
-        if (saveKey == null) return Set.of();
-        Set<UUID> uuids = INVULNERABLE_ENTITIES_BY_SAVE.get(saveKey);
-        return uuids == null ? Set.of() : Set.copyOf(uuids);
+        SaveRecord record = getRecord(level);
+        return record == null ? Set.of() : record.uuids;
     }
 
     public static int getInvulnerableCount(ServerLevel level) {
-        String saveKey = getSaveKey(level);
-        if (saveKey == null) return 0;
-        Set<UUID> uuids = INVULNERABLE_ENTITIES_BY_SAVE.get(saveKey);
-        return uuids == null ? 0 : uuids.size();
+        SaveRecord record = getRecord(level);
+        return record == null ? 0 : record.uuids.size();
     }
 
     public static void clearAll() {
-        INVULNERABLE_ENTITIES_BY_SAVE.clear();
-        SAVE_KEY_CACHE.clear();
+        RECORDS_BY_SAVE.clear();
+        RECORDS_BY_SERVER.clear();
+        lastBinding = null;
     }
 
-    private static String getSaveKey(Entity entity) {
+    private static SaveRecord getRecord(Entity entity) {
         if (entity == null || !(entity.level() instanceof ServerLevel level)) {
             return null;
         }
-        return getSaveKey(level);
+        return getRecord(level);
     }
 
-    private static String getSaveKey(ServerLevel level) {
+    private static SaveRecord getRecord(ServerLevel level) {
         if (level == null || level.getServer() == null) {
             return null;
         }
         MinecraftServer server = level.getServer();
-        String cached = SAVE_KEY_CACHE.get(server);
-        if (cached != null) {
-            return cached;
+        Binding binding = lastBinding;
+        if (binding != null && binding.server() == server) {
+            return binding.record();
         }
-        Path root = server.getWorldPath(LevelResource.ROOT);
-        String saveKey = root.toAbsolutePath().normalize().toString();
-        SAVE_KEY_CACHE.put(server, saveKey);
-        return saveKey;
+        SaveRecord record = RECORDS_BY_SERVER.computeIfAbsent(server, s -> {
+            Path root = s.getWorldPath(LevelResource.ROOT);
+            String saveKey = root.toAbsolutePath().normalize().toString();
+            return RECORDS_BY_SAVE.computeIfAbsent(saveKey, key -> new SaveRecord());
+        });
+        lastBinding = new Binding(server, record);
+        return record;
     }
 }
@@ -0,0 +1,13 @@
+package net.eca.util;
+
+/*
+ * 由 LivingEntityMixin 注入到 LivingEntity 的无敌标志位。
+ * EcaAPI.isInvulnerable 的否定判断只读这一个字段；服务端只由 ECA 自己的设置/读档/清理路径写入，
+ * 客户端随 EntityData 同步更新。标志为真时才继续读 EntityData 与激进模式记录。
+ */
+public interface InvulnerableFlagHolder {
+
+    boolean eca$isInvulnerableFlag();
+
+    void eca$setInvulnerableFlag(boolean invulnerable);
+}
@@ -0,0 +1,188 @@
+package net.eca.util;
+
+import net.minecraft.world.phys.Vec3;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+//位置锁的存储与每维度检查：UUID 总表 + 按维度分桶，维度键与实体类型由调用方决定
+final class LocationLockRegistry<D, E> {
+
+    //实体所在世界的操作，由 EntityLocationManager 按服务端维度实现
+    interface World<D, E> {
+        //只查本维度
+        E lookup(D dimension, UUID uuid);
+
+        //本维度查不到后才查全部维度
+        E lookupAnywhere(UUID uuid);
+
+        boolean isRemoved(E entity);
+
+        D dimensionOf(E entity);
+
+        boolean isChangingDimension(E entity);
+
+        Vec3 position(E entity);
+
+        void pullBack(E entity, Vec3 position);
+    }
+
+    //位置锁定数据
+    static final class Lock<D, E> {
+        final UUID uuid;
+        Vec3 lockedPosition;
+        int missCount;
+        //所在维度分桶；实体引用缓存只在维度切换、移除或实例替换后失效，稳态不再按 UUID 查找
+        D dimension;
+        WeakReference<E> entityRef;
+
+        Lock(UUID uuid, D dimension, E entity, Vec3 position) {
+            this.uuid = uuid;
+            this.lockedPosition = position;
+            this.dimension = dimension;
+            this.entityRef = new WeakReference<>(entity);
+        }
+    }
+
+    private final int maxMissTicks;
+    private final double driftThresholdSqr;
+
+    //存储锁定信息（使用UUID防止ID冲突）
+    private final Map<UUID, Lock<D, E>> locks = new ConcurrentHashMap<>();
+
+    //按维度分桶的同一批锁定数据：每个维度的 tick 只遍历自己的桶
+    private final Map<D, Map<UUID, Lock<D, E>>> byDimension = new ConcurrentHashMap<>();
+
+    LocationLockRegistry(int maxMissTicks, double driftThresholdSqr) {
+        this.maxMissTicks = maxMissTicks;
+        this.driftThresholdSqr = driftThresholdSqr;
+    }
+
+    void lock(UUID uuid, D dimension, E entity, Vec3 position) {
+        Lock<D, E> lock = new Lock<>(uuid, dimension, entity, position);
+        Lock<D, E> previous = locks.put(uuid, lock);
+        if (previous != null) {
+            bucket(previous.dimension).remove(previous.uuid, previous);
+        }
+        bucket(dimension).put(uuid, lock);
+    }
+
+    void unlock(UUID uuid) {
+        Lock<D, E> removed = locks.remove(uuid);
+        if (removed != null) {
+            bucket(removed.dimension).remove(removed.uuid, removed);
+        }
+    }
+
+    Lock<D, E> get(UUID uuid) {
+        return locks.get(uuid);
+    }
+
+    boolean isEmpty() {
+        return locks.isEmpty();
+    }
+
+    int size() {
+        return locks.size();
+    }
+
+    void clear() {
+        locks.clear();
+        byDimension.clear();
+    }
+
+    //维度切换完成后重新绑定：非玩家实体会换成新实例，玩家实例不变但所在维度变了
+    void rebind(UUID uuid, E moved, D dimension, Vec3 position) {
+        Lock<D, E> lock = locks.get(uuid);
+        if (lock == null) return;
+        if (moved == null) {
+            lock.entityRef = null;
+            return;
+        }
+        lock.entityRef = new WeakReference<>(moved);
+        lock.lockedPosition = position;
+        moveToDimension(lock, dimension);
+    }
+
+    //实体离开世界时丢弃引用缓存，锁本身由 miss 计数决定去留
+    void forgetEntity(UUID uuid, E entity) {
+        Lock<D, E> lock = locks.get(uuid);
+        if (lock != null && lock.entityRef != null && lock.entityRef.get() == entity) {
+            lock.entityRef = null;
+        }
+    }
+
+    //检查本维度锁定的实体，只遍历本维度的桶
+    void check(D dimension, World<D, E> world) {
+        Map<UUID, Lock<D, E>> bucket = byDimension.get(dimension);
+        if (bucket == null || bucket.isEmpty()) return;
+
+        Iterator<Lock<D, E>> iterator = bucket.values().iterator();
+        while (iterator.hasNext()) {
+            Lock<D, E> lock = iterator.next();
+            E entity = resolve(lock, dimension, world);
+            if (entity == null) {
+                //实体暂时查不到（可能因为字段脏写导致 section 迁移瞬态卸载）
+                //累计 miss，超过阈值才真正删锁，防止被攻击者诱导失锁
+                lock.missCount++;
+                if (lock.missCount > maxMissTicks) {
+                    iterator.remove();
+                    locks.remove(lock.uuid, lock);
+                }
+                continue;
+            }
+
+            //查到就重置 miss 计数
+            lock.missCount = 0;
+
+            //维度切换时更新锁定位置（维度切换放行后门）
+            if (world.isChangingDimension(entity)) {
+                lock.lockedPosition = world.position(entity);
+                continue;
+            }
+
+            //实体已在其他维度：迁桶，由该维度自己的 tick 检查
+            D actual = world.dimensionOf(entity);
+            if (!actual.equals(dimension)) {
+                iterator.remove();
+                moveToDimension(lock, actual);
+                continue;
+            }
+
+            //setPosRaw 注入已拦截常规移动，这里只兜底字段脏写造成的偏离
+            Vec3 lockedPos = lock.lockedPosition;
+            if (world.position(entity).distanceToSqr(lockedPos) > driftThresholdSqr) {
+                world.pullBack(entity, lockedPos);
+            }
+        }
+    }
+
+    //引用缓存有效时直接返回；否则先查本维度，再查全部维度（仅在实体丢失或换维度后发生）
+    private E resolve(Lock<D, E> lock, D dimension, World<D, E> world) {
+        WeakReference<E> ref = lock.entityRef;
+        E cached = ref != null ? ref.get() : null;
+        if (cached != null && !world.isRemoved(cached)) {
+            return cached;
+        }
+        E entity = world.lookup(dimension, lock.uuid);
+        if (entity == null) {
+            entity = world.lookupAnywhere(lock.uuid);
+        }
+        lock.entityRef = entity != null ? new WeakReference<>(entity) : null;
+        return entity;
+    }
+
+    private void moveToDimension(Lock<D, E> lock, D dimension) {
+        if (dimension.equals(lock.dimension)) return;
+        bucket(lock.dimension).remove(lock.uuid, lock);
+        lock.dimension = dimension;
+        bucket(dimension).put(lock.uuid, lock);
+    }
+
+    private Map<UUID, Lock<D, E>> bucket(D dimension) {
+        return byDimension.computeIfAbsent(dimension, key -> new ConcurrentHashMap<>());
+    }
+}
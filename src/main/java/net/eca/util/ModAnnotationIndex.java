@@ -0,0 +1,171 @@
+package net.eca.util;
+
+import net.eca.api.RegisterBlockExtension;
+import net.eca.api.RegisterBossShow;
+import net.eca.api.RegisterEntityExtension;
+import net.eca.api.RegisterFaction;
+import net.eca.api.RegisterItemExtension;
+import net.eca.api.RegisterRaid;
+import net.eca.api.RegisterShaderPreset;
+import net.eca.config.EcaConfiguration;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModFileInfo;
+import net.minecraftforge.forgespi.language.IModInfo;
+import net.minecraftforge.forgespi.language.ModFileScanData;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+ * 全部 mod 文件扫描结果的共享索引，首次使用时单遍构建，之后各注册器只取自己那一份。
+ *
+ * 过去每个 scanAndRegisterAll 各自遍历一次所有 mod 文件的全部注解，且按 IModInfo 重复遍历同一文件；
+ * 现在一次遍历同时得到：
+ *   - ECA 注册注解类型 → (mod id, 类名, 注解参数) 列表，按 mod 文件顺序、同一类同一注解只出现一次；
+ *   - 包（内部名前缀）→ 含该包类的 mod 文件，供按类反查所属 mod 文件时只检查少数候选。
+ * mod 列表在加载完成后不再变化，索引构建后不可变。
+ */
+public final class ModAnnotationIndex {
+
+    public record Entry(String modId, String className, Map<String, Object> values) {}
+
+    public record FileRef(String fileName, ModFileScanData scanData) {}
+
+    //只为 ECA 自己的注册注解建索引，避免把所有 mod 的全部注解都常驻内存
+    private static final Set<String> INDEXED_ANNOTATIONS = Set.of(
+        RegisterFaction.class.getName(),
+        RegisterRaid.class.getName(),
+        RegisterEntityExtension.class.getName(),
+        RegisterBossShow.class.getName(),
+        RegisterItemExtension.class.getName(),
+        RegisterBlockExtension.class.getName(),
+        RegisterShaderPreset.class.getName()
+    );
+
+    private static volatile ModAnnotationIndex instance;
+
+    private final Map<String, List<Entry>> byAnnotation;
+    private final Map<String, List<FileRef>> filesByPackage;
+
+    private ModAnnotationIndex(Map<String, List<Entry>> byAnnotation, Map<String, List<FileRef>> filesByPackage) {
+        this.byAnnotation = byAnnotation;
+        this.filesByPackage = filesByPackage;
+    }
+
+    public static ModAnnotationIndex get() {
+        ModAnnotationIndex index = instance;
+        if (index != null) return index;
+        synchronized (ModAnnotationIndex.class) {
+            if (instance == null) {
+                long start = System.nanoTime();
+                List<String> modIds = new ArrayList<>();
+                List<FileRef> files = new ArrayList<>();
+                for (IModFileInfo fileInfo : ModList.get().getModFiles()) {
+                    List<IModInfo> mods = fileInfo.getMods();
+                    modIds.add(mods.isEmpty() ? fileInfo.getFile().getFileName() : mods.get(0).getModId());
+                    files.add(new FileRef(fileInfo.getFile().getFileName(), fileInfo.getFile().getScanResult()));
+                }
+                instance = build(modIds, files, INDEXED_ANNOTATIONS);
+                EcaLogger.info("[AnnotationIndex] Indexed {} mod file(s) in {} ms: {}",
+                    files.size(), (System.nanoTime() - start) / 1_000_000L, instance.summary());
+            }
+            return instance;
+        }
+    }
+
+    //单遍构建；modIds 与 files 一一对应
+    static ModAnnotationIndex build(List<String> modIds, List<FileRef> files, Set<String> annotationTypes) {
+        Map<String, List<Entry>> byAnnotation = new HashMap<>();
+        Map<String, List<FileRef>> filesByPackage = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            FileRef file = files.get(i);
+            ModFileScanData scanData = file.scanData();
+            if (scanData == null) continue;
+            String modId = modIds.get(i);
+
+            //同一文件内同一 (注解, 类) 只记一次：类型级注解之外，方法/字段上的同名注解也会各出一条
+            Set<String> seen = new HashSet<>();
+            for (ModFileScanData.AnnotationData data : scanData.getAnnotations()) {
+                String annotationType = data.annotationType().getClassName();
+                if (!annotationTypes.contains(annotationType)) continue;
+                String className = data.clazz().getClassName();
+                if (!seen.add(annotationType + '|' + className)) continue;
+                byAnnotation.computeIfAbsent(annotationType, k -> new ArrayList<>())
+                    .add(new Entry(modId, className, data.annotationData()));
+            }
+
+            Set<String> packages = new LinkedHashSet<>();
+            for (ModFileScanData.ClassData classData : scanData.getClasses()) {
+                String internalName = classData.clazz().getInternalName();
+                if (internalName == null) continue;
+                int slash = internalName.lastIndexOf('/');
+                packages.add(slash < 0 ? "" : internalName.substring(0, slash + 1));
+            }
+            for (String pkg : packages) {
+                filesByPackage.computeIfAbsent(pkg, k -> new ArrayList<>(1)).add(file);
+            }
+        }
+        byAnnotation.replaceAll((type, entries) -> Collections.unmodifiableList(entries));
+        filesByPackage.replaceAll((pkg, refs) -> Collections.unmodifiableList(refs));
+        return new ModAnnotationIndex(byAnnotation, filesByPackage);
+    }
+
+    public List<Entry> annotated(Class<? extends Annotation> annotationType) {
+        return annotated(annotationType.getName());
+    }
+
+    List<Entry> annotated(String annotationTypeName) {
+        List<Entry> entries = byAnnotation.get(annotationTypeName);
+        return entries != null ? entries : Collections.emptyList();
+    }
+
+    //含有与 internalName 同包类的 mod 文件，按 mod 列表顺序
+    public List<FileRef> filesContainingPackageOf(String internalName) {
+        int slash = internalName.lastIndexOf('/');
+        List<FileRef> refs = filesByPackage.get(slash < 0 ? "" : internalName.substring(0, slash + 1));
+        return refs != null ? refs : Collections.emptyList();
+    }
+
+    /* 加载并初始化标注类，每个成功初始化的类交给 onLoaded。
+     * 开启并行时先在公共池中并行加载（不初始化）全部类，类定义与字节码转换可以并发；
+     * 静态初始化仍在调用线程按索引顺序逐个执行，注册顺序与"先注册者胜出"的规则保持不变。 */
+    public static void loadAll(List<Entry> entries, String logTag, Consumer<Class<?>> onLoaded) {
+        if (entries.isEmpty()) return;
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (entries.size() > 1 && EcaConfiguration.getParallelAnnotationClassLoadingSafely()) {
+            entries.parallelStream().forEach(entry -> {
+                try {
+                    Class.forName(entry.className(), false, loader);
+                } catch (Throwable ignored) {
+                    //失败留给下面的顺序初始化统一报告
+                }
+            });
+        }
+        for (Entry entry : entries) {
+            try {
+                onLoaded.accept(Class.forName(entry.className(), true, loader));
+            } catch (ClassNotFoundException e) {
+                EcaLogger.error("{} Failed to load class {} from mod {}: {}", logTag, entry.className(), entry.modId(), e.getMessage());
+            }
+        }
+    }
+
+    private String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (String type : INDEXED_ANNOTATIONS) {
+            List<Entry> entries = byAnnotation.get(type);
+            if (entries == null) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(type.substring(type.lastIndexOf('.') + 1)).append('=').append(entries.size());
+        }
+        return sb.length() > 0 ? sb.toString() : "no ECA annotations";
+    }
+}
@@ -6,26 +6,25 @@ import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.phys.Vec3;
 
-import net.minecraftforge.server.ServerLifecycleHooks;
-
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.LockSupport;
 
 /**
- * Independent daemon-thread entity resurrection manager.
+ * Event-driven entity resurrection manager.
  * <p>
- * Maintains its own tracked-entity map and continuously monitors every
- * tracked entity. When an entity dies or is removed from containers,
- * {@link EntityUtil#revive(LivingEntity)} is called to fully restore it.
+ * Maintains its own tracked-entity map. The {@code die}, {@code kill}, {@code discard},
+ * {@code remove}, {@code setRemoved} and {@code isRemoved} hooks enqueue tracked entities
+ * into a lock-free queue, which the server thread drains at the end of every server tick.
+ * A low-frequency safety sweep re-checks every tracked entity to catch anything the hooks
+ * missed (direct field writes, reflective container removal). Any entity found dead or
+ * missing from its containers is restored with {@link EntityUtil#revive(LivingEntity)}.
  * <p>
- * This thread runs entirely outside the Forge event bus and MC tick loop.
+ * All work runs on the server thread; no background thread is started.
  * <h3>Usage</h3>
  * <pre>{@code
  * ResurrectionManager.start();
@@ -36,143 +35,50 @@ import java.util.concurrent.locks.LockSupport;
  */
 public final class ResurrectionManager {
 
-    private static final long DEFAULT_POLL_INTERVAL_MS = 25L;
+    // 兜底巡检间隔：钩子覆盖了常规死亡/移除路径，巡检只负责绕过钩子的情况
+    private static final long DEFAULT_POLL_INTERVAL_MS = 1000L;
+    private static final long MS_PER_TICK = 50L;
 
     private static final AtomicBoolean running = new AtomicBoolean(false);
     private static final AtomicLong totalRevived = new AtomicLong(0);
     private static final AtomicLong totalChecks = new AtomicLong(0);
 
     private static final Map<UUID, TrackedEntity> trackedEntities = new ConcurrentHashMap<>();
-    private static final Set<UUID> inProgress = ConcurrentHashMap.newKeySet();
+    // 钩子可能在任意线程触发（多生产者），只由服务端线程在 tick 末尾消费（单消费者）
+    private static final CandidateQueue<TrackedEntity> pending = new CandidateQueue<>(tracked -> tracked.queued);
 
     private static volatile long pollIntervalMs = DEFAULT_POLL_INTERVAL_MS;
-    private static volatile Thread workerThread;
 
     private ResurrectionManager() {}
 
-    // ==================== 线程控制 ====================
+    // ==================== 启停 ====================
 
     public static synchronized void start() {
         if (running.getAndSet(true)) {
             EcaLogger.info("[ResurrectionManager] Already running");
             return;
         }
-
-        workerThread = new Thread(() -> {
-            EcaLogger.info("[ResurrectionManager] Started, pollInterval={}ms tracked={}",
-                    pollIntervalMs, trackedEntities.size());
-
-            while (running.get()) {
-                try {
-                    MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
-                    if (server == null || !server.isRunning()) {
-                        sleepOneCycle();
-                        continue;
-                    }
-
-                    if (trackedEntities.isEmpty()) {
-                        sleepOneCycle();
-                        continue;
-                    }
-
-                    int revivedThisRound = 0;
-                    int checkedThisRound = 0;
-                    Map<UUID, TrackedEntity> snapshot = Map.copyOf(trackedEntities);
-
-                    for (Map.Entry<UUID, TrackedEntity> entry : snapshot.entrySet()) {
-                        if (!running.get()) break;
-                        UUID uuid = entry.getKey();
-                        TrackedEntity tracked = entry.getValue();
-
-                        if (!inProgress.add(uuid)) continue;
-                        try {
-                            checkedThisRound++;
-
-                            Entity entity = EntityUtil.getEntity(server, uuid);
-                            if (entity != null) {
-                                tracked.entity = entity;
-                            } else {
-                                Entity cachedEntity = tracked.entity;
-                                if (cachedEntity != null
-                                        && cachedEntity.level() instanceof ServerLevel cachedLevel
-                                        && cachedLevel.getServer() == server) {
-                                    entity = cachedEntity;
-                                } else {
-                                    trackedEntities.remove(uuid, tracked);
-                                    continue;
-                                }
-                            }
-
-                            if (entity == null) {
-                                trackedEntities.remove(uuid);
-                                continue;
-                            }
-
-                            if (EntityUtil.isChangingDimension(entity)) continue;
-
-                            if (!(entity.level() instanceof ServerLevel)) {
-                                if (entity.isRemoved()) trackedEntities.remove(uuid);
-                                continue;
-                            }
-
-                            updateLastKnownLocation(tracked, entity);
-
-                            if (entity instanceof LivingEntity living) {
-                                if (tracked.hasLastKnownLocation()
-                                        && (entity.isRemoved() || entity.getRemovalReason() != null)) {
-                                    EntityUtil.reviveAtLastKnownPosition(living, tracked.position,
-                                            tracked.yRot, tracked.xRot);
-                                } else {
-                                    EntityUtil.revive(living);
-                                }
-                                revivedThisRound++;
-                            }
-                        } catch (Exception e) {
-                            EcaLogger.info("[ResurrectionManager] Error uuid={} msg={}",
-                                    uuid, e.getMessage());
-                        } finally {
-                            inProgress.remove(uuid);
-                        }
-                    }
-
-                    if (revivedThisRound > 0) totalRevived.addAndGet(revivedThisRound);
-                    if (checkedThisRound > 0) totalChecks.addAndGet(checkedThisRound);
-
-                } catch (Exception e) {
-                    EcaLogger.info("[ResurrectionManager] Loop error: {}", e.getMessage());
-                }
-
-                sleepOneCycle();
-            }
-
-            EcaLogger.info("[ResurrectionManager] Stopped, totalRevived={} totalChecks={}",
-                    totalRevived.get(), totalChecks.get());
-        }, "ECA-ResurrectionManager");
-
-        workerThread.setDaemon(true);
-        workerThread.setPriority(Thread.NORM_PRIORITY - 1);
-        workerThread.start();
+        pending.resetSweep();
+        EcaLogger.info("[ResurrectionManager] Started, sweepInterval={}ms tracked={}",
+                pollIntervalMs, trackedEntities.size());
+        // 启动时立即巡检一次，停机期间死亡的实体不必等到首个巡检周期
+        for (TrackedEntity tracked : trackedEntities.values()) {
+            pending.offer(tracked);
+        }
     }
 
     public static synchronized void stop() {
         if (!running.getAndSet(false)) return;
-
-        Thread t = workerThread;
-        if (t != null) {
-            try {
-                t.join(TimeUnit.SECONDS.toMillis(5));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        workerThread = null;
-        inProgress.clear();
+        pending.clear();
+        EcaLogger.info("[ResurrectionManager] Stopped, totalRevived={} totalChecks={}",
+                totalRevived.get(), totalChecks.get());
     }
 
     public static boolean isRunning() { return running.get(); }
     public static long getTotalRevivedCount() { return totalRevived.get(); }
     public static long getTotalCheckCount() { return totalChecks.get(); }
 
+    // 兜底巡检间隔，按 tick 取整（至少每 tick 一次）
     public static void setPollIntervalMs(long ms) {
         pollIntervalMs = Math.max(1L, Math.min(ms, 10000L));
     }
@@ -184,7 +90,7 @@ public final class ResurrectionManager {
         if (entity == null) return;
         trackedEntities.compute(entity.getUUID(), (uuid, tracked) -> {
             if (tracked == null) {
-                return new TrackedEntity(entity);
+                return new TrackedEntity(uuid, entity);
             }
             tracked.entity = entity;
             updateLastKnownLocation(tracked, entity);
@@ -197,7 +103,7 @@ public final class ResurrectionManager {
 
     public static void add(UUID uuid) {
         if (uuid != null) {
-            trackedEntities.putIfAbsent(uuid, new TrackedEntity(null));
+            trackedEntities.putIfAbsent(uuid, new TrackedEntity(uuid, null));
         }
     }
 
@@ -229,13 +135,52 @@ public final class ResurrectionManager {
         updateLastKnownLocation(tracked, entity);
     }
 
+    // 死亡/移除钩子调用：未追踪或未启动时只有一次空表判断，已入队的实体不重复入队
+    public static void notifyCandidate(Entity entity) {
+        if (entity == null || !running.get() || trackedEntities.isEmpty()) return;
+        TrackedEntity tracked = trackedEntities.get(entity.getUUID());
+        if (tracked != null) {
+            pending.offer(tracked);
+        }
+    }
+
+    // 服务端 tick 末尾调用：先按周期把全部追踪实体入队，再统一处理队列
+    public static void onServerTick(MinecraftServer server) {
+        if (server == null || !running.get()) return;
+
+        if (pending.sweepDue(Math.max(1L, pollIntervalMs / MS_PER_TICK))) {
+            for (TrackedEntity tracked : trackedEntities.values()) {
+                pending.offer(tracked);
+            }
+        }
+
+        int revivedThisRound = 0;
+        int checkedThisRound = 0;
+        TrackedEntity tracked;
+        while ((tracked = pending.poll()) != null) {
+            if (trackedEntities.get(tracked.uuid) != tracked) continue;
+            checkedThisRound++;
+            try {
+                if (process(server, tracked)) revivedThisRound++;
+            } catch (Exception e) {
+                EcaLogger.info("[ResurrectionManager] Error uuid={} msg={}", tracked.uuid, e.getMessage());
+            }
+        }
+
+        if (revivedThisRound > 0) totalRevived.addAndGet(revivedThisRound);
+        if (checkedThisRound > 0) totalChecks.addAndGet(checkedThisRound);
+    }
+
     public static Set<UUID> getTrackedUUIDs() {
         return Collections.unmodifiableSet(trackedEntities.keySet());
     }
 
     public static int getTrackedCount() { return trackedEntities.size(); }
 
-    public static void clearAll() { trackedEntities.clear(); }
+    public static void clearAll() {
+        trackedEntities.clear();
+        pending.clear();
+    }
 
     // ==================== 单次检查 ====================
 
@@ -260,8 +205,46 @@ public final class ResurrectionManager {
 
     // ==================== 内部 ====================
 
-    private static void sleepOneCycle() {
-        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+    // 解析实体实例并在确有需要时复活；返回是否执行了复活
+    private static boolean process(MinecraftServer server, TrackedEntity tracked) {
+        UUID uuid = tracked.uuid;
+        Entity entity = EntityUtil.getEntity(server, uuid);
+        if (entity != null) {
+            tracked.entity = entity;
+        } else {
+            Entity cachedEntity = tracked.entity;
+            if (cachedEntity != null
+                    && cachedEntity.level() instanceof ServerLevel cachedLevel
+                    && cachedLevel.getServer() == server) {
+                entity = cachedEntity;
+            } else {
+                trackedEntities.remove(uuid, tracked);
+                return false;
+            }
+        }
+
+        if (EntityUtil.isChangingDimension(entity)) return false;
+
+        if (!(entity.level() instanceof ServerLevel)) {
+            if (entity.isRemoved()) trackedEntities.remove(uuid, tracked);
+            return false;
+        }
+
+        updateLastKnownLocation(tracked, entity);
+
+        if (!(entity instanceof LivingEntity living) || !needsRevival(living)) return false;
+        if (tracked.hasLastKnownLocation()
+                && (entity.isRemoved() || entity.getRemovalReason() != null)) {
+            EntityUtil.reviveAtLastKnownPosition(living, tracked.position, tracked.yRot, tracked.xRot);
+        } else {
+            EntityUtil.revive(living);
+        }
+        return true;
+    }
+
+    // 实体自身状态与服务端容器任一项异常即需复活；健康实体不再被周期性回满血
+    private static boolean needsRevival(LivingEntity living) {
+        return EntityUtil.checkEntityAllStatus(living).containsValue(false);
     }
 
     private static void updateLastKnownLocation(TrackedEntity tracked, Entity entity) {
@@ -280,13 +263,16 @@ public final class ResurrectionManager {
     }
 
     private static final class TrackedEntity {
+        private final UUID uuid;
+        private final AtomicBoolean queued = new AtomicBoolean(false);
         private volatile Entity entity;
         private volatile ServerLevel level;
         private volatile Vec3 position;
         private volatile float yRot;
         private volatile float xRot;
 
-        private TrackedEntity(Entity entity) {
+        private TrackedEntity(UUID uuid, Entity entity) {
+            this.uuid = uuid;
             this.entity = entity;
             updateLastKnownLocation(this, entity);
         }
@@ -2,10 +2,10 @@ package net.eca.util.block_extension;
 
 import net.eca.api.RegisterBlockExtension;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.minecraft.world.level.block.Block;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
-import net.minecraftforge.fml.ModList;
 
 import java.util.Collections;
 import java.util.Map;
@@ -20,17 +20,7 @@ public final class BlockExtensionManager {
     }
 
     public static void scanAndRegisterAll() {
-        ModList.get().forEachModFile(modFile -> modFile.getScanResult().getAnnotations().forEach(annotation -> {
-            if (!RegisterBlockExtension.class.getName().equals(annotation.annotationType().getClassName())) {
-                return;
-            }
-            String className = annotation.clazz().getClassName();
-            try {
-                Class.forName(className, true, Thread.currentThread().getContextClassLoader());
-            } catch (ClassNotFoundException e) {
-                EcaLogger.error("Failed to load block extension class {}: {}", className, e.getMessage());
-            }
-        }));
+        ModAnnotationIndex.loadAll(ModAnnotationIndex.get().annotated(RegisterBlockExtension.class), "[BlockExtension]", clazz -> {});
     }
 
     public static boolean register(BlockExtension extension) {
@@ -7,7 +7,6 @@ import net.eca.network.BossShowStartPacket;
 import net.eca.network.BossShowStopPacket;
 import net.eca.network.BossShowSubtitlePacket;
 import net.eca.network.NetworkHandler;
-import net.eca.util.bossshow.BossShowDefinition.Frame;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.resources.language.I18n;
 import net.minecraft.core.registries.BuiltInRegistries;
@@ -17,7 +16,6 @@ import net.minecraft.world.entity.EntityType;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 
-import java.util.List;
 import java.util.UUID;
 
 /**
@@ -34,7 +32,8 @@ public final class BossShowClientState {
     private static EntityType<?> targetType;
     private static double anchorX, anchorY, anchorZ;
     private static float anchorYaw;
-    private static List<Frame> frames;
+    //本次播放的采样器，持有关键帧区间游标
+    private static BossShowSampler sampler;
     private static boolean cinematic;
     private static int tickCounter;
     private static final BossShowPose POSE = new BossShowPose();
@@ -55,7 +54,7 @@ public final class BossShowClientState {
         anchorY = msg.anchorY();
         anchorZ = msg.anchorZ();
         anchorYaw = msg.anchorYaw();
-        frames = msg.frames();
+        sampler = new BossShowSampler(msg.frames());
         cinematic = msg.cinematic();
         tickCounter = 0;
         active = true;
@@ -91,7 +90,7 @@ public final class BossShowClientState {
         cutsceneId = null;
         targetUuid = null;
         targetType = null;
-        frames = null;
+        sampler = null;
         tickCounter = 0;
         subtitleComponent = null;
         //如果 editor session 还活着（试播结束），自动回到 Home
@@ -119,7 +118,7 @@ public final class BossShowClientState {
     }
 
     public static BossShowPose computePoseForRender(float partialTick) {
-        if (!active || frames == null || frames.isEmpty()) {
+        if (!active || sampler == null || sampler.frames().isEmpty()) {
             POSE.x = POSE.y = POSE.z = 0;
             POSE.yaw = POSE.pitch = 0;
             POSE.cinematic = false;
@@ -127,8 +126,7 @@ public final class BossShowClientState {
         }
 
         double cursor = tickCounter + partialTick;
-        BossShowInterpolator.computePose(frames, cinematic, cursor,
-            anchorX, anchorY, anchorZ, anchorYaw, POSE);
+        sampler.computePose(cinematic, cursor, anchorX, anchorY, anchorZ, anchorYaw, POSE);
         return POSE;
     }
 
@@ -0,0 +1,252 @@
+package net.eca.util.bossshow;
+
+import net.eca.util.bossshow.BossShowDefinition.Frame;
+import net.eca.util.bossshow.BossShowDefinition.Keyframe;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* 帧流压缩：关键帧精简 + 量化差分 + varint。
+ *
+ * 帧按 tick 稠密排列、回放按下标取帧，因此误差按"同一 tick 下原帧与重建帧之差"衡量，而不是到折线的垂距。
+ * 选点：首帧、末帧与显式关键帧必留；相邻必留点之间按 Ramer-Douglas-Peucker 递归细分，
+ *       某帧相对区间两端线性插值的位置偏差超过 posTolerance/2 或角度偏差超过 angleTolerance/2 即保留。
+ * 量化：位置步长 posTolerance/√3（三轴舍入合计不超过 posTolerance/2），角度步长 angleTolerance。
+ * 重建帧取相邻保留点的线性插值，插值是端点的凸组合，量化误差不会被放大，总误差不超过容差。
+ * 偏航先沿时间展开为连续角度再选点与编码，±180° 处的回绕不会被当成大跳变；重建出的偏航与原值差 360° 的整数倍以内等价。 */
+public final class BossShowFrameCodec {
+
+    // 解码时允许的最大帧数（约 14 小时），防止畸形数据申请巨量内存
+    static final int MAX_FRAMES = 1 << 20;
+
+    private static final double SQRT3 = Math.sqrt(3.0);
+
+    private BossShowFrameCodec() {}
+
+    // 任一容差 <= 0 即视为关闭压缩
+    public static boolean isEnabled(double posTolerance, double angleTolerance) {
+        return posTolerance > 0.0 && angleTolerance > 0.0;
+    }
+
+    /* ==================== 选点 ==================== */
+
+    //返回需要保留的帧下标（升序）
+    public static int[] selectSamples(List<Frame> frames, double posTolerance, double angleTolerance) {
+        int n = frames.size();
+        if (n <= 2 || !isEnabled(posTolerance, angleTolerance)) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+
+        float[] yaw = unwrapYaw(frames);
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        for (int i = 1; i < n - 1; i++) {
+            if (frames.get(i).keyframe() != null) keep[i] = true;
+        }
+
+        double posLimit = posTolerance * 0.5;
+        double angleLimit = angleTolerance * 0.5;
+        //显式栈代替递归，长演出不会压深调用栈
+        int[] stack = new int[64];
+        int start = 0;
+        for (int end = 1; end < n; end++) {
+            if (!keep[end]) continue;
+            int top = 0;
+            stack[top++] = start;
+            stack[top++] = end;
+            while (top > 0) {
+                int b = stack[--top];
+                int a = stack[--top];
+                int worst = worstSample(frames, yaw, a, b, posLimit, angleLimit);
+                if (worst < 0) continue;
+                keep[worst] = true;
+                if (top + 4 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = a;
+                stack[top++] = worst;
+                stack[top++] = worst;
+                stack[top++] = b;
+            }
+            start = end;
+        }
+
+        int count = 0;
+        for (boolean k : keep) if (k) count++;
+        int[] indices = new int[count];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (keep[i]) indices[j++] = i;
+        }
+        return indices;
+    }
+
+    //(a, b) 开区间内相对线性插值偏差最大且超限的帧；都在容差内返回 -1
+    private static int worstSample(List<Frame> frames, float[] yaw, int a, int b,
+                                   double posLimit, double angleLimit) {
+        if (b - a < 2) return -1;
+        Frame fa = frames.get(a);
+        Frame fb = frames.get(b);
+        double span = b - a;
+        int worst = -1;
+        double worstScore = 1.0;
+        for (int i = a + 1; i < b; i++) {
+            Frame f = frames.get(i);
+            double t = (i - a) / span;
+            double ex = f.dx() - (fa.dx() + (fb.dx() - fa.dx()) * t);
+            double ey = f.dy() - (fa.dy() + (fb.dy() - fa.dy()) * t);
+            double ez = f.dz() - (fa.dz() + (fb.dz() - fa.dz()) * t);
+            double eyaw = yaw[i] - (yaw[a] + (yaw[b] - yaw[a]) * t);
+            double epitch = f.pitch() - (fa.pitch() + (fb.pitch() - fa.pitch()) * t);
+            //位置与角度各按自身限值归一，取较大者
+            double score = Math.max(Math.sqrt(ex * ex + ey * ey + ez * ez) / posLimit,
+                    Math.max(Math.abs(eyaw), Math.abs(epitch)) / angleLimit);
+            if (score > worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    //把偏航展开为连续角度：首帧保持原值，之后逐帧累加环绕差
+    static float[] unwrapYaw(List<Frame> frames) {
+        int n = frames.size();
+        float[] out = new float[n];
+        if (n == 0) return out;
+        out[0] = frames.get(0).yaw();
+        for (int i = 1; i < n; i++) {
+            out[i] = BossShowInterpolator.lerpYaw(out[i - 1], frames.get(i).yaw(), 1.0);
+        }
+        return out;
+    }
+
+    /* ==================== 重建 ==================== */
+
+    /* 由保留点重建稠密帧：相邻保留点之间线性插值，首个保留点之前与末个之后按端点值延展。
+     * 关键帧附加数据只挂在保留点上。 */
+    public static List<Frame> expand(int frameCount, int[] indices, double[] dx, double[] dy, double[] dz,
+                                     float[] yaw, float[] pitch, Keyframe[] keyframes) {
+        List<Frame> out = new ArrayList<>(frameCount);
+        int k = indices.length;
+        if (frameCount <= 0 || k == 0) return out;
+
+        for (int i = 0; i < indices[0] && out.size() < frameCount; i++) {
+            out.add(new Frame(dx[0], dy[0], dz[0], yaw[0], pitch[0], null));
+        }
+        for (int s = 0; s < k && out.size() < frameCount; s++) {
+            out.add(new Frame(dx[s], dy[s], dz[s], yaw[s], pitch[s], keyframes[s]));
+            if (s + 1 >= k) break;
+            int gap = indices[s + 1] - indices[s];
+            for (int j = 1; j < gap && out.size() < frameCount; j++) {
+                double t = (double) j / gap;
+                out.add(new Frame(
+                        dx[s] + (dx[s + 1] - dx[s]) * t,
+                        dy[s] + (dy[s + 1] - dy[s]) * t,
+                        dz[s] + (dz[s + 1] - dz[s]) * t,
+                        yaw[s] + (float) ((yaw[s + 1] - yaw[s]) * t),
+                        pitch[s] + (float) ((pitch[s + 1] - pitch[s]) * t),
+                        null));
+            }
+        }
+        while (out.size() < frameCount) {
+            int s = k - 1;
+            out.add(new Frame(dx[s], dy[s], dz[s], yaw[s], pitch[s], null));
+        }
+        return out;
+    }
+
+    /* ==================== 二进制编码 ==================== */
+
+    /* 线格式：varint 帧数 | double 位置步长 | double 角度步长 | varint 保留点数 |
+     *        每个保留点：varint 下标差 + 5 × zigzag varlong 量化差分(dx,dy,dz,yaw,pitch) + 关键帧 */
+    static void write(FriendlyByteBuf buf, List<Frame> frames, double posTolerance, double angleTolerance) {
+        int[] indices = selectSamples(frames, posTolerance, angleTolerance);
+        float[] yaw = unwrapYaw(frames);
+        double posStep = posTolerance / SQRT3;
+        double angleStep = angleTolerance;
+
+        buf.writeVarInt(frames.size());
+        buf.writeDouble(posStep);
+        buf.writeDouble(angleStep);
+        buf.writeVarInt(indices.length);
+
+        int previousIndex = 0;
+        long px = 0L, py = 0L, pz = 0L, pyaw = 0L, ppitch = 0L;
+        for (int index : indices) {
+            Frame f = frames.get(index);
+            long qx = Math.round(f.dx() / posStep);
+            long qy = Math.round(f.dy() / posStep);
+            long qz = Math.round(f.dz() / posStep);
+            long qyaw = Math.round(yaw[index] / angleStep);
+            long qpitch = Math.round(f.pitch() / angleStep);
+
+            buf.writeVarInt(index - previousIndex);
+            writeZigZag(buf, qx - px);
+            writeZigZag(buf, qy - py);
+            writeZigZag(buf, qz - pz);
+            writeZigZag(buf, qyaw - pyaw);
+            writeZigZag(buf, qpitch - ppitch);
+            BossShowNetCodec.writeKeyframe(buf, f.keyframe());
+
+            previousIndex = index;
+            px = qx; py = qy; pz = qz; pyaw = qyaw; ppitch = qpitch;
+        }
+    }
+
+    static List<Frame> read(FriendlyByteBuf buf) {
+        int frameCount = buf.readVarInt();
+        double posStep = buf.readDouble();
+        double angleStep = buf.readDouble();
+        int k = buf.readVarInt();
+        if (frameCount < 0 || frameCount > MAX_FRAMES || k < 0 || k > frameCount) {
+            throw new IllegalArgumentException("BossShow frame stream out of range: frames=" + frameCount + " samples=" + k);
+        }
+        if (!(posStep > 0.0) || !(angleStep > 0.0)) {
+            throw new IllegalArgumentException("BossShow frame stream has invalid quantization steps");
+        }
+
+        int[] indices = new int[k];
+        double[] dx = new double[k], dy = new double[k], dz = new double[k];
+        float[] yaw = new float[k], pitch = new float[k];
+        Keyframe[] keyframes = new Keyframe[k];
+
+        int index = 0;
+        long qx = 0L, qy = 0L, qz = 0L, qyaw = 0L, qpitch = 0L;
+        for (int s = 0; s < k; s++) {
+            int delta = buf.readVarInt();
+            if (delta < 0 || (s > 0 && delta == 0)) {
+                throw new IllegalArgumentException("BossShow frame stream indices are not increasing");
+            }
+            index += delta;
+            if (index >= frameCount) {
+                throw new IllegalArgumentException("BossShow frame stream index out of range: " + index);
+            }
+            qx += readZigZag(buf);
+            qy += readZigZag(buf);
+            qz += readZigZag(buf);
+            qyaw += readZigZag(buf);
+            qpitch += readZigZag(buf);
+
+            indices[s] = index;
+            dx[s] = qx * posStep;
+            dy[s] = qy * posStep;
+            dz[s] = qz * posStep;
+            yaw[s] = (float) (qyaw * angleStep);
+            pitch[s] = (float) (qpitch * angleStep);
+            keyframes[s] = BossShowNetCodec.readKeyframe(buf);
+        }
+        return expand(frameCount, indices, dx, dy, dz, yaw, pitch, keyframes);
+    }
+
+    private static void writeZigZag(FriendlyByteBuf buf, long value) {
+        buf.writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(FriendlyByteBuf buf) {
+        long raw = buf.readVarLong();
+        return (raw >>> 1) ^ -(raw & 1L);
+    }
+}
@@ -8,7 +8,14 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.LivingEntity;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * History tracker for BossShow playback. Mode is per-definition via {@link BossShowDefinition#allowRepeat()}:
@@ -18,6 +25,9 @@ import java.util.UUID;
  *   <li><b>allowRepeat=true</b> — Per-target-entity: a cutscene can re-play for the same player against a
  *       different entity. Stored as a UUID set per cutscene on entity NBT. Requires a non-null target.</li>
  * </ul>
+ *
+ * <p>Both sets are parsed from NBT once and then answered from in-memory hash sets; NBT is only
+ * touched again when a new entry is recorded. The on-disk layout is unchanged.</p>
  */
 public final class BossShowHistory {
 
@@ -27,6 +37,15 @@ public final class BossShowHistory {
     //allowRepeat=true 模式：实体 NBT 下 map key=cutsceneId -> list of player UUIDs
     private static final String ENTITY_SEEN_BY_CUTSCENE = "seen_by";
 
+    /* 玩家已看过的 cutscene 集合缓存：登录时从 NBT 解析一次，登出时丢弃。
+       记录持有者实例，重生/跨维度换出新的 ServerPlayer 对象时按新对象的 NBT 重新解析。 */
+    private static final Map<UUID, PlayerSeen> PLAYER_CACHE = new ConcurrentHashMap<>();
+    //实体侧 cutscene → 看过的玩家集合，按需解析；弱引用键，实体卸载后随之回收
+    private static final Map<LivingEntity, Map<ResourceLocation, Set<UUID>>> ENTITY_CACHE =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private record PlayerSeen(ServerPlayer owner, Set<ResourceLocation> ids) {}
+
     private BossShowHistory() {}
 
     //检查 player 对 target 是否已经看过 def
@@ -36,29 +55,16 @@ public final class BossShowHistory {
         if (cutsceneId == null) return false;
 
         if (def.allowRepeat()) {
-            //true：看 entity NBT 中 cutscene→uuids 里是否含有该玩家；无 target 等价于"没看过"
+            //true：看 entity 上该 cutscene 的观众集合；无 target 等价于"没看过"
             if (target == null) return false;
-            CompoundTag root = target.getPersistentData().getCompound(ECA_ROOT);
-            CompoundTag seenMap = root.getCompound(ENTITY_SEEN_BY_CUTSCENE);
-            ListTag uuids = seenMap.getList(cutsceneId.toString(), Tag.TAG_STRING);
-            String pidStr = player.getUUID().toString();
-            for (int i = 0; i < uuids.size(); i++) {
-                if (pidStr.equals(uuids.getString(i))) return true;
-            }
-            return false;
+            return entityViewers(target, cutsceneId).contains(player.getUUID());
         } else {
-            //false：看 player NBT 中的 seen list
-            CompoundTag root = player.getPersistentData().getCompound(ECA_ROOT);
-            ListTag seen = root.getList(PLAYER_SEEN, Tag.TAG_STRING);
-            String cid = cutsceneId.toString();
-            for (int i = 0; i < seen.size(); i++) {
-                if (cid.equals(seen.getString(i))) return true;
-            }
-            return false;
+            //false：看 player 的 seen 集合
+            return playerSeen(player).contains(cutsceneId);
         }
     }
 
-    //标记 player 对 target 已播放过 def
+    //标记 player 对 target 已播放过 def；集合中已有时不碰 NBT
     public static void markPlayed(ServerPlayer player, BossShowDefinition def, LivingEntity target) {
         if (player == null || def == null) return;
         ResourceLocation cutsceneId = def.id();
@@ -66,30 +72,24 @@ public final class BossShowHistory {
 
         if (def.allowRepeat()) {
             if (target == null) return;
+            if (!entityViewers(target, cutsceneId).add(player.getUUID())) return;
+
             CompoundTag persistent = target.getPersistentData();
             CompoundTag root = persistent.getCompound(ECA_ROOT);
             CompoundTag seenMap = root.getCompound(ENTITY_SEEN_BY_CUTSCENE);
             ListTag uuids = seenMap.getList(cutsceneId.toString(), Tag.TAG_STRING);
-
-            String pidStr = player.getUUID().toString();
-            for (int i = 0; i < uuids.size(); i++) {
-                if (pidStr.equals(uuids.getString(i))) return;
-            }
-            uuids.add(StringTag.valueOf(pidStr));
+            uuids.add(StringTag.valueOf(player.getUUID().toString()));
 
             seenMap.put(cutsceneId.toString(), uuids);
             root.put(ENTITY_SEEN_BY_CUTSCENE, seenMap);
             persistent.put(ECA_ROOT, root);
         } else {
+            if (!playerSeen(player).add(cutsceneId)) return;
+
             CompoundTag persistent = player.getPersistentData();
             CompoundTag root = persistent.getCompound(ECA_ROOT);
             ListTag seen = root.getList(PLAYER_SEEN, Tag.TAG_STRING);
-
-            String cid = cutsceneId.toString();
-            for (int i = 0; i < seen.size(); i++) {
-                if (cid.equals(seen.getString(i))) return;
-            }
-            seen.add(StringTag.valueOf(cid));
+            seen.add(StringTag.valueOf(cutsceneId.toString()));
 
             root.put(PLAYER_SEEN, seen);
             persistent.put(ECA_ROOT, root);
@@ -103,6 +103,7 @@ public final class BossShowHistory {
         CompoundTag root = persistent.getCompound(ECA_ROOT);
         root.remove(PLAYER_SEEN);
         persistent.put(ECA_ROOT, root);
+        PLAYER_CACHE.remove(player.getUUID());
     }
 
     //清除指定 target 实体上的 cutscene 历史（ON 模式）
@@ -114,10 +115,66 @@ public final class BossShowHistory {
         seenMap.remove(cutsceneId.toString());
         root.put(ENTITY_SEEN_BY_CUTSCENE, seenMap);
         persistent.put(ECA_ROOT, root);
+        Map<ResourceLocation, Set<UUID>> perCutscene = ENTITY_CACHE.get(target);
+        if (perCutscene != null) {
+            perCutscene.remove(cutsceneId);
+        }
+    }
+
+    //登录时预先解析，首个 range 扫描不必现场读 NBT
+    public static void onPlayerLogin(ServerPlayer player) {
+        if (player != null) playerSeen(player);
+    }
+
+    public static void onPlayerLogout(ServerPlayer player) {
+        if (player != null) PLAYER_CACHE.remove(player.getUUID());
+    }
+
+    //服务器停止时清空缓存，防止单人模式跨存档残留
+    public static void clearAll() {
+        PLAYER_CACHE.clear();
+        ENTITY_CACHE.clear();
     }
 
     //仅用于调试：获取玩家 UUID（保留引用避免未使用警告）
     public static UUID asUUID(ServerPlayer player) {
         return player.getUUID();
     }
+
+    private static Set<ResourceLocation> playerSeen(ServerPlayer player) {
+        PlayerSeen cached = PLAYER_CACHE.get(player.getUUID());
+        if (cached != null && cached.owner() == player) {
+            return cached.ids();
+        }
+        ListTag seen = player.getPersistentData().getCompound(ECA_ROOT).getList(PLAYER_SEEN, Tag.TAG_STRING);
+        Set<ResourceLocation> ids = new HashSet<>();
+        for (int i = 0; i < seen.size(); i++) {
+            ResourceLocation id = ResourceLocation.tryParse(seen.getString(i));
+            if (id != null) ids.add(id);
+        }
+        //已断线的玩家（会话收尾时仍可能走到这里）不进缓存，免得登出后残留
+        if (!player.hasDisconnected()) {
+            PLAYER_CACHE.put(player.getUUID(), new PlayerSeen(player, ids));
+        }
+        return ids;
+    }
+
+    private static Set<UUID> entityViewers(LivingEntity target, ResourceLocation cutsceneId) {
+        Map<ResourceLocation, Set<UUID>> perCutscene = ENTITY_CACHE.computeIfAbsent(target, k -> new HashMap<>());
+        Set<UUID> viewers = perCutscene.get(cutsceneId);
+        if (viewers != null) return viewers;
+
+        ListTag uuids = target.getPersistentData().getCompound(ECA_ROOT)
+            .getCompound(ENTITY_SEEN_BY_CUTSCENE).getList(cutsceneId.toString(), Tag.TAG_STRING);
+        viewers = new HashSet<>();
+        for (int i = 0; i < uuids.size(); i++) {
+            //无法解析的旧条目保留在 NBT 中，只是不参与匹配（原先的字符串比较同样不会命中）
+            try {
+                viewers.add(UUID.fromString(uuids.getString(i)));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        perCutscene.put(cutsceneId, viewers);
+        return viewers;
+    }
 }
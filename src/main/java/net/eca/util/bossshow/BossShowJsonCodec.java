@@ -6,6 +6,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import net.eca.config.EcaConfiguration;
 import net.eca.util.EcaLogger;
 import net.eca.util.bossshow.BossShowDefinition.Frame;
 import net.eca.util.bossshow.BossShowDefinition.Keyframe;
@@ -14,10 +15,12 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.EntityType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /* JSON 编解码，新帧模型：frames[] 每帧一个 JSON 对象，关键帧帧内含 keyframe 子对象。
- * 不兼容旧版 samples/markers 格式，旧字段被完全忽略。 */
+ * 带 frame_count 时 frames[] 是稀疏的：只存 BossShowFrameCodec 精简后保留的帧，每帧以 t 标注帧下标，
+ * 加载时线性插值还原为稠密帧。不兼容旧版 samples/markers 格式，旧字段被完全忽略。 */
 public final class BossShowJsonCodec {
 
     private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
@@ -60,7 +63,9 @@ public final class BossShowJsonCodec {
             float anchorYawDeg = root.has("anchor_yaw") ? root.get("anchor_yaw").getAsFloat() : 0f;
 
             List<Frame> frames = new ArrayList<>();
-            if (root.has("frames") && root.get("frames").isJsonArray()) {
+            if (root.has("frame_count") && root.has("frames") && root.get("frames").isJsonArray()) {
+                frames = parseSparseFrames(root.get("frame_count").getAsInt(), root.getAsJsonArray("frames"), id);
+            } else if (root.has("frames") && root.get("frames").isJsonArray()) {
                 for (JsonElement el : root.getAsJsonArray("frames")) {
                     if (!el.isJsonObject()) continue;
                     JsonObject fObj = el.getAsJsonObject();
@@ -84,6 +89,42 @@ public final class BossShowJsonCodec {
         }
     }
 
+    //稀疏帧：按 t 升序读取保留帧，t 不递增或越界的条目跳过
+    private static List<Frame> parseSparseFrames(int frameCount, JsonArray arr, ResourceLocation id) {
+        if (frameCount < 0 || frameCount > BossShowFrameCodec.MAX_FRAMES) {
+            EcaLogger.warn("BossShow {} frame_count {} out of range; treating as empty", id, frameCount);
+            return new ArrayList<>();
+        }
+        int cap = Math.min(arr.size(), frameCount);
+        int[] indices = new int[cap];
+        double[] dx = new double[cap], dy = new double[cap], dz = new double[cap];
+        float[] yaw = new float[cap], pitch = new float[cap];
+        Keyframe[] keyframes = new Keyframe[cap];
+        int k = 0;
+        for (JsonElement el : arr) {
+            if (k >= cap || !el.isJsonObject()) continue;
+            JsonObject fObj = el.getAsJsonObject();
+            int t = fObj.has("t") ? fObj.get("t").getAsInt() : -1;
+            if (t < 0 || t >= frameCount || (k > 0 && t <= indices[k - 1])) {
+                EcaLogger.warn("BossShow {} skips sparse frame with invalid t {}", id, t);
+                continue;
+            }
+            indices[k] = t;
+            dx[k] = fObj.has("dx") ? fObj.get("dx").getAsDouble() : 0.0;
+            dy[k] = fObj.has("dy") ? fObj.get("dy").getAsDouble() : 0.0;
+            dz[k] = fObj.has("dz") ? fObj.get("dz").getAsDouble() : 0.0;
+            yaw[k] = fObj.has("yaw") ? fObj.get("yaw").getAsFloat() : 0f;
+            pitch[k] = fObj.has("pitch") ? fObj.get("pitch").getAsFloat() : 0f;
+            keyframes[k] = fObj.has("keyframe") && fObj.get("keyframe").isJsonObject()
+                ? parseKeyframe(fObj.getAsJsonObject("keyframe")) : null;
+            k++;
+        }
+        if (k < cap) {
+            indices = Arrays.copyOf(indices, k);
+        }
+        return BossShowFrameCodec.expand(frameCount, indices, dx, dy, dz, yaw, pitch, keyframes);
+    }
+
     private static Keyframe parseKeyframe(JsonObject obj) {
         String evt = obj.has("event_id") && !obj.get("event_id").isJsonNull()
             ? obj.get("event_id").getAsString() : null;
@@ -129,13 +170,26 @@ public final class BossShowJsonCodec {
         root.addProperty("allow_repeat", def.allowRepeat());
         root.addProperty("anchor_yaw", def.anchorYawDeg());
 
+        //按配置容差精简帧；容差为 0 或帧太少时仍逐帧写出
+        List<Frame> frames = def.frames();
+        double posTolerance = EcaConfiguration.getBossShowFramePositionToleranceSafely();
+        double angleTolerance = EcaConfiguration.getBossShowFrameAngleToleranceSafely();
+        boolean sparse = frames.size() > 2 && BossShowFrameCodec.isEnabled(posTolerance, angleTolerance);
+        int[] indices = sparse ? BossShowFrameCodec.selectSamples(frames, posTolerance, angleTolerance) : null;
+        float[] yaw = sparse ? BossShowFrameCodec.unwrapYaw(frames) : null;
+        if (sparse) root.addProperty("frame_count", frames.size());
+
         JsonArray fArr = new JsonArray();
-        for (Frame f : def.frames()) {
+        int count = sparse ? indices.length : frames.size();
+        for (int s = 0; s < count; s++) {
+            int index = sparse ? indices[s] : s;
+            Frame f = frames.get(index);
             JsonObject fObj = new JsonObject();
+            if (sparse) fObj.addProperty("t", index);
             fObj.addProperty("dx", round(f.dx()));
             fObj.addProperty("dy", round(f.dy()));
             fObj.addProperty("dz", round(f.dz()));
-            fObj.addProperty("yaw", f.yaw());
+            fObj.addProperty("yaw", sparse ? yaw[index] : f.yaw());
             fObj.addProperty("pitch", f.pitch());
             if (f.keyframe() != null) {
                 Keyframe kf = f.keyframe();
@@ -2,6 +2,7 @@ package net.eca.util.bossshow;
 
 import net.eca.api.RegisterBossShow;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.EntityType;
@@ -40,6 +41,8 @@ public final class BossShowManager {
 
     private static final Map<ResourceLocation, BossShow> CODE_REGISTRY = new ConcurrentHashMap<>();
     private static final Map<ResourceLocation, BossShowDefinition> DEFINITIONS = new ConcurrentHashMap<>();
+    //range 触发定义的预分组索引，DEFINITIONS 每次变化后整体重建
+    private static volatile RangeTriggerIndex rangeTriggerIndex = RangeTriggerIndex.EMPTY;
 
     private static final Path CONFIG_DIR = Paths.get("config", "eca", "bossshow");
 
@@ -63,24 +66,12 @@ public final class BossShowManager {
 
     //扫描所有 mod 的 @RegisterBossShow 注解并触发静态初始化，然后加载 JSON 定义
     public static void scanAndRegisterAll() {
-        ModList.get().forEachModFile(modFile -> {
-            for (IModInfo modInfo : modFile.getModInfos()) {
-                modFile.getScanResult().getAnnotations().forEach(annotationData -> {
-                    if (RegisterBossShow.class.getName().equals(annotationData.annotationType().getClassName())) {
-                        String className = annotationData.clazz().getClassName();
-                        try {
-                            Class.forName(className, true, Thread.currentThread().getContextClassLoader());
-                        } catch (ClassNotFoundException e) {
-                            EcaLogger.error("Failed to load BossShow class {}: {}", className, e.getMessage());
-                        }
-                    }
-                });
-            }
-        });
+        ModAnnotationIndex.loadAll(ModAnnotationIndex.get().annotated(RegisterBossShow.class), "[BossShow]", clazz -> {});
 
         loadModDataDefinitions();
         loadAllJsonDefinitions();
         autoGenerateMissingTemplates();
+        rebuildRangeTriggerIndex();
     }
 
     //从所有 mod jar 的 data/<modid>/bossshow/**/*.json 加载定义（Source.MOD）
@@ -156,6 +147,7 @@ public final class BossShowManager {
         } catch (Throwable t) {
             EcaLogger.error("Failed to scan BossShow config directory: {}", t.getMessage());
         }
+        rebuildRangeTriggerIndex();
         EcaLogger.info("Loaded {} BossShow definition(s) from JSON", DEFINITIONS.size());
     }
 
@@ -252,15 +244,17 @@ public final class BossShowManager {
         return Collections.unmodifiableMap(DEFINITIONS);
     }
 
-    //按目标实体类型枚举所有 range 触发的定义
+    //按目标实体类型枚举所有 range 触发的定义（只读列表）
     public static List<BossShowDefinition> getRangeDefinitionsForType(EntityType<?> type) {
-        List<BossShowDefinition> out = new java.util.ArrayList<>();
-        for (BossShowDefinition def : DEFINITIONS.values()) {
-            if (def.targetType() == type && def.trigger() instanceof Trigger.Range) {
-                out.add(def);
-            }
-        }
-        return out;
+        return rangeTriggerIndex.definitionsFor(type);
+    }
+
+    static RangeTriggerIndex rangeTriggerIndex() {
+        return rangeTriggerIndex;
+    }
+
+    private static void rebuildRangeTriggerIndex() {
+        rangeTriggerIndex = RangeTriggerIndex.build(DEFINITIONS.values());
     }
 
     //保存定义到 JSON（编辑器使用）
@@ -271,6 +265,7 @@ public final class BossShowManager {
             Files.createDirectories(target.getParent());
             Files.writeString(target, BossShowJsonCodec.serialize(def), StandardCharsets.UTF_8);
             DEFINITIONS.put(def.id(), def);
+            rebuildRangeTriggerIndex();
             return true;
         } catch (Throwable t) {
             EcaLogger.error("Failed to save BossShow {}: {}", def.id(), t.getMessage());
@@ -286,6 +281,7 @@ public final class BossShowManager {
             Path target = CONFIG_DIR.resolve(id.getNamespace()).resolve(id.getPath() + ".json");
             Files.deleteIfExists(target);
             DEFINITIONS.remove(id);
+            rebuildRangeTriggerIndex();
             return true;
         } catch (Throwable t) {
             EcaLogger.error("Failed to delete BossShow {}: {}", id, t.getMessage());
@@ -299,6 +295,7 @@ public final class BossShowManager {
         loadModDataDefinitions();
         loadAllJsonDefinitions();
         autoGenerateMissingTemplates();
+        rebuildRangeTriggerIndex();
     }
 
     //工具：从字符串解析 ResourceLocation
@@ -323,6 +320,7 @@ public final class BossShowManager {
     //清空所有（测试/卸载使用）
     public static void clear() {
         DEFINITIONS.clear();
+        rangeTriggerIndex = RangeTriggerIndex.EMPTY;
         //注意：CODE_REGISTRY 不清，因为静态块只执行一次
     }
 
@@ -1,5 +1,6 @@
 package net.eca.util.bossshow;
 
+import net.eca.config.EcaConfiguration;
 import net.eca.util.bossshow.BossShowDefinition.Frame;
 import net.eca.util.bossshow.BossShowDefinition.Keyframe;
 import net.minecraft.network.FriendlyByteBuf;
@@ -22,7 +23,23 @@ public final class BossShowNetCodec {
         return buf.readBoolean() ? buf.readResourceLocation() : null;
     }
 
+    //帧流格式：RAW 为逐帧原始 double/float；KEYFRAMES 为 BossShowFrameCodec 的精简量化编码
+    private static final int FORMAT_RAW = 0;
+    private static final int FORMAT_KEYFRAMES = 1;
+
     public static void writeFrames(FriendlyByteBuf buf, List<Frame> frames) {
+        writeFrames(buf, frames,
+            EcaConfiguration.getBossShowFramePositionToleranceSafely(),
+            EcaConfiguration.getBossShowFrameAngleToleranceSafely());
+    }
+
+    public static void writeFrames(FriendlyByteBuf buf, List<Frame> frames, double posTolerance, double angleTolerance) {
+        if (frames.size() > 2 && BossShowFrameCodec.isEnabled(posTolerance, angleTolerance)) {
+            buf.writeByte(FORMAT_KEYFRAMES);
+            BossShowFrameCodec.write(buf, frames, posTolerance, angleTolerance);
+            return;
+        }
+        buf.writeByte(FORMAT_RAW);
         buf.writeVarInt(frames.size());
         for (Frame f : frames) {
             buf.writeDouble(f.dx());
@@ -30,20 +47,22 @@ public final class BossShowNetCodec {
             buf.writeDouble(f.dz());
             buf.writeFloat(f.yaw());
             buf.writeFloat(f.pitch());
-            Keyframe kf = f.keyframe();
-            buf.writeBoolean(kf != null);
-            if (kf != null) {
-                buf.writeBoolean(kf.eventId() != null);
-                if (kf.eventId() != null) buf.writeUtf(kf.eventId());
-                buf.writeBoolean(kf.subtitleText() != null);
-                if (kf.subtitleText() != null) buf.writeUtf(kf.subtitleText());
-                buf.writeByte(kf.curve().ordinal());
-            }
+            writeKeyframe(buf, f.keyframe());
         }
     }
 
     public static List<Frame> readFrames(FriendlyByteBuf buf) {
+        int format = buf.readByte() & 0xFF;
+        if (format == FORMAT_KEYFRAMES) {
+            return BossShowFrameCodec.read(buf);
+        }
+        if (format != FORMAT_RAW) {
+            throw new IllegalArgumentException("Unknown BossShow frame format: " + format);
+        }
         int n = buf.readVarInt();
+        if (n < 0 || n > BossShowFrameCodec.MAX_FRAMES) {
+            throw new IllegalArgumentException("BossShow frame count out of range: " + n);
+        }
         List<Frame> out = new ArrayList<>(n);
         for (int i = 0; i < n; i++) {
             double dx = buf.readDouble();
@@ -51,23 +70,34 @@ public final class BossShowNetCodec {
             double dz = buf.readDouble();
             float yaw = buf.readFloat();
             float pitch = buf.readFloat();
-            boolean hasKf = buf.readBoolean();
-            Keyframe kf = null;
-            if (hasKf) {
-                boolean hasEvt = buf.readBoolean();
-                String eid = hasEvt ? buf.readUtf(256) : null;
-                boolean hasSub = buf.readBoolean();
-                String sub = hasSub ? buf.readUtf(512) : null;
-                int ci = buf.readByte() & 0xFF;
-                Curve[] cv = Curve.values();
-                Curve curve = (ci < cv.length) ? cv[ci] : Curve.NONE;
-                kf = new Keyframe(eid, sub, curve);
-            }
-            out.add(new Frame(dx, dy, dz, yaw, pitch, kf));
+            out.add(new Frame(dx, dy, dz, yaw, pitch, readKeyframe(buf)));
         }
         return out;
     }
 
+    static void writeKeyframe(FriendlyByteBuf buf, Keyframe kf) {
+        buf.writeBoolean(kf != null);
+        if (kf != null) {
+            buf.writeBoolean(kf.eventId() != null);
+            if (kf.eventId() != null) buf.writeUtf(kf.eventId());
+            buf.writeBoolean(kf.subtitleText() != null);
+            if (kf.subtitleText() != null) buf.writeUtf(kf.subtitleText());
+            buf.writeByte(kf.curve().ordinal());
+        }
+    }
+
+    static Keyframe readKeyframe(FriendlyByteBuf buf) {
+        if (!buf.readBoolean()) return null;
+        boolean hasEvt = buf.readBoolean();
+        String eid = hasEvt ? buf.readUtf(256) : null;
+        boolean hasSub = buf.readBoolean();
+        String sub = hasSub ? buf.readUtf(512) : null;
+        int ci = buf.readByte() & 0xFF;
+        Curve[] cv = Curve.values();
+        Curve curve = (ci < cv.length) ? cv[ci] : Curve.NONE;
+        return new Keyframe(eid, sub, curve);
+    }
+
     public static void writeTrigger(FriendlyByteBuf buf, Trigger trigger) {
         buf.writeUtf(trigger.type());
         buf.writeDouble(trigger instanceof Trigger.Range r ? r.effectRadius() : 0.0);
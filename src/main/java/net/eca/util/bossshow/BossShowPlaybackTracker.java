@@ -1,5 +1,6 @@
 package net.eca.util.bossshow;
 
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
 import net.eca.config.EcaConfiguration;
 import net.eca.network.BossShowStartPacket;
 import net.eca.network.BossShowStopPacket;
@@ -10,15 +11,16 @@ import net.eca.util.bossshow.BossShowDefinition.Frame;
 import net.eca.util.bossshow.BossShowDefinition.Keyframe;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
-import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.phys.AABB;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -137,24 +139,24 @@ public final class BossShowPlaybackTracker {
         int total = session.definition.totalDurationTicks();
         session.ticksElapsed++;
 
-        //逐帧推进派发指针，遇到关键帧才触发事件/字幕
-        //条件 nextDispatchIndex < ticksElapsed 保证帧 i 在第 i+1 tick 时派发
+        //按关键帧表跳着推进派发指针，只访问关键帧
+        //条件 index < ticksElapsed 保证帧 i 在第 i+1 tick 时派发
         List<Frame> frames = session.definition.frames();
-        while (session.nextDispatchIndex < frames.size()
-            && session.nextDispatchIndex < session.ticksElapsed) {
-            Frame f = frames.get(session.nextDispatchIndex);
-            if (f.keyframe() != null) {
-                Keyframe kf = f.keyframe();
-                //字幕与事件完全独立：可同时触发、只有其一、都没有
-                if (kf.subtitleText() != null) {
-                    dispatchSubtitle(session, kf.subtitleText());
-                }
-                if (kf.eventId() != null) {
-                    dispatchKeyframeEvent(session, kf.eventId());
-                }
+        int dispatchEnd = Math.min(frames.size(), session.ticksElapsed);
+        int index;
+        while ((index = session.sampler.nextKeyframeAtOrAfter(session.nextDispatchIndex)) >= 0
+            && index < dispatchEnd) {
+            Keyframe kf = frames.get(index).keyframe();
+            //字幕与事件完全独立：可同时触发、只有其一、都没有
+            if (kf.subtitleText() != null) {
+                dispatchSubtitle(session, kf.subtitleText());
             }
-            session.nextDispatchIndex++;
+            if (kf.eventId() != null) {
+                dispatchKeyframeEvent(session, kf.eventId());
+            }
+            session.nextDispatchIndex = index + 1;
         }
+        session.nextDispatchIndex = Math.max(session.nextDispatchIndex, dispatchEnd);
 
         if (session.ticksElapsed >= total) {
             toFinish.add(session);
@@ -177,31 +179,39 @@ public final class BossShowPlaybackTracker {
         }
     }
 
+    /* 以玩家为中心找候选目标：按半径桶把空闲玩家放进网格，每个非空格子只查询一次附近区块内的实体，
+       再对命中的实体逐个定义取最先加入的合格玩家。无玩家或无 range 定义时不做任何实体查询。 */
     private static void scanRangeTriggers(ServerLevel level) {
-        Map<EntityType<?>, List<BossShowDefinition>> grouped = new HashMap<>();
-        for (BossShowDefinition def : BossShowManager.getAllDefinitions().values()) {
-            if (def.targetType() == null) continue;
-            if (def.trigger() instanceof Trigger.Range) {
-                grouped.computeIfAbsent(def.targetType(), k -> new ArrayList<>()).add(def);
+        RangeTriggerIndex index = BossShowManager.rangeTriggerIndex();
+        if (index.isEmpty()) return;
+        List<ServerPlayer> players = level.players();
+        if (players.isEmpty()) return;
+
+        for (RangeTriggerIndex.Bucket bucket : index.buckets()) {
+            PlayerGrid<ServerPlayer> grid = new PlayerGrid<>(bucket.cellSize());
+            for (ServerPlayer player : players) {
+                if (ACTIVE.containsKey(player.getUUID())) continue;
+                grid.add(player, player.getX(), player.getY(), player.getZ());
             }
-        }
-        if (grouped.isEmpty()) return;
-
-        for (Entity entity : level.getAllEntities()) {
-            if (!(entity instanceof LivingEntity living) || !living.isAlive()) continue;
-            List<BossShowDefinition> candidates = grouped.get(entity.getType());
-            if (candidates == null) continue;
-
-            for (BossShowDefinition def : candidates) {
-                Trigger.Range range = (Trigger.Range) def.trigger();
-                double radiusSq = range.effectRadius() * range.effectRadius();
-
-                for (ServerPlayer player : level.players()) {
-                    if (ACTIVE.containsKey(player.getUUID())) continue;
-                    if (player.distanceToSqr(living) > radiusSq) continue;
-                    if (BossShowHistory.hasPlayed(player, def, living)) continue;
-                    start(player, living, def, false);
-                    break;
+            if (grid.isEmpty()) return;
+
+            Map<EntityType<?>, List<BossShowDefinition>> byType = bucket.byType();
+            double reach = bucket.maxRadius();
+            //同一实体可能被相邻格子的查询框同时覆盖，按身份去重并保持发现顺序
+            Set<LivingEntity> candidates = new ReferenceLinkedOpenHashSet<>();
+            grid.forEachCell((minX, minY, minZ, maxX, maxY, maxZ) -> candidates.addAll(level.getEntitiesOfClass(
+                LivingEntity.class,
+                new AABB(minX, minY, minZ, maxX, maxY, maxZ).inflate(reach),
+                e -> e.isAlive() && byType.containsKey(e.getType()))));
+
+            for (LivingEntity living : candidates) {
+                for (BossShowDefinition def : byType.get(living.getType())) {
+                    double radius = ((Trigger.Range) def.trigger()).effectRadius();
+                    ServerPlayer viewer = grid.firstWithin(living.getX(), living.getY(), living.getZ(), radius,
+                        player -> !ACTIVE.containsKey(player.getUUID()) && !BossShowHistory.hasPlayed(player, def, living));
+                    if (viewer != null) {
+                        start(viewer, living, def, false);
+                    }
                 }
             }
         }
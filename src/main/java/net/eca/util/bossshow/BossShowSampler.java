@@ -0,0 +1,141 @@
+package net.eca.util.bossshow;
+
+import net.eca.util.bossshow.BossShowDefinition.Frame;
+import net.eca.util.bossshow.BossShowDefinition.Keyframe;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable pose sampler for one playback of a BossShow frame list.
+ *
+ * <p>Keyframe positions and curves are tabulated once on construction. Each sample keeps a cursor on
+ * the current keyframe segment: forward playback only ever steps it to the next segment, and any other
+ * jump (seek, rewind, editor scrubbing) falls back to a binary search over the keyframe table. Sampling
+ * is therefore O(1) amortized for sequential playback instead of O(N) per call.</p>
+ *
+ * <p>Not thread-safe; create one per playback.</p>
+ */
+public final class BossShowSampler {
+
+    private final List<Frame> frames;
+    private final int last;
+    //按帧下标升序的关键帧位置及其曲线
+    private final int[] keyframeIndices;
+    private final Curve[] keyframeCurves;
+    //当前所在关键帧区间（keyframeIndices 下标），-1 表示首个关键帧之前
+    private int segment = -1;
+
+    public BossShowSampler(List<Frame> frames) {
+        this.frames = frames;
+        this.last = frames.size() - 1;
+        int[] indices = new int[8];
+        Curve[] curves = new Curve[8];
+        int count = 0;
+        for (int i = 0; i < frames.size(); i++) {
+            Keyframe kf = frames.get(i).keyframe();
+            if (kf == null) continue;
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count * 2);
+                curves = Arrays.copyOf(curves, count * 2);
+            }
+            indices[count] = i;
+            curves[count] = kf.curve();
+            count++;
+        }
+        this.keyframeIndices = Arrays.copyOf(indices, count);
+        this.keyframeCurves = Arrays.copyOf(curves, count);
+    }
+
+    public List<Frame> frames() {
+        return frames;
+    }
+
+    /**
+     * Compute world-space pose at the given fractional tick cursor; same contract as
+     * {@link BossShowInterpolator#computePose}.
+     */
+    public void computePose(boolean cinematic, double tickCursor,
+                            double anchorX, double anchorY, double anchorZ, float anchorYawDeg,
+                            BossShowPose out) {
+        if (frames.isEmpty()) {
+            out.x = anchorX; out.y = anchorY; out.z = anchorZ;
+            out.yaw = anchorYawDeg; out.pitch = 0;
+            out.cinematic = cinematic;
+            return;
+        }
+
+        if (tickCursor <= 0) tickCursor = 0;
+        if (tickCursor >= last) tickCursor = last;
+
+        tickCursor = remap(tickCursor);
+
+        int i0 = (int) Math.floor(tickCursor);
+        int i1 = Math.min(last, i0 + 1);
+        double t = tickCursor - i0;
+
+        Frame a = frames.get(i0);
+        Frame b = frames.get(i1);
+
+        double dx = a.dx() + (b.dx() - a.dx()) * t;
+        double dy = a.dy() + (b.dy() - a.dy()) * t;
+        double dz = a.dz() + (b.dz() - a.dz()) * t;
+
+        //与 anchorToWorld 相同的旋转，内联以免每帧分配 Vec3
+        double rad = Math.toRadians(anchorYawDeg);
+        double cos = Math.cos(rad);
+        double sin = Math.sin(rad);
+        out.x = anchorX + (dx * cos + dz * sin);
+        out.y = anchorY + dy;
+        out.z = anchorZ + (-dx * sin + dz * cos);
+
+        float localYaw = BossShowInterpolator.lerpYaw(a.yaw(), b.yaw(), t);
+        out.yaw = localYaw + anchorYawDeg;
+        out.pitch = BossShowInterpolator.lerpPitch(a.pitch(), b.pitch(), t);
+        out.cinematic = cinematic;
+    }
+
+    /* 按所在关键帧区间的 curve 重映射 tickCursor（已夹到 [0, last]）。
+     * 区间 = [当前关键帧帧下标, 下一个关键帧帧下标)，最后一段的终点为末帧。 */
+    double remap(double tickCursor) {
+        int seg = locate((int) tickCursor);
+        if (seg < 0) return tickCursor;
+        Curve curve = keyframeCurves[seg];
+        if (curve == Curve.NONE) return tickCursor;
+
+        int segStart = keyframeIndices[seg];
+        int segEnd = seg + 1 < keyframeIndices.length ? keyframeIndices[seg + 1] : last;
+        double segLen = segEnd - segStart;
+        if (segLen <= 0) return tickCursor;
+        double linearProgress = (tickCursor - segStart) / segLen;
+        return segStart + curve.apply(linearProgress) * segLen;
+    }
+
+    //帧下标 ≤ frameIndex 的最后一个关键帧在表中的位置；没有返回 -1
+    int locate(int frameIndex) {
+        int seg = segment;
+        if (contains(seg, frameIndex)) return seg;
+        //顺序播放：最多前进一段
+        if (contains(seg + 1, frameIndex)) {
+            segment = seg + 1;
+            return segment;
+        }
+        //跳转：二分
+        int pos = Arrays.binarySearch(keyframeIndices, frameIndex);
+        segment = pos >= 0 ? pos : -pos - 2;
+        return segment;
+    }
+
+    //下标 ≥ frameIndex 的第一个关键帧帧下标；没有返回 -1
+    public int nextKeyframeAtOrAfter(int frameIndex) {
+        int pos = Arrays.binarySearch(keyframeIndices, frameIndex);
+        if (pos < 0) pos = -pos - 1;
+        return pos < keyframeIndices.length ? keyframeIndices[pos] : -1;
+    }
+
+    private boolean contains(int seg, int frameIndex) {
+        if (seg < -1 || seg >= keyframeIndices.length) return false;
+        if (seg >= 0 && keyframeIndices[seg] > frameIndex) return false;
+        return seg + 1 >= keyframeIndices.length || keyframeIndices[seg + 1] > frameIndex;
+    }
+}
@@ -12,6 +12,8 @@ public final class BossShowSession implements BossShowContext {
     public final LivingEntity target;
     public final UUID targetUuid;
     public final BossShowDefinition definition;
+    //关键帧表，派发时直接跳到下一个关键帧
+    public final BossShowSampler sampler;
 
     public final double anchorX;
     public final double anchorY;
@@ -29,6 +31,7 @@ public final class BossShowSession implements BossShowContext {
         this.target = target;
         this.targetUuid = target != null ? target.getUUID() : null;
         this.definition = definition;
+        this.sampler = new BossShowSampler(definition.frames());
         this.anchorX = anchorX;
         this.anchorY = anchorY;
         this.anchorZ = anchorZ;
@@ -0,0 +1,108 @@
+package net.eca.util.bossshow;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/*
+ * 按水平格子分组的玩家（观众）网格，一次 range 扫描内临时构建、用完即弃。
+ *
+ * forEachCell 给出每个非空格子内成员的包围盒，调用方据此向外扩半径查询附近实体，
+ * 挤在一起的多名玩家只产生一次查询；firstWithin 只检查目标周围的格子，
+ * 并按加入顺序返回最靠前的合格成员，与逐个遍历玩家列表时命中的是同一人。
+ */
+final class PlayerGrid<P> {
+
+    interface BoundsVisitor {
+        void visit(double minX, double minY, double minZ, double maxX, double maxY, double maxZ);
+    }
+
+    private final int cellSize;
+    private final Long2ObjectOpenHashMap<Cell<P>> cells = new Long2ObjectOpenHashMap<>();
+    private int size;
+
+    PlayerGrid(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    void add(P member, double x, double y, double z) {
+        long key = cellKey(cellCoord(x), cellCoord(z));
+        Cell<P> cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell<>(x, y, z);
+            cells.put(key, cell);
+        }
+        cell.add(new Entry<>(member, x, y, z, size++));
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void forEachCell(BoundsVisitor visitor) {
+        for (Cell<P> cell : cells.values()) {
+            visitor.visit(cell.minX, cell.minY, cell.minZ, cell.maxX, cell.maxY, cell.maxZ);
+        }
+    }
+
+    //距 (x,y,z) 不超过 radius 且通过 filter 的成员中加入顺序最早的一个；没有则返回 null
+    P firstWithin(double x, double y, double z, double radius, Predicate<P> filter) {
+        double radiusSq = radius * radius;
+        //格子边长通常不小于半径，只需查 3×3；半径超过边长时按需向外扩圈
+        int reach = Math.max(1, (int) Math.ceil(radius / cellSize));
+        int cx = cellCoord(x);
+        int cz = cellCoord(z);
+        Entry<P> best = null;
+        for (int gx = cx - reach; gx <= cx + reach; gx++) {
+            for (int gz = cz - reach; gz <= cz + reach; gz++) {
+                Cell<P> cell = cells.get(cellKey(gx, gz));
+                if (cell == null) continue;
+                for (Entry<P> entry : cell.entries) {
+                    //同格成员按加入顺序排列，后面不可能更靠前
+                    if (best != null && entry.ordinal > best.ordinal) break;
+                    double ex = entry.x - x;
+                    double ey = entry.y - y;
+                    double ez = entry.z - z;
+                    if (ex * ex + ey * ey + ez * ez > radiusSq) continue;
+                    if (!filter.test(entry.member)) continue;
+                    best = entry;
+                    break;
+                }
+            }
+        }
+        return best != null ? best.member : null;
+    }
+
+    private int cellCoord(double v) {
+        return Math.floorDiv((int) Math.floor(v), cellSize);
+    }
+
+    private static long cellKey(int cx, int cz) {
+        return (cx & 0xFFFFFFFFL) | ((long) cz << 32);
+    }
+
+    private record Entry<P>(P member, double x, double y, double z, int ordinal) {}
+
+    private static final class Cell<P> {
+        final List<Entry<P>> entries = new ArrayList<>(2);
+        double minX, minY, minZ, maxX, maxY, maxZ;
+
+        Cell(double x, double y, double z) {
+            minX = maxX = x;
+            minY = maxY = y;
+            minZ = maxZ = z;
+        }
+
+        void add(Entry<P> entry) {
+            entries.add(entry);
+            minX = Math.min(minX, entry.x);
+            minY = Math.min(minY, entry.y);
+            minZ = Math.min(minZ, entry.z);
+            maxX = Math.max(maxX, entry.x);
+            maxY = Math.max(maxY, entry.y);
+            maxZ = Math.max(maxZ, entry.z);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package net.eca.util.bossshow;
+
+import net.minecraft.world.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * range 触发定义的预分组索引，由 BossShowManager 在定义变化时整体重建，构建后不可变，可跨线程直接读取。
+ *
+ * 定义先按目标实体类型分组，再按半径分桶：桶的格子边长取不小于半径的 16·2^k（与区块对齐），
+ * 扫描时每个桶建一张同边长的玩家网格，半径内的玩家必然落在目标所在格及其周围 8 格中。
+ * 小半径的定义不会因为同时存在大半径定义而被迫查询大范围。
+ */
+final class RangeTriggerIndex {
+
+    static final RangeTriggerIndex EMPTY = new RangeTriggerIndex(Collections.emptyMap(), Collections.emptyList());
+
+    private static final int MIN_CELL_SIZE = 16;
+    private static final int MAX_CELL_SIZE = 1 << 20;
+
+    private final Map<EntityType<?>, List<BossShowDefinition>> byType;
+    private final List<Bucket> buckets;
+
+    /* 一个半径桶：cellSize 为玩家网格边长，maxRadius 为桶内定义的最大半径，
+       byType 只含半径落在本桶的定义 */
+    record Bucket(int cellSize, double maxRadius, Map<EntityType<?>, List<BossShowDefinition>> byType) {}
+
+    private RangeTriggerIndex(Map<EntityType<?>, List<BossShowDefinition>> byType, List<Bucket> buckets) {
+        this.byType = byType;
+        this.buckets = buckets;
+    }
+
+    static RangeTriggerIndex build(Collection<BossShowDefinition> definitions) {
+        Map<EntityType<?>, List<BossShowDefinition>> byType = new HashMap<>();
+        TreeMap<Integer, Map<EntityType<?>, List<BossShowDefinition>>> bucketed = new TreeMap<>();
+        TreeMap<Integer, Double> bucketRadius = new TreeMap<>();
+        for (BossShowDefinition def : definitions) {
+            if (def == null || def.targetType() == null) continue;
+            if (!(def.trigger() instanceof Trigger.Range range)) continue;
+            double radius = range.effectRadius();
+            if (!(radius >= 0.0)) continue;
+            int cellSize = cellSizeFor(radius);
+            byType.computeIfAbsent(def.targetType(), k -> new ArrayList<>()).add(def);
+            bucketed.computeIfAbsent(cellSize, k -> new HashMap<>())
+                .computeIfAbsent(def.targetType(), k -> new ArrayList<>()).add(def);
+            bucketRadius.merge(cellSize, radius, Math::max);
+        }
+        if (byType.isEmpty()) return EMPTY;
+
+        List<Bucket> buckets = new ArrayList<>(bucketed.size());
+        for (Map.Entry<Integer, Map<EntityType<?>, List<BossShowDefinition>>> entry : bucketed.entrySet()) {
+            buckets.add(new Bucket(entry.getKey(), bucketRadius.get(entry.getKey()), freeze(entry.getValue())));
+        }
+        return new RangeTriggerIndex(freeze(byType), Collections.unmodifiableList(buckets));
+    }
+
+    //不小于半径的 16·2^k；超大半径截断在 MAX_CELL_SIZE，此时 PlayerGrid 按半径向外多查几圈格子
+    static int cellSizeFor(double radius) {
+        int size = MIN_CELL_SIZE;
+        while (size < radius && size < MAX_CELL_SIZE) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    boolean isEmpty() {
+        return byType.isEmpty();
+    }
+
+    List<BossShowDefinition> definitionsFor(EntityType<?> type) {
+        List<BossShowDefinition> defs = byType.get(type);
+        return defs != null ? defs : Collections.emptyList();
+    }
+
+    List<Bucket> buckets() {
+        return buckets;
+    }
+
+    private static Map<EntityType<?>, List<BossShowDefinition>> freeze(Map<EntityType<?>, List<BossShowDefinition>> map) {
+        map.replaceAll((type, defs) -> List.copyOf(defs));
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,36 @@
+package net.eca.util.entity_extension;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+/*
+ * 单个维度中某个扩展类型的实例计数，只由加入/离开事件维护。
+ *
+ * 成员按实体 id 登记而不持有实体引用：重复的加入事件不会重复计数，未登记过的离开事件不会减计数，
+ * 离开时即剔除，不依赖 isRemoved（受保护实体的 isRemoved 会被强制为 false）。
+ * 只在服务端线程访问，不做并发保护。
+ */
+final class ActiveTypeState {
+
+    private final IntOpenHashSet memberIds = new IntOpenHashSet();
+    private int count;
+    int priority;
+    long order;
+
+    //返回是否为新成员
+    boolean join(int entityId) {
+        if (!memberIds.add(entityId)) return false;
+        count++;
+        return true;
+    }
+
+    //返回是否确实移除了成员
+    boolean leave(int entityId) {
+        if (!memberIds.remove(entityId)) return false;
+        count--;
+        return true;
+    }
+
+    int count() {
+        return count;
+    }
+}
@@ -0,0 +1,101 @@
+package net.eca.util.entity_extension;
+
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.Arrays;
+
+/*
+ * 单个强加载实体在 ChunkTicketTable 中持有引用的区块：所在区块加上沿速度方向预测的路径。
+ * 每次更新只对新旧集合的差集增减引用，所在区块与预测终点都没变时直接跳过。
+ * 不做并发保护，调用方负责对票据表加锁。
+ */
+final class ChunkClaims {
+
+    // 沿速度方向预测的 tick 数与最多额外预占的区块数
+    static final int LOOKAHEAD_TICKS = 20;
+    static final int MAX_PREDICTED_CHUNKS = 3;
+    // 原版世界边界最大值 30000000 blocks = 1875000 chunks
+    private static final int MAX_CHUNK_COORD = 1875000;
+    private static final long[] NO_CHUNKS = new long[0];
+
+    // 首项为实体所在区块，其余为预测路径
+    private long[] claimed = NO_CHUNKS;
+    private long currentKey;
+    private long predictedKey;
+
+    static boolean isValidChunkPos(int x, int z) {
+        return x >= -MAX_CHUNK_COORD && x <= MAX_CHUNK_COORD
+                && z >= -MAX_CHUNK_COORD && z <= MAX_CHUNK_COORD;
+    }
+
+    // x、z 为方块坐标，motionX、motionZ 为每 tick 位移
+    void update(ChunkTicketTable table, double x, double z, double motionX, double motionZ) {
+        int currentX = SectionPos.blockToSectionCoord(x);
+        int currentZ = SectionPos.blockToSectionCoord(z);
+        // 坐标超出合法范围时，保留旧票据不更新，防止在极端坐标触发区块生成崩溃
+        if (!isValidChunkPos(currentX, currentZ)) {
+            return;
+        }
+
+        int dx = SectionPos.blockToSectionCoord(x + motionX * LOOKAHEAD_TICKS) - currentX;
+        int dz = SectionPos.blockToSectionCoord(z + motionZ * LOOKAHEAD_TICKS) - currentZ;
+        int steps = Math.max(Math.abs(dx), Math.abs(dz));
+        if (steps > MAX_PREDICTED_CHUNKS) {
+            dx = Math.round((float) dx * MAX_PREDICTED_CHUNKS / steps);
+            dz = Math.round((float) dz * MAX_PREDICTED_CHUNKS / steps);
+            steps = MAX_PREDICTED_CHUNKS;
+        }
+
+        long newCurrentKey = ChunkPos.asLong(currentX, currentZ);
+        long newPredictedKey = ChunkPos.asLong(currentX + dx, currentZ + dz);
+        if (claimed.length > 0 && currentKey == newCurrentKey && predictedKey == newPredictedKey) {
+            return;
+        }
+
+        long[] desired = new long[steps + 1];
+        int count = 0;
+        for (int i = 0; i <= steps; i++) {
+            int chunkX = currentX + (steps == 0 ? 0 : Math.round((float) dx * i / steps));
+            int chunkZ = currentZ + (steps == 0 ? 0 : Math.round((float) dz * i / steps));
+            if (i > 0 && !isValidChunkPos(chunkX, chunkZ)) {
+                break;
+            }
+            desired[count++] = ChunkPos.asLong(chunkX, chunkZ);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (!contains(claimed, claimed.length, desired[i])) {
+                table.claim(desired[i]);
+            }
+        }
+        for (long chunkKey : claimed) {
+            if (!contains(desired, count, chunkKey)) {
+                table.release(chunkKey);
+            }
+        }
+        claimed = count == desired.length ? desired : Arrays.copyOf(desired, count);
+        currentKey = newCurrentKey;
+        predictedKey = newPredictedKey;
+    }
+
+    void release(ChunkTicketTable table) {
+        for (long chunkKey : claimed) {
+            table.release(chunkKey);
+        }
+        claimed = NO_CHUNKS;
+    }
+
+    boolean isEmpty() {
+        return claimed.length == 0;
+    }
+
+    private static boolean contains(long[] keys, int length, long key) {
+        for (int i = 0; i < length; i++) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
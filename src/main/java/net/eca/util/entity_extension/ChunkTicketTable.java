@@ -0,0 +1,109 @@
+package net.eca.util.entity_extension;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+/*
+ * 单个维度的区块票据引用计数表，键为打包后的区块坐标。
+ *
+ * 同一区块内的多个强加载实体共享一张票据：引用计数 0→1 时申请，归零后不立即释放，
+ * 而是挂起 releaseDelayTicks 个 tick，期间重新被引用就直接复用，避免实体在区块边界
+ * 来回时反复加卸载。claim/release 只改计数并记脏，真正的票据操作在 flush 中每 tick 批量执行一次。
+ * 不做并发保护，调用方负责加锁。
+ */
+final class ChunkTicketTable {
+
+    interface TicketSink {
+        void forceChunk(long chunkKey, boolean add);
+    }
+
+    private final int releaseDelayTicks;
+    private final Long2IntOpenHashMap refCounts = new Long2IntOpenHashMap();
+    // 当前确实持有票据的区块
+    private final LongOpenHashSet ticketed = new LongOpenHashSet();
+    // 计数已归零、仍持有票据的区块 → 释放时刻
+    private final Long2IntOpenHashMap pendingRelease = new Long2IntOpenHashMap();
+    private final LongOpenHashSet dirty = new LongOpenHashSet();
+    private int tick;
+
+    ChunkTicketTable(int releaseDelayTicks) {
+        this.releaseDelayTicks = Math.max(0, releaseDelayTicks);
+    }
+
+    void claim(long chunkKey) {
+        if (refCounts.addTo(chunkKey, 1) == 0) {
+            dirty.add(chunkKey);
+        }
+    }
+
+    void release(long chunkKey) {
+        int previous = refCounts.get(chunkKey);
+        if (previous <= 1) {
+            if (previous == 1) {
+                refCounts.remove(chunkKey);
+                dirty.add(chunkKey);
+            }
+            return;
+        }
+        refCounts.put(chunkKey, previous - 1);
+    }
+
+    // 接管一张不在计数内的既有票据(如服务器重启后恢复的票据)，无人认领则按滞后规则释放
+    void adopt(long chunkKey, int graceTicks) {
+        if (ticketed.add(chunkKey) && !refCounts.containsKey(chunkKey)) {
+            pendingRelease.put(chunkKey, tick + Math.max(0, graceTicks));
+        }
+    }
+
+    /* 票据申请会同步取块，取块时加入世界的实体可能回调 claim；
+       因此先把待处理集合拷出再调用 sink，回调产生的新变更留到下一次 flush。 */
+    void flush(TicketSink sink) {
+        tick++;
+        if (!dirty.isEmpty()) {
+            long[] changed = dirty.toLongArray();
+            dirty.clear();
+            for (long chunkKey : changed) {
+                if (refCounts.containsKey(chunkKey)) {
+                    pendingRelease.remove(chunkKey);
+                    if (ticketed.add(chunkKey)) {
+                        sink.forceChunk(chunkKey, true);
+                    }
+                } else if (ticketed.contains(chunkKey) && !pendingRelease.containsKey(chunkKey)) {
+                    pendingRelease.put(chunkKey, tick + releaseDelayTicks);
+                }
+            }
+        }
+
+        if (pendingRelease.isEmpty()) {
+            return;
+        }
+        LongArrayList expired = null;
+        ObjectIterator<Long2IntMap.Entry> it = pendingRelease.long2IntEntrySet().fastIterator();
+        while (it.hasNext()) {
+            Long2IntMap.Entry entry = it.next();
+            if (tick - entry.getIntValue() < 0) {
+                continue;
+            }
+            long chunkKey = entry.getLongKey();
+            it.remove();
+            if (!refCounts.containsKey(chunkKey) && ticketed.remove(chunkKey)) {
+                if (expired == null) {
+                    expired = new LongArrayList();
+                }
+                expired.add(chunkKey);
+            }
+        }
+        if (expired != null) {
+            for (int i = 0; i < expired.size(); i++) {
+                sink.forceChunk(expired.getLong(i), false);
+            }
+        }
+    }
+
+    boolean isIdle() {
+        return ticketed.isEmpty() && refCounts.isEmpty() && dirty.isEmpty();
+    }
+}
@@ -2,11 +2,13 @@ package net.eca.util.entity_extension;
 
 import net.eca.api.RegisterEntityExtension;
 import net.eca.api.EcaAPI;
+import net.eca.config.EcaConfiguration;
 import net.eca.util.EntityUtil;
 import net.eca.network.EntityExtensionActiveTypePacket;
 import net.eca.network.EntityExtensionBossEventTypePacket;
 import net.eca.network.NetworkHandler;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.eca.util.faction.FactionManager;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceKey;
@@ -17,8 +19,6 @@ import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.Level;
-import net.minecraftforge.fml.ModList;
-import net.minecraftforge.forgespi.language.IModInfo;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -38,23 +38,11 @@ public final class EntityExtensionManager {
     private static final Map<ResourceKey<Level>, DimensionState> DIMENSION_STATES = new ConcurrentHashMap<>();
     private static final AtomicLong ORDER_COUNTER = new AtomicLong(0);
     private static final int VALIDATE_INTERVAL = 20;
-    private static int validateTickCounter = 0;
 
     public static void scanAndRegisterAll() {
-        ModList.get().forEachModFile(modFile -> {
-            for (IModInfo modInfo : modFile.getModInfos()) {
-                modFile.getScanResult().getAnnotations().forEach(annotationData -> {
-                    if (RegisterEntityExtension.class.getName().equals(annotationData.annotationType().getClassName())) {
-                        String className = annotationData.clazz().getClassName();
-                        try {
-                            Class.forName(className, true, Thread.currentThread().getContextClassLoader());
-                        } catch (ClassNotFoundException e) {
-                            EcaLogger.error("Failed to load extension class {}: {}", className, e.getMessage());
-                        }
-                    }
-                });
-            }
-        });
+        //类静态初始化中自行调用 register
+        ModAnnotationIndex.loadAll(ModAnnotationIndex.get().annotated(RegisterEntityExtension.class),
+            "[EntityExtension]", clazz -> {});
     }
 
     public static boolean register(EntityExtension extension) {
@@ -99,8 +87,8 @@ public final class EntityExtensionManager {
         Map<EntityType<?>, Integer> snapshot = new HashMap<>();
         for (Map.Entry<EntityType<?>, ActiveTypeState> entry : state.types.entrySet()) {
             ActiveTypeState active = entry.getValue();
-            if (active != null && active.count > 0) {
-                snapshot.put(entry.getKey(), active.count);
+            if (active != null && active.count() > 0) {
+                snapshot.put(entry.getKey(), active.count());
             }
         }
 
@@ -145,7 +133,8 @@ public final class EntityExtensionManager {
 
         long order = ORDER_COUNTER.incrementAndGet();
         ActiveTypeState typeState = state.types.computeIfAbsent(type, k -> new ActiveTypeState());
-        typeState.count++;
+        // 按实体 id 登记，重复的加入事件不会重复计数
+        typeState.join(entity.getId());
         typeState.priority = extension.getPriority();
         typeState.order = order;
 
@@ -202,8 +191,8 @@ public final class EntityExtensionManager {
             return;
         }
 
-        typeState.count = Math.max(0, typeState.count - 1);
-        if (typeState.count == 0) {
+        typeState.leave(entity.getId());
+        if (typeState.count() == 0) {
             state.types.remove(type);
             if (type.equals(state.activeType)) {
                 refreshActiveTable(level);
@@ -288,8 +277,9 @@ public final class EntityExtensionManager {
         }
 
         tickCustomBossEvents(level, state);
-        if (++validateTickCounter >= VALIDATE_INTERVAL) {
-            validateTickCounter = 0;
+        // 校验节拍按维度独立计数，多个维度同时加载时各自每 VALIDATE_INTERVAL tick 校验一次
+        if (++state.validateTickCounter >= VALIDATE_INTERVAL) {
+            state.validateTickCounter = 0;
             validateActiveTypes(level, state);
         }
 
@@ -299,16 +289,18 @@ public final class EntityExtensionManager {
         }
 
         ActiveTypeState typeState = state.types.get(state.activeType);
-        if (typeState == null || typeState.count == 0) {
+        if (typeState == null || typeState.count() == 0) {
             refreshActiveTable(level);
         }
     }
 
+    // 计数由加入/离开事件维护，校验只按类型遍历，不再对每个类型全量扫描维度实体
     private static void validateActiveTypes(ServerLevel level, DimensionState state) {
         if (state.types.isEmpty()) {
             return;
         }
 
+        boolean verify = EcaConfiguration.getEntityExtensionVerifyCountsSafely();
         state.types.entrySet().removeIf(entry -> {
             EntityType<?> type = entry.getKey();
             ActiveTypeState typeState = entry.getValue();
@@ -316,24 +308,30 @@ public final class EntityExtensionManager {
                 return true;
             }
 
-            int actualCount = countAliveEntitiesOfType(level, type);
-            if (actualCount == 0) {
+            int count = typeState.count();
+            if (verify) {
+                int scannedCount = countEntitiesOfType(level, type);
+                if (scannedCount != count) {
+                    EcaLogger.warn("[EntityExtension] Live count mismatch in {} for {}: counter={} scan={}",
+                            level.dimension().location(), type, count, scannedCount);
+                }
+            }
+            if (count == 0) {
                 if (type.equals(state.activeType)) {
                     state.clearActive();
                     sendActiveTypeUpdate(level, null);
                 }
                 return true;
             }
-
-            typeState.count = actualCount;
             return false;
         });
     }
 
-    private static int countAliveEntitiesOfType(ServerLevel level, EntityType<?> type) {
+    // 调试校验用的全量扫描，口径与加入/离开事件一致：在维度中的实例，不论是否存活
+    private static int countEntitiesOfType(ServerLevel level, EntityType<?> type) {
         int count = 0;
         for (Entity entity : level.getAllEntities()) {
-            if (entity.getType() == type && entity instanceof LivingEntity living && living.isAlive()) {
+            if (entity.getType() == type && entity instanceof LivingEntity) {
                 count++;
             }
         }
@@ -350,14 +348,14 @@ public final class EntityExtensionManager {
             return null;
         }
 
-        state.types.entrySet().removeIf(entry -> entry.getValue() == null || entry.getValue().count <= 0);
+        state.types.entrySet().removeIf(entry -> entry.getValue() == null || entry.getValue().count() <= 0);
 
         EntityType<?> selectedType = null;
         ActiveTypeState selectedState = null;
 
         for (Map.Entry<EntityType<?>, ActiveTypeState> entry : state.types.entrySet()) {
             ActiveTypeState candidate = entry.getValue();
-            if (candidate == null || candidate.count <= 0) {
+            if (candidate == null || candidate.count() <= 0) {
                 continue;
             }
 
@@ -409,7 +407,6 @@ public final class EntityExtensionManager {
         }
         DIMENSION_STATES.clear();
         ORDER_COUNTER.set(0);
-        validateTickCounter = 0;
     }
 
     public static void onPlayerChangedDimension(ServerPlayer player, ResourceKey<Level> fromDimension) {
@@ -484,7 +481,7 @@ public final class EntityExtensionManager {
 
         UUID entityUuid = entity.getUUID();
         for (UUID bossEventId : collectBossEventIds(entity, state)) {
-            NetworkHandler.sendToTrackingClients(new EntityExtensionBossEventTypePacket(bossEventId, typeId, entityUuid), entity);
+            NetworkHandler.queueToTrackingClients(new EntityExtensionBossEventTypePacket(bossEventId, typeId, entityUuid), entity);
         }
     }
 
@@ -500,7 +497,7 @@ public final class EntityExtensionManager {
 
         UUID entityUuid = entity.getUUID();
         for (UUID bossEventId : collectBossEventIds(entity, state)) {
-            NetworkHandler.sendToPlayer(new EntityExtensionBossEventTypePacket(bossEventId, typeId, entityUuid), player);
+            NetworkHandler.queueToPlayer(new EntityExtensionBossEventTypePacket(bossEventId, typeId, entityUuid), player);
         }
     }
 
@@ -510,7 +507,7 @@ public final class EntityExtensionManager {
         }
 
         for (UUID bossEventId : collectBossEventIds(entity, state)) {
-            NetworkHandler.sendToTrackingClients(new EntityExtensionBossEventTypePacket(bossEventId, null, null), entity);
+            NetworkHandler.queueToTrackingClients(new EntityExtensionBossEventTypePacket(bossEventId, null, null), entity);
         }
     }
 
@@ -520,7 +517,7 @@ public final class EntityExtensionManager {
         }
 
         for (UUID bossEventId : collectBossEventIds(entity, state)) {
-            NetworkHandler.sendToPlayer(new EntityExtensionBossEventTypePacket(bossEventId, null, null), player);
+            NetworkHandler.queueToPlayer(new EntityExtensionBossEventTypePacket(bossEventId, null, null), player);
         }
     }
 
@@ -646,6 +643,7 @@ public final class EntityExtensionManager {
         EntityType<?> activeType;
         int activePriority;
         long activeOrder;
+        int validateTickCounter;
 
         void activate(EntityType<?> type, ActiveTypeState state) {
             this.activeType = type;
@@ -665,12 +663,6 @@ public final class EntityExtensionManager {
         }
     }
 
-    private static class ActiveTypeState {
-        int count;
-        int priority;
-        long order;
-    }
-
     private static class CustomBossEventState {
         final LivingEntity entity;
         final EntityExtension extension;
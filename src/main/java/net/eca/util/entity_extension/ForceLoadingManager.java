@@ -1,12 +1,16 @@
 package net.eca.util.entity_extension;
 
+import com.mojang.datafixers.util.Pair;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.eca.EcaMod;
 import net.eca.api.EcaAPI;
 import net.eca.util.EcaLogger;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.entity.EntityInLevelCallback;
 import net.minecraft.world.level.entity.EntitySection;
 import net.minecraft.world.level.entity.PersistentEntitySectionManager;
@@ -14,7 +18,12 @@ import net.minecraft.core.SectionPos;
 import net.minecraftforge.common.world.ForgeChunkManager;
 
 import net.minecraft.world.entity.Entity;
+import net.minecraft.world.phys.Vec3;
 
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -24,18 +33,25 @@ import java.util.concurrent.ConcurrentHashMap;
  * 管理强加载实体的区块票据。
  * 当 EntityExtension.enableForceLoading() 返回 true 时，
  * 该实体类型的所有实例所在区块会被强制加载（EntityTicking 级别），确保 AI 正常运行。
+ * 票据按区块引用计数共享（见 ChunkTicketTable），并沿实体速度方向预占前方区块。
  */
 public final class ForceLoadingManager {
 
-    private static final Map<UUID, TrackedChunk> TRACKED = new ConcurrentHashMap<>();
+    private static final Map<UUID, TrackedEntity> TRACKED = new ConcurrentHashMap<>();
     private static final Set<UUID> FORCE_LOADED_MANUAL = ConcurrentHashMap.newKeySet();
     private static final Map<EntityType<?>, Boolean> FORCE_LOADED_TYPE_CACHE = new ConcurrentHashMap<>();
+    private static final Map<ResourceKey<Level>, LevelTickets> TICKETS = new ConcurrentHashMap<>();
 
-    /* 票据申请推迟到主线程任务队列执行，落地之前实体不在可见存储里、按 UUID 查不到。
-       陈旧清理必须容忍这段窗口，否则会把尚未生效的条目当成"实体已消失"收走，
-       而条目一没，延迟任务的守卫就再也匹配不上，强加载会永久失效。
-       任务最迟 3 tick 派发，落地时区块是同步取的，20 tick 留了足够余量。 */
+    /* 票据以区块为键共享，统一挂在这个固定 owner 下；旧版本按实体 UUID 开的票据在重启时迁移释放。 */
+    private static final UUID TICKET_OWNER = UUID.nameUUIDFromBytes((EcaMod.MOD_ID + ":force_loading").getBytes(StandardCharsets.UTF_8));
+
+    /* 实体引用失效又没收到离开事件时，攒够宽限再回收其票据引用，
+       给换维度这类"先移除、再以新实例加入"的流程留出余量。 */
     private static final int STALE_GRACE_TICKS = 20;
+    // 引用归零后票据继续保留的 tick 数，实体在区块边界来回时不反复加卸载
+    private static final int RELEASE_DELAY_TICKS = 100;
+    // 重启恢复的票据等待实体重新加入认领的 tick 数
+    private static final int RESTORE_GRACE_TICKS = 200;
 
     private static final ThreadLocal<Entity> CURRENT_RENDERING_ENTITY = new ThreadLocal<>();
 
@@ -55,69 +71,64 @@ public final class ForceLoadingManager {
         if (!shouldForceLoad(entity)) {
             return;
         }
+        track(entity, level);
+    }
 
-        UUID uuid = entity.getUUID();
-        ChunkPos chunkPos = new ChunkPos(entity.blockPosition());
-
-        if (!isValidChunkPos(chunkPos)) {
+    /* 实体加入世界的回调有机会落在区块票据距离更新的集合迭代中，此时同步取块会重入该更新。
+       因此加入/移动/离开只改引用计数，真正的票据申请与释放集中在 tickDimension 末尾每 tick 批量执行。 */
+    private static void track(LivingEntity entity, ServerLevel level) {
+        if (!isValidChunkPos(entity.chunkPosition())) {
             return;
         }
-
-        TRACKED.put(uuid, new TrackedChunk(level, chunkPos));
-        requestForceLoad(level, uuid, chunkPos);
+        TrackedEntity tracked = new TrackedEntity(level, entity);
+        TrackedEntity previous = TRACKED.put(entity.getUUID(), tracked);
+        if (previous != null) {
+            releaseClaims(previous);
+        }
+        updateClaims(tracked, entity);
     }
 
-    /* 申请区块票据。申请侧内部会同步阻塞取块，而本类的入口挂在实体加入世界的回调上，
-       该回调有机会落在区块票据距离更新的集合迭代中，阻塞取块会重入该更新并破坏迭代。
-       推迟到主线程任务队列顶层执行以避开该窗口。释放侧不阻塞，全部保持同步。
-       TRACKED 是权威表，先落表再申请票据，守卫据此判断这张票是否仍是当前目标。 */
-    private static void requestForceLoad(ServerLevel level, UUID uuid, ChunkPos pos) {
-        level.getServer().execute(() -> {
-            TrackedChunk tracked = TRACKED.get(uuid);
-            // 延迟期间实体可能已离开或已移动到别的区块，此时这张票据不再是当前目标
-            if (tracked == null || tracked.level != level
-                    || tracked.chunkPos.x != pos.x || tracked.chunkPos.z != pos.z) {
-                return;
-            }
-            ForgeChunkManager.forceChunk(level, EcaMod.MOD_ID, uuid, pos.x, pos.z, true, true);
-        });
+    // 占用当前区块以及沿速度方向预测将经过的区块，只对差集增减引用
+    private static void updateClaims(TrackedEntity tracked, LivingEntity entity) {
+        Vec3 motion = entity.getDeltaMovement();
+        LevelTickets tickets = tickets(tracked.level);
+        synchronized (tickets) {
+            tracked.claims.update(tickets.table, entity.getX(), entity.getZ(), motion.x, motion.z);
+        }
     }
 
-    public static void onEntityTick(LivingEntity entity, ServerLevel level) {
-        UUID uuid = entity.getUUID();
-        TrackedChunk tracked = TRACKED.get(uuid);
-        if (tracked == null) {
+    private static void releaseClaims(TrackedEntity tracked) {
+        if (tracked.claims.isEmpty()) {
             return;
         }
-
-        ChunkPos current = new ChunkPos(entity.blockPosition());
-        if (current.x == tracked.chunkPos.x && current.z == tracked.chunkPos.z) {
-            return;
+        LevelTickets tickets = tickets(tracked.level);
+        synchronized (tickets) {
+            tracked.claims.release(tickets.table);
         }
+    }
 
-        // 坐标超出合法范围时，保留旧票据不更新，防止在极端坐标触发区块生成崩溃
-        if (!isValidChunkPos(current)) {
+    public static void onEntityTick(LivingEntity entity, ServerLevel level) {
+        TrackedEntity tracked = TRACKED.get(entity.getUUID());
+        if (tracked == null) {
             return;
         }
-
-        // 实体移动到新区块，更新票据
-        ForgeChunkManager.forceChunk(tracked.level, EcaMod.MOD_ID, uuid,
-                tracked.chunkPos.x, tracked.chunkPos.z, false, true);
-        tracked.level = level;
-        tracked.chunkPos = current;
-        requestForceLoad(level, uuid, current);
+        if (tracked.level != level) {
+            // 实体已在别的维度，旧维度的引用整体搬走
+            releaseClaims(tracked);
+            tracked.level = level;
+        }
+        updateClaims(tracked, entity);
     }
 
     public static void onEntityLeave(LivingEntity entity, ServerLevel level) {
         UUID uuid = entity.getUUID();
         FORCE_LOADED_MANUAL.remove(uuid);
-        TrackedChunk tracked = TRACKED.remove(uuid);
-        if (tracked == null) {
+        TrackedEntity tracked = TRACKED.get(uuid);
+        // 换维度时新实例可能已先行加入并替换了条目，只回收属于离开者的那一份
+        if (tracked == null || tracked.entity.get() != entity || !TRACKED.remove(uuid, tracked)) {
             return;
         }
-
-        ForgeChunkManager.forceChunk(tracked.level, EcaMod.MOD_ID, uuid,
-                tracked.chunkPos.x, tracked.chunkPos.z, false, true);
+        releaseClaims(tracked);
     }
 
     /**
@@ -126,45 +137,79 @@ public final class ForceLoadingManager {
      */
     public static void registerValidationCallback() {
         ForgeChunkManager.setForcedChunkLoadingCallback(EcaMod.MOD_ID, (level, ticketHelper) -> {
-            // 保留所有实体票据，让 Forge 恢复区块加载。
-            // 实体加载后会通过 onEntityJoin 重新纳入 TRACKED 管理。
-            // 如果实体已不存在，票据会在下次 onEntityLeave/清理时移除。
+            // 保留所有实体票据，让 Forge 恢复区块加载，实体加载后会通过 onEntityJoin 重新认领所在区块。
+            // 恢复的票据交给计数表托管，RESTORE_GRACE_TICKS 内无人认领即释放；旧版按实体 UUID 开的票据同样到期释放。
+            LevelTickets tickets = tickets(level);
+            synchronized (tickets) {
+                for (Map.Entry<UUID, Pair<LongSet, LongSet>> entry : ticketHelper.getEntityTickets().entrySet()) {
+                    LongSet ticking = entry.getValue().getSecond();
+                    if (TICKET_OWNER.equals(entry.getKey())) {
+                        ticking.forEach((long chunkKey) -> tickets.table.adopt(chunkKey, RESTORE_GRACE_TICKS));
+                    } else {
+                        ticking.forEach((long chunkKey) -> tickets.legacy.add(new LegacyTicket(entry.getKey(), chunkKey)));
+                    }
+                }
+            }
         });
     }
 
     public static void tickDimension(ServerLevel level) {
-        if (TRACKED.isEmpty()) {
+        LevelTickets tickets = TICKETS.get(level.dimension());
+        if (TRACKED.isEmpty() && (tickets == null || tickets.isIdle())) {
             return;
         }
 
-        for (Map.Entry<UUID, TrackedChunk> entry : TRACKED.entrySet()) {
+        for (Map.Entry<UUID, TrackedEntity> entry : TRACKED.entrySet()) {
             UUID uuid = entry.getKey();
-            TrackedChunk tracked = entry.getValue();
+            TrackedEntity tracked = entry.getValue();
             if (tracked.level != level) {
                 continue;
             }
 
-            Entity entity = level.getEntity(uuid);
+            LivingEntity entity = resolve(level, uuid, tracked);
             if (entity == null) {
-                // 票据尚未落地时实体本就查不到，攒够宽限才认定它真的消失了
                 if (++tracked.missTicks < STALE_GRACE_TICKS) {
                     continue;
                 }
-                // UUID 对应实体不存在，移除陈旧票据
+                // UUID 对应实体不存在，回收陈旧的票据引用
                 if (TRACKED.remove(uuid, tracked)) {
-                    ForgeChunkManager.forceChunk(tracked.level, EcaMod.MOD_ID, uuid,
-                            tracked.chunkPos.x, tracked.chunkPos.z, false, true);
+                    releaseClaims(tracked);
                 }
                 continue;
             }
             tracked.missTicks = 0;
+            updateClaims(tracked, entity);
+        }
 
-            if (entity instanceof LivingEntity living) {
-                onEntityTick(living, level);
-            }
+        tickets = tickets(level);
+        synchronized (tickets) {
+            tickets.flush();
         }
     }
 
+    // 优先用缓存的实体引用，失效时才按 UUID 回查一次并刷新缓存
+    private static LivingEntity resolve(ServerLevel level, UUID uuid, TrackedEntity tracked) {
+        LivingEntity cached = tracked.entity.get();
+        if (cached != null && !cached.isRemoved() && cached.level() == level) {
+            return cached;
+        }
+        if (level.getEntity(uuid) instanceof LivingEntity living) {
+            tracked.entity = new WeakReference<>(living);
+            return living;
+        }
+        return null;
+    }
+
+    private static LevelTickets tickets(ServerLevel level) {
+        LevelTickets tickets = TICKETS.get(level.dimension());
+        if (tickets != null && tickets.level == level) {
+            return tickets;
+        }
+        // 新的服务器实例(如单人存档重进)会带来新的 ServerLevel，旧表随之作废
+        return TICKETS.compute(level.dimension(),
+                (key, existing) -> existing != null && existing.level == level ? existing : new LevelTickets(level));
+    }
+
     public static boolean isForceLoaded(UUID entityUuid) {
         return TRACKED.containsKey(entityUuid);
     }
@@ -186,10 +231,7 @@ public final class ForceLoadingManager {
         UUID uuid = entity.getUUID();
         if (TRACKED.containsKey(uuid)) return;
         FORCE_LOADED_MANUAL.add(uuid);
-        ChunkPos chunkPos = new ChunkPos(entity.blockPosition());
-        if (!isValidChunkPos(chunkPos)) return;
-        TRACKED.put(uuid, new TrackedChunk(level, chunkPos));
-        requestForceLoad(level, uuid, chunkPos);
+        track(entity, level);
     }
 
     public static void disableForceLoading(LivingEntity entity, ServerLevel level) {
@@ -197,10 +239,9 @@ public final class ForceLoadingManager {
         UUID uuid = entity.getUUID();
         FORCE_LOADED_MANUAL.remove(uuid);
         if (isForceLoadedType(entity.getType())) return;
-        TrackedChunk tracked = TRACKED.remove(uuid);
+        TrackedEntity tracked = TRACKED.remove(uuid);
         if (tracked == null) return;
-        ForgeChunkManager.forceChunk(tracked.level, EcaMod.MOD_ID, uuid,
-                tracked.chunkPos.x, tracked.chunkPos.z, false, true);
+        releaseClaims(tracked);
     }
 
     public static boolean isManualForceLoaded(UUID uuid) {
@@ -215,12 +256,15 @@ public final class ForceLoadingManager {
         if (TRACKED.isEmpty()) {
             return;
         }
-        for (Map.Entry<UUID, TrackedChunk> entry : TRACKED.entrySet()) {
-            TrackedChunk tracked = entry.getValue();
+        for (Map.Entry<UUID, TrackedEntity> entry : TRACKED.entrySet()) {
+            TrackedEntity tracked = entry.getValue();
             if (tracked.level != level) {
                 continue;
             }
-            Entity entity = level.getEntity(entry.getKey());
+            Entity entity = tracked.entity.get();
+            if (entity == null) {
+                entity = level.getEntity(entry.getKey());
+            }
             if (entity != null && shouldRecoverTrackedEntity(level, entityMap, entity)) {
                 try {
                     addEntity.accept(entity);
@@ -274,23 +318,56 @@ public final class ForceLoadingManager {
         return extension != null && extension.enableForceLoading();
     }
 
-    // 原版世界边界最大值 30000000 blocks = 1875000 chunks
-    private static final int MAX_CHUNK_COORD = 1875000;
-
     private static boolean isValidChunkPos(ChunkPos pos) {
-        return pos.x >= -MAX_CHUNK_COORD && pos.x <= MAX_CHUNK_COORD
-                && pos.z >= -MAX_CHUNK_COORD && pos.z <= MAX_CHUNK_COORD;
+        return ChunkClaims.isValidChunkPos(pos.x, pos.z);
     }
 
-    private static class TrackedChunk {
+    private static class TrackedEntity {
         ServerLevel level;
-        ChunkPos chunkPos;
-        // 连续查不到实体的 tick 数，判定陈旧的依据，见 STALE_GRACE_TICKS
+        WeakReference<LivingEntity> entity;
+        // 当前持有引用的区块
+        final ChunkClaims claims = new ChunkClaims();
+        // 连续解析不到实体的 tick 数，判定陈旧的依据，见 STALE_GRACE_TICKS
         int missTicks;
 
-        TrackedChunk(ServerLevel level, ChunkPos chunkPos) {
+        TrackedEntity(ServerLevel level, LivingEntity entity) {
             this.level = level;
-            this.chunkPos = chunkPos;
+            this.entity = new WeakReference<>(entity);
+        }
+    }
+
+    // 旧版本遗留的按实体 UUID 持有的票据
+    private record LegacyTicket(UUID owner, long chunkKey) {}
+
+    private static class LevelTickets implements ChunkTicketTable.TicketSink {
+        final ServerLevel level;
+        final ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        final List<LegacyTicket> legacy = new ArrayList<>();
+        int ticks;
+
+        LevelTickets(ServerLevel level) {
+            this.level = level;
+        }
+
+        void flush() {
+            table.flush(this);
+            if (!legacy.isEmpty() && ++ticks >= RESTORE_GRACE_TICKS) {
+                for (LegacyTicket ticket : legacy) {
+                    ForgeChunkManager.forceChunk(level, EcaMod.MOD_ID, ticket.owner(),
+                            ChunkPos.getX(ticket.chunkKey()), ChunkPos.getZ(ticket.chunkKey()), false, true);
+                }
+                legacy.clear();
+            }
+        }
+
+        boolean isIdle() {
+            return table.isIdle() && legacy.isEmpty();
+        }
+
+        @Override
+        public void forceChunk(long chunkKey, boolean add) {
+            ForgeChunkManager.forceChunk(level, EcaMod.MOD_ID, TICKET_OWNER,
+                    ChunkPos.getX(chunkKey), ChunkPos.getZ(chunkKey), add, true);
         }
     }
 
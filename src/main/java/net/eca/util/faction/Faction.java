@@ -110,6 +110,7 @@ public class Faction {
      */
     public void setDefaultRelation(FactionRelation defaultRelation) {
         this.defaultRelation = defaultRelation;
+        FactionRelationTable.invalidate();
     }
 
     // 查询该阵营对另一指定阵营的关系（无覆盖返回 null）
@@ -134,6 +135,7 @@ public class Faction {
      */
     public void setRelation(String otherFactionId, FactionRelation relation) {
         relations.put(otherFactionId, relation);
+        FactionRelationTable.invalidate();
     }
 
     // 移除该阵营对另一阵营的关系覆盖
@@ -145,6 +147,7 @@ public class Faction {
      */
     public void removeRelation(String otherFactionId) {
         relations.remove(otherFactionId);
+        FactionRelationTable.invalidate();
     }
 
     // 获取全部关系覆盖（只读）
@@ -3,6 +3,7 @@ package net.eca.util.faction;
 import net.eca.api.RegisterFaction;
 import net.eca.config.EcaConfiguration;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.RandomSource;
@@ -14,11 +15,10 @@ import net.minecraft.world.entity.TamableAnimal;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.AABB;
-import net.minecraftforge.fml.ModList;
-import net.minecraftforge.forgespi.language.IModInfo;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /*
  * 阵营管理器 — 阵营定义 + 成员表 + 首领 + 关系查询
@@ -28,11 +28,13 @@ import java.util.concurrent.ConcurrentHashMap;
  *   MEMBER_INDEX 与 LEADER_INDEX 是由成员表派生的反向索引，只存在于内存，
  *   加载时重建——因此不存在两张表写不同步的可能。
  *
- * getFactionId 四层查询：
- *   1. FACTION_MEMBER_IDS   — 快速路径提示，纯性能，丢失不影响正确性
- *   2. ENTITY_FACTION_CACHE  — WeakHashMap<Entity, String>，实体存活期间缓存
- *   3. MEMBER_INDEX          — UUID→factionId 反向索引，权威结果
- *   4. 主人继承              — 驯服动物无自身绑定时继承主人阵营，纯计算不落库
+ * getFactionId 三层查询：
+ *   1. 实体槽位缓存          — FactionSlotHolder 注入字段，所在纪元桶未推进即命中，纯性能
+ *   2. MEMBER_INDEX          — UUID→factionId 反向索引，权威结果
+ *   3. 主人继承              — 驯服动物无自身绑定时继承主人阵营，纯计算不落库
+ *
+ * 阵营 ID 在 FactionRelationTable 中驻留为整数槽位，getEffectiveRelation 先查静态关系矩阵，
+ * 只有涉及 FactionDefinition 动态覆写的组合才回到按实体求值。
  *
  * 持久化统一存于主世界 DataStorage，不依赖实体 NBT / SynchedEntityData。
  */
@@ -56,12 +58,10 @@ public class FactionManager {
     // 首领 UUID → factionId，由各阵营首领字段派生
     private static final Map<UUID, String> LEADER_INDEX = new ConcurrentHashMap<>();
 
-    // 快速路径：按 entityId 记录当前属于任意阵营的实体
-    private static final Set<Integer> FACTION_MEMBER_IDS = ConcurrentHashMap.newKeySet();
-
-    // 实体 → 阵营 ID 缓存（弱引用 key，实体被 GC 后自动清除，无内存泄漏）
-    private static final Map<Entity, String> ENTITY_FACTION_CACHE =
-            Collections.synchronizedMap(new WeakHashMap<>());
+    // 成员纪元：按 UUID 散列分桶，某个 UUID 的绑定改写后只推进它所在的桶，
+    // 实体上缓存的阵营槽位只在自己所在的桶被推进时失效，其余实体的缓存不受牵连
+    private static final int EPOCH_BUCKETS = 4096;
+    private static final AtomicIntegerArray MEMBERSHIP_EPOCHS = initialEpochs();
 
     // 首领仇恨传导节流记录（factionId → 上次传导的目标与时刻）
     private static final Map<String, Propagation> LAST_PROPAGATION = new ConcurrentHashMap<>();
@@ -137,7 +137,46 @@ public class FactionManager {
 
     // 供 FactionSavedData 回填（避免循环依赖）
     static void putLoadedFaction(Faction faction) {
+        putFaction(faction);
+    }
+
+    // 写入阵营注册表的唯一入口：注册即驻留槽位，并让关系矩阵在下次查询时重建
+    private static void putFaction(Faction faction) {
         FACTIONS.put(faction.getId(), faction);
+        FactionRelationTable.slotOf(faction.getId());
+        FactionRelationTable.invalidate();
+    }
+
+    // 纪元 0 留给"从未解析"，初值与回绕都跳过它
+    private static AtomicIntegerArray initialEpochs() {
+        AtomicIntegerArray epochs = new AtomicIntegerArray(EPOCH_BUCKETS);
+        for (int i = 0; i < EPOCH_BUCKETS; i++) {
+            epochs.set(i, 1);
+        }
+        return epochs;
+    }
+
+    private static int epochBucket(UUID uuid) {
+        int hash = uuid.hashCode();
+        return (hash ^ (hash >>> 16)) & (EPOCH_BUCKETS - 1);
+    }
+
+    private static void advanceEpoch(int bucket) {
+        if (MEMBERSHIP_EPOCHS.incrementAndGet(bucket) == 0) {
+            MEMBERSHIP_EPOCHS.incrementAndGet(bucket);
+        }
+    }
+
+    // 须在 MEMBER_INDEX 改写之后调用
+    private static void membershipChanged(UUID uuid) {
+        advanceEpoch(epochBucket(uuid));
+    }
+
+    // 整体重建或清空索引时推进全部桶
+    private static void allMembershipsChanged() {
+        for (int i = 0; i < EPOCH_BUCKETS; i++) {
+            advanceEpoch(i);
+        }
     }
 
     // 由各阵营的成员表与首领重建反向索引
@@ -153,12 +192,13 @@ public class FactionManager {
                 LEADER_INDEX.put(leader.getUuid(), faction.getId());
             }
         }
+        allMembershipsChanged();
     }
 
     // 由 @RegisterFaction 定义重建阵营基线，使注解阵营不随存档切换丢失
     private static void rebuildFactionsFromDefinitions() {
         for (FactionDefinition def : FACTION_DEFINITIONS.values()) {
-            FACTIONS.put(def.getId(), buildFactionFrom(def));
+            putFaction(buildFactionFrom(def));
         }
     }
 
@@ -175,9 +215,9 @@ public class FactionManager {
             FACTIONS.clear();
             MEMBER_INDEX.clear();
             LEADER_INDEX.clear();
-            FACTION_MEMBER_IDS.clear();
-            ENTITY_FACTION_CACHE.clear();
             LAST_PROPAGATION.clear();
+            allMembershipsChanged();
+            FactionRelationTable.invalidate();
             loaded = false;
         }
     }
@@ -193,7 +233,7 @@ public class FactionManager {
      */
     public static void registerFaction(Faction faction) {
         if (faction == null || faction.getId() == null || faction.getId().isEmpty()) return;
-        FACTIONS.put(faction.getId(), faction);
+        putFaction(faction);
         indexFaction(faction);
     }
 
@@ -207,7 +247,7 @@ public class FactionManager {
     public static void registerFaction(Faction faction, Level level) {
         if (faction == null || faction.getId() == null || faction.getId().isEmpty()) return;
         ensureLoaded(level);
-        FACTIONS.put(faction.getId(), faction);
+        putFaction(faction);
         indexFaction(faction);
         persist(faction, level);
     }
@@ -215,6 +255,7 @@ public class FactionManager {
     private static void indexFaction(Faction faction) {
         for (UUID uuid : faction.getMemberUuids()) {
             MEMBER_INDEX.put(uuid, faction.getId());
+            membershipChanged(uuid);
         }
         FactionMember leader = faction.getLeader();
         if (leader != null) {
@@ -266,17 +307,15 @@ public class FactionManager {
         String factionId = faction.getId();
         for (UUID uuid : faction.getMemberUuids()) {
             MEMBER_INDEX.remove(uuid);
+            // 推进成员所在的纪元桶，让在线实体缓存的槽位失效，下次查询由索引层重新解析
+            membershipChanged(uuid);
         }
         FactionMember leader = faction.getLeader();
         if (leader != null) {
             LEADER_INDEX.remove(leader.getUuid());
         }
-        synchronized (ENTITY_FACTION_CACHE) {
-            ENTITY_FACTION_CACHE.entrySet().removeIf(e -> factionId.equals(e.getValue()));
-        }
         LAST_PROPAGATION.remove(factionId);
-        // 快速路径仅是提示集合，清空后由 getFactionId 的索引层回填，不会丢失归属
-        FACTION_MEMBER_IDS.clear();
+        FactionRelationTable.invalidate();
     }
 
     // 获取阵营定义
@@ -383,23 +422,8 @@ public class FactionManager {
      * Duplicate ids are logged and skipped (first registration wins).
      */
     public static void scanAndRegisterAll() {
-        ModList.get().forEachModFile(modFile -> {
-            for (IModInfo modInfo : modFile.getModInfos()) {
-                modFile.getScanResult().getAnnotations().forEach(annotationData -> {
-                    if (RegisterFaction.class.getName().equals(annotationData.annotationType().getClassName())) {
-                        String className = annotationData.clazz().getClassName();
-                        try {
-                            Class<?> clazz = Class.forName(className, true,
-                                    Thread.currentThread().getContextClassLoader());
-                            registerFromDefinitionClass(clazz);
-                        } catch (ClassNotFoundException e) {
-                            EcaLogger.error("[Faction] Failed to load faction definition class {}: {}",
-                                    className, e.getMessage());
-                        }
-                    }
-                });
-            }
-        });
+        ModAnnotationIndex.loadAll(ModAnnotationIndex.get().annotated(RegisterFaction.class), "[Faction]",
+                FactionManager::registerFromDefinitionClass);
     }
 
     private static void registerFromDefinitionClass(Class<?> clazz) {
@@ -428,8 +452,8 @@ public class FactionManager {
             return;
         }
 
-        FACTIONS.put(id, buildFactionFrom(def));
         FACTION_DEFINITIONS.put(id, def);
+        putFaction(buildFactionFrom(def));
     }
 
     // 由定义对象创建 Faction 并填入预设关系
@@ -466,8 +490,6 @@ public class FactionManager {
         if (!bindMember(FactionMember.of(entity), factionId, entity.level())) {
             return false;
         }
-        FACTION_MEMBER_IDS.add(entity.getId());
-        ENTITY_FACTION_CACHE.put(entity, factionId);
         return true;
     }
 
@@ -510,6 +532,7 @@ public class FactionManager {
 
         faction.addMember(member);
         MEMBER_INDEX.put(member.getUuid(), factionId);
+        membershipChanged(member.getUuid());
         persist(faction, level);
         return true;
     }
@@ -526,8 +549,6 @@ public class FactionManager {
      */
     public static void leaveFaction(Entity entity) {
         if (entity == null) return;
-        FACTION_MEMBER_IDS.remove(entity.getId());
-        ENTITY_FACTION_CACHE.remove(entity);
         unbindMember(entity.getUUID(), entity.level());
     }
 
@@ -548,6 +569,7 @@ public class FactionManager {
         if (uuid == null) return false;
         String factionId = MEMBER_INDEX.remove(uuid);
         if (factionId == null) return false;
+        membershipChanged(uuid);
 
         Faction faction = FACTIONS.get(factionId);
         if (faction != null) {
@@ -564,47 +586,51 @@ public class FactionManager {
 
     // ==================== 归属查询 ====================
 
-    // 获取实体所属阵营 ID（四层查询）
+    // 获取实体所属阵营 ID（三层查询）
     /**
      * Get the faction id an entity belongs to.
-     * Uses four-layer lookup: fast-path set → WeakHashMap cache → member index →
+     * Uses three-layer lookup: per-entity cached slot → member index →
      * owner inheritance for tamed animals.
      *
      * @param entity the entity to query
      * @return faction id, or null if the entity belongs to no faction
      */
     public static String getFactionId(Entity entity) {
-        if (entity == null) return null;
+        return FactionRelationTable.nameOf(getFactionSlot(entity));
+    }
+
+    // 解析实体的阵营槽位，无阵营为 FactionRelationTable.NONE
+    static int getFactionSlot(Entity entity) {
+        if (entity == null) return FactionRelationTable.NONE;
         ensureLoaded(entity.level());
 
         // 没有任何成员时立即返回，未使用阵营系统的存档不必为每次查询计算 UUID
-        if (MEMBER_INDEX.isEmpty()) return null;
-
-        // Layer 1: 快速路径命中 → 查 WeakHashMap
-        if (FACTION_MEMBER_IDS.contains(entity.getId())) {
-            String cached = ENTITY_FACTION_CACHE.get(entity);
-            if (cached != null && !cached.isEmpty()) {
-                return cached;
-            }
+        if (MEMBER_INDEX.isEmpty()) return FactionRelationTable.NONE;
+
+        // Layer 1: 实体槽位缓存；纪元须在读索引之前取得，并发改写时存下的旧纪元只会让缓存提前失效
+        UUID uuid = entity.getUUID();
+        int epoch = MEMBERSHIP_EPOCHS.get(epochBucket(uuid));
+        FactionSlotHolder holder = entity instanceof FactionSlotHolder h ? h : null;
+        if (holder != null && holder.eca$factionEpoch() == epoch) {
+            return holder.eca$factionSlot();
         }
 
         // Layer 2: 反向索引（权威结果）
-        String indexed = MEMBER_INDEX.get(entity.getUUID());
+        String indexed = MEMBER_INDEX.get(uuid);
         if (indexed != null && !indexed.isEmpty()) {
-            ENTITY_FACTION_CACHE.put(entity, indexed);
-            FACTION_MEMBER_IDS.add(entity.getId());
-            return indexed;
+            int slot = FactionRelationTable.slotOf(indexed);
+            if (holder != null) holder.eca$cacheFactionSlot(epoch, slot);
+            return slot;
         }
 
         // Layer 3: 驯服动物继承主人阵营（不写持久化，主人换营时自动跟随）
-        String inherited = resolveOwnerFaction(entity);
-        if (inherited != null) {
-            return inherited;
+        if (entity instanceof TamableAnimal) {
+            // 主人 UUID 的变化不经过成员纪元，继承结果与未命中都不缓存
+            return FactionRelationTable.slotOf(resolveOwnerFaction(entity));
         }
 
-        // 完全未命中 → 清理快速路径脏数据
-        FACTION_MEMBER_IDS.remove(entity.getId());
-        return null;
+        if (holder != null) holder.eca$cacheFactionSlot(epoch, FactionRelationTable.NONE);
+        return FactionRelationTable.NONE;
     }
 
     // 按 UUID 获取所属阵营（纯索引查询，不含宠物继承）
@@ -663,9 +689,8 @@ public class FactionManager {
      */
     public static boolean areSameFaction(Entity a, Entity b) {
         if (a == null || b == null) return false;
-        String factionA = getFactionId(a);
-        String factionB = getFactionId(b);
-        return factionA != null && factionA.equals(factionB);
+        int slotA = getFactionSlot(a);
+        return slotA != FactionRelationTable.NONE && slotA == getFactionSlot(b);
     }
 
     // ==================== 反向查询：阵营 → 成员 ====================
@@ -766,13 +791,10 @@ public class FactionManager {
         for (UUID uuid : new ArrayList<>(faction.getMemberUuids())) {
             MEMBER_INDEX.remove(uuid);
             LEADER_INDEX.remove(uuid);
+            membershipChanged(uuid);
         }
         faction.clearMembers();
         faction.setLeader(null);
-        synchronized (ENTITY_FACTION_CACHE) {
-            ENTITY_FACTION_CACHE.entrySet().removeIf(e -> factionId.equals(e.getValue()));
-        }
-        FACTION_MEMBER_IDS.clear();
         persist(faction, level);
     }
 
@@ -941,9 +963,15 @@ public class FactionManager {
     public static FactionRelation getEffectiveRelation(Entity a, Entity b) {
         if (a == null || b == null) return FactionRelation.HOSTILE;
 
-        String factionA = getFactionId(a);
-        String factionB = getFactionId(b);
+        int slotA = getFactionSlot(a);
+        int slotB = getFactionSlot(b);
+        FactionRelation precomputed = FactionRelationTable.lookup(slotA, slotB);
+        if (precomputed != null) return precomputed;
+        return resolveDynamicRelation(a, b, FactionRelationTable.nameOf(slotA), FactionRelationTable.nameOf(slotB));
+    }
 
+    // 矩阵标记为动态的组合：按原判定顺序逐层求值，动态覆写需要具体实体
+    private static FactionRelation resolveDynamicRelation(Entity a, Entity b, String factionA, String factionB) {
         if (factionA != null && factionA.equals(factionB)) {
             return FactionRelation.SAME_FACTION;
         }
@@ -1005,6 +1033,49 @@ public class FactionManager {
         return FactionRelation.NEUTRAL;
     }
 
+    /*
+     * 供 FactionRelationTable 重建矩阵：与 resolveDynamicRelation 同序判定，
+     * 走到某个覆写了 getRelation / getDefaultRelation 的定义时返回 null，表示该组合只能按实体求值。
+     */
+    static FactionRelation resolveStaticRelation(String factionA, String factionB) {
+        if (factionA != null && factionA.equals(factionB)) {
+            return FactionRelation.SAME_FACTION;
+        }
+
+        if (factionA != null && factionB != null) {
+            if (overridesRelation(FACTION_DEFINITIONS.get(factionA), "getRelation")) return null;
+            Faction fA = FACTIONS.get(factionA);
+            if (fA != null) {
+                FactionRelation rel = fA.getRelation(factionB);
+                if (rel != null) return rel;
+            }
+            if (overridesRelation(FACTION_DEFINITIONS.get(factionB), "getRelation")) return null;
+            Faction fB = FACTIONS.get(factionB);
+            if (fB != null) {
+                FactionRelation rel = fB.getRelation(factionA);
+                if (rel != null) return rel;
+            }
+            return FactionRelation.HOSTILE;
+        }
+
+        String only = factionA != null ? factionA : factionB;
+        if (only == null) return FactionRelation.NEUTRAL;
+        if (overridesRelation(FACTION_DEFINITIONS.get(only), "getDefaultRelation")) return null;
+        Faction faction = FACTIONS.get(only);
+        return faction != null ? faction.getDefaultRelation() : FactionRelation.HOSTILE;
+    }
+
+    // 定义类未覆写基类的空实现时，动态层恒返回 null，可安全跳过
+    private static boolean overridesRelation(FactionDefinition def, String methodName) {
+        if (def == null) return false;
+        try {
+            return def.getClass().getMethod(methodName, LivingEntity.class, Entity.class).getDeclaringClass()
+                    != FactionDefinition.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
     // 判断 ECA 阵营关系是否允许 source 伤害 target
     /**
      * @param source the attacker / targeter
@@ -1026,36 +1097,49 @@ public class FactionManager {
     public static void tickHostileTargeting(ServerLevel level) {
         if (level == null) return;
 
-        int range = EcaConfiguration.getFactionAlertRangeSafely();
-        double rangeSq = (double) range * range;
+        // 单次遍历：收集本 tick 轮到扫描的空闲 Mob 与全部有阵营的候选，无扫描者时不建索引
+        List<Mob> scanners = null;
+        List<String> scannerFactions = null;
+        List<LivingEntity> members = new ArrayList<>();
+        List<String> memberFactions = new ArrayList<>();
         for (Entity entity : level.getAllEntities()) {
-            if (!(entity instanceof Mob mob) || !mob.isAlive()) continue;
-            if (getFactionId(mob) == null) continue;
+            if (!(entity instanceof LivingEntity living) || !living.isAlive()) continue;
+            String factionId = getFactionId(living);
+            if (factionId == null) continue;
+            members.add(living);
+            memberFactions.add(factionId);
 
+            if (!(living instanceof Mob mob)) continue;
+            if (Math.floorMod(mob.tickCount + mob.getId(), HOSTILE_TARGET_SCAN_INTERVAL_TICKS) != 0) {
+                continue;
+            }
             LivingEntity current = mob.getTarget();
             if (current != null && current.isAlive() && FactionUtil.canTarget(mob, current)) {
                 continue;
             }
-            if (Math.floorMod(mob.tickCount + mob.getId(), HOSTILE_TARGET_SCAN_INTERVAL_TICKS) != 0) {
-                continue;
+            if (scanners == null) {
+                scanners = new ArrayList<>();
+                scannerFactions = new ArrayList<>();
             }
+            scanners.add(mob);
+            scannerFactions.add(factionId);
+        }
+        if (scanners == null) return;
 
-            LivingEntity nearest = null;
-            double nearestDistanceSq = Double.MAX_VALUE;
-            AABB area = mob.getBoundingBox().inflate(range);
-            for (LivingEntity candidate : level.getEntitiesOfClass(LivingEntity.class, area,
-                    target -> target != mob && target.isAlive())) {
-                if (getFactionId(candidate) == null) continue;
-                if (getEffectiveRelation(mob, candidate) != FactionRelation.HOSTILE) continue;
-                if (!FactionUtil.canTarget(mob, candidate)) continue;
-
-                double distanceSq = mob.distanceToSqr(candidate);
-                if (distanceSq <= rangeSq && distanceSq < nearestDistanceSq) {
-                    nearest = candidate;
-                    nearestDistanceSq = distanceSq;
-                }
-            }
+        int range = EcaConfiguration.getFactionAlertRangeSafely();
+        double rangeSq = (double) range * range;
+        FactionSpatialHash<LivingEntity> index = new FactionSpatialHash<>(range);
+        for (int i = 0; i < members.size(); i++) {
+            LivingEntity member = members.get(i);
+            index.add(memberFactions.get(i), member, member.getX(), member.getY(), member.getZ());
+        }
 
+        for (int i = 0; i < scanners.size(); i++) {
+            Mob mob = scanners.get(i);
+            LivingEntity nearest = index.nearest(mob.getX(), mob.getY(), mob.getZ(), rangeSq, scannerFactions.get(i),
+                    candidate -> candidate != mob && candidate.isAlive()
+                            && getEffectiveRelation(mob, candidate) == FactionRelation.HOSTILE
+                            && FactionUtil.canTarget(mob, candidate));
             if (nearest != null) {
                 mob.setTarget(nearest);
             }
@@ -1119,8 +1203,8 @@ public class FactionManager {
     // SAME_FACTION 是派生关系，由 getEffectiveRelation 在两方阵营 ID 相同时给出，存不进关系表。
     // 要让两个阵营真正成为同一阵营，唯一正确的做法是把其中一个并掉。
     // 注销必须排在成员迁移之后：dropIndexesOf 会按源阵营剩余成员表回收 MEMBER_INDEX，
-    // 迁移完成后该表为空，回收不会误伤已改绑到存活阵营的成员；同时它清掉
-    // ENTITY_FACTION_CACHE 中指向源阵营的项与快速路径集合，在线实体的陈旧归属随之失效。
+    // 迁移完成后该表为空，回收不会误伤已改绑到存活阵营的成员；同时它推进成员纪元，
+    // 在线实体缓存的陈旧槽位随之失效。
     /**
      * Merge one faction into another. Every member of {@code fromId} is rebound to
      * {@code intoId}, relation overrides are folded into the surviving faction, and
@@ -1284,7 +1368,7 @@ public class FactionManager {
 
     // 实体离开世界时清理运行时缓存，永久移除时一并清理归属与首领身份
     /**
-     * Called when an entity leaves a level. Runtime caches are always dropped; membership
+     * Called when an entity leaves a level. The cached faction slot lives on the entity itself; membership
      * and leadership are removed only when the entity is gone for good, otherwise a
      * world's member table grows without bound as mobs die.
      * <p>
@@ -1296,8 +1380,7 @@ public class FactionManager {
      */
     public static void onEntityRemoved(Entity entity, Entity.RemovalReason reason) {
         if (entity == null) return;
-        FACTION_MEMBER_IDS.remove(entity.getId());
-        ENTITY_FACTION_CACHE.remove(entity);
+        // 阵营槽位缓存在实体自身字段上，随实体一起回收，无需单独清理
 
         if (reason == null || !reason.shouldDestroy()) return;
         if (entity instanceof Player) return;
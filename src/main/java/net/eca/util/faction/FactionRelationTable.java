@@ -0,0 +1,106 @@
+package net.eca.util.faction;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 阵营 ID 驻留表 + 关系矩阵。
+ *
+ * 阵营 ID 在注册时驻留为小整数槽位，槽位 0 固定表示"无阵营"；槽位进程级只增不减，
+ * 注销的阵营保留槽位，实体上缓存的槽位号因此永不指向别的阵营。
+ *
+ * matrix[a][b] 是 a 对 b 的静态关系：取值为 FactionRelation 序号 + 1，
+ * 0 表示该组合的判定会经过 FactionDefinition 的动态覆写，必须回到按实体求值的慢路径。
+ * 阵营、定义或关系表任何变化都只递增纪元，矩阵在下一次查询时按需重建；
+ * 稳态下一次关系查询就是两次数组读取。
+ */
+final class FactionRelationTable {
+
+    static final int NONE = 0;
+
+    private static final byte DYNAMIC = 0;
+    private static final FactionRelation[] RELATIONS = FactionRelation.values();
+
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    private static volatile String[] names = {null};
+
+    private static final AtomicInteger EPOCH = new AtomicInteger(1);
+    private static volatile Matrix matrix;
+
+    private static final class Matrix {
+        final int epoch;
+        final byte[][] codes;
+
+        Matrix(int epoch, byte[][] codes) {
+            this.epoch = epoch;
+            this.codes = codes;
+        }
+    }
+
+    private FactionRelationTable() {}
+
+    /* ==================== 驻留 ==================== */
+
+    static int slotOf(String factionId) {
+        if (factionId == null) return NONE;
+        Integer slot = SLOTS.get(factionId);
+        return slot != null ? slot : intern(factionId);
+    }
+
+    private static synchronized int intern(String factionId) {
+        Integer existing = SLOTS.get(factionId);
+        if (existing != null) return existing;
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        int slot = grown.length - 1;
+        grown[slot] = factionId;
+        names = grown;
+        SLOTS.put(factionId, slot);
+        invalidate();
+        return slot;
+    }
+
+    static String nameOf(int slot) {
+        String[] snapshot = names;
+        return slot > NONE && slot < snapshot.length ? snapshot[slot] : null;
+    }
+
+    /* ==================== 关系矩阵 ==================== */
+
+    // 阵营注册/注销、定义注册、关系与默认态度改写后调用
+    static void invalidate() {
+        EPOCH.incrementAndGet();
+    }
+
+    // 静态可判定时返回关系；需要动态求值时返回 null
+    static FactionRelation lookup(int slotA, int slotB) {
+        Matrix current = matrix;
+        if (current == null || current.epoch != EPOCH.get()) {
+            current = rebuild();
+        }
+        byte[][] codes = current.codes;
+        if (slotA >= codes.length || slotB >= codes.length) return null;
+        byte code = codes[slotA][slotB];
+        return code == DYNAMIC ? null : RELATIONS[code - 1];
+    }
+
+    // 先读纪元再读数据：重建期间若有改写，存下的旧纪元会让下一次查询再次重建
+    private static synchronized Matrix rebuild() {
+        int epoch = EPOCH.get();
+        Matrix current = matrix;
+        if (current != null && current.epoch == epoch) return current;
+
+        String[] snapshot = names;
+        byte[][] codes = new byte[snapshot.length][snapshot.length];
+        for (int a = 0; a < snapshot.length; a++) {
+            for (int b = 0; b < snapshot.length; b++) {
+                FactionRelation relation = FactionManager.resolveStaticRelation(snapshot[a], snapshot[b]);
+                codes[a][b] = relation == null ? DYNAMIC : (byte) (relation.ordinal() + 1);
+            }
+        }
+        current = new Matrix(epoch, codes);
+        matrix = current;
+        return current;
+    }
+}
@@ -0,0 +1,15 @@
+package net.eca.util.faction;
+
+/*
+ * 由 EntityMixin 注入到 Entity 的阵营槽位缓存，取代原先按实体弱引用的 WeakHashMap。
+ * 槽位连同写入时所在纪元桶(按 UUID 散列)的纪元一起存放；该 UUID 的绑定变化会推进这个桶，纪元不符即视为未缓存。
+ * 纪元 0 表示从未解析，实体 UUID 被改写时也重置为 0。
+ */
+public interface FactionSlotHolder {
+
+    int eca$factionEpoch();
+
+    int eca$factionSlot();
+
+    void eca$cacheFactionSlot(int epoch, int slot);
+}
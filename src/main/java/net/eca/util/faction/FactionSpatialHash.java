@@ -0,0 +1,99 @@
+package net.eca.util.faction;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/*
+ * 敌对索敌用的单 tick 空间哈希：阵营 → 网格 → 格内成员。
+ * 格边长取警戒半径，半径内的候选必然落在查询点所在格及其 26 个邻格中；
+ * 查询时跳过自身阵营的网格(同阵营恒为 SAME_FACTION)，其余阵营只看邻格。
+ * 坐标与元素平铺存放，距离先于谓词判定，开销较大的关系判定只落在更近的候选上。
+ * 仅在单个 tick 内构建与使用，不做并发保护。
+ */
+final class FactionSpatialHash<T> {
+
+    private final double cellSize;
+    private final Map<String, Long2ObjectOpenHashMap<Bucket>> grids = new HashMap<>();
+
+    FactionSpatialHash(double cellSize) {
+        this.cellSize = Math.max(1.0d, cellSize);
+    }
+
+    void add(String factionId, T element, double x, double y, double z) {
+        Long2ObjectOpenHashMap<Bucket> grid = grids.computeIfAbsent(factionId, id -> new Long2ObjectOpenHashMap<>());
+        long key = cellKey(cell(x), cell(y), cell(z));
+        Bucket bucket = grid.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            grid.put(key, bucket);
+        }
+        bucket.add(element, x, y, z);
+    }
+
+    // 取 rangeSq 内最近且通过 accept 的其他阵营成员；无则返回 null
+    @SuppressWarnings("unchecked")
+    T nearest(double x, double y, double z, double rangeSq, String ownFactionId, Predicate<? super T> accept) {
+        int cx = cell(x);
+        int cy = cell(y);
+        int cz = cell(z);
+        T nearest = null;
+        double nearestDistanceSq = Double.MAX_VALUE;
+        for (Map.Entry<String, Long2ObjectOpenHashMap<Bucket>> entry : grids.entrySet()) {
+            if (entry.getKey().equals(ownFactionId)) continue;
+            Long2ObjectOpenHashMap<Bucket> grid = entry.getValue();
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        Bucket bucket = grid.get(cellKey(cx + dx, cy + dy, cz + dz));
+                        if (bucket == null) continue;
+                        double[] coords = bucket.coords;
+                        for (int i = 0, c = 0; i < bucket.size; i++, c += 3) {
+                            double ox = coords[c] - x;
+                            double oy = coords[c + 1] - y;
+                            double oz = coords[c + 2] - z;
+                            double distanceSq = ox * ox + oy * oy + oz * oz;
+                            if (distanceSq > rangeSq || distanceSq >= nearestDistanceSq) continue;
+                            T candidate = (T) bucket.elements[i];
+                            if (!accept.test(candidate)) continue;
+                            nearest = candidate;
+                            nearestDistanceSq = distanceSq;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    // 21 位有符号格坐标拼成一个 long；格边长不小于 1，世界范围内不会溢出
+    private static long cellKey(int cx, int cy, int cz) {
+        return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+    }
+
+    private static final class Bucket {
+        Object[] elements = new Object[4];
+        double[] coords = new double[12];
+        int size;
+
+        void add(Object element, double x, double y, double z) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+                coords = Arrays.copyOf(coords, size * 6);
+            }
+            int c = size * 3;
+            elements[size] = element;
+            coords[c] = x;
+            coords[c + 1] = y;
+            coords[c + 2] = z;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.eca.util.health;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/*
+ * 分析用类解析缓存：进程级共享，供所有分析线程只读复用同一份 EXPAND_FRAMES 解析结果。
+ * ASM 树节点本身不是线程安全的——InsnList.indexOf/get 首次调用会惰性建下标缓存并回写 insnNode.index。
+ * 这里在发布前把每个方法的下标缓存预先建好，此后所有读取路径都不再写节点，可跨线程共享；
+ * 调用方仍必须只读(ConstOverride 与 HeadBridge 注入要改指令，必须各自重新解析)。
+ * 容量按权重(类字节码长度)计，超出预算时淘汰最久未访问的条目；淘汰只在插入时发生，读路径无锁。
+ * 另维护一个按路径复用的 JarFile 句柄池，取代 defaultClassBytes 每次未命中都重开 jar 的做法。
+ */
+final class AnalysisClassCache {
+
+    private AnalysisClassCache() {}
+
+    /* 权重预算：以原始字节码长度计，展开帧后的 ClassNode 约为其十倍内存。 */
+    private static final long WEIGHT_BUDGET = 16L * 1024 * 1024;
+    /* 单次淘汰腾出到预算的该比例以下，避免每次插入都触发一轮排序。 */
+    private static final long EVICT_TARGET = WEIGHT_BUDGET * 3 / 4;
+    private static final int JAR_POOL_LIMIT = 256;
+
+    private static final class Entry {
+        final ClassNode node;
+        final int weight;
+        volatile long lastAccess;
+
+        Entry(ClassNode node, int weight, long lastAccess) {
+            this.node = node;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final Map<Class<?>, Entry> NODES = new ConcurrentHashMap<>();
+    private static final AtomicLong TOTAL_WEIGHT = new AtomicLong();
+    /* 访问序号代替时钟：只需相对先后，递增计数比 nanoTime 便宜。 */
+    private static final AtomicLong ACCESS_CLOCK = new AtomicLong();
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final LongAdder PARSE_NANOS = new LongAdder();
+
+    /* ==================== ClassNode ==================== */
+
+    /* 取共享的只读 ClassNode。并发未命中同一类时各自解析、先发布者胜出，不在哈希桶锁内解析。 */
+    static ClassNode get(Class<?> clazz, Function<Class<?>, byte[]> bytesLoader) {
+        Entry entry = NODES.get(clazz);
+        if (entry != null) {
+            entry.lastAccess = ACCESS_CLOCK.incrementAndGet();
+            HITS.increment();
+            return entry.node;
+        }
+        MISSES.increment();
+        byte[] bytes = bytesLoader.apply(clazz);
+        if (bytes == null) return null;
+        long start = System.nanoTime();
+        ClassNode node = new ClassNode();
+        new ClassReader(bytes).accept(node, ClassReader.EXPAND_FRAMES);
+        freezeIndices(node);
+        PARSE_NANOS.add(System.nanoTime() - start);
+        Entry created = new Entry(node, bytes.length, ACCESS_CLOCK.incrementAndGet());
+        Entry raced = NODES.putIfAbsent(clazz, created);
+        if (raced != null) return raced.node;
+        if (TOTAL_WEIGHT.addAndGet(created.weight) > WEIGHT_BUDGET) evict();
+        return node;
+    }
+
+    // indexOf 首次调用时建 cache 数组并写入全部 insnNode.index，之后只读；发布前触发一次即可
+    private static void freezeIndices(ClassNode node) {
+        for (MethodNode method : node.methods) {
+            if (method.instructions.size() > 0) method.instructions.indexOf(method.instructions.getFirst());
+        }
+    }
+
+    // 多个线程同时超预算时只让一个执行淘汰，其余直接返回
+    private static final Object EVICT_LOCK = new Object();
+
+    private static void evict() {
+        synchronized (EVICT_LOCK) {
+            if (TOTAL_WEIGHT.get() <= WEIGHT_BUDGET) return;
+            List<Map.Entry<Class<?>, Entry>> entries = new ArrayList<>(NODES.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Class<?>, Entry> e : entries) {
+                if (TOTAL_WEIGHT.get() <= EVICT_TARGET) break;
+                if (NODES.remove(e.getKey(), e.getValue())) {
+                    TOTAL_WEIGHT.addAndGet(-e.getValue().weight);
+                    EVICTIONS.increment();
+                }
+            }
+        }
+    }
+
+    /* ==================== jar 句柄池 ==================== */
+
+    private static final Map<String, JarFile> JARS = new ConcurrentHashMap<>();
+    /* 打不开的路径(Forge 虚拟路径等)记负缓存，避免每次未命中都重试。 */
+    private static final Map<String, Boolean> JAR_MISSING = new ConcurrentHashMap<>();
+
+    /* 从 jar 读取条目字节；jar 句柄按路径复用。ZipFile 的读取本身线程安全，句柄可并发共享。 */
+    static byte[] readJarEntry(String jarPath, String entryPath) {
+        if (jarPath == null || JAR_MISSING.containsKey(jarPath)) return null;
+        JarFile jar = JARS.get(jarPath);
+        if (jar == null) {
+            try {
+                jar = new JarFile(jarPath);
+            } catch (IOException | RuntimeException e) {
+                JAR_MISSING.put(jarPath, Boolean.TRUE);
+                return null;
+            }
+            JarFile raced = JARS.putIfAbsent(jarPath, jar);
+            if (raced != null) {
+                closeQuietly(jar);
+                jar = raced;
+            } else if (JARS.size() > JAR_POOL_LIMIT) {
+                // 超出上限时整体回收：mod jar 数量远低于上限，真触发说明在扫描异常多的路径
+                closeJars();
+                return readJarEntry(jarPath, entryPath);
+            }
+        }
+        try {
+            JarEntry entry = jar.getJarEntry(entryPath);
+            if (entry == null) return null;
+            try (InputStream in = jar.getInputStream(entry)) {
+                return in.readAllBytes();
+            }
+        } catch (IOException | RuntimeException e) {
+            // 句柄可能已被并发回收关闭，丢弃后由下次未命中重开
+            JARS.remove(jarPath, jar);
+            return null;
+        }
+    }
+
+    private static void closeJars() {
+        for (String path : new ArrayList<>(JARS.keySet())) {
+            JarFile jar = JARS.remove(path);
+            if (jar != null) closeQuietly(jar);
+        }
+    }
+
+    private static void closeQuietly(JarFile jar) {
+        try {
+            jar.close();
+        } catch (IOException ignored) {
+            // 关闭失败不影响后续读取，句柄已从池中移除。
+        }
+    }
+
+    /* ==================== 统计与清理 ==================== */
+
+    static String stats() {
+        long hits = HITS.sum();
+        long misses = MISSES.sum();
+        long total = hits + misses;
+        return "classes=" + NODES.size()
+                + " weightKb=" + (TOTAL_WEIGHT.get() >> 10)
+                + " hits=" + hits
+                + " misses=" + misses
+                + " hitRate=" + (total == 0 ? 0 : hits * 100 / total) + "%"
+                + " evictions=" + EVICTIONS.sum()
+                + " parseMs=" + PARSE_NANOS.sum() / 1_000_000L
+                + " jars=" + JARS.size();
+    }
+
+    /* 服务器停止时释放：分析在此之前已基本完成，常驻的解析树与 jar 句柄没有继续持有的价值。 */
+    static void clear() {
+        NODES.clear();
+        TOTAL_WEIGHT.set(0);
+        closeJars();
+        JAR_MISSING.clear();
+    }
+}
@@ -0,0 +1,455 @@
+package net.eca.util.health;
+
+import net.eca.config.EcaConfiguration;
+import net.eca.util.EcaLogger;
+import net.eca.util.health.HealthDataflowAnalyzer.Call;
+import net.eca.util.health.HealthDataflowAnalyzer.Choice;
+import net.eca.util.health.HealthDataflowAnalyzer.EvalContext;
+import net.eca.util.health.HealthDataflowAnalyzer.Expr;
+import net.eca.util.health.HealthDataflowAnalyzer.Op;
+import net.eca.util.health.HealthDataflowAnalyzer.OptionalContentExpr;
+import net.eca.util.health.HealthDataflowAnalyzer.Primitive;
+import net.eca.util.health.HealthDataflowAnalyzer.Reference;
+import net.eca.util.health.HealthDataflowAnalyzer.Source;
+import net.eca.util.health.HealthDataflowAnalyzer.StoreWrite;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * 表达式编译求值：把反复求值的 Expr 树预先展开为求值节点树，取代 evaluate 每次按 instanceof 逐层分派。
+ * 节点语义与 HealthDataflowAnalyzer.evaluate 逐条对应；差别只在两处：
+ *   Call 的实参只求一次(解释路径在内建规则未命中时会重新求一遍)，
+ *   方法按 (派发类, 实参类型) 单态内联缓存解析并链接为 MethodHandle，命中后不再走 findMethod 与 Method.invoke。
+ * 只有被同一树实例反复求值的表达式才会编译：首次若干次仍走解释器，分析期大量一次性的临时树不付编译代价。
+ * 不含方法调用的树在开头若干次及之后按固定间隔与解释器交叉比对；一旦不一致，该树退回解释求值并记录一次诊断。
+ * 含调用的树不做运行期比对(比对会让模组方法多执行一次)，其正确性由差分测试覆盖。
+ */
+final class CompiledExprEvaluator {
+
+    private CompiledExprEvaluator() {}
+
+    /* 同一树实例求值达到该次数后编译。 */
+    private static final int COMPILE_AFTER = 3;
+    /* 编译后前若干次逐次比对，之后每隔固定次数抽检一次。 */
+    private static final int VERIFY_FIRST = 4;
+    private static final int VERIFY_INTERVAL = 256;
+    /* 槽位表：两路组相联，按树实例身份哈希定位组，共 SETS * 2 个槽位。 */
+    private static final int SETS = 4096;
+
+    @FunctionalInterface
+    private interface Node {
+        Object eval(EvalContext ctx);
+    }
+
+    private static final class Slot {
+        final Expr expr;
+        // 计数器允许竞争丢失：只影响编译、抽检与淘汰的时机，不影响结果
+        int uses;
+        int verified;
+        volatile Node compiled;
+        volatile boolean deoptimized;
+        /* 编译时确定：树中没有方法调用与会调用方法的数据源，重复求值无副作用，可以抽检。 */
+        volatile boolean verifiable;
+
+        Slot(Expr expr) {
+            this.expr = expr;
+        }
+    }
+
+    /* 按身份查找，不分配键对象也不按结构哈希；未命中时替换组内较冷的一路，冷热按使用次数衰减比较。
+       数组元素的竞争写只会丢失一个槽位或重复编译一次，Slot.expr 为 final，读到的槽位总是完整的。 */
+    private static final Slot[] SLOTS = new Slot[SETS * 2];
+
+    /* 校验期间当前线程上的嵌套求值(数据源 read 内部的子树)一律走解释器，比对的两侧互不依赖。 */
+    private static final ThreadLocal<int[]> INTERPRETING = ThreadLocal.withInitial(() -> new int[1]);
+    private static final AtomicInteger ACTIVE_VERIFICATIONS = new AtomicInteger();
+
+    private static final LongAdder COMPILED = new LongAdder();
+    private static final LongAdder COMPILED_EVALS = new LongAdder();
+    private static final LongAdder VERIFICATIONS = new LongAdder();
+    private static final LongAdder DEOPTS = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    /* ==================== 求值入口 ==================== */
+
+    /* 与 HealthDataflowAnalyzer.evaluate 等价；调用方应只对分析结果中长期持有的树使用本入口。 */
+    static Object evaluate(Expr expr, EvalContext ctx) {
+        if (expr == null || !EcaConfiguration.getAttackAnalysisCompileExpressionsSafely()) {
+            return HealthDataflowAnalyzer.evaluate(expr, ctx);
+        }
+        if (ACTIVE_VERIFICATIONS.get() != 0 && INTERPRETING.get()[0] > 0) {
+            return HealthDataflowAnalyzer.evaluate(expr, ctx);
+        }
+        Slot slot = slot(expr);
+        if (slot.deoptimized) return HealthDataflowAnalyzer.evaluate(expr, ctx);
+        slot.uses++;
+        Node node = slot.compiled;
+        if (node == null) {
+            if (slot.uses < COMPILE_AFTER) return HealthDataflowAnalyzer.evaluate(expr, ctx);
+            Compilation compilation = new Compilation();
+            node = compilation.compile(expr);
+            slot.verifiable = compilation.verifiable;
+            slot.compiled = node;
+            COMPILED.increment();
+        }
+        Object value = node.eval(ctx);
+        COMPILED_EVALS.increment();
+        if (slot.verifiable) {
+            int verified = slot.verified++;
+            if (verified < VERIFY_FIRST || verified % VERIFY_INTERVAL == 0) verify(expr, slot, value, ctx);
+        }
+        return value;
+    }
+
+    /* 直接编译并求值，不经槽位表与校验；供差分测试与基准对照编译结果本身。 */
+    static Object evaluateCompiled(Expr expr, EvalContext ctx) {
+        return new Compilation().compile(expr).eval(ctx);
+    }
+
+    private static Slot slot(Expr expr) {
+        int h = System.identityHashCode(expr);
+        int base = ((h ^ (h >>> 16)) & (SETS - 1)) << 1;
+        Slot first = SLOTS[base];
+        if (first != null && first.expr == expr) return first;
+        Slot second = SLOTS[base + 1];
+        if (second != null && second.expr == expr) return second;
+
+        Slot fresh = new Slot(expr);
+        if (first == null) {
+            SLOTS[base] = fresh;
+        } else if (second == null) {
+            SLOTS[base + 1] = fresh;
+        } else {
+            // 淘汰使用次数较少的一路；幸存者次数减半，长期不再使用的热树最终也会让位
+            boolean evictFirst = first.uses <= second.uses;
+            Slot survivor = evictFirst ? second : first;
+            survivor.uses >>>= 1;
+            SLOTS[evictFirst ? base : base + 1] = fresh;
+            EVICTIONS.increment();
+        }
+        return fresh;
+    }
+
+    // 差分校验：编译结果与独立的解释结果不一致时该树永久退回解释器
+    private static void verify(Expr expr, Slot slot, Object compiledValue, EvalContext ctx) {
+        VERIFICATIONS.increment();
+        Object interpreted;
+        int[] depth = INTERPRETING.get();
+        ACTIVE_VERIFICATIONS.incrementAndGet();
+        depth[0]++;
+        try {
+            interpreted = HealthDataflowAnalyzer.evaluate(expr, ctx);
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError e) throw e;
+            interpreted = t;
+        } finally {
+            depth[0]--;
+            ACTIVE_VERIFICATIONS.decrementAndGet();
+        }
+        if (sameResult(compiledValue, interpreted)) return;
+        slot.deoptimized = true;
+        slot.compiled = null;
+        DEOPTS.increment();
+        EcaLogger.warn("[HealthCompile] compiled result diverged, falling back to interpreter expr={} compiled={} interpreted={}",
+                HealthDataFlow.expressionSummary(expr), compiledValue, interpreted);
+    }
+
+    /* 数值按值比较(NaN 视为相等)，字符串与布尔按内容；其余对象只要求同类型——
+       调用每次新建的包装对象不具备身份一致性，按 equals 比较会误判。 */
+    static boolean sameResult(Object a, Object b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        if (a instanceof Number x && b instanceof Number y) {
+            return a.getClass() == b.getClass() && Double.compare(x.doubleValue(), y.doubleValue()) == 0;
+        }
+        if (a instanceof String || a instanceof Boolean || a instanceof Character) return a.equals(b);
+        return a.getClass() == b.getClass();
+    }
+
+    /* ==================== 编译 ==================== */
+
+    private static final class Compilation {
+        boolean verifiable = true;
+
+        Node compile(Expr e) {
+            if (e instanceof Primitive p) {
+                Object value = p.value();
+                return ctx -> value;
+            }
+            if (e instanceof Reference r) {
+                Object value = r.value();
+                return ctx -> value;
+            }
+            if (e == HealthDataflowAnalyzer.entityParamMarker()) return EvalContext::entity;
+            if (e instanceof Source s) {
+                if (!readsWithoutCalls(s)) verifiable = false;
+                return ctx -> s.read(ctx.entity());
+            }
+            if (e instanceof OptionalContentExpr optional) {
+                Node inner = compile(optional.optionalExpr());
+                return ctx -> HealthDataflowAnalyzer.unwrapOptionalContent(inner.eval(ctx));
+            }
+            if (e instanceof StoreWrite write) return compile(write.valueExpr());
+            if (e instanceof Choice choice) return compileChoice(choice);
+            if (e instanceof Op op) return compileOp(op);
+            if (e instanceof Call call) {
+                verifiable = false;
+                return new CallNode(call, compileAll(call.args()));
+            }
+            // WriteInput / Closure / ArrayAllocExpr / UnknownExpr 在解释器中同样求值为 null
+            return ctx -> null;
+        }
+
+        // 只做字段/同步数据读取的数据源；其余数据源可能调用模组方法或对子树求值
+        private static boolean readsWithoutCalls(Source s) {
+            return s instanceof HealthDataflowAnalyzer.FieldChainSource
+                    || s instanceof HealthDataflowAnalyzer.StaticFieldSource
+                    || s instanceof HealthDataflowAnalyzer.SynchedDataSource;
+        }
+
+        private Node[] compileAll(List<Expr> exprs) {
+            Node[] nodes = new Node[exprs.size()];
+            for (int i = 0; i < nodes.length; i++) nodes[i] = compile(exprs.get(i));
+            return nodes;
+        }
+
+        private Node compileChoice(Choice choice) {
+            Node[] alternatives = compileAll(choice.alternatives());
+            return ctx -> {
+                for (Node alternative : alternatives) {
+                    Object value = alternative.eval(ctx);
+                    if (value != null) return value;
+                }
+                return null;
+            };
+        }
+
+        private Node compileOp(Op op) {
+            int opcode = op.opcode();
+            Node[] args = compileAll(op.args());
+            if (args.length == 1) {
+                Node a0 = args[0];
+                return ctx -> {
+                    Object v0 = a0.eval(ctx);
+                    return v0 == null ? null : HealthDataflowAnalyzer.execOp(opcode, List.of(v0));
+                };
+            }
+            if (args.length == 2) {
+                Node a0 = args[0];
+                Node a1 = args[1];
+                return ctx -> {
+                    Object v0 = a0.eval(ctx);
+                    if (v0 == null) return null;
+                    Object v1 = a1.eval(ctx);
+                    return v1 == null ? null : HealthDataflowAnalyzer.execOp(opcode, List.of(v0, v1));
+                };
+            }
+            return ctx -> {
+                Object[] values = new Object[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    Object v = args[i].eval(ctx);
+                    if (v == null) return null;
+                    values[i] = v;
+                }
+                return HealthDataflowAnalyzer.execOp(opcode, Arrays.asList(values));
+            };
+        }
+    }
+
+    /* ==================== 方法调用 ==================== */
+
+    /* 与 evaluateKnownCall + invokeCall 对应：实参齐全时先查内建规则，否则/未命中时反射调用。
+       归属类与形参类型首次调用时解析；目标方法按派发类与实参类型单态缓存。 */
+    private static final class CallNode implements Node {
+        private final Call call;
+        private final Node[] args;
+        private volatile Linkage linkage;
+        private volatile Target last;
+
+        CallNode(Call call, Node[] args) {
+            this.call = call;
+            this.args = args;
+        }
+
+        @Override
+        public Object eval(EvalContext ctx) {
+            Object[] values = new Object[args.length];
+            boolean complete = true;
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].eval(ctx);
+                if (values[i] == null) complete = false;
+            }
+            if (complete) {
+                Object known = HealthDataflowAnalyzer.knownCallResult(call, Arrays.asList(values));
+                if (known != HealthDataflowAnalyzer.UnknownEval.INSTANCE) return known;
+            }
+            try {
+                return invoke(values, ctx);
+            } catch (Throwable t) {
+                if (t instanceof VirtualMachineError e) throw e;
+                return null;
+            }
+        }
+
+        private Object invoke(Object[] values, EvalContext ctx) throws Throwable {
+            Linkage link = linkage();
+            if (link == Linkage.FAILED) return null;
+            int start = link.hasReceiver ? 1 : 0;
+            Object recv = null;
+            if (link.hasReceiver) {
+                recv = values[0];
+                if (recv == null) recv = HealthDataflowAnalyzer.inferUnknownReceiver(call.owner(), ctx);
+                if (recv == null) return null;
+            }
+            Object[] pvs = new Object[link.paramTypes.length];
+            for (int i = 0; i < pvs.length; i++) {
+                Object v = values[start + i];
+                if (v == null) v = HealthDataflowAnalyzer.inferUnknownArg(link.paramTypes[i], ctx);
+                pvs[i] = v;
+            }
+            Class<?> dispatchOwner = recv == null ? link.owner : recv.getClass();
+            Target target = target(link, dispatchOwner, pvs);
+            if (target.method == null) return null;
+            for (int i = 0; i < pvs.length; i++) pvs[i] = HealthDataflowAnalyzer.coerceArgPublic(pvs[i], target.actualTypes[i]);
+            return target.invoke(recv, pvs);
+        }
+
+        private Linkage linkage() {
+            Linkage link = linkage;
+            if (link == null) {
+                link = Linkage.resolve(call);
+                linkage = link;
+            }
+            return link;
+        }
+
+        private Target target(Linkage link, Class<?> dispatchOwner, Object[] pvs) {
+            Target cached = last;
+            if (cached != null && cached.matches(dispatchOwner, pvs)) return cached;
+            Method m = HealthDataflowAnalyzer.findMethod(dispatchOwner, call.name(), link.paramTypes, pvs);
+            if (m == null && dispatchOwner != link.owner) {
+                m = HealthDataflowAnalyzer.findMethod(link.owner, call.name(), link.paramTypes, pvs);
+            }
+            Target resolved = Target.link(m, dispatchOwner, pvs);
+            last = resolved;
+            return resolved;
+        }
+    }
+
+    private static final class Linkage {
+        static final Linkage FAILED = new Linkage(null, false, null);
+
+        final Class<?> owner;
+        final boolean hasReceiver;
+        final Class<?>[] paramTypes;
+
+        Linkage(Class<?> owner, boolean hasReceiver, Class<?>[] paramTypes) {
+            this.owner = owner;
+            this.hasReceiver = hasReceiver;
+            this.paramTypes = paramTypes;
+        }
+
+        static Linkage resolve(Call call) {
+            try {
+                Class<?> owner = HealthDataflowAnalyzer.loadClass(call.owner());
+                if (owner == null) return FAILED;
+                Type[] argTypes = Type.getArgumentTypes(call.desc());
+                if (call.args().size() < argTypes.length) return FAILED;
+                Class<?>[] paramTypes = new Class<?>[argTypes.length];
+                for (int i = 0; i < argTypes.length; i++) {
+                    paramTypes[i] = HealthDataflowAnalyzer.asmTypeToClass(argTypes[i]);
+                    if (paramTypes[i] == null) return FAILED;
+                }
+                return new Linkage(owner, call.args().size() > argTypes.length, paramTypes);
+            } catch (Throwable t) {
+                if (t instanceof VirtualMachineError e) throw e;
+                return FAILED;
+            }
+        }
+    }
+
+    /* 已链接的调用目标。findMethod 的匹配只取决于派发类与各实参的运行期类型，二者不变即可复用。 */
+    private static final class Target {
+        final Class<?> dispatchOwner;
+        final Class<?>[] argClasses;
+        final Method method;
+        final Class<?>[] actualTypes;
+        /* (Object[])Object 形状；无法链接时为 null，回退 Method.invoke。 */
+        final MethodHandle spreader;
+        final boolean isStatic;
+
+        private Target(Class<?> dispatchOwner, Class<?>[] argClasses, Method method, MethodHandle spreader) {
+            this.dispatchOwner = dispatchOwner;
+            this.argClasses = argClasses;
+            this.method = method;
+            this.actualTypes = method == null ? null : method.getParameterTypes();
+            this.spreader = spreader;
+            this.isStatic = method != null && Modifier.isStatic(method.getModifiers());
+        }
+
+        static Target link(Method m, Class<?> dispatchOwner, Object[] pvs) {
+            Class<?>[] argClasses = argClasses(pvs);
+            if (m == null) return new Target(dispatchOwner, argClasses, null, null);
+            m.setAccessible(true);
+            return new Target(dispatchOwner, argClasses, m, spreader(m));
+        }
+
+        private static MethodHandle spreader(Method m) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(m.getDeclaringClass(), MethodHandles.lookup());
+                MethodHandle handle = lookup.unreflect(m).asFixedArity();
+                int arity = handle.type().parameterCount();
+                return handle.asType(MethodType.genericMethodType(arity)).asSpreader(Object[].class, arity);
+            } catch (Throwable t) {
+                if (t instanceof VirtualMachineError e) throw e;
+                return null;
+            }
+        }
+
+        boolean matches(Class<?> owner, Object[] pvs) {
+            if (owner != dispatchOwner || pvs.length != argClasses.length) return false;
+            for (int i = 0; i < pvs.length; i++) {
+                if ((pvs[i] == null ? null : pvs[i].getClass()) != argClasses[i]) return false;
+            }
+            return true;
+        }
+
+        Object invoke(Object recv, Object[] pvs) throws Throwable {
+            if (spreader == null) return method.invoke(recv, pvs);
+            if (isStatic) return (Object) spreader.invokeExact(pvs);
+            Object[] all = new Object[pvs.length + 1];
+            all[0] = recv;
+            System.arraycopy(pvs, 0, all, 1, pvs.length);
+            return (Object) spreader.invokeExact(all);
+        }
+
+        private static Class<?>[] argClasses(Object[] pvs) {
+            Class<?>[] classes = new Class<?>[pvs.length];
+            for (int i = 0; i < pvs.length; i++) classes[i] = pvs[i] == null ? null : pvs[i].getClass();
+            return classes;
+        }
+    }
+
+    /* ==================== 统计与清理 ==================== */
+
+    static String stats() {
+        return "trees=" + COMPILED.sum()
+                + " evals=" + COMPILED_EVALS.sum()
+                + " verified=" + VERIFICATIONS.sum()
+                + " deopts=" + DEOPTS.sum()
+                + " evictions=" + EVICTIONS.sum();
+    }
+
+    static void clear() {
+        Arrays.fill(SLOTS, null);
+    }
+}
@@ -10,14 +10,17 @@ import net.minecraft.world.entity.player.Player;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /*
  * 改血总管理器：持有数据流分析表 + 调度 + 校验。
@@ -32,46 +35,13 @@ public final class EcaSetHealthManager {
     /* 数据流主表：实体类 → 2 态。成功 = 可写结构 AnalysisResult；失败 = AnalysisResult.DATA_FLOW_ANALYZER_FAILED 哨兵。
        warmup 后台预填，setHealth 时查询；未命中现场分析并写回，失败标记后续不再重复分析。 */
     private static final Map<Class<?>, HealthDataflowAnalyzer.AnalysisResult> DATAFLOW_TABLE = new ConcurrentHashMap<>();
+    /* 正在分析中的类：单飞占位，分析完成即撤下。 */
+    private static final Map<Class<?>, CompletableFuture<HealthDataflowAnalyzer.AnalysisResult>> ANALYSIS_IN_FLIGHT =
+            new ConcurrentHashMap<>();
+    /* 因异常(含分析超时)记失败的类：结果取决于当次负载，不落盘，下次启动重新分析。 */
+    private static final Set<Class<?>> TRANSIENT_FAILURES = ConcurrentHashMap.newKeySet();
 
-    /* 预热专用后台执行器：常驻单守护线程，承接 LoadComplete 的全量预热。
-       纯分析只读，离开主线程安全。 */
-    private static final ExecutorService ANALYSIS_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "ECA-Health-Analysis");
-        t.setDaemon(true);
-        return t;
-    });
-
-    /* 外部扫描与预热使用不同线程，避免全量预热使运行期扫描长期排队。 */
-    private static final ExecutorService RUNTIME_ANALYSIS_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "ECA-Health-ExternalScan");
-        t.setDaemon(true);
-        return t;
-    });
-
-    /* Tick 与 writer 都可能命中巨型方法；两条固定通道并行，避免互相吞掉时间片。 */
-    private static final ExecutorService TICK_ANALYSIS_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "ECA-Health-TickScan");
-        t.setDaemon(true);
-        return t;
-    });
-
-    private static final ExecutorService WRITER_ANALYSIS_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "ECA-Health-WriterScan");
-        t.setDaemon(true);
-        return t;
-    });
-
-    /* 有效血量模型分析不依赖外部扫描结果，使用独立线程避免两类任务相互阻塞。 */
-    private static final ExecutorService MODEL_ANALYSIS_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "ECA-Health-ModelAnalysis");
-        t.setDaemon(true);
-        return t;
-    });
-
-    /* 外部扫描异步分析去重：同类并发首改只提交一次后台分析任务 */
-    private static final Set<Class<?>> EXTERNAL_SCAN_PENDING = ConcurrentHashMap.newKeySet();
-    private static final Set<Class<?>> TICK_SCAN_PENDING = ConcurrentHashMap.newKeySet();
-    private static final Set<Class<?>> WRITER_SCAN_PENDING = ConcurrentHashMap.newKeySet();
+    /* 后台分析统一交给 HealthAnalysisScheduler：按优先级分道，去重按类 + 任务种类登记。 */
     private static final Set<String> MAINTENANCE_SCAN_FAILURE_DUMPED = ConcurrentHashMap.newKeySet();
 
     /* 外部扫描诊断去重(每类一次)：提交、开始执行、失败三个节点各自记一次。
@@ -283,7 +253,7 @@ public final class EcaSetHealthManager {
         // 使用有效血量表达式校验，避免 getHealth 与存储解耦时错误接受或拒绝写入
         boolean anchorWasPresent = hasHealthAnchor(cls);
         registerEffectiveHealthAnchor(cls, entity -> {
-            Object value = HealthDataflowAnalyzer.evaluate(
+            Object value = CompiledExprEvaluator.evaluate(
                     oriented.readExpr(), HealthDataflowAnalyzer.newContext(entity));
             return value instanceof Number number ? number.floatValue() : Float.NaN;
         });
@@ -336,13 +306,8 @@ public final class EcaSetHealthManager {
         Class<?> cls = entity.getClass();
         if (cls.getName().startsWith("net.minecraft.")) return;
         if (!JOIN_PREWARM_SUBMITTED.add(cls)) return;
-        try {
-            RUNTIME_ANALYSIS_EXECUTOR.submit(() -> prewarmJoinedEntityClass(cls));
-        } catch (Throwable t) {
-            JOIN_PREWARM_SUBMITTED.remove(cls);
-            EcaLogger.info("[ExternalScan] join prewarm submit rejected entity={} type={} msg={}",
-                    cls.getName(), t.getClass().getName(), t.getMessage());
-        }
+        HealthAnalysisScheduler.submit(cls, HealthAnalysisScheduler.Kind.JOIN_PREWARM,
+                HealthAnalysisScheduler.Lane.JOINED, () -> prewarmJoinedEntityClass(cls));
     }
 
     /* 数据流未分析过的类先补分析，再据其形态决定是否需要外部扫描。
@@ -357,7 +322,7 @@ public final class EcaSetHealthManager {
             if (tree != HealthDataflowAnalyzer.AnalysisResult.DATA_FLOW_ANALYZER_FAILED
                     && isVanillaGetHealthOwner(tree)) return;
             EcaLogger.info("[ExternalScan] join prewarm started entity={}", cls.getName());
-            /* 只在高优先级队列完成四个语义入口；比较扫描和周期维护各自进入独立队列。 */
+            /* 只在加入世界道完成四个语义入口；比较扫描和周期维护各自进入较低优先级的道。 */
             long scanStart = System.nanoTime();
             HealthDataflowAnalyzer.resolveExternalScanResult(cls);
             long scanMs = (System.nanoTime() - scanStart) / 1_000_000L;
@@ -383,21 +348,16 @@ public final class EcaSetHealthManager {
     private static void submitComparisonPrescan(Class<?> cls) {
         if (HealthDataflowAnalyzer.hasComparisonCache(cls)) return;
         if (!COMPARISON_PRESCAN_SUBMITTED.add(cls)) return;
-        try {
-            MODEL_ANALYSIS_EXECUTOR.submit(() -> {
-                try {
-                    HealthDataflowAnalyzer.prewarmClassComparisons(cls);
-                } catch (Throwable t) {
-                    if (t instanceof VirtualMachineError e) throw e;
-                    EcaLogger.info("[EffectiveHealth] comparison prescan threw entity={} type={} msg={}",
-                            cls.getName(), t.getClass().getName(), t.getMessage());
-                }
-            });
-        } catch (Throwable t) {
-            COMPARISON_PRESCAN_SUBMITTED.remove(cls);
-            EcaLogger.info("[EffectiveHealth] comparison prescan submit rejected entity={} type={} msg={}",
-                    cls.getName(), t.getClass().getName(), t.getMessage());
-        }
+        HealthAnalysisScheduler.submit(cls, HealthAnalysisScheduler.Kind.COMPARISON_PRESCAN,
+                HealthAnalysisScheduler.Lane.MODEL, () -> {
+            try {
+                HealthDataflowAnalyzer.prewarmClassComparisons(cls);
+            } catch (Throwable t) {
+                if (t instanceof VirtualMachineError e) throw e;
+                EcaLogger.info("[EffectiveHealth] comparison prescan threw entity={} type={} msg={}",
+                        cls.getName(), t.getClass().getName(), t.getMessage());
+            }
+        });
     }
 
     private static void submitEffectiveModelAnalysis(Class<?> cls) {
@@ -407,21 +367,18 @@ public final class EcaSetHealthManager {
         if (signature.equals(EFFECTIVE_MODEL_SUBMITTED.put(cls, signature))) return;
         EcaLogger.info("[EffectiveHealth] model analysis submitted entity={} candidates={}",
                 cls.getName(), candidates.size());
-        try {
-            MODEL_ANALYSIS_EXECUTOR.submit(() -> {
-                try {
-                    HealthDataflowAnalyzer.resolveEffectiveHealthModel(cls, candidates);
-                } catch (Throwable t) {
-                    if (t instanceof VirtualMachineError e) throw e;
-                    EcaLogger.info("[EffectiveHealth] model analysis threw entity={} type={} msg={}",
-                            cls.getName(), t.getClass().getName(), t.getMessage());
-                }
-            });
-        } catch (Throwable t) {
-            // 提交被拒时让出签名，否则该批候选此后永远不会再分析
-            EFFECTIVE_MODEL_SUBMITTED.remove(cls);
-            EcaLogger.info("[EffectiveHealth] model analysis submit rejected entity={} type={} msg={}",
-                    cls.getName(), t.getClass().getName(), t.getMessage());
+        // 上一批候选仍在排队时不另起任务；让出签名，待其完成后下一次改血再按新签名提交
+        if (!HealthAnalysisScheduler.submit(cls, HealthAnalysisScheduler.Kind.EFFECTIVE_MODEL,
+                HealthAnalysisScheduler.Lane.MODEL, () -> {
+            try {
+                HealthDataflowAnalyzer.resolveEffectiveHealthModel(cls, candidates);
+            } catch (Throwable t) {
+                if (t instanceof VirtualMachineError e) throw e;
+                EcaLogger.info("[EffectiveHealth] model analysis threw entity={} type={} msg={}",
+                        cls.getName(), t.getClass().getName(), t.getMessage());
+            }
+        })) {
+            EFFECTIVE_MODEL_SUBMITTED.remove(cls, signature);
         }
     }
 
@@ -443,31 +400,23 @@ public final class EcaSetHealthManager {
     /* 外部扫描在后台去重执行，完成后写入分析缓存。任务异常必须记录，
        以便区分配置关闭、分析进行中和分析失败。 */
     private static void submitExternalScanAnalysis(Class<?> cls) {
-        if (!EXTERNAL_SCAN_PENDING.add(cls)) return;
-        if (EXTERNAL_SCAN_SUBMIT_DUMPED.add(cls.getName())) {
-            EcaLogger.info("[ExternalScan] analysis submitted entity={}", cls.getName());
-        }
-        try {
-            RUNTIME_ANALYSIS_EXECUTOR.submit(() -> {
-                try {
-                    // 与 submitted 配对：只有 submitted 没有 started，说明任务卡在队列而非分析失败
-                    if (EXTERNAL_SCAN_START_DUMPED.add(cls.getName())) {
-                        EcaLogger.info("[ExternalScan] analysis started entity={}", cls.getName());
-                    }
-                    HealthDataflowAnalyzer.resolveExternalScanResult(cls);
-                    submitMaintenanceAnalysis(cls);
-                } catch (Throwable t) {
-                    dumpExternalScanFailure(cls, t);
-                    if (t instanceof VirtualMachineError e) throw e;
-                } finally {
-                    EXTERNAL_SCAN_PENDING.remove(cls);
+        // 外部扫描只由改血调用触发，走最高优先级道；加入世界道上的同类预热不受影响
+        boolean submitted = HealthAnalysisScheduler.submit(cls, HealthAnalysisScheduler.Kind.EXTERNAL_SCAN,
+                HealthAnalysisScheduler.Lane.SET_HEALTH, () -> {
+            try {
+                // 与 submitted 配对：只有 submitted 没有 started，说明任务卡在队列而非分析失败
+                if (EXTERNAL_SCAN_START_DUMPED.add(cls.getName())) {
+                    EcaLogger.info("[ExternalScan] analysis started entity={}", cls.getName());
                 }
-            });
-        } catch (Throwable t) {
-            // 提交被拒时必须让出占位，否则该类此后永远跳过外部扫描
-            EXTERNAL_SCAN_PENDING.remove(cls);
-            EcaLogger.info("[ExternalScan] analysis submit rejected entity={} type={} msg={}",
-                    cls.getName(), t.getClass().getName(), t.getMessage());
+                HealthDataflowAnalyzer.resolveExternalScanResult(cls);
+                submitMaintenanceAnalysis(cls);
+            } catch (Throwable t) {
+                dumpExternalScanFailure(cls, t);
+                if (t instanceof VirtualMachineError e) throw e;
+            }
+        });
+        if (submitted && EXTERNAL_SCAN_SUBMIT_DUMPED.add(cls.getName())) {
+            EcaLogger.info("[ExternalScan] analysis submitted entity={}", cls.getName());
         }
     }
 
@@ -477,50 +426,37 @@ public final class EcaSetHealthManager {
         submitWriterAnalysis(cls);
     }
 
+    /* Tick 与 writer 都可能命中巨型方法；作为两种独立任务并行，避免互相吞掉时间片。 */
     private static void submitTickAnalysis(Class<?> cls) {
-        if (HealthDataflowAnalyzer.isTickMaintenanceResolved(cls) || !TICK_SCAN_PENDING.add(cls)) return;
-        try {
-            TICK_ANALYSIS_EXECUTOR.submit(() -> {
-                try {
-                    HealthDataflowAnalyzer.resolveTickMaintenancePlan(cls);
-                } catch (Throwable t) {
-                    if (MAINTENANCE_SCAN_FAILURE_DUMPED.add(cls.getName() + "|tick")) {
-                        EcaLogger.info("[ExternalScan] tick analysis threw entity={} type={} msg={}",
-                                cls.getName(), t.getClass().getName(), t.getMessage());
-                    }
-                    if (t instanceof VirtualMachineError e) throw e;
-                } finally {
-                    TICK_SCAN_PENDING.remove(cls);
+        if (HealthDataflowAnalyzer.isTickMaintenanceResolved(cls)) return;
+        HealthAnalysisScheduler.submit(cls, HealthAnalysisScheduler.Kind.TICK_SCAN,
+                HealthAnalysisScheduler.Lane.MAINTENANCE, () -> {
+            try {
+                HealthDataflowAnalyzer.resolveTickMaintenancePlan(cls);
+            } catch (Throwable t) {
+                if (MAINTENANCE_SCAN_FAILURE_DUMPED.add(cls.getName() + "|tick")) {
+                    EcaLogger.info("[ExternalScan] tick analysis threw entity={} type={} msg={}",
+                            cls.getName(), t.getClass().getName(), t.getMessage());
                 }
-            });
-        } catch (Throwable t) {
-            TICK_SCAN_PENDING.remove(cls);
-            EcaLogger.info("[ExternalScan] tick submit rejected entity={} type={} msg={}",
-                    cls.getName(), t.getClass().getName(), t.getMessage());
-        }
+                if (t instanceof VirtualMachineError e) throw e;
+            }
+        });
     }
 
     private static void submitWriterAnalysis(Class<?> cls) {
-        if (HealthDataflowAnalyzer.isAuthorityMaintenanceResolved(cls) || !WRITER_SCAN_PENDING.add(cls)) return;
-        try {
-            WRITER_ANALYSIS_EXECUTOR.submit(() -> {
-                try {
-                    HealthDataflowAnalyzer.resolveAuthorityMaintenancePlan(cls);
-                } catch (Throwable t) {
-                    if (MAINTENANCE_SCAN_FAILURE_DUMPED.add(cls.getName() + "|writer")) {
-                        EcaLogger.info("[ExternalScan] writer analysis threw entity={} type={} msg={}",
-                                cls.getName(), t.getClass().getName(), t.getMessage());
-                    }
-                    if (t instanceof VirtualMachineError e) throw e;
-                } finally {
-                    WRITER_SCAN_PENDING.remove(cls);
+        if (HealthDataflowAnalyzer.isAuthorityMaintenanceResolved(cls)) return;
+        HealthAnalysisScheduler.submit(cls, HealthAnalysisScheduler.Kind.WRITER_SCAN,
+                HealthAnalysisScheduler.Lane.MAINTENANCE, () -> {
+            try {
+                HealthDataflowAnalyzer.resolveAuthorityMaintenancePlan(cls);
+            } catch (Throwable t) {
+                if (MAINTENANCE_SCAN_FAILURE_DUMPED.add(cls.getName() + "|writer")) {
+                    EcaLogger.info("[ExternalScan] writer analysis threw entity={} type={} msg={}",
+                            cls.getName(), t.getClass().getName(), t.getMessage());
                 }
-            });
-        } catch (Throwable t) {
-            WRITER_SCAN_PENDING.remove(cls);
-            EcaLogger.info("[ExternalScan] writer submit rejected entity={} type={} msg={}",
-                    cls.getName(), t.getClass().getName(), t.getMessage());
-        }
+                if (t instanceof VirtualMachineError e) throw e;
+            }
+        });
     }
 
     /* 外部扫描失败时每类记录一次异常类型、消息和有限数量的栈帧。 */
@@ -686,17 +622,56 @@ public final class EcaSetHealthManager {
     }
 
     private static HealthDataflowAnalyzer.AnalysisResult resolveTree(Class<?> cls) {
-        return DATAFLOW_TABLE.computeIfAbsent(cls, EcaSetHealthManager::analyzeForTable);
+        HealthDataflowAnalyzer.AnalysisResult cached = DATAFLOW_TABLE.get(cls);
+        if (cached != null) return cached;
+        // 该类的预热任务还在排队：就地认领执行，不另起一份分析
+        HealthAnalysisScheduler.runInline(cls, HealthAnalysisScheduler.Kind.WARMUP);
+        try {
+            return analyzeOnce(cls).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    /* 每类单飞：同一时刻只有一个线程在分析某类，其余调用方等待同一个 future。
+       分析在 DATAFLOW_TABLE 的 computeIfAbsent 之外进行，不长时间占着哈希桶锁；
+       也只有单飞的执行者会调用 analyzeForTable，ConstOverride.install 的重转换副作用每类只发生一次。 */
+    private static CompletableFuture<HealthDataflowAnalyzer.AnalysisResult> analyzeOnce(Class<?> cls) {
+        HealthDataflowAnalyzer.AnalysisResult cached = DATAFLOW_TABLE.get(cls);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        CompletableFuture<HealthDataflowAnalyzer.AnalysisResult> flight = new CompletableFuture<>();
+        CompletableFuture<HealthDataflowAnalyzer.AnalysisResult> running = ANALYSIS_IN_FLIGHT.putIfAbsent(cls, flight);
+        if (running != null) return running;
+        try {
+            // 占位前另一执行者可能刚好完成并撤下了它的占位，重查一次结果表
+            HealthDataflowAnalyzer.AnalysisResult ar = DATAFLOW_TABLE.get(cls);
+            if (ar == null) {
+                ar = analyzeForTable(cls);
+                DATAFLOW_TABLE.put(cls, ar);
+            }
+            flight.complete(ar);
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            ANALYSIS_IN_FLIGHT.remove(cls, flight);
+        }
+        return flight;
     }
 
     /* 分析并归一化为 2 态：可写结构(REAL_HEALTH 或 NOT_REAL_HEALTH 带可写源) / DATA_FLOW_ANALYZER_FAILED。
        异常、空结果、无可写源形态(无源 NOT_REAL_HEALTH/UNRESOLVED)统一记失败，避免后续重复分析。 */
     private static HealthDataflowAnalyzer.AnalysisResult analyzeForTable(Class<?> cls) {
-        HealthDataflowAnalyzer.AnalysisResult ar;
+        // 磁盘缓存命中时跳过逆向，仍走下方分类与常数覆写安装(patch 不随缓存持久化)
+        HealthDataflowAnalyzer.AnalysisResult ar = HealthAnalysisDiskCache.lookupDataflow(cls);
+        if (ar == HealthDataflowAnalyzer.AnalysisResult.DATA_FLOW_ANALYZER_FAILED) return ar;
         try {
-            ar = HealthDataflowAnalyzer.analyze(cls);
+            if (ar == null) ar = HealthDataflowAnalyzer.recordingDependencies(cls, () -> HealthDataflowAnalyzer.analyze(cls));
         } catch (Throwable t) {
             if (t instanceof VirtualMachineError e) throw e;
+            TRANSIENT_FAILURES.add(cls);
             if (!isWarmupDiagnosticsSuppressed())
                 EcaLogger.info("[HealthDataflow] analyze {} threw {} => FAILED", cls.getName(), t.toString());
             return HealthDataflowAnalyzer.AnalysisResult.DATA_FLOW_ANALYZER_FAILED;
@@ -734,56 +709,107 @@ public final class EcaSetHealthManager {
     }
 
     /* 后台预热入口：FMLLoadComplete 在所有 ECA 字节码处理之后调用。
-       复用常驻分析执行器(后台单线程)，避免阻塞主加载线程；纯分析只读，离开主线程安全。
+       枚举与逐类分析都在分析调度器的预热道上执行，避免阻塞主加载线程；纯分析只读，离开主线程安全。
        强制兼容模式下跳过预热——转换已全部禁止，数据流表无需预填。 */
     public static void startWarmup() {
         if (EcaConfiguration.getForceCompatibilityModeSafely()) return;
-        ANALYSIS_EXECUTOR.submit(EcaSetHealthManager::warmupAll);
+        HealthAnalysisScheduler.execute(HealthAnalysisScheduler.Lane.WARMUP, EcaSetHealthManager::warmupAll);
+        // 写入者倒排索引只服务外部扫描；开启时在预热道上提前消化捕获队列，首个外部扫描即可直接查表
+        if (EcaConfiguration.getAttackSetHealthEnableExternalScanSafely() && WriterSiteIndex.isInstalled()) {
+            HealthAnalysisScheduler.execute(HealthAnalysisScheduler.Lane.WARMUP, () -> {
+                long start = System.nanoTime();
+                WriterSiteIndex.drain(Long.MAX_VALUE);
+                EcaLogger.info("[ExternalScan] writer index built {} elapsedMs={}",
+                        WriterSiteIndex.stats(), (System.nanoTime() - start) / 1_000_000L);
+            });
+        }
     }
 
-    /* 遍历已加载的 LivingEntity 子类(排除 Player 与抽象类)，逐个分析填表。
-       晚加载的实体类不在此列，仍由 setHealth 时惰性补分析(computeIfAbsent 与本线程互不冲突)。 */
+    /* 遍历已加载的 LivingEntity 子类(排除 Player 与抽象类)，每类作为一个预热任务并行分析填表。
+       预热道优先级最低：加入世界或正在被改血的类随时越过排队中的预热。
+       计数从 1 起，枚举结束再减 1，保证最后一个完成者(枚举或某个类)负责收尾日志与落盘。
+       晚加载的实体类不在此列，仍由 setHealth 时惰性补分析。 */
     private static void warmupAll() {
         long startNanos = System.nanoTime();
         AtomicInteger analyzed = new AtomicInteger();
-        boolean enumerated = false;
-        WARMUP_DIAGNOSTICS_SUPPRESSED.set(true);
-        try {
-            enumerated = EcaTransformerManager.forEachLoadedClass(clazz -> {
-                warmupClass(clazz, analyzed);
+        AtomicInteger remaining = new AtomicInteger(1);
+        AtomicBoolean enumerated = new AtomicBoolean();
+        Runnable finish = () -> {
+            if (remaining.decrementAndGet() != 0) return;
+            // 预热耗时决定运行期惰性分析要顶多久；枚举失败(analyzed=0)也必须能看出来
+            EcaLogger.info("[HealthDataflow] warmup done enumerated={} analyzed={} elapsedMs={} classCache[{}]",
+                    enumerated.get(), analyzed.get(), (System.nanoTime() - startNanos) / 1_000_000L,
+                    AnalysisClassCache.stats());
+            persistAnalysisCache(false);
+        };
+        Consumer<Class<?>> schedule = clazz -> {
+            if (!isWarmupCandidate(clazz)) return;
+            remaining.incrementAndGet();
+            boolean submitted = HealthAnalysisScheduler.submit(clazz, HealthAnalysisScheduler.Kind.WARMUP,
+                    HealthAnalysisScheduler.Lane.WARMUP, () -> {
+                try {
+                    warmupClass(clazz, analyzed);
+                } finally {
+                    finish.run();
+                }
             });
-            if (!enumerated) {
-                enumerated = EcaTransformerManager.forEachLoadedInternalName(info -> {
+            if (!submitted) remaining.decrementAndGet();
+        };
+        try {
+            enumerated.set(EcaTransformerManager.forEachLoadedClass(schedule));
+            if (!enumerated.get()) {
+                enumerated.set(EcaTransformerManager.forEachLoadedInternalName(info -> {
                     if (info == null || !info.modifiable() || !info.livingEntity()) return;
                     Class<?> clazz = HealthDataflowAnalyzer.loadClass(info.internalName());
                     if (clazz == null) return;
-                    warmupClass(clazz, analyzed);
-                });
+                    schedule.accept(clazz);
+                }));
             }
         } finally {
-            WARMUP_DIAGNOSTICS_SUPPRESSED.remove();
+            finish.run();
         }
-        // 预热耗时决定运行期惰性分析要顶多久；枚举失败(analyzed=0)也必须能看出来
-        EcaLogger.info("[HealthDataflow] warmup done enumerated={} analyzed={} elapsedMs={}",
-                enumerated, analyzed.get(), (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+
+    /* 把本会话的分析表写回磁盘缓存：预热结束与服务器停止各写一次，后者补上运行期惰性分析与外部扫描的结果。
+       只在调用线程上编码新增分段，写文件在磁盘缓存自己的写盘线程上完成；停服时等写盘结束(有上限)，
+       写盘线程是守护线程，JVM 退出不会等它。 */
+    private static void persistAnalysisCache(boolean waitForWrite) {
+        try {
+            Map<Class<?>, HealthDataflowAnalyzer.AnalysisResult> snapshot = new HashMap<>(DATAFLOW_TABLE);
+            snapshot.keySet().removeAll(TRANSIENT_FAILURES);
+            if (waitForWrite) {
+                HealthAnalysisDiskCache.saveAndWait(snapshot);
+            } else {
+                HealthAnalysisDiskCache.save(snapshot);
+            }
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError e) throw e;
+            EcaLogger.warn("[HealthDataflow] persist analysis cache failed: {}", t.toString());
+        }
+    }
+
+    private static boolean isWarmupCandidate(Class<?> clazz) {
+        if (clazz == null) return false;
+        if (!LivingEntity.class.isAssignableFrom(clazz)) return false;
+        if (Player.class.isAssignableFrom(clazz)) return false;
+        if (Modifier.isAbstract(clazz.getModifiers())) return false;
+        return !DATAFLOW_TABLE.containsKey(clazz);
     }
 
     private static void warmupClass(Class<?> clazz, AtomicInteger analyzed) {
-        if (clazz == null) return;
-        if (!LivingEntity.class.isAssignableFrom(clazz)) return;
-        if (Player.class.isAssignableFrom(clazz)) return;
-        if (Modifier.isAbstract(clazz.getModifiers())) return;
         if (DATAFLOW_TABLE.containsKey(clazz)) return;
+        WARMUP_DIAGNOSTICS_SUPPRESSED.set(true);
         try {
             /* 只做数据流逆向与桥接安装：二者挡的是运行期首次改血在服务器线程上的同步分析。
-               外部扫描改由实体加入世界时触发，按已加载类顺序盲扫命中率过低。 */
-            resolveTree(clazz);
+               外部扫描改由实体加入世界时触发，按已加载类顺序盲扫命中率过低。
+               与改血线程经同一单飞入口：对方已在分析时只等待其结果。 */
+            analyzeOnce(clazz).join();
             installMethodBridgeOnce(clazz);
             analyzed.incrementAndGet();
         } catch (Throwable t) {
             if (t instanceof VirtualMachineError e) throw e;
-            if (!isWarmupDiagnosticsSuppressed())
-                EcaLogger.info("[HealthDataflow] warmup analyze {} failed: {}", clazz.getName(), t.toString());
+        } finally {
+            WARMUP_DIAGNOSTICS_SUPPRESSED.remove();
         }
     }
 
@@ -1073,10 +1099,14 @@ public final class EcaSetHealthManager {
 
     /* 服务器停止时清除所有缓存与状态，确保热重载后从干净状态开始。 */
     public static void clear() {
+        persistAnalysisCache(true);
+        HealthAnalysisDiskCache.endSession();
         DATAFLOW_TABLE.clear();
-        EXTERNAL_SCAN_PENDING.clear();
-        TICK_SCAN_PENDING.clear();
-        WRITER_SCAN_PENDING.clear();
+        TRANSIENT_FAILURES.clear();
+        HealthAnalysisScheduler.clearPending();
+        AnalysisClassCache.clear();
+        EcaLogger.info("[HealthCompile] session stats {}", CompiledExprEvaluator.stats());
+        CompiledExprEvaluator.clear();
         MAINTENANCE_SCAN_FAILURE_DUMPED.clear();
         HealthDataflowAnalyzer.clearMaintenancePlans();
         EXTERNAL_SCAN_SUBMIT_DUMPED.clear();
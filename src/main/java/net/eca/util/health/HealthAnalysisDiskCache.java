@@ -0,0 +1,1218 @@
+package net.eca.util.health;
+
+import net.eca.config.EcaConfiguration;
+import net.eca.util.EcaLogger;
+import net.minecraft.network.syncher.EntityDataAccessor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * 血量分析磁盘缓存：把数据流主表、语义外部扫描、维护写集与死亡门控按实体类落盘，
+ * 下次启动时在分析缺失处直接还原，未改动的整合包预热只剩读盘与摘要比对。
+ * 条目以"类自身 + 整条超类链 + 分析期间读过的全部类(被内联的 helper、被调用方)的运行期字节码摘要"为键，
+ * 任一依赖的字节码变化或分析器版本升级即整条作废。
+ * 表达式树里引用的运行期对象(accessor、静态常量、反射句柄)一律按符号坐标编码、还原时重新解析；
+ * 无法符号化的节点使所在分段整段不落盘，宁可重分析也不还原出残缺结构。
+ */
+public final class HealthAnalysisDiskCache {
+
+    private HealthAnalysisDiskCache() {}
+
+    /* 分析器语义变化(新增 Source 类型、改写规则、预算)时必须递增，旧缓存整体失效。 */
+    static final int ANALYZER_VERSION = 1;
+
+    private static final int MAGIC = 0x45434148;       // "ECAH"
+    private static final int FORMAT_VERSION = 2;
+    private static final Path CACHE_FILE = Paths.get("config", "eca", "cache", "health-analysis.bin");
+
+    private static final byte SECTION_END = 0;
+    private static final byte SECTION_DATAFLOW = 1;
+    private static final byte SECTION_EXTERNAL_SCAN = 2;
+    private static final byte SECTION_MAINTENANCE = 3;
+    private static final byte SECTION_DEATH_GATE = 4;
+
+    /* 单棵表达式编码节点上限：超出视为异常膨胀的树，不值得落盘。 */
+    private static final int MAX_ENCODED_NODES = 200_000;
+
+    /* 单类字节码摘要缓存上限：依赖摘要在大量实体类之间共享(LivingEntity、Mob 等)，按访问序淘汰冷门类。 */
+    private static final int MAX_CACHED_DIGESTS = 4096;
+
+    /* 已读入但尚未消费的条目：按类名索引，分段保持编码态，首次查询时才解码。
+       dependencies 为分析期间读过的类名；verified 表示本会话已按当前字节码核对过键，后续分段查询不再重算。 */
+    private record Entry(long digestHigh, long digestLow, List<String> dependencies,
+                         Map<Byte, byte[]> sections, boolean verified) {
+        Entry asVerified() {
+            return verified ? this : new Entry(digestHigh, digestLow, dependencies, sections, true);
+        }
+    }
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    /* 单类运行期字节码摘要；字节码在会话内不变。有界 LRU，访问需持有自身锁。 */
+    private static final Map<Class<?>, long[]> DIGESTS = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Class<?>, long[]> eldest) {
+            return size() > MAX_CACHED_DIGESTS;
+        }
+    };
+    /* 本会话已导出的分段位图：会话内分析结果只增不改，已导出的分段不必在下次保存时重编码。 */
+    private static final Map<Class<?>, Integer> EXPORTED_SECTIONS = new ConcurrentHashMap<>();
+    private static volatile boolean loaded = false;
+    /* 自上次写盘以来 ENTRIES 是否有变化；无变化时停服不再写文件。 */
+    private static volatile boolean dirty = false;
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder STALE = new LongAdder();
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        // 守护线程：空闲的写盘线程不能阻止 JVM 退出。停服写盘由 saveAndWait 等待完成；
+        // 写临时文件后原子替换，超时或被强杀也不会留下半截缓存
+        Thread thread = new Thread(runnable, "ECA-Health-Cache-Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /* 停服时等待写盘的上限；超时只记日志，盘上仍是上一份完整缓存。 */
+    private static final long SHUTDOWN_WRITE_TIMEOUT_SECONDS = 10;
+    private static final AtomicBoolean WRITE_QUEUED = new AtomicBoolean();
+
+    /* ==================== 查询入口(缓存缺失时由各分析表调用) ==================== */
+
+    /* 死亡门控的落盘视图：gate 为 null 表示已分析且无门控。 */
+    record PersistedDeathGate(HealthDataflowAnalyzer.DeathGate gate) {}
+
+    /* 数据流主表还原：返回 FAILED 哨兵表示上次分析即失败，null 表示无可用缓存。 */
+    static HealthDataflowAnalyzer.AnalysisResult lookupDataflow(Class<?> cls) {
+        byte[] section = section(cls, SECTION_DATAFLOW);
+        if (section == null) return null;
+        return decode(cls, section, codec -> {
+            if (codec.in.readBoolean()) return HealthDataflowAnalyzer.AnalysisResult.DATA_FLOW_ANALYZER_FAILED;
+            return codec.readResult();
+        });
+    }
+
+    static HealthDataflowAnalyzer.PersistedExternalScan lookupExternalScan(Class<?> cls) {
+        byte[] section = section(cls, SECTION_EXTERNAL_SCAN);
+        if (section == null) return null;
+        return decode(cls, section, codec -> {
+            HealthDataflowAnalyzer.AnalysisResult result = codec.in.readBoolean() ? codec.readResult() : null;
+            List<HealthDataflowAnalyzer.Source> authorities = codec.readSources();
+            Set<String> fieldKeys = codec.readStringSet();
+            Set<String> accessorKeys = codec.readStringSet();
+            Set<String> nbtKeys = codec.readStringSet();
+            boolean usable = codec.in.readBoolean();
+            return new HealthDataflowAnalyzer.PersistedExternalScan(result, authorities,
+                    fieldKeys, accessorKeys, nbtKeys, usable);
+        });
+    }
+
+    static HealthDataflowAnalyzer.PersistedMaintenance lookupMaintenance(Class<?> cls) {
+        byte[] section = section(cls, SECTION_MAINTENANCE);
+        if (section == null) return null;
+        return decode(cls, section, codec -> new HealthDataflowAnalyzer.PersistedMaintenance(
+                codec.readStoreWrites(), codec.readStoreWrites()));
+    }
+
+    static PersistedDeathGate lookupDeathGate(Class<?> cls) {
+        byte[] section = section(cls, SECTION_DEATH_GATE);
+        if (section == null) return null;
+        return decode(cls, section, codec -> {
+            if (!codec.in.readBoolean()) return new PersistedDeathGate(null);
+            Field field = codec.readField();
+            Method encoder = codec.readMethod();
+            Method decoder = codec.readMethod();
+            boolean deathValue = codec.in.readBoolean();
+            return new PersistedDeathGate(new HealthDataflowAnalyzer.DeathGate(field, encoder, decoder, deathValue));
+        });
+    }
+
+    private static boolean enabled() {
+        return EcaConfiguration.getAttackPersistAnalysisCacheSafely();
+    }
+
+    // 取该类条目的指定分段；摘要不符的条目当场整条作废
+    private static byte[] section(Class<?> cls, byte tag) {
+        if (cls == null || !enabled() || !isPersistableClass(cls)) return null;
+        ensureLoaded();
+        Entry entry = ENTRIES.get(cls.getName());
+        if (entry == null) return null;
+        if (!entry.verified()) {
+            if (!matchesRuntime(cls, entry)) {
+                if (ENTRIES.remove(cls.getName(), entry)) {
+                    STALE.increment();
+                    dirty = true;
+                }
+                return null;
+            }
+            Entry verified = entry.asVerified();
+            ENTRIES.replace(cls.getName(), entry, verified);
+            entry = verified;
+        }
+        return entry.sections().get(tag);
+    }
+
+    private static boolean matchesRuntime(Class<?> cls, Entry entry) {
+        long[] digest = digest(cls, resolveDependencies(cls, entry.dependencies()));
+        return digest != null && digest[0] == entry.digestHigh() && digest[1] == entry.digestLow();
+    }
+
+    private interface SectionReader<T> {
+        T read(Codec codec) throws IOException;
+    }
+
+    private static <T> T decode(Class<?> cls, byte[] section, SectionReader<T> reader) {
+        try {
+            T value = reader.read(new Codec(cls, new DataInputStream(new ByteArrayInputStream(section))));
+            HITS.increment();
+            return value;
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError e) throw e;
+            // 还原不出来(字段改名、类缺失)等同于失效：丢弃整条，交回现场分析
+            if (ENTRIES.remove(cls.getName()) != null) dirty = true;
+            STALE.increment();
+            return null;
+        }
+    }
+
+    /* 隐藏类名每次启动都不同，匿名/本地类也没有稳定名，均不落盘。 */
+    private static boolean isPersistableClass(Class<?> cls) {
+        return cls.getClassLoader() != null && !cls.isHidden() && cls.getName().indexOf("/0x") < 0;
+    }
+
+    /* ==================== 摘要 ==================== */
+
+    /* 条目键：自身到 Object 之前的每个超类，再加按名排序的分析依赖，逐个混入"类名 + 单类字节码摘要"，最后混入分析器版本。
+       dependencies 为 null 表示有依赖无法解析(已卸载或改名)，任一层字节码缺失同样不参与缓存，避免拿不完整的链当键。 */
+    private static long[] digest(Class<?> cls, Collection<Class<?>> dependencies) {
+        if (dependencies == null) return null;
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+                if (!mixClass(sha, c)) return null;
+            }
+            List<Class<?>> sorted = new ArrayList<>(dependencies);
+            sorted.sort(Comparator.comparing(Class::getName));
+            for (Class<?> dependency : sorted) {
+                if (!mixClass(sha, dependency)) return null;
+            }
+            sha.update((byte) ANALYZER_VERSION);
+            sha.update((byte) (ANALYZER_VERSION >>> 8));
+            return toLongs(sha.digest());
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError e) throw e;
+            return null;
+        }
+    }
+
+    private static boolean mixClass(MessageDigest sha, Class<?> c) {
+        sha.update(c.getName().getBytes(StandardCharsets.UTF_8));
+        // 启动类加载器的 JDK 类随运行时版本变化，取不到字节码时以版本号代替
+        if (c.getClassLoader() == null) {
+            sha.update(Runtime.version().toString().getBytes(StandardCharsets.UTF_8));
+            return true;
+        }
+        long[] single = classDigest(c);
+        if (single == null) return false;
+        for (long part : single) {
+            for (int shift = 56; shift >= 0; shift -= 8) sha.update((byte) (part >>> shift));
+        }
+        return true;
+    }
+
+    private static long[] classDigest(Class<?> c) {
+        synchronized (DIGESTS) {
+            long[] cached = DIGESTS.get(c);
+            if (cached != null) return cached;
+        }
+        byte[] bytes = HealthDataflowAnalyzer.untrackedClassBytes(c);
+        if (bytes == null) return null;
+        try {
+            long[] digest = toLongs(MessageDigest.getInstance("SHA-256").digest(bytes));
+            synchronized (DIGESTS) {
+                DIGESTS.put(c, digest);
+            }
+            return digest;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static long[] toLongs(byte[] out) {
+        long high = 0L;
+        long low = 0L;
+        for (int i = 0; i < 8; i++) high = (high << 8) | (out[i] & 0xFF);
+        for (int i = 8; i < 16; i++) low = (low << 8) | (out[i] & 0xFF);
+        return new long[]{high, low};
+    }
+
+    // 按类名重新解析盘上记录的依赖；任一无法解析返回 null，条目随之作废
+    private static List<Class<?>> resolveDependencies(Class<?> cls, List<String> names) {
+        List<Class<?>> resolved = new ArrayList<>(names.size());
+        for (String name : names) {
+            Class<?> dependency;
+            try {
+                dependency = Class.forName(name, false, cls.getClassLoader());
+            } catch (Throwable t) {
+                if (t instanceof VirtualMachineError e) throw e;
+                dependency = HealthDataflowAnalyzer.loadClass(name.replace('.', '/'));
+            }
+            if (dependency == null) return null;
+            resolved.add(dependency);
+        }
+        return resolved;
+    }
+
+    /* 本会话记录的依赖并上盘上同摘要旧条目的依赖(部分分段沿用旧结果时其依赖仍然有效)；含无稳定名的类时返回 null。 */
+    private static List<Class<?>> collectDependencies(Class<?> cls, Entry previous) {
+        Set<Class<?>> dependencies = new LinkedHashSet<>(HealthDataflowAnalyzer.analysisDependencies(cls));
+        if (previous != null) {
+            List<Class<?>> carried = resolveDependencies(cls, previous.dependencies());
+            if (carried == null) return null;
+            dependencies.addAll(carried);
+        }
+        for (Class<?> dependency : dependencies) {
+            if (!isPersistableClass(dependency) && dependency.getClassLoader() != null) return null;
+        }
+        return new ArrayList<>(dependencies);
+    }
+
+    /* ==================== 读写文件 ==================== */
+
+    private static void ensureLoaded() {
+        if (loaded) return;
+        synchronized (HealthAnalysisDiskCache.class) {
+            if (loaded) return;
+            loaded = true;
+            load();
+        }
+    }
+
+    private static void load() {
+        if (!Files.isRegularFile(CACHE_FILE)) return;
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(CACHE_FILE)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != ANALYZER_VERSION) {
+                EcaLogger.info("[HealthCache] cache format or analyzer version changed, discarding {}", CACHE_FILE);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                long high = in.readLong();
+                long low = in.readLong();
+                int dependencyCount = in.readInt();
+                List<String> dependencies = new ArrayList<>(dependencyCount);
+                for (int d = 0; d < dependencyCount; d++) dependencies.add(in.readUTF());
+                Map<Byte, byte[]> sections = new HashMap<>();
+                for (byte tag = in.readByte(); tag != SECTION_END; tag = in.readByte()) {
+                    byte[] payload = new byte[in.readInt()];
+                    in.readFully(payload);
+                    sections.put(tag, payload);
+                }
+                ENTRIES.put(className, new Entry(high, low, List.copyOf(dependencies), sections, false));
+            }
+            EcaLogger.info("[HealthCache] loaded entries={} elapsedMs={}",
+                    count, (System.nanoTime() - start) / 1_000_000L);
+        } catch (IOException | RuntimeException e) {
+            ENTRIES.clear();
+            EcaLogger.warn("[HealthCache] failed to read {} reason={}", CACHE_FILE, e.toString());
+        }
+    }
+
+    /* 导出本会话的分析表并与盘上未触及的条目合并写回。未触及条目保留：同一配置目录可能服务多个整合包/存档，
+       本会话未加载的类不代表已失效。
+       导出在调用线程上进行，但只编码本会话尚未导出过的分段，预热结束写过一次后停服只剩增量；
+       写文件交给单独的写盘线程，save 不等待磁盘 IO。 */
+    public static void save(Map<Class<?>, HealthDataflowAnalyzer.AnalysisResult> dataflowTable) {
+        if (!enabled()) return;
+        ensureLoaded();
+        queueWrite(dataflowTable);
+    }
+
+    /* 停服路径：同 save，但等写盘线程上已排队的写入(含本次)完成，最多 SHUTDOWN_WRITE_TIMEOUT_SECONDS 秒。 */
+    public static void saveAndWait(Map<Class<?>, HealthDataflowAnalyzer.AnalysisResult> dataflowTable) {
+        if (!enabled()) return;
+        ensureLoaded();
+        queueWrite(dataflowTable);
+        // 单线程执行器按提交顺序执行：空任务完成即说明之前排队与进行中的写入都已结束
+        Future<?> barrier = WRITER.submit(() -> {});
+        try {
+            barrier.get(SHUTDOWN_WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            EcaLogger.warn("[HealthCache] write to {} did not finish within {}s, keeping the previous file",
+                    CACHE_FILE, SHUTDOWN_WRITE_TIMEOUT_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            EcaLogger.warn("[HealthCache] failed to wait for write reason={}", e.getCause().toString());
+        }
+    }
+
+    private static void queueWrite(Map<Class<?>, HealthDataflowAnalyzer.AnalysisResult> dataflowTable) {
+        int exported;
+        synchronized (HealthAnalysisDiskCache.class) {
+            exported = exportSession(dataflowTable);
+        }
+        if (!dirty) return;
+        if (WRITE_QUEUED.compareAndSet(false, true)) {
+            int exportedCount = exported;
+            WRITER.execute(() -> {
+                WRITE_QUEUED.set(false);
+                writeFile(exportedCount);
+            });
+        }
+    }
+
+    private static int exportSession(Map<Class<?>, HealthDataflowAnalyzer.AnalysisResult> dataflowTable) {
+        Set<Class<?>> classes = new LinkedHashSet<>(dataflowTable.keySet());
+        classes.addAll(HealthDataflowAnalyzer.externalScanClasses());
+        classes.addAll(HealthDataflowAnalyzer.deathGateClasses());
+        int exported = 0;
+        for (Class<?> cls : classes) {
+            if (cls == null || !isPersistableClass(cls)) continue;
+            int done = EXPORTED_SECTIONS.getOrDefault(cls, 0);
+            Map<Byte, byte[]> fresh = new HashMap<>();
+            if ((done & bit(SECTION_DATAFLOW)) == 0) putSection(fresh, SECTION_DATAFLOW, encode(cls, codec -> {
+                HealthDataflowAnalyzer.AnalysisResult result = dataflowTable.get(cls);
+                if (result == null) return false;
+                boolean failed = result == HealthDataflowAnalyzer.AnalysisResult.DATA_FLOW_ANALYZER_FAILED;
+                codec.out.writeBoolean(failed);
+                if (!failed) codec.writeResult(result);
+                return true;
+            }));
+            if ((done & bit(SECTION_EXTERNAL_SCAN)) == 0) putSection(fresh, SECTION_EXTERNAL_SCAN, encode(cls, codec -> {
+                HealthDataflowAnalyzer.PersistedExternalScan scan = HealthDataflowAnalyzer.exportExternalScan(cls);
+                if (scan == null) return false;
+                codec.out.writeBoolean(scan.result() != null);
+                if (scan.result() != null) codec.writeResult(scan.result());
+                codec.writeSources(scan.observedAuthorities());
+                codec.writeStringSet(scan.fieldKeys());
+                codec.writeStringSet(scan.accessorKeys());
+                codec.writeStringSet(scan.nbtKeys());
+                codec.out.writeBoolean(scan.usable());
+                return true;
+            }));
+            if ((done & bit(SECTION_MAINTENANCE)) == 0) putSection(fresh, SECTION_MAINTENANCE, encode(cls, codec -> {
+                HealthDataflowAnalyzer.PersistedMaintenance maintenance = HealthDataflowAnalyzer.exportMaintenance(cls);
+                if (maintenance == null) return false;
+                codec.writeStoreWrites(maintenance.tickWrites());
+                codec.writeStoreWrites(maintenance.authorityWrites());
+                return true;
+            }));
+            if ((done & bit(SECTION_DEATH_GATE)) == 0) putSection(fresh, SECTION_DEATH_GATE, encode(cls, codec -> {
+                HealthDataflowAnalyzer.DeathGate gate = HealthDataflowAnalyzer.exportDeathGate(cls);
+                if (gate == null) return false;
+                codec.out.writeBoolean(gate.field() != null);
+                if (gate.field() == null) return true;
+                codec.writeField(gate.field());
+                codec.writeMethod(gate.encoder());
+                codec.writeMethod(gate.decoder());
+                codec.out.writeBoolean(gate.deathValue());
+                return true;
+            }));
+            if (fresh.isEmpty()) continue;
+
+            // 键随依赖增长：重新汇总依赖并计算摘要，同摘要旧条目里本会话未重算的分段(如未触发的外部扫描)原样保留
+            Entry previous = ENTRIES.get(cls.getName());
+            if (previous != null && !previous.verified() && !matchesRuntime(cls, previous)) previous = null;
+            List<Class<?>> dependencies = collectDependencies(cls, previous);
+            long[] digest = digest(cls, dependencies);
+            if (digest == null) continue;
+            Map<Byte, byte[]> sections = new HashMap<>();
+            if (previous != null) sections.putAll(previous.sections());
+            sections.putAll(fresh);
+            List<String> dependencyNames = new ArrayList<>(dependencies.size());
+            for (Class<?> dependency : dependencies) dependencyNames.add(dependency.getName());
+            ENTRIES.put(cls.getName(), new Entry(digest[0], digest[1], List.copyOf(dependencyNames), sections, true));
+            int mask = done;
+            for (byte tag : fresh.keySet()) mask |= bit(tag);
+            EXPORTED_SECTIONS.put(cls, mask);
+            dirty = true;
+            exported++;
+        }
+        return exported;
+    }
+
+    /* 会话结束：丢弃导出位图与单类摘要，不让已卸载的类(整合服退回标题画面后)被强引用住。 */
+    public static void endSession() {
+        EXPORTED_SECTIONS.clear();
+        synchronized (DIGESTS) {
+            DIGESTS.clear();
+        }
+    }
+
+    private static int bit(byte tag) {
+        return 1 << tag;
+    }
+
+    private static void writeFile(int exported) {
+        long start = System.nanoTime();
+        Path temporary = CACHE_FILE.resolveSibling("health-analysis.bin.tmp");
+        try {
+            dirty = false;
+            Files.createDirectories(CACHE_FILE.getParent());
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(ANALYZER_VERSION);
+                List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(ENTRIES.entrySet());
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> item : snapshot) {
+                    Entry entry = item.getValue();
+                    out.writeUTF(item.getKey());
+                    out.writeLong(entry.digestHigh());
+                    out.writeLong(entry.digestLow());
+                    out.writeInt(entry.dependencies().size());
+                    for (String dependency : entry.dependencies()) out.writeUTF(dependency);
+                    for (Map.Entry<Byte, byte[]> section : entry.sections().entrySet()) {
+                        out.writeByte(section.getKey());
+                        out.writeInt(section.getValue().length);
+                        out.write(section.getValue());
+                    }
+                    out.writeByte(SECTION_END);
+                }
+            }
+            Files.move(temporary, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            EcaLogger.info("[HealthCache] saved entries={} exported={} hits={} stale={} elapsedMs={}",
+                    ENTRIES.size(), exported, HITS.sum(), STALE.sum(), (System.nanoTime() - start) / 1_000_000L);
+        } catch (IOException | RuntimeException e) {
+            dirty = true;
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // 临时文件会在下次保存时覆盖。
+            }
+            EcaLogger.warn("[HealthCache] failed to write {} reason={}", CACHE_FILE, e.toString());
+        }
+    }
+
+    private static void putSection(Map<Byte, byte[]> sections, byte tag, byte[] payload) {
+        if (payload != null) sections.put(tag, payload);
+    }
+
+    private interface SectionWriter {
+        boolean write(Codec codec) throws IOException;
+    }
+
+    // 返回 null 表示该分段无数据或含不可落盘节点；旧分段(若有)随之保留或缺省
+    private static byte[] encode(Class<?> cls, SectionWriter writer) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try {
+            if (!writer.write(new Codec(cls, new DataOutputStream(buffer)))) return null;
+            return buffer.toByteArray();
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError e) throw e;
+            return null;
+        }
+    }
+
+    /* ==================== 表达式编解码 ==================== */
+
+    /* 栈关闭的控制流异常：遇到无法符号化的节点时中止当前分段。 */
+    private static final class Unpersistable extends IOException {
+        private static final Unpersistable INSTANCE = new Unpersistable();
+
+        private Unpersistable() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /* 单分段编解码会话：字符串与节点各自维护回指表。节点回指保证共享子树还原后仍是同一实例——
+       ChainedFieldSource/MapEntrySource 等按根表达式身份判等，拆成副本会让同一存储被当作两个源。 */
+    private static final class Codec {
+        private static final byte NULL = 0;
+        private static final byte BACKREF = 1;
+        private static final byte PRIMITIVE = 2;
+        private static final byte REFERENCE = 3;
+        private static final byte OP = 4;
+        private static final byte CALL = 5;
+        private static final byte CLOSURE = 6;
+        private static final byte STORE_WRITE = 7;
+        private static final byte WRITE_INPUT = 8;
+        private static final byte ARRAY_ALLOC = 9;
+        private static final byte OPTIONAL_CONTENT = 10;
+        private static final byte CHOICE = 11;
+        private static final byte UNKNOWN = 12;
+        private static final byte ENTITY_PARAM = 13;
+        private static final byte FIELD_CHAIN = 20;
+        private static final byte CONST_OVERRIDE = 21;
+        private static final byte STATIC_FIELD = 22;
+        private static final byte CHAINED_FIELD = 23;
+        private static final byte CAPABILITY = 24;
+        private static final byte SYNCHED = 25;
+        private static final byte MAP_ENTRY = 26;
+        private static final byte ARRAY_ELEMENT = 27;
+        private static final byte METHOD_CALL = 28;
+
+        private static final byte REF_NULL = 0;
+        private static final byte REF_STRING = 1;
+        private static final byte REF_NUMBER = 2;
+        private static final byte REF_BOOLEAN = 3;
+        private static final byte REF_CHAR = 4;
+        private static final byte REF_CLASS = 5;
+        private static final byte REF_ENUM = 6;
+        private static final byte REF_STATIC_FIELD = 7;
+
+        private final Class<?> entityClass;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final Map<String, Integer> writtenStrings = new HashMap<>();
+        private final List<String> readStrings = new ArrayList<>();
+        private final Map<HealthDataflowAnalyzer.Expr, Integer> writtenNodes = new IdentityHashMap<>();
+        private final List<HealthDataflowAnalyzer.Expr> readNodes = new ArrayList<>();
+        private int nodeCount;
+
+        Codec(Class<?> entityClass, DataOutputStream out) {
+            this.entityClass = entityClass;
+            this.out = out;
+            this.in = null;
+        }
+
+        Codec(Class<?> entityClass, DataInputStream in) {
+            this.entityClass = entityClass;
+            this.out = null;
+            this.in = in;
+        }
+
+        /* ---------- 复合结构 ---------- */
+
+        void writeResult(HealthDataflowAnalyzer.AnalysisResult result) throws IOException {
+            writeExpr(result.returnExpr);
+            writeSources(result.sources);
+            writeString(result.definingClass == null ? null : result.definingClass.getName().replace('.', '/'));
+        }
+
+        HealthDataflowAnalyzer.AnalysisResult readResult() throws IOException {
+            HealthDataflowAnalyzer.Expr expr = readExpr();
+            List<HealthDataflowAnalyzer.Source> sources = readSources();
+            String definingClass = readString();
+            Class<?> owner = definingClass == null ? null : requireClass(definingClass);
+            return HealthDataflowAnalyzer.AnalysisResult.restore(expr, sources, owner);
+        }
+
+        void writeSources(List<HealthDataflowAnalyzer.Source> sources) throws IOException {
+            out.writeInt(sources.size());
+            for (HealthDataflowAnalyzer.Source source : sources) writeExpr(source);
+        }
+
+        List<HealthDataflowAnalyzer.Source> readSources() throws IOException {
+            int size = in.readInt();
+            List<HealthDataflowAnalyzer.Source> sources = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) sources.add(readSource());
+            return List.copyOf(sources);
+        }
+
+        void writeStoreWrites(List<HealthDataflowAnalyzer.StoreWrite> writes) throws IOException {
+            out.writeInt(writes.size());
+            for (HealthDataflowAnalyzer.StoreWrite write : writes) writeExpr(write);
+        }
+
+        List<HealthDataflowAnalyzer.StoreWrite> readStoreWrites() throws IOException {
+            int size = in.readInt();
+            List<HealthDataflowAnalyzer.StoreWrite> writes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                if (!(readExpr() instanceof HealthDataflowAnalyzer.StoreWrite write)) throw Unpersistable.INSTANCE;
+                writes.add(write);
+            }
+            return List.copyOf(writes);
+        }
+
+        void writeStringSet(Set<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) writeString(value);
+        }
+
+        Set<String> readStringSet() throws IOException {
+            int size = in.readInt();
+            Set<String> values = new LinkedHashSet<>();
+            for (int i = 0; i < size; i++) values.add(readString());
+            return Set.copyOf(values);
+        }
+
+        /* ---------- 表达式 ---------- */
+
+        void writeExpr(HealthDataflowAnalyzer.Expr expr) throws IOException {
+            if (expr == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            if (expr == HealthDataflowAnalyzer.entityParamMarker()) {
+                out.writeByte(ENTITY_PARAM);
+                return;
+            }
+            Integer backref = writtenNodes.get(expr);
+            if (backref != null) {
+                out.writeByte(BACKREF);
+                out.writeInt(backref);
+                return;
+            }
+            if (++nodeCount > MAX_ENCODED_NODES) throw Unpersistable.INSTANCE;
+            if (expr instanceof HealthDataflowAnalyzer.Primitive p) {
+                out.writeByte(PRIMITIVE);
+                writeNumber(p.value());
+                out.writeChar(p.jvmType());
+                writeProvenance(p.origin());
+            } else if (expr instanceof HealthDataflowAnalyzer.Reference r) {
+                out.writeByte(REFERENCE);
+                writeReferenceValue(r);
+                writeString(r.className());
+            } else if (expr instanceof HealthDataflowAnalyzer.Op op) {
+                out.writeByte(OP);
+                out.writeInt(op.opcode());
+                writeExprs(op.args());
+            } else if (expr instanceof HealthDataflowAnalyzer.Call call) {
+                out.writeByte(CALL);
+                writeString(call.owner());
+                writeString(call.name());
+                writeString(call.desc());
+                writeExprs(call.args());
+            } else if (expr instanceof HealthDataflowAnalyzer.Closure closure) {
+                out.writeByte(CLOSURE);
+                writeHandle(closure.implementation());
+                writeString(closure.samName());
+                writeString(closure.samDesc());
+                writeExprs(closure.captured());
+            } else if (expr instanceof HealthDataflowAnalyzer.StoreWrite write) {
+                out.writeByte(STORE_WRITE);
+                writeExpr(write.sink());
+                writeExpr(write.valueExpr());
+            } else if (expr instanceof HealthDataflowAnalyzer.WriteInput input) {
+                out.writeByte(WRITE_INPUT);
+                out.writeInt(input.index());
+                out.writeChar(input.jvmType());
+            } else if (expr instanceof HealthDataflowAnalyzer.ArrayAllocExpr alloc) {
+                out.writeByte(ARRAY_ALLOC);
+                out.writeInt(alloc.id());
+            } else if (expr instanceof HealthDataflowAnalyzer.OptionalContentExpr optional) {
+                out.writeByte(OPTIONAL_CONTENT);
+                writeExpr(optional.optionalExpr());
+            } else if (expr instanceof HealthDataflowAnalyzer.Choice choice) {
+                out.writeByte(CHOICE);
+                writeExprs(choice.alternatives());
+            } else if (expr instanceof HealthDataflowAnalyzer.UnknownExpr unknown) {
+                out.writeByte(UNKNOWN);
+                writeString(unknown.provenance());
+            } else if (expr instanceof HealthDataflowAnalyzer.Source source) {
+                writeSource(source);
+            } else {
+                throw Unpersistable.INSTANCE;
+            }
+            writtenNodes.put(expr, writtenNodes.size());
+        }
+
+        HealthDataflowAnalyzer.Expr readExpr() throws IOException {
+            byte tag = in.readByte();
+            HealthDataflowAnalyzer.Expr expr;
+            switch (tag) {
+                case NULL -> { return null; }
+                case ENTITY_PARAM -> { return HealthDataflowAnalyzer.entityParamMarker(); }
+                case BACKREF -> {
+                    int index = in.readInt();
+                    if (index < 0 || index >= readNodes.size()) throw Unpersistable.INSTANCE;
+                    return readNodes.get(index);
+                }
+                case PRIMITIVE -> {
+                    Number value = readNumber();
+                    char jvmType = in.readChar();
+                    expr = new HealthDataflowAnalyzer.Primitive(value, jvmType, readProvenance());
+                }
+                case REFERENCE -> {
+                    Object value = readReferenceValue();
+                    expr = new HealthDataflowAnalyzer.Reference(value, readString());
+                }
+                case OP -> {
+                    int opcode = in.readInt();
+                    expr = new HealthDataflowAnalyzer.Op(opcode, readExprs());
+                }
+                case CALL -> {
+                    String owner = readString();
+                    String name = readString();
+                    String desc = readString();
+                    expr = new HealthDataflowAnalyzer.Call(owner, name, desc, readExprs());
+                }
+                case CLOSURE -> {
+                    Handle handle = readHandle();
+                    String samName = readString();
+                    String samDesc = readString();
+                    expr = new HealthDataflowAnalyzer.Closure(handle, samName, samDesc, readExprs());
+                }
+                case STORE_WRITE -> {
+                    HealthDataflowAnalyzer.Source sink = readSource();
+                    expr = new HealthDataflowAnalyzer.StoreWrite(sink, readExpr());
+                }
+                case WRITE_INPUT -> {
+                    int index = in.readInt();
+                    expr = new HealthDataflowAnalyzer.WriteInput(index, in.readChar());
+                }
+                case ARRAY_ALLOC -> expr = new HealthDataflowAnalyzer.ArrayAllocExpr(in.readInt());
+                case OPTIONAL_CONTENT -> expr = new HealthDataflowAnalyzer.OptionalContentExpr(readExpr());
+                case CHOICE -> expr = new HealthDataflowAnalyzer.Choice(readExprs());
+                case UNKNOWN -> {
+                    String provenance = readString();
+                    expr = provenance == null || provenance.isEmpty()
+                            ? HealthDataflowAnalyzer.UnknownExpr.UNKNOWN
+                            : new HealthDataflowAnalyzer.UnknownExpr(provenance);
+                }
+                default -> expr = readSourceBody(tag);
+            }
+            readNodes.add(expr);
+            return expr;
+        }
+
+        private HealthDataflowAnalyzer.Source readSource() throws IOException {
+            if (!(readExpr() instanceof HealthDataflowAnalyzer.Source source)) throw Unpersistable.INSTANCE;
+            return source;
+        }
+
+        private void writeExprs(List<HealthDataflowAnalyzer.Expr> exprs) throws IOException {
+            out.writeInt(exprs.size());
+            for (HealthDataflowAnalyzer.Expr expr : exprs) writeExpr(expr);
+        }
+
+        private List<HealthDataflowAnalyzer.Expr> readExprs() throws IOException {
+            int size = in.readInt();
+            List<HealthDataflowAnalyzer.Expr> exprs = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) exprs.add(readExpr());
+            // 调用实参可能含空位，不能用 List.copyOf
+            return Collections.unmodifiableList(exprs);
+        }
+
+        /* ---------- 数据源 ---------- */
+
+        private void writeSource(HealthDataflowAnalyzer.Source source) throws IOException {
+            if (source instanceof HealthDataflowAnalyzer.FieldChainSource chain) {
+                out.writeByte(FIELD_CHAIN);
+                writeChain(chain.chain);
+            } else if (source instanceof HealthDataflowAnalyzer.ConstOverrideSource constant) {
+                out.writeByte(CONST_OVERRIDE);
+                writeExpr(constant.receiver);
+                out.writeFloat(constant.original);
+                writeProvenance(constant.provenance);
+            } else if (source instanceof HealthDataflowAnalyzer.StaticFieldSource field) {
+                out.writeByte(STATIC_FIELD);
+                writeField(field.field);
+            } else if (source instanceof HealthDataflowAnalyzer.ChainedFieldSource chained) {
+                out.writeByte(CHAINED_FIELD);
+                writeExpr(chained.root);
+                writeChain(chained.chain);
+                writeType(chained.valueType);
+            } else if (source instanceof HealthDataflowAnalyzer.CapabilityDataSource capability) {
+                out.writeByte(CAPABILITY);
+                writeExpr(capability.containerExpr);
+                writeExpr(capability.keyExpr);
+                writeChain(capability.chain);
+                writeType(capability.valueType);
+            } else if (source instanceof HealthDataflowAnalyzer.SynchedDataSource synched) {
+                out.writeByte(SYNCHED);
+                writeAccessor(synched.accessor);
+                writeType(synched.valueType);
+            } else if (source instanceof HealthDataflowAnalyzer.MapEntrySource entry) {
+                out.writeByte(MAP_ENTRY);
+                writeExpr(entry.containerExpr);
+                writeExpr(entry.keyExpr);
+                out.writeByte(entry.keyKind.ordinal());
+                writeString(entry.ownerClassInternal);
+                writeType(entry.valueType);
+                writeString(entry.label.substring(2));
+            } else if (source instanceof HealthDataflowAnalyzer.ArrayElementSource element) {
+                out.writeByte(ARRAY_ELEMENT);
+                writeExpr(element.arrayExpr);
+                writeExpr(element.indexExpr);
+                writeType(element.valueType);
+                writeString(element.label.substring(2));
+            } else if (source instanceof HealthDataflowAnalyzer.MethodCallSource call) {
+                out.writeByte(METHOD_CALL);
+                writeString(call.ownerInternal);
+                writeString(call.name);
+                writeString(call.desc);
+                writeExprs(call.args);
+                out.writeInt(call.valueArgIndex);
+            } else {
+                throw Unpersistable.INSTANCE;
+            }
+        }
+
+        private HealthDataflowAnalyzer.Source readSourceBody(byte tag) throws IOException {
+            switch (tag) {
+                case FIELD_CHAIN -> {
+                    // VarHandle 只能现场重建，字段链上任一字段消失即视为缓存失效
+                    if (!(HealthDataflowAnalyzer.makeFieldChainSource(readChain())
+                            instanceof HealthDataflowAnalyzer.Source source)) throw Unpersistable.INSTANCE;
+                    return source;
+                }
+                case CONST_OVERRIDE -> {
+                    HealthDataflowAnalyzer.Expr receiver = readExpr();
+                    float original = in.readFloat();
+                    HealthDataflowAnalyzer.ConstProvenance provenance = readProvenance();
+                    if (provenance == null) throw Unpersistable.INSTANCE;
+                    return new HealthDataflowAnalyzer.ConstOverrideSource(receiver, original, provenance);
+                }
+                case STATIC_FIELD -> {
+                    return new HealthDataflowAnalyzer.StaticFieldSource(readField());
+                }
+                case CHAINED_FIELD -> {
+                    HealthDataflowAnalyzer.Expr root = readExpr();
+                    List<HealthDataflowAnalyzer.FieldStep> chain = readChain();
+                    return new HealthDataflowAnalyzer.ChainedFieldSource(root, chain, readType());
+                }
+                case CAPABILITY -> {
+                    HealthDataflowAnalyzer.Expr container = readExpr();
+                    HealthDataflowAnalyzer.Expr key = readExpr();
+                    List<HealthDataflowAnalyzer.FieldStep> chain = readChain();
+                    return new HealthDataflowAnalyzer.CapabilityDataSource(container, key, chain, readType());
+                }
+                case SYNCHED -> {
+                    EntityDataAccessor<?> accessor = readAccessor();
+                    return new HealthDataflowAnalyzer.SynchedDataSource(accessor, readType());
+                }
+                case MAP_ENTRY -> {
+                    HealthDataflowAnalyzer.Expr container = readExpr();
+                    HealthDataflowAnalyzer.Expr key = readExpr();
+                    HealthDataflowAnalyzer.MapEntrySource.KeyKind[] kinds =
+                            HealthDataflowAnalyzer.MapEntrySource.KeyKind.values();
+                    int kind = in.readByte();
+                    if (kind < 0 || kind >= kinds.length) throw Unpersistable.INSTANCE;
+                    String owner = readString();
+                    Class<?> valueType = readType();
+                    return new HealthDataflowAnalyzer.MapEntrySource(container, key, kinds[kind], owner,
+                            valueType, readString());
+                }
+                case ARRAY_ELEMENT -> {
+                    HealthDataflowAnalyzer.Expr array = readExpr();
+                    HealthDataflowAnalyzer.Expr index = readExpr();
+                    Class<?> valueType = readType();
+                    return new HealthDataflowAnalyzer.ArrayElementSource(array, index, valueType, readString());
+                }
+                case METHOD_CALL -> {
+                    String owner = readString();
+                    String name = readString();
+                    String desc = readString();
+                    List<HealthDataflowAnalyzer.Expr> args = readExprs();
+                    return new HealthDataflowAnalyzer.MethodCallSource(owner, name, desc, args, in.readInt());
+                }
+                default -> throw Unpersistable.INSTANCE;
+            }
+        }
+
+        private void writeChain(List<HealthDataflowAnalyzer.FieldStep> chain) throws IOException {
+            out.writeInt(chain.size());
+            for (HealthDataflowAnalyzer.FieldStep step : chain) {
+                writeString(step.ownerInternal());
+                writeString(step.name());
+                writeString(step.desc());
+            }
+        }
+
+        private List<HealthDataflowAnalyzer.FieldStep> readChain() throws IOException {
+            int size = in.readInt();
+            List<HealthDataflowAnalyzer.FieldStep> chain = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                chain.add(new HealthDataflowAnalyzer.FieldStep(readString(), readString(), readString()));
+            }
+            return List.copyOf(chain);
+        }
+
+        private void writeProvenance(HealthDataflowAnalyzer.ConstProvenance provenance) throws IOException {
+            out.writeBoolean(provenance != null);
+            if (provenance == null) return;
+            writeString(provenance.ownerInternal());
+            writeString(provenance.methodName());
+            writeString(provenance.methodDesc());
+            out.writeInt(provenance.insnIndex());
+            out.writeBoolean(provenance.holderIsStatic());
+            writeExpr(provenance.receiver());
+        }
+
+        private HealthDataflowAnalyzer.ConstProvenance readProvenance() throws IOException {
+            if (!in.readBoolean()) return null;
+            String owner = readString();
+            String method = readString();
+            String desc = readString();
+            int insnIndex = in.readInt();
+            boolean holderIsStatic = in.readBoolean();
+            return new HealthDataflowAnalyzer.ConstProvenance(owner, method, desc, insnIndex, holderIsStatic, readExpr());
+        }
+
+        /* ---------- 运行期对象的符号坐标 ---------- */
+
+        /* accessor 只在持有它的静态字段上有稳定坐标，沿实体继承链反查；找不到则不可落盘。 */
+        private void writeAccessor(EntityDataAccessor<?> accessor) throws IOException {
+            String key = HealthDataflowAnalyzer.findAccessorFieldKey(entityClass, accessor);
+            if (key == null) throw Unpersistable.INSTANCE;
+            writeString(key);
+        }
+
+        private EntityDataAccessor<?> readAccessor() throws IOException {
+            String key = readString();
+            int split = key == null ? -1 : key.indexOf('#');
+            if (split <= 0) throw Unpersistable.INSTANCE;
+            Object value = readStaticValue(key.substring(0, split), key.substring(split + 1));
+            if (!(value instanceof EntityDataAccessor<?> accessor)) throw Unpersistable.INSTANCE;
+            return accessor;
+        }
+
+        /* Reference 持有常量折叠后的对象：基础值直接编码，其余只接受能回指到某个静态常量字段的对象。 */
+        private void writeReferenceValue(HealthDataflowAnalyzer.Reference reference) throws IOException {
+            Object value = reference.value();
+            if (value == null) {
+                out.writeByte(REF_NULL);
+            } else if (value instanceof String s) {
+                out.writeByte(REF_STRING);
+                writeString(s);
+            } else if (value instanceof Number n) {
+                out.writeByte(REF_NUMBER);
+                writeNumber(n);
+            } else if (value instanceof Boolean b) {
+                out.writeByte(REF_BOOLEAN);
+                out.writeBoolean(b);
+            } else if (value instanceof Character c) {
+                out.writeByte(REF_CHAR);
+                out.writeChar(c);
+            } else if (value instanceof Class<?> k) {
+                out.writeByte(REF_CLASS);
+                writeString(Type.getDescriptor(k));
+            } else if (value instanceof Enum<?> e) {
+                out.writeByte(REF_ENUM);
+                writeString(e.getDeclaringClass().getName().replace('.', '/'));
+                writeString(e.name());
+            } else {
+                String field = findStaticConstant(reference.className(), value);
+                if (field == null) throw Unpersistable.INSTANCE;
+                out.writeByte(REF_STATIC_FIELD);
+                writeString(reference.className());
+                writeString(field);
+            }
+        }
+
+        private Object readReferenceValue() throws IOException {
+            byte kind = in.readByte();
+            return switch (kind) {
+                case REF_NULL -> null;
+                case REF_STRING -> readString();
+                case REF_NUMBER -> readNumber();
+                case REF_BOOLEAN -> in.readBoolean();
+                case REF_CHAR -> in.readChar();
+                case REF_CLASS -> {
+                    Class<?> type = HealthDataflowAnalyzer.descriptorToClass(readString());
+                    if (type == null) throw Unpersistable.INSTANCE;
+                    yield type;
+                }
+                case REF_ENUM -> {
+                    Class<?> owner = requireClass(readString());
+                    String name = readString();
+                    Object constant = null;
+                    for (Object candidate : owner.getEnumConstants() == null ? new Object[0] : owner.getEnumConstants()) {
+                        if (((Enum<?>) candidate).name().equals(name)) constant = candidate;
+                    }
+                    if (constant == null) throw Unpersistable.INSTANCE;
+                    yield constant;
+                }
+                case REF_STATIC_FIELD -> readStaticValue(readString(), readString());
+                default -> throw Unpersistable.INSTANCE;
+            };
+        }
+
+        // 常量折叠只记了持有类，按身份在其静态 final 字段中反查字段名
+        private static String findStaticConstant(String ownerInternal, Object value) {
+            Class<?> owner = ownerInternal == null ? null : HealthDataflowAnalyzer.loadClass(ownerInternal);
+            for (Class<?> c = owner; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)
+                            || field.getType().isPrimitive()) continue;
+                    try {
+                        field.setAccessible(true);
+                        if (field.get(null) == value) return field.getName();
+                    } catch (Throwable t) {
+                        if (t instanceof VirtualMachineError e) throw e;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Object readStaticValue(String ownerInternal, String name) throws IOException {
+            Field field = HealthDataflowAnalyzer.findFieldInHierarchy(requireClass(ownerInternal), name);
+            if (field == null || !Modifier.isStatic(field.getModifiers())) throw Unpersistable.INSTANCE;
+            try {
+                field.setAccessible(true);
+                return field.get(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw Unpersistable.INSTANCE;
+            }
+        }
+
+        void writeField(Field field) throws IOException {
+            writeString(field.getDeclaringClass().getName().replace('.', '/'));
+            writeString(field.getName());
+        }
+
+        Field readField() throws IOException {
+            Field field = HealthDataflowAnalyzer.findFieldInHierarchy(requireClass(readString()), readString());
+            if (field == null) throw Unpersistable.INSTANCE;
+            field.setAccessible(true);
+            return field;
+        }
+
+        void writeMethod(Method method) throws IOException {
+            if (method == null) throw Unpersistable.INSTANCE;
+            writeString(method.getDeclaringClass().getName().replace('.', '/'));
+            writeString(method.getName());
+            writeString(Type.getMethodDescriptor(method));
+        }
+
+        Method readMethod() throws IOException {
+            Class<?> owner = requireClass(readString());
+            String name = readString();
+            String desc = readString();
+            for (Method method : owner.getDeclaredMethods()) {
+                if (method.getName().equals(name) && Type.getMethodDescriptor(method).equals(desc)) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+            throw Unpersistable.INSTANCE;
+        }
+
+        private void writeHandle(Handle handle) throws IOException {
+            out.writeInt(handle.getTag());
+            writeString(handle.getOwner());
+            writeString(handle.getName());
+            writeString(handle.getDesc());
+            out.writeBoolean(handle.isInterface());
+        }
+
+        private Handle readHandle() throws IOException {
+            int tag = in.readInt();
+            String owner = readString();
+            String name = readString();
+            String desc = readString();
+            return new Handle(tag, owner, name, desc, in.readBoolean());
+        }
+
+        private void writeType(Class<?> type) throws IOException {
+            writeString(type == null ? null : Type.getDescriptor(type));
+        }
+
+        private Class<?> readType() throws IOException {
+            String descriptor = readString();
+            if (descriptor == null) return null;
+            Class<?> type = HealthDataflowAnalyzer.descriptorToClass(descriptor);
+            if (type == null) throw Unpersistable.INSTANCE;
+            return type;
+        }
+
+        private static Class<?> requireClass(String internalName) throws IOException {
+            Class<?> cls = internalName == null ? null : HealthDataflowAnalyzer.loadClass(internalName);
+            if (cls == null) throw Unpersistable.INSTANCE;
+            return cls;
+        }
+
+        /* ---------- 基础值 ---------- */
+
+        private void writeNumber(Number value) throws IOException {
+            if (value == null) {
+                out.writeByte('N');
+            } else if (value instanceof Float f) {
+                out.writeByte('F');
+                out.writeFloat(f);
+            } else if (value instanceof Double d) {
+                out.writeByte('D');
+                out.writeDouble(d);
+            } else if (value instanceof Long l) {
+                out.writeByte('J');
+                out.writeLong(l);
+            } else if (value instanceof Short s) {
+                out.writeByte('S');
+                out.writeShort(s);
+            } else if (value instanceof Byte b) {
+                out.writeByte('B');
+                out.writeByte(b);
+            } else if (value instanceof Integer i) {
+                out.writeByte('I');
+                out.writeInt(i);
+            } else {
+                throw Unpersistable.INSTANCE;
+            }
+        }
+
+        private Number readNumber() throws IOException {
+            return switch (in.readByte()) {
+                case 'N' -> null;
+                case 'F' -> in.readFloat();
+                case 'D' -> in.readDouble();
+                case 'J' -> in.readLong();
+                case 'S' -> in.readShort();
+                case 'B' -> in.readByte();
+                case 'I' -> in.readInt();
+                default -> throw Unpersistable.INSTANCE;
+            };
+        }
+
+        // 字符串按会话去重：类名/描述符在一棵树里高度重复，首次写全文，之后只写下标
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = writtenStrings.get(value);
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+            writtenStrings.put(value, writtenStrings.size());
+            out.writeInt(-2);
+            out.writeUTF(value);
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index == -1) return null;
+            if (index == -2) {
+                String value = in.readUTF();
+                readStrings.add(value);
+                return value;
+            }
+            if (index < 0 || index >= readStrings.size()) throw Unpersistable.INSTANCE;
+            return readStrings.get(index);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package net.eca.util.health;
+
+import net.eca.config.EcaConfiguration;
+import net.eca.util.EcaLogger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * 血量分析统一调度器：取代原先按阶段划分的五个单线程执行器。
+ * 所有分析任务进入同一个有界 ForkJoin 池，按优先级分道排队；空闲工作线程总是先取最高优先级道上的任务，
+ * 于是世界里真实出现、正在被改血的实体类会在任务边界上越过投机性的全量预热。
+ * 每道另有并发上限：预热道默认至少留出一条线程，长耗时的预热任务不会把紧急道饿死。
+ * 去重按"类 + 任务种类"登记：同一任务已在排队时再次以更高优先级提交，只会把它提升到高优先级道，不会重复执行。
+ */
+public final class HealthAnalysisScheduler {
+
+    private HealthAnalysisScheduler() {}
+
+    /* 优先级由高到低；poll 按声明顺序扫描。 */
+    public enum Lane {
+        /* 改血调用已在等待结果的类 */
+        SET_HEALTH,
+        /* 已加入世界的实体类 */
+        JOINED,
+        /* 周期维护写集(tick / writer)，外部扫描的后续阶段 */
+        MAINTENANCE,
+        /* 比较表达式预扫与有效血量建模 */
+        MODEL,
+        /* 启动期按已加载类盲扫的投机预热 */
+        WARMUP
+    }
+
+    /* 同一类上互相独立的任务种类，各自去重。 */
+    public enum Kind {
+        WARMUP, JOIN_PREWARM, EXTERNAL_SCAN, TICK_SCAN, WRITER_SCAN, COMPARISON_PRESCAN, EFFECTIVE_MODEL
+    }
+
+    private static final class Task implements Runnable {
+        final Class<?> cls;
+        final Kind kind;
+        final Runnable body;
+        /* 提升优先级时同一实例会进入两条道，先被取到的一份执行，另一份出队即丢弃。 */
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile Lane lane;
+
+        Task(Class<?> cls, Kind kind, Lane lane, Runnable body) {
+            this.cls = cls;
+            this.kind = kind;
+            this.lane = lane;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            try {
+                body.run();
+            } finally {
+                if (cls != null) {
+                    Map<Kind, Task> pending = PENDING.get(cls);
+                    if (pending != null) {
+                        synchronized (pending) {
+                            pending.remove(kind, this);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class LaneState {
+        final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger active = new AtomicInteger();
+    }
+
+    private static final Lane[] LANES = Lane.values();
+    private static final Map<Lane, LaneState> STATES = new EnumMap<>(Lane.class);
+    static {
+        for (Lane lane : LANES) STATES.put(lane, new LaneState());
+    }
+
+    /* 每类的在途任务：以类为键而非以执行器为键，同类不同阶段的占位集中在一处。 */
+    private static final Map<Class<?>, Map<Kind, Task>> PENDING = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger RUNNERS = new AtomicInteger();
+    private static volatile ForkJoinPool pool;
+
+    /* ==================== 提交 ==================== */
+
+    /* 提交一个按类去重的任务。已有同类同种任务排队时：新优先级更高则提升并返回 true，否则返回 false。 */
+    public static boolean submit(Class<?> cls, Kind kind, Lane lane, Runnable body) {
+        Map<Kind, Task> pending = PENDING.computeIfAbsent(cls, ignored -> new EnumMap<>(Kind.class));
+        Task task;
+        synchronized (pending) {
+            Task existing = pending.get(kind);
+            if (existing != null) {
+                if (existing.claimed.get() || existing.lane.ordinal() <= lane.ordinal()) return false;
+                existing.lane = lane;
+                task = existing;
+            } else {
+                task = new Task(cls, kind, lane, body);
+                pending.put(kind, task);
+            }
+        }
+        enqueue(task, lane);
+        return true;
+    }
+
+    /* 不参与去重的一次性任务(如预热枚举)。 */
+    public static void execute(Lane lane, Runnable body) {
+        enqueue(new Task(null, null, lane, body), lane);
+    }
+
+    /* 同步调用方正等着某个仍在排队的任务的结果：就地认领并在调用线程上执行，而不是另起一份相同的分析。
+       已被工作线程取走(正在执行)或不存在时返回 false；道里残留的那份出队时因已认领而丢弃。 */
+    public static boolean runInline(Class<?> cls, Kind kind) {
+        Map<Kind, Task> pending = PENDING.get(cls);
+        if (pending == null) return false;
+        Task task;
+        synchronized (pending) {
+            task = pending.get(kind);
+        }
+        if (task == null || !task.claimed.compareAndSet(false, true)) return false;
+        task.run();
+        return true;
+    }
+
+    public static boolean isPending(Class<?> cls, Kind kind) {
+        Map<Kind, Task> pending = PENDING.get(cls);
+        if (pending == null) return false;
+        synchronized (pending) {
+            return pending.containsKey(kind);
+        }
+    }
+
+    /* 服务器停止时只清去重占位；已排队的任务仍会执行完，它们只写只读分析缓存。 */
+    public static void clearPending() {
+        PENDING.clear();
+    }
+
+    private static void enqueue(Task task, Lane lane) {
+        STATES.get(lane).queue.add(task);
+        signal();
+    }
+
+    /* ==================== 派发 ==================== */
+
+    // 运行者数量不足且存在可派发任务时补充运行者；运行者退出前会再调用一次，覆盖入队与退出交错的窗口
+    private static void signal() {
+        ForkJoinPool p = pool();
+        int limit = p.getParallelism();
+        for (;;) {
+            int running = RUNNERS.get();
+            if (running >= limit || !hasDispatchable()) return;
+            if (RUNNERS.compareAndSet(running, running + 1)) {
+                try {
+                    p.execute(HealthAnalysisScheduler::drain);
+                } catch (Throwable t) {
+                    RUNNERS.decrementAndGet();
+                    if (t instanceof VirtualMachineError e) throw e;
+                    EcaLogger.warn("[HealthScheduler] runner submit rejected msg={}", t.toString());
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void drain() {
+        try {
+            for (;;) {
+                Lane lane = acquire();
+                if (lane == null) return;
+                try {
+                    Task task = STATES.get(lane).queue.poll();
+                    if (task == null || !task.claimed.compareAndSet(false, true)) continue;
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        if (t instanceof VirtualMachineError e) throw e;
+                        // 各提交方自带异常诊断；此处只防止未捕获异常打断运行者循环
+                        EcaLogger.warn("[HealthScheduler] task threw lane={} kind={} entity={} msg={}",
+                                lane, task.kind, task.cls == null ? "-" : task.cls.getName(), t.toString());
+                    }
+                } finally {
+                    STATES.get(lane).active.decrementAndGet();
+                }
+            }
+        } finally {
+            RUNNERS.decrementAndGet();
+            signal();
+        }
+    }
+
+    // 按优先级占用第一条有任务且未达并发上限的道；返回 null 表示当前没有可派发任务
+    private static Lane acquire() {
+        for (Lane lane : LANES) {
+            LaneState state = STATES.get(lane);
+            if (state.queue.isEmpty()) continue;
+            int cap = laneParallelism(lane);
+            for (;;) {
+                int active = state.active.get();
+                if (active >= cap) break;
+                if (state.active.compareAndSet(active, active + 1)) return lane;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasDispatchable() {
+        for (Lane lane : LANES) {
+            LaneState state = STATES.get(lane);
+            if (!state.queue.isEmpty() && state.active.get() < laneParallelism(lane)) return true;
+        }
+        return false;
+    }
+
+    /* ==================== 线程池与并发上限 ==================== */
+
+    private static ForkJoinPool pool() {
+        ForkJoinPool p = pool;
+        if (p != null) return p;
+        synchronized (HealthAnalysisScheduler.class) {
+            if (pool == null) {
+                int threads = poolParallelism();
+                AtomicInteger index = new AtomicInteger();
+                pool = new ForkJoinPool(threads, fjp -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(fjp);
+                    t.setName("ECA-Health-Analysis-" + index.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, null, true);
+                EcaLogger.info("[HealthScheduler] started threads={} lanes={}", threads, describeLanes());
+            }
+            return pool;
+        }
+    }
+
+    // 池大小在首次提交时固定；各道上限每次派发实时读取配置
+    private static int poolParallelism() {
+        int configured = EcaConfiguration.getAttackAnalysisThreadsSafely();
+        if (configured > 0) return configured;
+        return Math.max(2, Math.min(16, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    static int laneParallelism(Lane lane) {
+        int threads = pool == null ? poolParallelism() : pool.getParallelism();
+        int configured = switch (lane) {
+            case SET_HEALTH, JOINED -> EcaConfiguration.getAttackAnalysisUrgentParallelismSafely();
+            case MAINTENANCE -> EcaConfiguration.getAttackAnalysisMaintenanceParallelismSafely();
+            case MODEL -> EcaConfiguration.getAttackAnalysisModelParallelismSafely();
+            case WARMUP -> EcaConfiguration.getAttackAnalysisWarmupParallelismSafely();
+        };
+        if (configured > 0) return Math.min(configured, threads);
+        // 0 = 自动：预热让出一条线程给紧急道，其余道可用满整个池
+        return lane == Lane.WARMUP ? Math.max(1, threads - 1) : threads;
+    }
+
+    private static String describeLanes() {
+        StringBuilder sb = new StringBuilder();
+        for (Lane lane : LANES) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(lane).append('=').append(laneParallelism(lane));
+        }
+        return sb.toString();
+    }
+}
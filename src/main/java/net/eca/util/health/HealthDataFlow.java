@@ -73,6 +73,8 @@ public final class HealthDataFlow {
             HealthDataflowAnalyzer.setClassBytesProvider(HealthDataFlow::classBytesViaRuntime);
             HealthDataflowAnalyzer.setOverrideLookup(ConstOverride::getOverride);
             MethodProbe.setClassBytesProvider(HealthDataFlow::classBytesViaRuntime);
+            // 写入者倒排索引从此刻起跟随运行期字节码捕获增量更新
+            WriterSiteIndex.install();
             // ECA 自污染排除：集中定义在 EcaOwnedState，新增注入时不会漏登记
             HealthDataflowAnalyzer.setStripConfig(
                     EcaOwnedState.hookOwners(),
@@ -220,7 +222,7 @@ public final class HealthDataFlow {
 
     private static Object evaluateMaintenanceValue(Expr expression, EvalContext context) {
         try {
-            return HealthDataflowAnalyzer.evaluate(expression, context);
+            return CompiledExprEvaluator.evaluate(expression, context);
         } catch (Throwable t) {
             if (t instanceof VirtualMachineError e) throw e;
             return null;
@@ -252,7 +254,7 @@ public final class HealthDataFlow {
 
     private static boolean readSinkMatchesValue(Source sink, LivingEntity entity, Object expected) {
         try {
-            Object actual = HealthDataflowAnalyzer.evaluate(sink, HealthDataflowAnalyzer.newContext(entity));
+            Object actual = CompiledExprEvaluator.evaluate(sink, HealthDataflowAnalyzer.newContext(entity));
             return equivalentValue(actual, expected);
         } catch (Throwable t) {
             if (t instanceof VirtualMachineError e) throw e;
@@ -678,7 +680,7 @@ public final class HealthDataFlow {
         try {
             EvalContext context = HealthDataflowAnalyzer.newContext(entity);
             if (sink instanceof ChainedFieldSource s) {
-                Object cur = HealthDataflowAnalyzer.evaluate(s.root, context);
+                Object cur = CompiledExprEvaluator.evaluate(s.root, context);
                 if (cur == null) {
                     if (ADDRESS_DIAG.add(entity.getClass().getName() + "|" + s.label)) {
                         EcaLogger.info("[HealthDataflow] isAddressable root=null entity={} sink={} level={} rootExpr={}",
@@ -695,13 +697,13 @@ public final class HealthDataFlow {
                 return true;
             }
             if (sink instanceof CapabilityDataSource s) {
-                return HealthDataflowAnalyzer.evaluate(s.containerExpr, context) != null;
+                return CompiledExprEvaluator.evaluate(s.containerExpr, context) != null;
             }
             if (sink instanceof MapEntrySource s) {
-                return HealthDataflowAnalyzer.evaluate(s.containerExpr, context) != null;
+                return CompiledExprEvaluator.evaluate(s.containerExpr, context) != null;
             }
             if (sink instanceof ArrayElementSource s) {
-                return HealthDataflowAnalyzer.evaluate(s.arrayExpr, context) != null;
+                return CompiledExprEvaluator.evaluate(s.arrayExpr, context) != null;
             }
             return true;
         } catch (Throwable t) {
@@ -840,7 +842,7 @@ public final class HealthDataFlow {
 
     private static boolean writeChainedField(ChainedFieldSource s, LivingEntity entity, Object value) {
         try {
-            Object cur = HealthDataflowAnalyzer.evaluate(s.root, HealthDataflowAnalyzer.newContext(entity));
+            Object cur = CompiledExprEvaluator.evaluate(s.root, HealthDataflowAnalyzer.newContext(entity));
             if (cur == null) return false;
             for (int i = 0; i < s.chain.size() - 1; i++) {
                 cur = readField(cur, s.chain.get(i));
@@ -862,7 +864,7 @@ public final class HealthDataFlow {
         if (expression == null || !visited.add(expression)) return;
         try {
             if (expression instanceof HealthDataflowAnalyzer.Call || expression instanceof HealthDataflowAnalyzer.Reference) {
-                Object value = HealthDataflowAnalyzer.evaluate(expression, HealthDataflowAnalyzer.newContext(entity));
+                Object value = CompiledExprEvaluator.evaluate(expression, HealthDataflowAnalyzer.newContext(entity));
                 if (value instanceof SavedData savedData) savedData.setDirty();
             }
             if (expression instanceof ChainedFieldSource chained) {
@@ -899,8 +901,8 @@ public final class HealthDataFlow {
     private static boolean writeCapability(CapabilityDataSource s, LivingEntity entity, Object value) {
         try {
             EvalContext ctx = HealthDataflowAnalyzer.newContext(entity);
-            Object container = HealthDataflowAnalyzer.evaluate(s.containerExpr, ctx);
-            Object key = HealthDataflowAnalyzer.evaluate(s.keyExpr, ctx);
+            Object container = CompiledExprEvaluator.evaluate(s.containerExpr, ctx);
+            Object key = CompiledExprEvaluator.evaluate(s.keyExpr, ctx);
             if (container == null || key == null) return false;
             if (s.chain.isEmpty()) return writeCapabilitySlot(container, key, value);
 
@@ -952,7 +954,7 @@ public final class HealthDataFlow {
         Set<Object> writtenMaps = Collections.newSetFromMap(new IdentityHashMap<>());
 
         try {
-            Object obj = HealthDataflowAnalyzer.evaluate(s.containerExpr, HealthDataflowAnalyzer.newContext(entity));
+            Object obj = CompiledExprEvaluator.evaluate(s.containerExpr, HealthDataflowAnalyzer.newContext(entity));
             if (obj instanceof Map<?, ?> map && writtenMaps.add(map)) {
                 Object key = matchKey(map, entity, s.keyKind);
                 if (key != null && unsafeModifyMapEntry(map, key, value)) any = true;
@@ -993,8 +995,8 @@ public final class HealthDataFlow {
     private static boolean writeArrayElement(ArrayElementSource s, LivingEntity entity, Object value) {
         try {
             EvalContext ctx = HealthDataflowAnalyzer.newContext(entity);
-            Object arr = HealthDataflowAnalyzer.evaluate(s.arrayExpr, ctx);
-            Object idx = HealthDataflowAnalyzer.evaluate(s.indexExpr, ctx);
+            Object arr = CompiledExprEvaluator.evaluate(s.arrayExpr, ctx);
+            Object idx = CompiledExprEvaluator.evaluate(s.indexExpr, ctx);
             if (arr == null || !(idx instanceof Number n) || !(value instanceof Number v)) return false;
             int i = n.intValue();
             Class<?> ct = arr.getClass().getComponentType();
@@ -1019,7 +1021,7 @@ public final class HealthDataFlow {
             Object receiver = null;
             EvalContext ctx = HealthDataflowAnalyzer.newContext(entity);
             if (!isStatic) {
-                receiver = HealthDataflowAnalyzer.evaluate(s.args.get(0), ctx);
+                receiver = CompiledExprEvaluator.evaluate(s.args.get(0), ctx);
                 if (receiver == null) return false;
             }
             Object[] values = new Object[argTypes.length];
@@ -1027,7 +1029,7 @@ public final class HealthDataFlow {
             for (int i = 0; i < argTypes.length; i++) {
                 paramTypes[i] = HealthDataflowAnalyzer.asmTypeToClass(argTypes[i]);
                 if (paramTypes[i] == null) return false;
-                Object argValue = i == s.valueArgIndex ? value : HealthDataflowAnalyzer.evaluate(s.args.get(start + i), ctx);
+                Object argValue = i == s.valueArgIndex ? value : CompiledExprEvaluator.evaluate(s.args.get(start + i), ctx);
                 values[i] = HealthDataflowAnalyzer.coerceArgPublic(argValue, paramTypes[i]);
             }
             Method method = HealthDataflowAnalyzer.findMethod(isStatic ? owner : receiver.getClass(), s.name, paramTypes, values);
@@ -24,7 +24,6 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandleInfo;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
-import java.lang.ref.SoftReference;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -136,14 +135,8 @@ public final class HealthDataflowAnalyzer {
         try {
             java.security.CodeSource cs = clazz.getProtectionDomain().getCodeSource();
             if (cs != null && cs.getLocation() != null) {
-                try (java.util.jar.JarFile jar = new java.util.jar.JarFile(cs.getLocation().getPath())) {
-                    java.util.jar.JarEntry entry = jar.getJarEntry(path);
-                    if (entry != null) {
-                        try (java.io.InputStream jis = jar.getInputStream(entry)) {
-                            return jis.readAllBytes();
-                        }
-                    }
-                }
+                // jar 句柄按路径池化复用，预热期成千上万次未命中不再各自重开同一个 jar
+                return AnalysisClassCache.readJarEntry(cs.getLocation().getPath(), path);
             }
         } catch (Throwable ignored) { if (ignored instanceof VirtualMachineError e) throw e; }
         return null;
@@ -155,8 +148,7 @@ public final class HealthDataflowAnalyzer {
        入口稍后执行，不能阻塞真实血量候选发布。 */
     public static AnalysisResult resolveExternalScanResult(Class<?> entityClass) {
         if (entityClass == null) return null;
-        SemanticExternalScan scan = EXTERNAL_SCAN_CACHE.computeIfAbsent(entityClass,
-                HealthDataflowAnalyzer::analyzeSemanticExternalScan);
+        SemanticExternalScan scan = semanticExternalScan(entityClass);
         AnalysisResult ar = scan.result();
         if (ar == null || ar.isEmpty() || ar.sources.isEmpty()) return null;
         return ar;
@@ -433,7 +425,7 @@ public final class HealthDataflowAnalyzer {
         // 求 holder 对象：receiver 为 EntityParamMarker 时即实体，否则按字段链等表达式求值
         public Object holder(LivingEntity entity) {
             try {
-                return evaluate(receiver, newContext(entity));
+                return CompiledExprEvaluator.evaluate(receiver, newContext(entity));
             } catch (Throwable t) { if (t instanceof VirtualMachineError e) throw e; return null; }
         }
 
@@ -494,7 +486,7 @@ public final class HealthDataflowAnalyzer {
 
         @Override public Object read(LivingEntity entity) {
             try {
-                Object cur = evaluate(root, new SimpleEvalContext(entity));
+                Object cur = CompiledExprEvaluator.evaluate(root, new SimpleEvalContext(entity));
                 for (FieldStep s : chain) {
                     if (cur == null) return null;
                     cur = readField(cur, s);
@@ -553,8 +545,8 @@ public final class HealthDataflowAnalyzer {
         }
 
         private Object readCapabilitySlot(EvalContext ctx) {
-            Object container = evaluate(containerExpr, ctx);
-            Object key = evaluate(keyExpr, ctx);
+            Object container = CompiledExprEvaluator.evaluate(containerExpr, ctx);
+            Object key = CompiledExprEvaluator.evaluate(keyExpr, ctx);
             return container == null || key == null ? null : readCapabilitySlot(container, key);
         }
 
@@ -619,7 +611,7 @@ public final class HealthDataflowAnalyzer {
            容器既支持 java.util.Map，也鸭子类型支持不实现 Map 的自定义容器(仅依赖只读 containsKey/get 访问器)。 */
         @Override public Object read(LivingEntity entity) {
             try {
-                Object obj = evaluate(containerExpr, new SimpleEvalContext(entity));
+                Object obj = CompiledExprEvaluator.evaluate(containerExpr, new SimpleEvalContext(entity));
                 if (obj == null) return null;
                 Object[] fb = {entity, entity.getUUID(), entity.getId()};
                 if (obj instanceof Map<?, ?> map) {
@@ -693,8 +685,8 @@ public final class HealthDataflowAnalyzer {
         @Override public Object read(LivingEntity entity) {
             try {
                 EvalContext ctx = new SimpleEvalContext(entity);
-                Object arr = evaluate(arrayExpr, ctx);
-                Object idx = evaluate(indexExpr, ctx);
+                Object arr = CompiledExprEvaluator.evaluate(arrayExpr, ctx);
+                Object idx = CompiledExprEvaluator.evaluate(indexExpr, ctx);
                 if (arr == null || !(idx instanceof Number n)) return null;
                 return Array.get(arr, n.intValue());
             } catch (Throwable t) { if (t instanceof VirtualMachineError) throw (VirtualMachineError) t; return null; }
@@ -1447,7 +1439,7 @@ public final class HealthDataflowAnalyzer {
         return score;
     }
 
-    private enum UnknownEval { INSTANCE }
+    enum UnknownEval { INSTANCE }
 
     private static Object evaluateKnownCall(Call call, EvalContext ctx, Object inputValue, boolean hasInput) {
         List<Object> values = new ArrayList<>(call.args().size());
@@ -1456,6 +1448,11 @@ public final class HealthDataflowAnalyzer {
             if (value == null) return UnknownEval.INSTANCE;
             values.add(value);
         }
+        return knownCallResult(call, values);
+    }
+
+    // 已求得全部实参(均非 null)后按调用签名查内建语义；编译求值器复用同一份规则
+    static Object knownCallResult(Call call, List<Object> values) {
         try {
             String owner = call.owner();
             String name = call.name();
@@ -1980,7 +1977,7 @@ public final class HealthDataflowAnalyzer {
 
     /* ==================== execOp / invokeCall ==================== */
 
-    private static Object execOp(int op, List<Object> a) {
+    static Object execOp(int op, List<Object> a) {
         try {
             return switch (op) {
                 case Opcodes.IADD -> ((Number) a.get(0)).intValue() + ((Number) a.get(1)).intValue();
@@ -2076,7 +2073,7 @@ public final class HealthDataflowAnalyzer {
     /* 接收者符号化失败(UnknownExpr→null)时，若方法归属类型能被实体当前 level 满足，用 entity.level() 兜底。
        按维度 SavedData 经 level.getDataStorage().computeIfAbsent(...) 访问，分析期 level 常不可符号化；
        不退路会落到客户端静态替身实例，写入与模组读取出口不同对象。 */
-    private static Object inferUnknownReceiver(String ownerInternal, EvalContext ctx) {
+    static Object inferUnknownReceiver(String ownerInternal, EvalContext ctx) {
         LivingEntity entity = ctx.entity();
         if (entity == null) return null;
         Class<?> owner = loadClass(ownerInternal);
@@ -2087,7 +2084,7 @@ public final class HealthDataflowAnalyzer {
 
     /* 静态方法参数符号化失败(如 WorldVariables.get(world) 的 LevelAccessor 参数)时，
        若参数类型能被实体当前 level 满足，用 entity.level() 兜底，避免 get(null) 落回客户端静态替身。 */
-    private static Object inferUnknownArg(Class<?> paramType, EvalContext ctx) {
+    static Object inferUnknownArg(Class<?> paramType, EvalContext ctx) {
         if (paramType == null) return null;
         LivingEntity entity = ctx.entity();
         if (entity == null) return null;
@@ -2132,7 +2129,7 @@ public final class HealthDataflowAnalyzer {
         }
     }
 
-    private static Object unwrapOptionalContent(Object container) {
+    static Object unwrapOptionalContent(Object container) {
         if (container == null) return null;
         try {
             if (container instanceof Optional<?> optional) return optional.orElse(null);
@@ -2240,6 +2237,10 @@ public final class HealthDataflowAnalyzer {
         volatile boolean authorityResolved;
         boolean tickRunning;
         boolean authorityRunning;
+        /* 被时间预算截断的一侧不落盘：残缺写集持久化后会在后续每次启动被当作完整结论复用。 */
+        boolean tickTimedOut;
+        boolean authorityTimedOut;
+        boolean restoreAttempted;
         String tickCost = "tickWrites pending";
         String authorityCost = "authorityWriters pending";
         long firstStartedNanos;
@@ -2248,10 +2249,13 @@ public final class HealthDataflowAnalyzer {
     /* Tick 与 writer 分别发布结果。部分结果也会重建计划，使先找到外部权威的一侧无需等待另一侧。 */
     private static MaintenancePlan resolveMaintenancePart(Class<?> entityClass, boolean tickPart) {
         if (entityClass == null) return MaintenancePlan.EMPTY;
-        SemanticExternalScan semantic = EXTERNAL_SCAN_CACHE.computeIfAbsent(entityClass,
-                HealthDataflowAnalyzer::analyzeSemanticExternalScan);
+        SemanticExternalScan semantic = semanticExternalScan(entityClass);
         MaintenanceParts parts = MAINTENANCE_PARTS_CACHE.computeIfAbsent(entityClass, ignored -> new MaintenanceParts());
         synchronized (parts) {
+            if (!parts.restoreAttempted) {
+                parts.restoreAttempted = true;
+                restoreMaintenanceParts(entityClass, semantic, parts);
+            }
             if (tickPart ? parts.tickResolved || parts.tickRunning
                     : parts.authorityResolved || parts.authorityRunning) {
                 return MAINTENANCE_PLAN_CACHE.getOrDefault(entityClass, MaintenancePlan.EMPTY);
@@ -2264,9 +2268,9 @@ public final class HealthDataflowAnalyzer {
         long partStart = System.nanoTime();
         BudgetedWrites result;
         try {
-            result = tickPart
+            result = recordingDependencies(entityClass, () -> tickPart
                     ? collectTickWrites(entityClass, semantic.fingerprint())
-                    : collectAuthorityWriterWrites(entityClass, semantic.fingerprint());
+                    : collectAuthorityWriterWrites(entityClass, semantic.fingerprint()));
         } catch (Throwable t) {
             synchronized (parts) {
                 if (tickPart) parts.tickRunning = false;
@@ -2280,11 +2284,13 @@ public final class HealthDataflowAnalyzer {
             String cost = entryCost(name, partStart, 0) + (result.timedOut() ? " TIMEOUT" : "");
             if (tickPart) {
                 parts.tickWrites = result.writes();
+                parts.tickTimedOut = result.timedOut();
                 parts.tickCost = cost;
                 parts.tickRunning = false;
                 parts.tickResolved = true;
             } else {
                 parts.authorityWrites = result.writes();
+                parts.authorityTimedOut = result.timedOut();
                 parts.authorityCost = cost;
                 parts.authorityRunning = false;
                 parts.authorityResolved = true;
@@ -2313,6 +2319,70 @@ public final class HealthDataflowAnalyzer {
 
     private static final Map<Class<?>, List<Source>> MAINTENANCE_SINKS_CACHE = new ConcurrentHashMap<>();
 
+    /* ==================== 磁盘缓存导入导出 ====================
+       语义扫描与维护写集是预热中最贵的两段，由 HealthAnalysisDiskCache 按类字节码摘要落盘。
+       导入只在缓存缺失时发生，摘要不符的条目由磁盘缓存自行作废，本类只负责与内部结构互转。 */
+
+    /* 语义外部扫描的可落盘视图：指纹拆成键集合，避免磁盘格式依赖内部 record。 */
+    record PersistedExternalScan(AnalysisResult result, List<Source> observedAuthorities,
+                                 Set<String> fieldKeys, Set<String> accessorKeys, Set<String> nbtKeys,
+                                 boolean usable) {}
+
+    record PersistedMaintenance(List<StoreWrite> tickWrites, List<StoreWrite> authorityWrites) {}
+
+    private static SemanticExternalScan semanticExternalScan(Class<?> entityClass) {
+        return EXTERNAL_SCAN_CACHE.computeIfAbsent(entityClass, cls -> {
+            PersistedExternalScan persisted = HealthAnalysisDiskCache.lookupExternalScan(cls);
+            if (persisted == null) return recordingDependencies(cls, () -> analyzeSemanticExternalScan(cls));
+            AuthorityFingerprint fingerprint = persisted.fieldKeys().isEmpty()
+                    && persisted.accessorKeys().isEmpty() && persisted.nbtKeys().isEmpty()
+                    ? NO_AUTHORITY_FINGERPRINT
+                    : new AuthorityFingerprint(persisted.fieldKeys(), persisted.accessorKeys(),
+                            persisted.nbtKeys(), persisted.usable());
+            return new SemanticExternalScan(persisted.result(), persisted.observedAuthorities(), fingerprint);
+        });
+    }
+
+    static Set<Class<?>> externalScanClasses() {
+        return Collections.unmodifiableSet(EXTERNAL_SCAN_CACHE.keySet());
+    }
+
+    static PersistedExternalScan exportExternalScan(Class<?> entityClass) {
+        SemanticExternalScan scan = entityClass == null ? null : EXTERNAL_SCAN_CACHE.get(entityClass);
+        if (scan == null) return null;
+        AuthorityFingerprint fingerprint = scan.fingerprint();
+        return new PersistedExternalScan(scan.result(), scan.observedAuthorities(), fingerprint.fieldKeys(),
+                fingerprint.accessorKeys(), fingerprint.nbtKeys(), fingerprint.usable());
+    }
+
+    /* 两侧都完整跑完才导出；任一侧超时或仍在运行时整段不落盘。 */
+    static PersistedMaintenance exportMaintenance(Class<?> entityClass) {
+        MaintenanceParts parts = entityClass == null ? null : MAINTENANCE_PARTS_CACHE.get(entityClass);
+        if (parts == null) return null;
+        synchronized (parts) {
+            if (!parts.tickResolved || !parts.authorityResolved
+                    || parts.tickTimedOut || parts.authorityTimedOut) return null;
+            return new PersistedMaintenance(parts.tickWrites, parts.authorityWrites);
+        }
+    }
+
+    // 调用方已持有 parts 锁；命中时两侧同时标记完成并按与现场分析相同的方式重建计划
+    private static void restoreMaintenanceParts(Class<?> entityClass, SemanticExternalScan semantic,
+                                                MaintenanceParts parts) {
+        if (parts.tickResolved || parts.authorityResolved) return;
+        PersistedMaintenance persisted = HealthAnalysisDiskCache.lookupMaintenance(entityClass);
+        if (persisted == null) return;
+        parts.tickWrites = persisted.tickWrites();
+        parts.authorityWrites = persisted.authorityWrites();
+        parts.tickCost = "tickWrites restored";
+        parts.authorityCost = "authorityWriters restored";
+        parts.tickResolved = true;
+        parts.authorityResolved = true;
+        List<StoreWrite> combined = mergeMaintenanceWrites(parts.tickWrites, parts.authorityWrites);
+        MAINTENANCE_PLAN_CACHE.put(entityClass, buildMaintenancePlan(semantic.observedAuthorities(), combined));
+        MAINTENANCE_SINKS_CACHE.put(entityClass, distinctSinks(combined));
+    }
+
     // 按 canonicalKey 去重，保留扫描顺序；ECA 自注入的落点在此剔除，不进入候选
     private static List<Source> distinctSinks(List<StoreWrite> writes) {
         Map<String, Source> byKey = new LinkedHashMap<>();
@@ -2703,7 +2773,7 @@ public final class HealthDataflowAnalyzer {
     }
 
     /* accessor 对象本身不带来源信息，只能在实体继承链的静态字段里反查持有它的那个。 */
-    private static String findAccessorFieldKey(Class<?> entityClass, EntityDataAccessor<?> accessor) {
+    static String findAccessorFieldKey(Class<?> entityClass, EntityDataAccessor<?> accessor) {
         for (Class<?> owner = entityClass; owner != null && owner != Object.class; owner = owner.getSuperclass()) {
             for (Field field : owner.getDeclaredFields()) {
                 if (!Modifier.isStatic(field.getModifiers())
@@ -2732,9 +2802,16 @@ public final class HealthDataflowAnalyzer {
         return cut <= 1 ? null : name.substring(0, cut - 1);
     }
 
-    private record WriterSite(String ownerInternal, String methodName, String methodDesc) {}
+    record WriterSite(String ownerInternal, String methodName, String methodDesc) {}
 
     private static final Map<String, List<WriterSite>> AUTHORITY_WRITER_SITES = new ConcurrentHashMap<>();
+    static {
+        // 索引里某类的站点变化时，作废覆盖该类的范围缓存(键形如 "范围前缀|指纹范围")
+        WriterSiteIndex.setChangeListener(owner -> AUTHORITY_WRITER_SITES.keySet().removeIf(key -> {
+            int bar = key.indexOf('|');
+            return bar > 0 && owner.startsWith(key.substring(0, bar).replace('.', '/'));
+        }));
+    }
     private static final int WRITER_SCAN_CLASS_LIMIT = 30_000;
 
     private static WriterSiteScan findAuthorityWriterSites(Class<?> entityClass,
@@ -2746,8 +2823,14 @@ public final class HealthDataflowAnalyzer {
         if (scope == null) return WriterSiteScan.EMPTY;
         String key = scope + "|" + fingerprint.cacheScope();
         List<WriterSite> cached = AUTHORITY_WRITER_SITES.get(key);
-        if (cached != null) return new WriterSiteScan(cached, false);
-        WriterSiteScan scan = scanLoadedClassesForWriterSites(scope, fingerprint, deadline);
+        // 范围内仍有未消化的新类时不用缓存：它们可能带来新的写入者
+        if (cached != null && !(WriterSiteIndex.isInstalled()
+                && WriterSiteIndex.hasPending(scope.replace('.', '/')))) {
+            return new WriterSiteScan(cached, false);
+        }
+        WriterSiteScan scan = WriterSiteIndex.isInstalled()
+                ? lookupIndexedWriterSites(scope, fingerprint, deadline)
+                : scanLoadedClassesForWriterSites(scope, fingerprint, deadline);
         /* 被时间预算截断的结果绝不入缓存：一旦缓存，残缺的写源集会被当作完整结论长期复用，
            该模组此后再也扫不出真实权威写入者。不缓存则下次请求可以重新扫。 */
         if (!scan.timedOut()) AUTHORITY_WRITER_SITES.put(key, scan.sites());
@@ -2759,6 +2842,16 @@ public final class HealthDataflowAnalyzer {
         private static final WriterSiteScan EMPTY = new WriterSiteScan(List.of(), false);
     }
 
+    /* 倒排索引路径：先在同一预算内消化捕获队列，再按指纹键直接取站点。
+       队列没消化完时结果同样按截断处理；已消化部分留在索引里，下次请求只需补剩余的类。 */
+    private static WriterSiteScan lookupIndexedWriterSites(String scope, AuthorityFingerprint fingerprint,
+                                                           long deadline) {
+        boolean complete = WriterSiteIndex.drain(scope.replace('.', '/'), deadline);
+        return new WriterSiteScan(WriterSiteIndex.lookup(scope, fingerprint.accessorKeys(), fingerprint.fieldKeys()),
+                !complete);
+    }
+
+    /* 未接入捕获通知时(分析器独立运行)的回退：受预算约束逐类扫描。 */
     private static WriterSiteScan scanLoadedClassesForWriterSites(String scope,
                                                                   AuthorityFingerprint fingerprint,
                                                                   long deadline) {
@@ -2877,7 +2970,12 @@ public final class HealthDataflowAnalyzer {
         if (entityClass == null) return null;
         DeathGate cached = DEATH_GATE_CACHE.get(entityClass);
         if (cached != null) return cached == NO_DEATH_GATE ? null : cached;
-        DeathGate gate = detectDeathGate(entityClass);
+        HealthAnalysisDiskCache.PersistedDeathGate persisted = HealthAnalysisDiskCache.lookupDeathGate(entityClass);
+        if (persisted != null) {
+            DEATH_GATE_CACHE.put(entityClass, persisted.gate() != null ? persisted.gate() : NO_DEATH_GATE);
+            return persisted.gate();
+        }
+        DeathGate gate = recordingDependencies(entityClass, () -> detectDeathGate(entityClass));
         DEATH_GATE_CACHE.put(entityClass, gate != null ? gate : NO_DEATH_GATE);
         return gate;
     }
@@ -2893,10 +2991,8 @@ public final class HealthDataflowAnalyzer {
         ClassAndMethod target = findMethodOwner(entityClass, method);
         if (target == null) return null;
         try {
-            byte[] bytes = classBytes(target.owner());
-            if (bytes == null) return null;
-            ClassNode cn = new ClassNode();
-            new ClassReader(bytes).accept(cn, 0);
+            ClassNode cn = classNode(target.owner());
+            if (cn == null) return null;
             MethodNode mn = null;
             for (MethodNode m : cn.methods) {
                 if (m.name.equals(target.name()) && m.desc.equals(method.desc())) { mn = m; break; }
@@ -2927,6 +3023,15 @@ public final class HealthDataflowAnalyzer {
         return null;
     }
 
+    static Set<Class<?>> deathGateClasses() {
+        return Collections.unmodifiableSet(DEATH_GATE_CACHE.keySet());
+    }
+
+    // 未分析过返回 null；已分析但无门控时返回字段为空的 NO_DEATH_GATE 哨兵
+    static DeathGate exportDeathGate(Class<?> entityClass) {
+        return entityClass == null ? null : DEATH_GATE_CACHE.get(entityClass);
+    }
+
     // 从 INVOKESTATIC 向前找喂入其参数的 GETFIELD(只越过 ALOAD/DUP/CHECKCAST 等无害指令)，限定接收者为 this(ALOAD_0)。
     private static FieldInsnNode findFeedingGetField(AbstractInsnNode from) {
         AbstractInsnNode cur = from.getPrevious();
@@ -3909,7 +4014,7 @@ public final class HealthDataflowAnalyzer {
         }
     }
 
-    private static Expr makeFieldChainSource(List<FieldStep> chain) {
+    static Expr makeFieldChainSource(List<FieldStep> chain) {
         try {
             VarHandle[] handles = new VarHandle[chain.size()];
             Class<?> lastType = null;
@@ -4020,10 +4125,8 @@ public final class HealthDataflowAnalyzer {
     private static Set<String> methodHandleDispatchers(Class<?> owner) {
         Set<String> names = new HashSet<>();
         try {
-            byte[] bytes = classBytes(owner);
-            if (bytes == null) return names;
-            ClassNode cn = new ClassNode();
-            new ClassReader(bytes).accept(cn, 0);
+            ClassNode cn = classNode(owner);
+            if (cn == null) return names;
             for (MethodNode mn : cn.methods) {
                 for (AbstractInsnNode insn : mn.instructions) {
                     if (insn instanceof MethodInsnNode call && isMethodHandleInvoke(call)) {
@@ -4084,6 +4187,11 @@ public final class HealthDataflowAnalyzer {
             return Kind.NOT_REAL_HEALTH;
         }
 
+        /* 磁盘缓存还原：源列表按落盘顺序原样恢复，不再重跑常数覆写改写与源收集。 */
+        static AnalysisResult restore(Expr e, List<Source> sources, Class<?> definingClass) {
+            return new AnalysisResult(e, List.copyOf(sources), definingClass);
+        }
+
         public static AnalysisResult of(Expr e, Class<?> definingClass) {
             Expr rewritten = rewriteConstOverrides(e);
             return new AnalysisResult(rewritten, List.copyOf(collectSources(rewritten)), definingClass);
@@ -4638,11 +4746,9 @@ public final class HealthDataflowAnalyzer {
     private record ClassAndMethod(Class<?> owner, String name) {}
 
     static boolean classDefinesMethod(Class<?> clazz, String name, String desc) {
-        byte[] bytes = classBytes(clazz);
-        if (bytes == null) return false;
         try {
-            ClassNode cn = new ClassNode();
-            new ClassReader(bytes).accept(cn, 0);
+            ClassNode cn = classNode(clazz);
+            if (cn == null) return false;
             for (MethodNode mn : cn.methods) if (mn.name.equals(name) && mn.desc.equals(desc)) return true;
         } catch (Exception ignored) {}
         return false;
@@ -4657,37 +4763,62 @@ public final class HealthDataflowAnalyzer {
         return BYTES_FETCH_COUNT.get()[0];
     }
 
-    private static byte[] classBytes(Class<?> clazz) {
+    static byte[] classBytes(Class<?> clazz) {
+        noteDependency(clazz);
+        return untrackedClassBytes(clazz);
+    }
+
+    /* 不登记为分析依赖的读取：磁盘缓存算摘要时使用，避免缓存查询本身混进外层分析的依赖集。 */
+    static byte[] untrackedClassBytes(Class<?> clazz) {
         BYTES_FETCH_COUNT.get()[0]++;
         return bytesProvider.get(clazz);
     }
 
+    /* 分析依赖记录：一次分析读过哪些类的字节码(被内联的 helper、被调用方、超类)，
+       磁盘缓存据此把这些类的摘要一并纳入键，任一依赖变化即作废。
+       帧按栈嵌套：分析中途触发另一实体的分析时，内层读到的类同样算作外层的依赖。 */
+    private static final ThreadLocal<ArrayDeque<Set<Class<?>>>> DEPENDENCY_FRAMES =
+            ThreadLocal.withInitial(ArrayDeque::new);
+    private static final Map<Class<?>, Set<Class<?>>> ANALYSIS_DEPENDENCIES = new ConcurrentHashMap<>();
+
+    static <T> T recordingDependencies(Class<?> target, Supplier<T> analysis) {
+        ArrayDeque<Set<Class<?>>> frames = DEPENDENCY_FRAMES.get();
+        Set<Class<?>> frame = new HashSet<>();
+        frames.push(frame);
+        try {
+            return analysis.get();
+        } finally {
+            frames.pop();
+            if (target != null && !frame.isEmpty()) {
+                ANALYSIS_DEPENDENCIES.computeIfAbsent(target, ignored -> ConcurrentHashMap.newKeySet()).addAll(frame);
+            }
+        }
+    }
+
+    private static void noteDependency(Class<?> clazz) {
+        if (clazz == null) return;
+        ArrayDeque<Set<Class<?>>> frames = DEPENDENCY_FRAMES.get();
+        if (frames.isEmpty()) return;
+        for (Set<Class<?>> frame : frames) frame.add(clazz);
+    }
+
+    /* 本会话对该类所做分析读到的全部类；未在本会话分析过返回空集。 */
+    static Set<Class<?>> analysisDependencies(Class<?> target) {
+        Set<Class<?>> deps = target == null ? null : ANALYSIS_DEPENDENCIES.get(target);
+        return deps != null ? Collections.unmodifiableSet(deps) : Collections.emptySet();
+    }
+
     /* 解析结果缓存：深度内联会把同一批类反复解析上千次，而 EXPAND_FRAMES 展开栈映射帧是最贵的一步。
-       缓存按线程私有，因为 ASM 的 InsnList.indexOf 会惰性写 insnNode.index，共享实例存在数据竞争；
-       而每次分析本就在单线程内跑完，重复解析也发生在同一线程内，线程私有不损命中率。
-       值用软引用并限量淘汰，避免常驻分析线程持续累积展开后的 ClassNode。
+       缓存进程级共享(AnalysisClassCache)：发布前预建指令下标，之后 indexOf 只读，多条分析线程复用同一份解析树，
+       LivingEntity/Entity 这类公共父类在整个预热期只解析一次。
        只服务于只读分析路径；ConstOverride 与 HeadBridge 注入会改指令，必须各自重新解析。 */
-    private static final int CLASS_NODE_CACHE_LIMIT = 128;
-    private static final ThreadLocal<LinkedHashMap<Class<?>, SoftReference<ClassNode>>> CLASS_NODE_CACHE =
-            ThreadLocal.withInitial(() -> new LinkedHashMap<>(32, 0.75f, true) {
-                @Override protected boolean removeEldestEntry(Map.Entry<Class<?>, SoftReference<ClassNode>> eldest) {
-                    return size() > CLASS_NODE_CACHE_LIMIT;
-                }
-            });
 
     /* 取该类以 EXPAND_FRAMES 解析出的 ClassNode；调用方只读，不得修改返回的节点。 */
     private static ClassNode classNode(Class<?> clazz) {
         if (clazz == null) return null;
-        LinkedHashMap<Class<?>, SoftReference<ClassNode>> cache = CLASS_NODE_CACHE.get();
-        SoftReference<ClassNode> cached = cache.get(clazz);
-        ClassNode node = cached == null ? null : cached.get();
-        if (node != null) return node;
-        byte[] bytes = classBytes(clazz);
-        if (bytes == null) return null;
-        node = new ClassNode();
-        new ClassReader(bytes).accept(node, ClassReader.EXPAND_FRAMES);
-        cache.put(clazz, new SoftReference<>(node));
-        return node;
+        //解析树命中共享缓存时不会再取字节码，依赖须在此处登记
+        noteDependency(clazz);
+        return AnalysisClassCache.get(clazz, HealthDataflowAnalyzer::classBytes);
     }
 
     /* 在已解析的类中按名字与描述符定位方法；找不到返回 null。 */
@@ -5002,6 +5133,11 @@ public final class HealthDataflowAnalyzer {
         @Override public int hashCode() { return Objects.hash(size, expr); }
     }
 
+    /* 实体形参占位只在本类内部构造；磁盘缓存按身份编码与还原，不复制实例。 */
+    static Expr entityParamMarker() {
+        return EntityParamMarker.I;
+    }
+
     private static final class EntityParamMarker implements Expr {
         static final EntityParamMarker I = new EntityParamMarker();
     }
@@ -6073,7 +6209,7 @@ public final class HealthDataflowAnalyzer {
 
     /* 求值上下文：携带当前实体实例，让 solve/evaluate 现读其字段值代入演算(只读不写) */
     public record SimpleEvalContext(LivingEntity entity) implements EvalContext {
-        @Override public Object eval(Expr e) { return evaluate(e, this); }
+        @Override public Object eval(Expr e) { return CompiledExprEvaluator.evaluate(e, this); }
     }
 
     /* 公开求值上下文工厂：供写入侧/外部模块在反演前为某个实体构造一个轻量上下文 */
@@ -10,8 +10,6 @@ import net.minecraft.world.entity.LivingEntity;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 /*
@@ -81,36 +79,27 @@ public class HealthLockManager {
     // ==================== 快速路径 ====================
 
     /*
-      按 entityId 记录当前有活跃锁的实体。
-      绝大多数实体从未被锁定——get 方法中先查此集合，不在直接返回 null。
+      按 entityId 缓存已解密的锁定值(HealthLockTable)：写入时解密一次，读取只做一次原始数组探测。
+      绝大多数实体从未被锁定——探测未命中即返回 NaN，不再每次读三个字符串字段、解析并装箱。
+      防篡改校验移到服务端每 tick 复核(revalidate)：存储被改写后至多一 tick 内生效，与原先逐次校验的结论一致。
      */
-    private static final Set<Integer> HEALTH_LOCK_IDS      = ConcurrentHashMap.newKeySet();
-    private static final Set<Integer> HEAL_BAN_IDS         = ConcurrentHashMap.newKeySet();
-    private static final Set<Integer> MAX_HEALTH_LOCK_IDS  = ConcurrentHashMap.newKeySet();
 
-    // 从 NBT 恢复后重新填充快速路径集合（由 LivingEntityMixin.readAdditionalSaveData 调用）
+    // 从 NBT 恢复后重新填充快速路径表（由 LivingEntityMixin.readAdditionalSaveData 调用）
     /**
-     * Repopulate the fast-path sets from already-restored SynchedEntityData.
+     * Repopulate the fast-path table from already-restored SynchedEntityData.
      * Called after NBT data is read back into SynchedEntityData during entity load,
      * so that {@link #getLock}, {@link #getHealBan}, and {@link #getMaxHealthLock}
-     * don't return null due to an empty fast-path set.
+     * don't return null due to an empty fast-path table.
      *
      * @param entity the entity whose fast paths should be restored
      */
     public static void restoreFastPaths(LivingEntity entity) {
         if (entity == null) return;
+        int id = entity.getId();
 
         // 锁血快速路径
-        if (EntityUtil.HEALTH_LOCK_VALUE != null
-                && EntityUtil.HEALTH_LOCK_KEY != null
-                && EntityUtil.HEALTH_LOCK_CHECK != null
-                && validateIntegrity(entity,
-                    EntityUtil.HEALTH_LOCK_VALUE, EntityUtil.HEALTH_LOCK_KEY, EntityUtil.HEALTH_LOCK_CHECK)) {
-            Float decrypted = decryptLockValue(entity, EntityUtil.HEALTH_LOCK_VALUE, EntityUtil.HEALTH_LOCK_KEY);
-            if (decrypted != null && decrypted > 0.0f) {
-                HEALTH_LOCK_IDS.add(entity.getId());
-            }
-        }
+        Float lock = readStoredLock(entity, false);
+        if (lock != null) HealthLockTable.put(id, HealthLockTable.HEALTH_LOCK, lock);
 
         // 禁疗快速路径
         if (EntityUtil.HEAL_BAN_VALUE != null) {
@@ -119,22 +108,70 @@ public class HealthLockManager {
                 healBan = entity.getEntityData().get(EntityUtil.HEAL_BAN_VALUE);
             } catch (Throwable ignored) {}
             if (healBan != null && !healBan.isEmpty()) {
-                HEAL_BAN_IDS.add(entity.getId());
+                HealthLockTable.put(id, HealthLockTable.HEAL_BAN, decodeHealBan(healBan));
             }
         }
 
         // 最大血量锁定快速路径
-        if (EntityUtil.MAX_HEALTH_LOCK_VALUE != null
-                && EntityUtil.MAX_HEALTH_LOCK_KEY != null
-                && EntityUtil.MAX_HEALTH_LOCK_CHECK != null
-                && validateIntegrity(entity,
-                    EntityUtil.MAX_HEALTH_LOCK_VALUE, EntityUtil.MAX_HEALTH_LOCK_KEY, EntityUtil.MAX_HEALTH_LOCK_CHECK)) {
-            Float decrypted = decryptLockValue(entity,
-                    EntityUtil.MAX_HEALTH_LOCK_VALUE, EntityUtil.MAX_HEALTH_LOCK_KEY);
-            if (decrypted != null && decrypted > 0.0f) {
-                MAX_HEALTH_LOCK_IDS.add(entity.getId());
+        Float maxLock = readStoredLock(entity, true);
+        if (maxLock != null) HealthLockTable.put(id, HealthLockTable.MAX_HEALTH_LOCK, maxLock);
+    }
+
+    /**
+     * Re-read the encrypted lock storage of an entity that already has a fast-path entry and
+     * refresh the cached values. Runs once per server tick per locked entity; entities that
+     * were never locked return after a single table probe.
+     *
+     * @param entity the entity to revalidate
+     */
+    public static void revalidate(LivingEntity entity) {
+        if (entity == null || entity.level().isClientSide) return;
+        int id = entity.getId();
+
+        if (HealthLockTable.tracked(id, HealthLockTable.HEALTH_LOCK)) {
+            Float lock = readStoredLock(entity, false);
+            if (lock != null) {
+                HealthLockTable.put(id, HealthLockTable.HEALTH_LOCK, lock);
+            } else if (HealthLockTable.bits(id, HealthLockTable.HEALTH_LOCK) != HealthLockTable.SUSPENDED) {
+                EcaLogger.info("[HealthLock] integrity check failed entity={} id={}", entity.getClass().getName(), id);
+                HealthLockTable.suspend(id, HealthLockTable.HEALTH_LOCK);
             }
         }
+
+        if (HealthLockTable.tracked(id, HealthLockTable.HEAL_BAN)) {
+            String encrypted = EntityUtil.HEAL_BAN_VALUE != null
+                    ? readSynchedSafely(entity, EntityUtil.HEAL_BAN_VALUE)
+                    : entity.getPersistentData().getString(NBT_HEAL_BAN_VALUE);
+            if (encrypted == null || encrypted.isEmpty()) {
+                HealthLockTable.suspend(id, HealthLockTable.HEAL_BAN);
+            } else {
+                HealthLockTable.put(id, HealthLockTable.HEAL_BAN, decodeHealBan(encrypted));
+            }
+        }
+
+        if (HealthLockTable.tracked(id, HealthLockTable.MAX_HEALTH_LOCK)) {
+            Float maxLock = readStoredLock(entity, true);
+            if (maxLock != null) {
+                HealthLockTable.put(id, HealthLockTable.MAX_HEALTH_LOCK, maxLock);
+            } else if (HealthLockTable.bits(id, HealthLockTable.MAX_HEALTH_LOCK) != HealthLockTable.SUSPENDED) {
+                EcaLogger.info("[HealthLock] max health integrity check failed entity={} id={}", entity.getClass().getName(), id);
+                HealthLockTable.suspend(id, HealthLockTable.MAX_HEALTH_LOCK);
+            }
+        }
+    }
+
+    // 按完整性校验 + 解密读取存储中的锁定值；SynchedEntityData 访问器缺失时走 NBT 回退
+    private static Float readStoredLock(LivingEntity entity, boolean maxHealth) {
+        EntityDataAccessor<String> enc   = maxHealth ? EntityUtil.MAX_HEALTH_LOCK_VALUE : EntityUtil.HEALTH_LOCK_VALUE;
+        EntityDataAccessor<String> key   = maxHealth ? EntityUtil.MAX_HEALTH_LOCK_KEY   : EntityUtil.HEALTH_LOCK_KEY;
+        EntityDataAccessor<String> check = maxHealth ? EntityUtil.MAX_HEALTH_LOCK_CHECK : EntityUtil.HEALTH_LOCK_CHECK;
+        if (enc != null && key != null && check != null) {
+            if (!validateIntegrity(entity, enc, key, check)) return null;
+            return decryptLockValue(entity, enc, key);
+        }
+        return maxHealth
+                ? readNbtDecrypt(entity.getPersistentData(), NBT_MAX_HEALTH_LOCK_ENC, NBT_MAX_HEALTH_LOCK_KEY, NBT_MAX_HEALTH_LOCK_CHECK)
+                : readNbtDecrypt(entity.getPersistentData(), NBT_HEALTH_LOCK_ENC, NBT_HEALTH_LOCK_KEY, NBT_HEALTH_LOCK_CHECK);
     }
 
     // ==================== 工具方法 ====================
@@ -300,7 +337,7 @@ public class HealthLockManager {
 
     public static void setLock(LivingEntity entity, float value) {
         if (entity == null || !Float.isFinite(value) || value <= 0.0f) return;
-        HEALTH_LOCK_IDS.add(entity.getId());
+        HealthLockTable.put(entity.getId(), HealthLockTable.HEALTH_LOCK, value);
         if (EntityUtil.HEALTH_LOCK_VALUE != null
                 && EntityUtil.HEALTH_LOCK_KEY != null
                 && EntityUtil.HEALTH_LOCK_CHECK != null) {
@@ -314,7 +351,7 @@ public class HealthLockManager {
 
     public static void removeLock(LivingEntity entity) {
         if (entity == null) return;
-        HEALTH_LOCK_IDS.remove(entity.getId());
+        HealthLockTable.remove(entity.getId(), HealthLockTable.HEALTH_LOCK);
         if (EntityUtil.HEALTH_LOCK_VALUE != null
                 && EntityUtil.HEALTH_LOCK_KEY != null
                 && EntityUtil.HEALTH_LOCK_CHECK != null) {
@@ -328,32 +365,25 @@ public class HealthLockManager {
         }
     }
 
-    public static Float getLock(LivingEntity entity) {
-        if (entity == null) return null;
-        if (!HEALTH_LOCK_IDS.contains(entity.getId())) return null;
+    // 热路径：未锁返回 NaN，不装箱
+    public static float getLockValue(LivingEntity entity) {
+        return entity == null ? Float.NaN : HealthLockTable.value(entity.getId(), HealthLockTable.HEALTH_LOCK);
+    }
 
-        if (EntityUtil.HEALTH_LOCK_VALUE != null
-                && EntityUtil.HEALTH_LOCK_KEY != null
-                && EntityUtil.HEALTH_LOCK_CHECK != null) {
-            if (!validateIntegrity(entity,
-                    EntityUtil.HEALTH_LOCK_VALUE, EntityUtil.HEALTH_LOCK_KEY, EntityUtil.HEALTH_LOCK_CHECK)) {
-                EcaLogger.info("[HealthLock] integrity check failed entity={} id={}",
-                        entity.getClass().getName(), entity.getId());
-                return null;
-            }
-            return decryptLockValue(entity, EntityUtil.HEALTH_LOCK_VALUE, EntityUtil.HEALTH_LOCK_KEY);
-        }
-        // NBT 回退
-        Float nbtResult = readNbtDecrypt(entity.getPersistentData(),
-                NBT_HEALTH_LOCK_ENC, NBT_HEALTH_LOCK_KEY, NBT_HEALTH_LOCK_CHECK);
-        return nbtResult;
+    public static boolean hasLock(LivingEntity entity) {
+        return !Float.isNaN(getLockValue(entity));
+    }
+
+    public static Float getLock(LivingEntity entity) {
+        float value = getLockValue(entity);
+        return Float.isNaN(value) ? null : value;
     }
 
     // ==================== 最大血量锁定（新加密） ====================
 
     public static void setMaxHealthLock(LivingEntity entity, float value) {
         if (entity == null || !Float.isFinite(value) || value <= 0.0f) return;
-        MAX_HEALTH_LOCK_IDS.add(entity.getId());
+        HealthLockTable.put(entity.getId(), HealthLockTable.MAX_HEALTH_LOCK, value);
         if (EntityUtil.MAX_HEALTH_LOCK_VALUE != null
                 && EntityUtil.MAX_HEALTH_LOCK_KEY != null
                 && EntityUtil.MAX_HEALTH_LOCK_CHECK != null) {
@@ -367,7 +397,7 @@ public class HealthLockManager {
 
     public static void removeMaxHealthLock(LivingEntity entity) {
         if (entity == null) return;
-        MAX_HEALTH_LOCK_IDS.remove(entity.getId());
+        HealthLockTable.remove(entity.getId(), HealthLockTable.MAX_HEALTH_LOCK);
         if (EntityUtil.MAX_HEALTH_LOCK_VALUE != null
                 && EntityUtil.MAX_HEALTH_LOCK_KEY != null
                 && EntityUtil.MAX_HEALTH_LOCK_CHECK != null) {
@@ -381,26 +411,17 @@ public class HealthLockManager {
         }
     }
 
-    public static Float getMaxHealthLock(LivingEntity entity) {
-        if (entity == null) return null;
-        if (!MAX_HEALTH_LOCK_IDS.contains(entity.getId())) return null;
+    public static float getMaxHealthLockValue(LivingEntity entity) {
+        return entity == null ? Float.NaN : HealthLockTable.value(entity.getId(), HealthLockTable.MAX_HEALTH_LOCK);
+    }
 
-        if (EntityUtil.MAX_HEALTH_LOCK_VALUE != null
-                && EntityUtil.MAX_HEALTH_LOCK_KEY != null
-                && EntityUtil.MAX_HEALTH_LOCK_CHECK != null) {
-            if (!validateIntegrity(entity,
-                    EntityUtil.MAX_HEALTH_LOCK_VALUE, EntityUtil.MAX_HEALTH_LOCK_KEY, EntityUtil.MAX_HEALTH_LOCK_CHECK)) {
-                EcaLogger.info("[HealthLock] max health integrity check failed entity={} id={}",
-                        entity.getClass().getName(), entity.getId());
-                return null;
-            }
-            return decryptLockValue(entity,
-                    EntityUtil.MAX_HEALTH_LOCK_VALUE, EntityUtil.MAX_HEALTH_LOCK_KEY);
-        }
-        // NBT 回退
-        Float nbtResult = readNbtDecrypt(entity.getPersistentData(),
-                NBT_MAX_HEALTH_LOCK_ENC, NBT_MAX_HEALTH_LOCK_KEY, NBT_MAX_HEALTH_LOCK_CHECK);
-        return nbtResult;
+    public static boolean hasMaxHealthLock(LivingEntity entity) {
+        return !Float.isNaN(getMaxHealthLockValue(entity));
+    }
+
+    public static Float getMaxHealthLock(LivingEntity entity) {
+        float value = getMaxHealthLockValue(entity);
+        return Float.isNaN(value) ? null : value;
     }
 
     // ==================== 禁疗（旧加密，不变） ====================
@@ -409,8 +430,8 @@ public class HealthLockManager {
 
     public static void setHealBan(LivingEntity entity, float value) {
         if (entity == null) return;
-        HEAL_BAN_IDS.add(entity.getId());
         String encrypted = Float.toString(value - ENCRYPTION_OFFSET);
+        HealthLockTable.put(entity.getId(), HealthLockTable.HEAL_BAN, decodeHealBan(encrypted));
         if (EntityUtil.HEAL_BAN_VALUE != null) {
             entity.getEntityData().set(EntityUtil.HEAL_BAN_VALUE, encrypted);
         } else {
@@ -420,7 +441,7 @@ public class HealthLockManager {
 
     public static void removeHealBan(LivingEntity entity) {
         if (entity == null) return;
-        HEAL_BAN_IDS.remove(entity.getId());
+        HealthLockTable.remove(entity.getId(), HealthLockTable.HEAL_BAN);
         if (EntityUtil.HEAL_BAN_VALUE != null) {
             entity.getEntityData().set(EntityUtil.HEAL_BAN_VALUE, "");
         } else {
@@ -428,16 +449,21 @@ public class HealthLockManager {
         }
     }
 
+    public static float getHealBanValue(LivingEntity entity) {
+        return entity == null ? Float.NaN : HealthLockTable.value(entity.getId(), HealthLockTable.HEAL_BAN);
+    }
+
+    public static boolean hasHealBan(LivingEntity entity) {
+        return !Float.isNaN(getHealBanValue(entity));
+    }
+
     public static Float getHealBan(LivingEntity entity) {
-        if (entity == null) return null;
-        if (!HEAL_BAN_IDS.contains(entity.getId())) return null;
-        String encrypted;
-        if (EntityUtil.HEAL_BAN_VALUE != null) {
-            encrypted = readSynchedSafely(entity, EntityUtil.HEAL_BAN_VALUE);
-        } else {
-            encrypted = entity.getPersistentData().getString(NBT_HEAL_BAN_VALUE);
-        }
-        if (encrypted == null || encrypted.isEmpty()) return null;
+        float value = getHealBanValue(entity);
+        return Float.isNaN(value) ? null : value;
+    }
+
+    // 与写入同一份密文解出：表中缓存的值与存储复核读出的值逐位一致，稳态复核不会触发表重建
+    private static float decodeHealBan(String encrypted) {
         try { return Float.parseFloat(encrypted) + ENCRYPTION_OFFSET; }
         catch (NumberFormatException e) { return 0.0f; }
     }
@@ -0,0 +1,138 @@
+package net.eca.util.health;
+
+import java.util.Arrays;
+
+/*
+ * 锁定状态原始值表：entityId → 锁血 / 禁疗 / 最大血量锁定三个已解密的 float。
+ * getHealth 每次调用都会经过这里，绝大多数实体从未被锁定，因此读路径只做一次开放寻址探测，不装箱、不解析字符串。
+ * 写入少且集中(设锁、解锁、每 tick 复核)：写时复制整张表后以 volatile 发布，读者无锁拿到一致快照；
+ * 线性探测在重建时顺带清理空条目，不需要墓碑。
+ * 值以 float 位模式存放，两个 NaN 位模式充当哨兵：ABSENT 表示未锁，SUSPENDED 表示记录仍在但当前校验失败——
+ * 读者看到的都是 NaN(即未锁)，复核方据 SUSPENDED 继续跟踪，存储恢复后锁定随之恢复。
+ */
+final class HealthLockTable {
+
+    private HealthLockTable() {}
+
+    static final int HEALTH_LOCK = 0;
+    static final int HEAL_BAN = 1;
+    static final int MAX_HEALTH_LOCK = 2;
+    private static final int KINDS = 3;
+
+    static final int ABSENT = 0x7fc00000;
+    static final int SUSPENDED = 0x7fc05eca;
+
+    // 实体 id 由全局计数器自增分配，不会取到该值
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private static final class Snapshot {
+        final int[] keys;
+        final int[] values;
+        final int size;
+
+        Snapshot(int[] keys, int[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    private static volatile Snapshot current = empty(MIN_CAPACITY);
+
+    /* ==================== 读 ==================== */
+
+    /* 取某类锁定的原始位模式；未登记时返回 ABSENT。 */
+    static int bits(int entityId, int kind) {
+        Snapshot s = current;
+        int[] keys = s.keys;
+        int mask = keys.length - 1;
+        for (int i = mix(entityId) & mask; ; i = (i + 1) & mask) {
+            int key = keys[i];
+            if (key == entityId) return s.values[i * KINDS + kind];
+            if (key == EMPTY_KEY) return ABSENT;
+        }
+    }
+
+    /* 取锁定值；未锁或校验挂起时返回 NaN。 */
+    static float value(int entityId, int kind) {
+        return Float.intBitsToFloat(bits(entityId, kind));
+    }
+
+    // 已登记(含挂起)：复核据此决定是否需要重读存储
+    static boolean tracked(int entityId, int kind) {
+        return bits(entityId, kind) != ABSENT;
+    }
+
+    /* ==================== 写 ==================== */
+
+    static void put(int entityId, int kind, float value) {
+        set(entityId, kind, Float.floatToRawIntBits(value));
+    }
+
+    static void suspend(int entityId, int kind) {
+        set(entityId, kind, SUSPENDED);
+    }
+
+    static void remove(int entityId, int kind) {
+        set(entityId, kind, ABSENT);
+    }
+
+    // 值未变化时不重建，每 tick 复核在稳态下不产生写入
+    private static synchronized void set(int entityId, int kind, int bits) {
+        if (entityId == EMPTY_KEY || bits(entityId, kind) == bits) return;
+        Snapshot old = current;
+        int live = old.size + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < live * 2) capacity <<= 1;
+        Snapshot next = empty(capacity);
+        int size = 0;
+        boolean placed = false;
+        for (int slot = 0; slot < old.keys.length; slot++) {
+            int key = old.keys[slot];
+            if (key == EMPTY_KEY) continue;
+            int[] row = new int[KINDS];
+            System.arraycopy(old.values, slot * KINDS, row, 0, KINDS);
+            if (key == entityId) {
+                row[kind] = bits;
+                placed = true;
+            }
+            if (insert(next, key, row)) size++;
+        }
+        if (!placed) {
+            int[] row = {ABSENT, ABSENT, ABSENT};
+            row[kind] = bits;
+            if (insert(next, entityId, row)) size++;
+        }
+        current = new Snapshot(next.keys, next.values, size);
+    }
+
+    // 三类全部为 ABSENT 的行不再写入新表
+    private static boolean insert(Snapshot table, int key, int[] row) {
+        boolean any = false;
+        for (int bits : row) any |= bits != ABSENT;
+        if (!any) return false;
+        int mask = table.keys.length - 1;
+        int i = mix(key) & mask;
+        while (table.keys[i] != EMPTY_KEY) i = (i + 1) & mask;
+        table.keys[i] = key;
+        System.arraycopy(row, 0, table.values, i * KINDS, KINDS);
+        return true;
+    }
+
+    private static Snapshot empty(int capacity) {
+        int[] keys = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        return new Snapshot(keys, new int[capacity * KINDS], 0);
+    }
+
+    // 自增 id 连续分布，乘法散列打散到整张表
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int size() {
+        return current.size;
+    }
+}
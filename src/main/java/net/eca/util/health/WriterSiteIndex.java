@@ -0,0 +1,285 @@
+package net.eca.util.health;
+
+import net.eca.coremod.EcaTransformerManager;
+import net.eca.coremod.RuntimeBytecodeProvider;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/*
+ * 权威写入者倒排索引：字段坐标 → 引用它的 (类, 方法) 站点。
+ * 取代按需扫描全部已加载类：RuntimeBytecodeProvider 每捕获一个类只通知内部名，
+ * 待处理类按包前缀(前三段，与模组范围前缀同口径)分桶，查询只消化与所查范围相关的桶，后台预热再消化其余。
+ * 每类只留字节码摘要与它贡献过的键：重转换后摘要变化时先撤下该类旧站点再重新索引，同一字节码的重复通知直接跳过。
+ * 站点变化时通知监听者，使按范围缓存的查询结果失效，后加载的类能到达调用方。
+ * 只收两种指令，与权威指纹的两类键一一对应：
+ *   GETSTATIC 读取 EntityDataAccessor 静态字段(owner#name)，PUTFIELD 写入任意实例字段(owner#name#desc)。
+ * 同一方法对同一字段只记一个站点；JDK、ASM 与 ECA 自身的类不参与索引。
+ */
+final class WriterSiteIndex {
+
+    private WriterSiteIndex() {}
+
+    private static final String ENTITY_DATA_ACCESSOR_DESC = "Lnet/minecraft/network/syncher/EntityDataAccessor;";
+    private static final String[] EXCLUDED_PREFIXES = {
+            "java/", "javax/", "jdk/", "sun/", "com/sun/", "org/objectweb/asm/", "net/eca/"
+    };
+
+    private static final Map<String, Set<HealthDataflowAnalyzer.WriterSite>> ACCESSOR_READERS = new ConcurrentHashMap<>();
+    private static final Map<String, Set<HealthDataflowAnalyzer.WriterSite>> FIELD_WRITERS = new ConcurrentHashMap<>();
+
+    /* 已索引的类：字节码摘要 + 该类贡献过的两类键，重新索引时据此撤下旧站点。 */
+    private record IndexedClass(long digest, Set<String> accessorKeys, Set<String> fieldKeys) {}
+
+    private static final Map<String, IndexedClass> INDEXED = new ConcurrentHashMap<>();
+    /* 按类名条带化的索引锁：解析不放进 INDEXED 的 compute，避免长时间占用哈希桶。 */
+    private static final Object[] INDEX_LOCKS = new Object[64];
+    static {
+        for (int i = 0; i < INDEX_LOCKS.length; i++) INDEX_LOCKS[i] = new Object();
+    }
+
+    /* 待处理类：按包前缀分桶。name 为捕获通知的内部名；loaded 为捕获器注册前已加载、运行期缓存里没有字节的类。 */
+    private record Pending(String name, Class<?> loaded) {}
+
+    private static final Map<String, Queue<Pending>> PENDING = new ConcurrentHashMap<>();
+
+    private static volatile boolean installed = false;
+    private static volatile boolean seeded = false;
+    private static volatile Consumer<String> changeListener = owner -> {};
+
+    /* HealthDataFlow 初始化时接入捕获通知；未接入时分析器回退逐类扫描。 */
+    static void install() {
+        if (installed) return;
+        synchronized (WriterSiteIndex.class) {
+            if (installed) return;
+            RuntimeBytecodeProvider.setCaptureListener(WriterSiteIndex::onCaptured);
+            installed = true;
+        }
+    }
+
+    static boolean isInstalled() {
+        return installed;
+    }
+
+    /* 某类的站点被新增或撤下时回调其内部名；分析器据此作废覆盖该类的范围缓存。 */
+    static void setChangeListener(Consumer<String> listener) {
+        changeListener = listener != null ? listener : owner -> {};
+    }
+
+    private static void onCaptured(String internalName) {
+        if (internalName == null || internalName.contains("/0x") || isExcluded(internalName)) return;
+        enqueue(new Pending(internalName, null));
+    }
+
+    private static void enqueue(Pending pending) {
+        String name = pending.name() != null ? pending.name() : pending.loaded().getName().replace('.', '/');
+        PENDING.computeIfAbsent(bucketOf(name), ignored -> new ConcurrentLinkedQueue<>()).add(pending);
+    }
+
+    private static boolean isExcluded(String internalName) {
+        for (String prefix : EXCLUDED_PREFIXES) {
+            if (internalName.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    // 包名前三段(不足三段取全部包名)，与 modScopePrefix 的截取口径一致
+    private static String bucketOf(String internalName) {
+        int packageEnd = internalName.lastIndexOf('/');
+        if (packageEnd < 0) return "";
+        int cut = 0;
+        for (int segment = 0; segment < 3; segment++) {
+            int slash = internalName.indexOf('/', cut);
+            if (slash < 0 || slash > packageEnd) break;
+            cut = slash + 1;
+        }
+        return internalName.substring(0, cut - 1);
+    }
+
+    // 该桶中是否可能有以 scopeInternal 开头的类：桶比范围细(桶以范围开头)或比范围粗(范围以桶开头)都算
+    private static boolean bucketOverlaps(String bucket, String scopeInternal) {
+        return scopeInternal == null || bucket.startsWith(scopeInternal) || scopeInternal.startsWith(bucket);
+    }
+
+    /* ==================== 消化 ==================== */
+
+    /* 消化全部待处理类直到清空或超出截止时间；返回 true 表示索引已覆盖全部已知类。 */
+    static boolean drain(long deadline) {
+        return drain(null, deadline);
+    }
+
+    /* 只消化与 scopeInternal(内部名前缀，null 表示全部)相关的桶；返回 true 表示这些桶已清空。 */
+    static boolean drain(String scopeInternal, long deadline) {
+        seedUncaptured();
+        for (Map.Entry<String, Queue<Pending>> bucket : PENDING.entrySet()) {
+            if (!bucketOverlaps(bucket.getKey(), scopeInternal)) continue;
+            Queue<Pending> queue = bucket.getValue();
+            for (;;) {
+                if (System.nanoTime() > deadline) return !hasPending(scopeInternal);
+                Pending pending = queue.poll();
+                if (pending == null) break;
+                if (pending.name() != null) indexCaptured(pending.name());
+                else indexLoaded(pending.loaded());
+            }
+        }
+        return true;
+    }
+
+    static boolean hasPending(String scopeInternal) {
+        for (Map.Entry<String, Queue<Pending>> bucket : PENDING.entrySet()) {
+            if (bucketOverlaps(bucket.getKey(), scopeInternal) && !bucket.getValue().isEmpty()) return true;
+        }
+        return false;
+    }
+
+    // 一次性补齐捕获器注册前加载、且运行期缓存里没有字节的类
+    private static void seedUncaptured() {
+        if (seeded) return;
+        synchronized (WriterSiteIndex.class) {
+            if (seeded) return;
+            seeded = true;
+            EcaTransformerManager.forEachLoadedClass(clazz -> {
+                if (clazz == null || clazz.isHidden() || clazz.isArray() || clazz.isPrimitive()) return;
+                String internalName = clazz.getName().replace('.', '/');
+                if (isExcluded(internalName) || RuntimeBytecodeProvider.getByName(internalName) != null) return;
+                enqueue(new Pending(null, clazz));
+            });
+        }
+    }
+
+    private static void indexCaptured(String internalName) {
+        byte[] bytes = RuntimeBytecodeProvider.getByName(internalName);
+        if (bytes != null) reindex(internalName, bytes);
+    }
+
+    private static void indexLoaded(Class<?> clazz) {
+        String internalName = clazz.getName().replace('.', '/');
+        if (INDEXED.containsKey(internalName)) return;
+        // 消化常发生在某次分析的依赖记录期间，被顺带索引的类不是该分析的依赖
+        byte[] bytes = HealthDataflowAnalyzer.untrackedClassBytes(clazz);
+        if (bytes != null) reindex(internalName, bytes);
+    }
+
+    // 同类的消化可能在预热道与查询线程上交错，按类名串行化撤下与重建
+    private static void reindex(String internalName, byte[] bytes) {
+        long digest = digest(bytes);
+        boolean changed;
+        synchronized (INDEX_LOCKS[(internalName.hashCode() & 0x7FFFFFFF) % INDEX_LOCKS.length]) {
+            IndexedClass previous = INDEXED.get(internalName);
+            if (previous != null && previous.digest() == digest) return;
+            changed = previous != null && unrecord(internalName, previous);
+            IndexedClass current = new IndexedClass(digest, new LinkedHashSet<>(), new LinkedHashSet<>());
+            index(bytes, current);
+            INDEXED.put(internalName, current);
+            changed |= !current.accessorKeys().isEmpty() || !current.fieldKeys().isEmpty();
+        }
+        if (changed) changeListener.accept(internalName);
+    }
+
+    private static long digest(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return (crc.getValue() << 32) | (bytes.length & 0xFFFFFFFFL);
+    }
+
+    // 撤下该类此前贡献的全部站点；返回是否确有站点被移除
+    private static boolean unrecord(String ownerInternal, IndexedClass previous) {
+        boolean removed = unrecord(ACCESSOR_READERS, previous.accessorKeys(), ownerInternal);
+        removed |= unrecord(FIELD_WRITERS, previous.fieldKeys(), ownerInternal);
+        return removed;
+    }
+
+    private static boolean unrecord(Map<String, Set<HealthDataflowAnalyzer.WriterSite>> index, Set<String> keys,
+                                    String ownerInternal) {
+        boolean removed = false;
+        for (String key : keys) {
+            Set<HealthDataflowAnalyzer.WriterSite> sites = index.get(key);
+            if (sites == null) continue;
+            removed |= sites.removeIf(site -> site.ownerInternal().equals(ownerInternal));
+            if (sites.isEmpty()) index.remove(key, sites);
+        }
+        return removed;
+    }
+
+    private static void index(byte[] bytes, IndexedClass into) {
+        try {
+            ClassReader reader = new ClassReader(bytes);
+            String ownerInternal = reader.getClassName();
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                                 String signature, String[] exceptions) {
+                    return new MethodVisitor(Opcodes.ASM9) {
+                        // 方法内多个命中共用一个站点实例；无命中的方法不分配
+                        private HealthDataflowAnalyzer.WriterSite site;
+
+                        @Override
+                        public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDesc) {
+                            if (opcode == Opcodes.GETSTATIC && ENTITY_DATA_ACCESSOR_DESC.equals(fieldDesc)) {
+                                String key = owner + "#" + fieldName;
+                                record(ACCESSOR_READERS, key, site());
+                                into.accessorKeys().add(key);
+                            } else if (opcode == Opcodes.PUTFIELD) {
+                                String key = owner + "#" + fieldName + "#" + fieldDesc;
+                                record(FIELD_WRITERS, key, site());
+                                into.fieldKeys().add(key);
+                            }
+                        }
+
+                        private HealthDataflowAnalyzer.WriterSite site() {
+                            if (site == null) site = new HealthDataflowAnalyzer.WriterSite(ownerInternal, name, descriptor);
+                            return site;
+                        }
+                    };
+                }
+            }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError e) throw e;
+        }
+    }
+
+    private static void record(Map<String, Set<HealthDataflowAnalyzer.WriterSite>> index, String key,
+                               HealthDataflowAnalyzer.WriterSite site) {
+        index.computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet()).add(site);
+    }
+
+    /* ==================== 查询 ==================== */
+
+    /* 按指纹键取站点并限定在实体所属模组的包前缀内(与原逐类扫描的范围一致)。 */
+    static List<HealthDataflowAnalyzer.WriterSite> lookup(String scope, Set<String> accessorKeys, Set<String> fieldKeys) {
+        String scopeInternal = scope.replace('.', '/');
+        Set<HealthDataflowAnalyzer.WriterSite> sites = new LinkedHashSet<>();
+        collect(ACCESSOR_READERS, accessorKeys, scopeInternal, sites);
+        collect(FIELD_WRITERS, fieldKeys, scopeInternal, sites);
+        return List.copyOf(sites);
+    }
+
+    private static void collect(Map<String, Set<HealthDataflowAnalyzer.WriterSite>> index, Set<String> keys,
+                                String scopeInternal, Set<HealthDataflowAnalyzer.WriterSite> out) {
+        for (String key : keys) {
+            Set<HealthDataflowAnalyzer.WriterSite> hits = index.get(key);
+            if (hits == null) continue;
+            for (HealthDataflowAnalyzer.WriterSite site : hits) {
+                if (site.ownerInternal().startsWith(scopeInternal)) out.add(site);
+            }
+        }
+    }
+
+    static String stats() {
+        int pending = 0;
+        for (Queue<Pending> queue : PENDING.values()) pending += queue.size();
+        return "classes=" + INDEXED.size() + " accessorKeys=" + ACCESSOR_READERS.size()
+                + " fieldKeys=" + FIELD_WRITERS.size() + " pending=" + pending;
+    }
+}
@@ -2,11 +2,10 @@ package net.eca.util.item_extension;
 
 import net.eca.api.RegisterItemExtension;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.minecraft.world.item.Item;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
-import net.minecraftforge.fml.ModList;
-import net.minecraftforge.forgespi.language.IModInfo;
 
 import java.util.Collections;
 import java.util.Map;
@@ -18,20 +17,7 @@ public final class ItemExtensionManager {
     private static final Map<Item, ItemExtension> REGISTRY = new ConcurrentHashMap<>();
 
     public static void scanAndRegisterAll() {
-        ModList.get().forEachModFile(modFile -> {
-            for (IModInfo modInfo : modFile.getModInfos()) {
-                modFile.getScanResult().getAnnotations().forEach(annotationData -> {
-                    if (RegisterItemExtension.class.getName().equals(annotationData.annotationType().getClassName())) {
-                        String className = annotationData.clazz().getClassName();
-                        try {
-                            Class.forName(className, true, Thread.currentThread().getContextClassLoader());
-                        } catch (ClassNotFoundException e) {
-                            EcaLogger.error("Failed to load item extension class {}: {}", className, e.getMessage());
-                        }
-                    }
-                });
-            }
-        });
+        ModAnnotationIndex.loadAll(ModAnnotationIndex.get().annotated(RegisterItemExtension.class), "[ItemExtension]", clazz -> {});
     }
 
     public static boolean register(ItemExtension extension) {
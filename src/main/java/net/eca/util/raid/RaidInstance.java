@@ -1,10 +1,12 @@
 package net.eca.util.raid;
 
+import net.eca.config.EcaConfiguration;
 import net.eca.network.NetworkHandler;
 import net.eca.network.RaidBossBarSyncPacket;
 import net.eca.util.EcaLogger;
 import net.eca.util.faction.FactionManager;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.StringTag;
@@ -24,9 +26,9 @@ import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.MobSpawnType;
 import net.minecraft.world.entity.SpawnPlacements;
 import net.minecraft.world.level.NaturalSpawner;
-import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.level.levelgen.structure.Structure;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -64,6 +66,12 @@ public class RaidInstance {
     private static final String NBT_WAVE_TOTAL = "currentWaveTotal";
     private static final String NBT_STARTED = "started";
     private static final String NBT_RAIDERS = "raiders";
+    private static final String NBT_SPAWNING_WAVE = "spawningWave";
+    private static final String NBT_SPAWNED_THIS_WAVE = "spawnedThisWave";
+    private static final String NBT_PENDING_SPAWNS = "pendingSpawns";
+    private static final String NBT_PENDING_ENTRY = "entry";
+    private static final String NBT_PENDING_TYPE = "type";
+    private static final String NBT_PENDING_LEADER = "leader";
 
     private final int id;
     private final String definitionId;
@@ -79,9 +87,20 @@ public class RaidInstance {
     private boolean started = false;
     private final Set<UUID> raiderUuids = new LinkedHashSet<>();
 
+    /* 波次分批生成：开波时把整波展开成待生成队列，之后每 tick 按配置的数量与时间预算取出一部分生成。
+       队列未清空前不算该波生成完毕——wavesSpawned 不递增，也不判定波次结束与胜利。 */
+    private int spawningWaveIndex = -1;
+    private int spawnedThisWave = 0;
+    private final ArrayDeque<PendingSpawn> pendingSpawns = new ArrayDeque<>();
+    private final RaidSpawnPool spawnPool = new RaidSpawnPool();
+
     private List<RaidWave> cachedWaves;
     private ServerBossEvent bossEvent;
 
+    /* 开波、波次生成完毕、波次结束与减员这类状态转换时置位，由 RaidManager 取走后立即落盘；
+       分批生成中途的进度只随 RaidManager 的定期快照写入。 */
+    private boolean dirty = false;
+
     // 阵营绑定失败只警告一次，避免每个袭击者刷一条日志
     private boolean factionBindingWarned = false;
 
@@ -158,6 +177,21 @@ public class RaidInstance {
         return currentWaveTotal;
     }
 
+    // 取走并清除状态转换标记
+    boolean consumeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    // 当前波次是否仍在分批生成中
+    /**
+     * @return true while the current wave is still being spawned over several ticks
+     */
+    public boolean isSpawningWave() {
+        return spawningWaveIndex >= 0;
+    }
+
     // 获取全部袭击者 UUID（只读）
     public Set<UUID> getRaiderUuids() {
         return Collections.unmodifiableSet(raiderUuids);
@@ -265,6 +299,12 @@ public class RaidInstance {
             return;
         }
 
+        if (isSpawningWave()) {
+            tickWaveSpawning(level, def);
+            updateBossBarDisplay(level, def);
+            return;
+        }
+
         notifyWaveEnd(def, ctx);
 
         if (started && def.checkVictory(ctx)) {
@@ -278,13 +318,21 @@ public class RaidInstance {
 
     private void tickWaveProgress(ServerLevel level, RaidDefinition def, RaidContext ctx) {
         if (isAllWavesSpawned()) return;
+
+        // 等待清场与波间倒计时期间预先找好下一波的落点
+        List<RaidWave> waves = getWaves();
+        int nextIndex = def.isEndless() && !waves.isEmpty() ? wavesSpawned % waves.size() : wavesSpawned;
+        if (nextIndex < waves.size()) {
+            spawnPool.refill(level, center, waves.get(nextIndex).getSpawnRadius(), level.getRandom());
+        }
+
         if (!def.shouldAdvanceWave(ctx)) return;
 
         if (waveCooldown > 0) {
             waveCooldown--;
             return;
         }
-        spawnNextWave(level, def);
+        beginNextWave(level, def);
     }
 
     // 结束回调必须早于胜利与下一波开始，并通过持久化计数保证只触发一次
@@ -299,6 +347,7 @@ public class RaidInstance {
                 ? completedWaveNumber % waveCount
                 : completedWaveNumber;
         wavesCompleted = wavesSpawned;
+        dirty = true;
         def.onWaveEnd(ctx, waveIndex);
     }
 
@@ -316,7 +365,8 @@ public class RaidInstance {
 
     // ==================== 波次生成 ====================
 
-    private void spawnNextWave(ServerLevel level, RaidDefinition def) {
+    // 展开下一波的待生成队列，并在本 tick 生成第一批
+    private void beginNextWave(ServerLevel level, RaidDefinition def) {
         List<RaidWave> waves = getWaves();
         if (waves.isEmpty()) {
             EcaLogger.info("[Raid] Raid definition '{}' declares no waves — stopping raid {}", definitionId, id);
@@ -329,13 +379,13 @@ public class RaidInstance {
 
         RaidWave wave = waves.get(index);
         RandomSource random = level.getRandom();
-        int spawned = 0;
+        pendingSpawns.clear();
 
-        for (RaidSpawnEntry entry : wave.getEntries()) {
+        List<RaidSpawnEntry> entries = wave.getEntries();
+        for (int entryIndex = 0; entryIndex < entries.size(); entryIndex++) {
+            RaidSpawnEntry entry = entries.get(entryIndex);
             for (int i = 0; i < entry.getCount(); i++) {
-                if (spawnRaider(level, def, entry.getType(), wave, random, entry.getPostSpawn()) != null) {
-                    spawned++;
-                }
+                pendingSpawns.add(new PendingSpawn(entryIndex, entry.getType(), false));
             }
         }
 
@@ -347,25 +397,87 @@ public class RaidInstance {
                     // 类型池不可用，跳过该阵营在本波的剩余数量（rollMemberType 已记录原因）
                     break;
                 }
-                if (spawnRaider(level, def, type, wave, random, null) != null) {
-                    spawned++;
+                pendingSpawns.add(new PendingSpawn(-1, type, false));
+            }
+        }
+
+        RaidSpawnEntry leaderEntry = wave.getLeaderEntry();
+        if (leaderEntry != null) {
+            pendingSpawns.add(new PendingSpawn(-1, leaderEntry.getType(), true));
+        }
+
+        spawningWaveIndex = index;
+        spawnedThisWave = 0;
+        dirty = true;
+        tickWaveSpawning(level, def);
+    }
+
+    // 按每 tick 的数量与时间预算生成一批；至少生成一个，保证大波次也能推进
+    private void tickWaveSpawning(ServerLevel level, RaidDefinition def) {
+        List<RaidWave> waves = getWaves();
+        if (spawningWaveIndex >= waves.size()) {
+            // 定义的波次表已变化，剩余条目无从解析
+            pendingSpawns.clear();
+        } else {
+            RaidWave wave = waves.get(spawningWaveIndex);
+            RandomSource random = level.getRandom();
+            int limit = EcaConfiguration.getRaidSpawnsPerTickSafely();
+            long budgetNanos = EcaConfiguration.getRaidSpawnTimeBudgetMicrosSafely() * 1000L;
+            long startNanos = System.nanoTime();
+
+            for (int done = 0; done < limit && !pendingSpawns.isEmpty(); done++) {
+                if (done > 0 && budgetNanos > 0L && System.nanoTime() - startNanos >= budgetNanos) break;
+                if (spawnPending(level, def, wave, pendingSpawns.pollFirst(), random)) {
+                    spawnedThisWave++;
                 }
             }
         }
 
-        if (spawnWaveLeader(level, def, wave, random)) {
-            spawned++;
+        if (!pendingSpawns.isEmpty()) {
+            // 血条分母按整波预计数量计，生成过程中进度逐步涨满
+            currentWaveTotal = Math.max(spawnedThisWave + pendingSpawns.size(), 1);
+            return;
+        }
+        finishWave(level, def);
+    }
+
+    private boolean spawnPending(ServerLevel level, RaidDefinition def, RaidWave wave,
+                                 PendingSpawn pending, RandomSource random) {
+        if (pending.leader()) {
+            return spawnWaveLeader(level, def, wave, random);
         }
+        List<RaidSpawnEntry> entries = wave.getEntries();
+        Consumer<Mob> postSpawn = pending.entryIndex() >= 0 && pending.entryIndex() < entries.size()
+                ? entries.get(pending.entryIndex()).getPostSpawn()
+                : null;
+        return spawnRaider(level, def, pending.type(), wave, random, postSpawn) != null;
+    }
 
+    private void finishWave(ServerLevel level, RaidDefinition def) {
+        int index = spawningWaveIndex;
+        spawningWaveIndex = -1;
         wavesSpawned++;
         started = true;
-        currentWaveTotal = Math.max(spawned, 1);
-        waveCooldown = def.getWaveCooldownTicks() + wave.getSpawnDelayTicks();
+        currentWaveTotal = Math.max(spawnedThisWave, 1);
+        spawnedThisWave = 0;
+        dirty = true;
+
+        List<RaidWave> waves = getWaves();
+        int spawnDelay = index < waves.size() ? waves.get(index).getSpawnDelayTicks() : 0;
+        waveCooldown = def.getWaveCooldownTicks() + spawnDelay;
 
         def.onWaveStart(new RaidContext(level, this), index);
         updateBossBarDisplay(level, def);
     }
 
+    // 放弃尚未生成的部分，袭击结束时调用
+    private void cancelWaveSpawning() {
+        spawningWaveIndex = -1;
+        spawnedThisWave = 0;
+        pendingSpawns.clear();
+        spawnPool.clear();
+    }
+
     // 生成本波声明的首领，并将其设为袭击者阵营的首领
     private boolean spawnWaveLeader(ServerLevel level, RaidDefinition def, RaidWave wave, RandomSource random) {
         RaidSpawnEntry leaderEntry = wave.getLeaderEntry();
@@ -392,7 +504,11 @@ public class RaidInstance {
                                RaidWave wave, RandomSource random, Consumer<Mob> postSpawn) {
         if (type == null) return null;
 
-        BlockPos pos = findSpawnPos(level, wave.getSpawnRadius(), type, random);
+        BlockPos pos = spawnPool.take(level, wave.getSpawnRadius(), type);
+        if (pos == null) {
+            // 落点池为空或都不适合该类型时，退回原先的现场搜索
+            pos = findSpawnPos(level, wave.getSpawnRadius(), type, random);
+        }
         if (pos == null) {
             EcaLogger.info("[Raid] Raid {} found no valid spawn position for {} within {} blocks",
                     id, type.getDescriptionId(), wave.getSpawnRadius());
@@ -441,14 +557,7 @@ public class RaidInstance {
     private BlockPos findSpawnPos(ServerLevel level, double radius, EntityType<?> type, RandomSource random) {
         BlockPos.MutableBlockPos mutable = new BlockPos.MutableBlockPos();
         for (int attempt = 0; attempt < 16; attempt++) {
-            float angle = random.nextFloat() * ((float) Math.PI * 2);
-            int x = center.getX() + Mth.floor(Mth.cos(angle) * radius) + random.nextInt(5);
-            int z = center.getZ() + Mth.floor(Mth.sin(angle) * radius) + random.nextInt(5);
-            int y = level.getHeight(Heightmap.Types.WORLD_SURFACE, x, z);
-            mutable.set(x, y, z);
-
-            if (!level.hasChunksAt(x - 10, z - 10, x + 10, z + 10)) continue;
-            if (!level.isPositionEntityTicking(mutable)) continue;
+            if (!RaidSpawnPool.sample(level, center, radius, random, mutable)) continue;
             if (!NaturalSpawner.isSpawnPositionOk(SpawnPlacements.Type.ON_GROUND, level, mutable, type)) continue;
 
             return mutable.immutable();
@@ -472,10 +581,12 @@ public class RaidInstance {
 
     // 清理已确认死亡的袭击者；解析不到的实体可能只是区块未加载，予以保留
     private void pruneResolvedDeadRaiders(ServerLevel level) {
-        raiderUuids.removeIf(uuid -> {
+        if (raiderUuids.removeIf(uuid -> {
             Entity entity = level.getEntity(uuid);
             return entity != null && !entity.isAlive();
-        });
+        })) {
+            dirty = true;
+        }
     }
 
     // ==================== 结束 ====================
@@ -515,6 +626,7 @@ public class RaidInstance {
     }
 
     private void setVictory(ServerLevel level, RaidDefinition def) {
+        cancelWaveSpawning();
         status = RaidStatus.VICTORY;
         celebrationTicks = 0;
         RaidContext ctx = new RaidContext(level, this);
@@ -524,6 +636,7 @@ public class RaidInstance {
     }
 
     private void setDefeat(ServerLevel level, RaidDefinition def) {
+        cancelWaveSpawning();
         status = RaidStatus.DEFEAT;
         celebrationTicks = 0;
         RaidContext ctx = new RaidContext(level, this);
@@ -538,11 +651,12 @@ public class RaidInstance {
      * callbacks — those already ran when the outcome was decided.
      */
     public void stop() {
+        cancelWaveSpawning();
         status = RaidStatus.STOPPED;
         if (bossEvent != null) {
             // 解除客户端映射，否则该 BossEvent UUID 的状态会一直留在客户端表里
             for (ServerPlayer player : new ArrayList<>(bossEvent.getPlayers())) {
-                NetworkHandler.sendToPlayer(new RaidBossBarSyncPacket(bossEvent.getId(), null), player);
+                NetworkHandler.queueToPlayer(new RaidBossBarSyncPacket(bossEvent.getId(), null), player);
             }
             bossEvent.removeAllPlayers();
             bossEvent.setVisible(false);
@@ -572,13 +686,13 @@ public class RaidInstance {
                 if (state == null) {
                     state = RaidBarState.of(this);
                 }
-                NetworkHandler.sendToPlayer(new RaidBossBarSyncPacket(bar.getId(), state), player);
+                NetworkHandler.queueToPlayer(new RaidBossBarSyncPacket(bar.getId(), state), player);
             }
         }
         for (ServerPlayer player : shown) {
             if (!nearby.contains(player)) {
                 bar.removePlayer(player);
-                NetworkHandler.sendToPlayer(new RaidBossBarSyncPacket(bar.getId(), null), player);
+                NetworkHandler.queueToPlayer(new RaidBossBarSyncPacket(bar.getId(), null), player);
             }
         }
     }
@@ -597,7 +711,7 @@ public class RaidInstance {
 
         RaidBarState state = RaidBarState.of(this);
         for (ServerPlayer player : new ArrayList<>(bar.getPlayers())) {
-            NetworkHandler.sendToPlayer(new RaidBossBarSyncPacket(bar.getId(), state), player);
+            NetworkHandler.queueToPlayer(new RaidBossBarSyncPacket(bar.getId(), state), player);
         }
     }
 
@@ -619,9 +733,11 @@ public class RaidInstance {
         }
 
         int alive = getAliveRaiderCount();
+        // 分批生成期间显示正在生成的那一波
+        int waveNumber = isSpawningWave() ? wavesSpawned + 1 : wavesSpawned;
         Component suffix = def.isEndless()
-                ? Component.translatable("raid.eca.wave_endless", wavesSpawned)
-                : Component.translatable("raid.eca.wave", wavesSpawned, getWaveCount());
+                ? Component.translatable("raid.eca.wave_endless", waveNumber)
+                : Component.translatable("raid.eca.wave", waveNumber, getWaveCount());
         bar.setName(name.copy().append(" - ").append(suffix)
                 .append(" (").append(Component.translatable("raid.eca.raiders_remaining", alive)).append(")"));
         bar.setProgress(Mth.clamp((float) alive / (float) currentWaveTotal, 0.0f, 1.0f));
@@ -655,6 +771,21 @@ public class RaidInstance {
             raiders.add(StringTag.valueOf(uuid.toString()));
         }
         tag.put(NBT_RAIDERS, raiders);
+
+        // 生成到一半的波次连同剩余队列一起保存，重启后接着生成
+        if (isSpawningWave()) {
+            tag.putInt(NBT_SPAWNING_WAVE, spawningWaveIndex);
+            tag.putInt(NBT_SPAWNED_THIS_WAVE, spawnedThisWave);
+            ListTag pending = new ListTag();
+            for (PendingSpawn spawn : pendingSpawns) {
+                CompoundTag spawnTag = new CompoundTag();
+                spawnTag.putInt(NBT_PENDING_ENTRY, spawn.entryIndex());
+                spawnTag.putString(NBT_PENDING_TYPE, BuiltInRegistries.ENTITY_TYPE.getKey(spawn.type()).toString());
+                spawnTag.putBoolean(NBT_PENDING_LEADER, spawn.leader());
+                pending.add(spawnTag);
+            }
+            tag.put(NBT_PENDING_SPAWNS, pending);
+        }
         return tag;
     }
 
@@ -693,6 +824,22 @@ public class RaidInstance {
         raid.wavesCompleted = tag.contains(NBT_WAVES_COMPLETED)
                 ? Mth.clamp(tag.getInt(NBT_WAVES_COMPLETED), 0, raid.wavesSpawned)
                 : Math.max(0, raid.wavesSpawned - (raid.raiderUuids.isEmpty() ? 0 : 1));
+
+        if (tag.contains(NBT_SPAWNING_WAVE)) {
+            raid.spawningWaveIndex = Math.max(0, tag.getInt(NBT_SPAWNING_WAVE));
+            raid.spawnedThisWave = Math.max(0, tag.getInt(NBT_SPAWNED_THIS_WAVE));
+            ListTag pending = tag.getList(NBT_PENDING_SPAWNS, Tag.TAG_COMPOUND);
+            for (int i = 0; i < pending.size(); i++) {
+                CompoundTag spawnTag = pending.getCompound(i);
+                // 提供该类型的 mod 已移除时跳过
+                EntityType.byString(spawnTag.getString(NBT_PENDING_TYPE)).ifPresent(type ->
+                        raid.pendingSpawns.add(new PendingSpawn(spawnTag.getInt(NBT_PENDING_ENTRY), type,
+                                spawnTag.getBoolean(NBT_PENDING_LEADER))));
+            }
+        }
         return raid;
     }
+
+    // 待生成的一个袭击者：entryIndex 指向波次的显式条目（用于取回生成后处理），阵营抽取与首领为 -1
+    private record PendingSpawn(int entryIndex, EntityType<?> type, boolean leader) {}
 }
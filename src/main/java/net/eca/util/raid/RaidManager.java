@@ -2,6 +2,7 @@ package net.eca.util.raid;
 
 import net.eca.api.RegisterRaid;
 import net.eca.util.EcaLogger;
+import net.eca.util.ModAnnotationIndex;
 import net.eca.util.faction.FactionManager;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceKey;
@@ -12,8 +13,6 @@ import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.levelgen.structure.Structure;
 import net.minecraft.world.level.levelgen.structure.StructureStart;
-import net.minecraftforge.fml.ModList;
-import net.minecraftforge.forgespi.language.IModInfo;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,23 +59,8 @@ public class RaidManager {
      * raider binding and faction-drawn waves.
      */
     public static void scanAndRegisterAll() {
-        ModList.get().forEachModFile(modFile -> {
-            for (IModInfo modInfo : modFile.getModInfos()) {
-                modFile.getScanResult().getAnnotations().forEach(annotationData -> {
-                    if (RegisterRaid.class.getName().equals(annotationData.annotationType().getClassName())) {
-                        String className = annotationData.clazz().getClassName();
-                        try {
-                            Class<?> clazz = Class.forName(className, true,
-                                    Thread.currentThread().getContextClassLoader());
-                            registerFromDefinitionClass(clazz);
-                        } catch (ClassNotFoundException e) {
-                            EcaLogger.error("[Raid] Failed to load raid definition class {}: {}",
-                                    className, e.getMessage());
-                        }
-                    }
-                });
-            }
-        });
+        ModAnnotationIndex.loadAll(ModAnnotationIndex.get().annotated(RegisterRaid.class), "[Raid]",
+                RaidManager::registerFromDefinitionClass);
     }
 
     private static void registerFromDefinitionClass(Class<?> clazz) {
@@ -371,7 +355,8 @@ public class RaidManager {
         for (RaidInstance raid : raids.values()) {
             RaidStatus previousStatus = raid.getStatus();
             raid.tick(level);
-            if (raid.getStatus() != previousStatus) {
+            // 只在状态转换时立即落盘；分批生成的中途进度由下方的定期快照写入
+            if (raid.consumeDirty() || raid.getStatus() != previousStatus) {
                 changed = true;
             }
             if (raid.getStatus() == RaidStatus.STOPPED) {
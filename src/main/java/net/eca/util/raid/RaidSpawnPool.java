@@ -0,0 +1,94 @@
+package net.eca.util.raid;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.SpawnPlacements;
+import net.minecraft.world.level.NaturalSpawner;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.util.ArrayDeque;
+
+/*
+ * 袭击落点池。
+ *
+ * 波间倒计时与等待清场期间每 tick 试探少量随机落点，把通过地表高度、区块加载与可 tick 检查的
+ * 坐标存起来；生成时只需复核这些条件并对具体实体类型校验落地，不必在生成的那一 tick 里
+ * 集中做大量取高度与区块检查。池满后不再试探，失效的落点在取用时丢弃，腾出的空位下一 tick 补上。
+ * 落点池不持久化，重启后按需重新预热。
+ */
+final class RaidSpawnPool {
+
+    private static final int CAPACITY = 64;
+    private static final int REFILL_ATTEMPTS_PER_TICK = 4;
+    // 单次取用最多检查的池内落点数，只因实体类型不合适而落选的落点会放回池中
+    private static final int MAX_TAKE_CHECKS = 8;
+
+    private final ArrayDeque<BlockPos> positions = new ArrayDeque<>();
+    private double radius = -1.0;
+
+    // 为给定半径补充落点；半径变化时旧落点全部作废
+    void refill(ServerLevel level, BlockPos center, double radius, RandomSource random) {
+        if (radius != this.radius) {
+            positions.clear();
+            this.radius = radius;
+        }
+        if (positions.size() >= CAPACITY) return;
+        BlockPos.MutableBlockPos mutable = new BlockPos.MutableBlockPos();
+        for (int attempt = 0; attempt < REFILL_ATTEMPTS_PER_TICK && positions.size() < CAPACITY; attempt++) {
+            if (!sample(level, center, radius, random, mutable)) continue;
+            positions.addLast(mutable.immutable());
+        }
+    }
+
+    // 取出一个对该实体类型仍然有效的落点；地形或区块状态已变化的落点直接丢弃
+    BlockPos take(ServerLevel level, double radius, EntityType<?> type) {
+        if (radius != this.radius || positions.isEmpty()) return null;
+
+        ArrayDeque<BlockPos> rejected = null;
+        BlockPos result = null;
+        for (int checks = 0; checks < MAX_TAKE_CHECKS && !positions.isEmpty(); checks++) {
+            BlockPos pos = positions.pollLast();
+            if (!isStillValid(level, pos)) continue;
+            if (NaturalSpawner.isSpawnPositionOk(SpawnPlacements.Type.ON_GROUND, level, pos, type)) {
+                result = pos;
+                break;
+            }
+            if (rejected == null) rejected = new ArrayDeque<>();
+            rejected.add(pos);
+        }
+        if (rejected != null) {
+            for (BlockPos pos : rejected) {
+                positions.addFirst(pos);
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        positions.clear();
+        radius = -1.0;
+    }
+
+    // 仿原版 findRandomSpawnPos：随机角度取地表，校验区块已加载且位置可 tick，不含实体类型相关的判定
+    static boolean sample(ServerLevel level, BlockPos center, double radius, RandomSource random,
+                          BlockPos.MutableBlockPos out) {
+        float angle = random.nextFloat() * ((float) Math.PI * 2);
+        int x = center.getX() + Mth.floor(Mth.cos(angle) * radius) + random.nextInt(5);
+        int z = center.getZ() + Mth.floor(Mth.sin(angle) * radius) + random.nextInt(5);
+        // 先确认区块已加载再取高度：对未加载区块取高度会同步加载该区块
+        if (!level.hasChunksAt(x - 10, z - 10, x + 10, z + 10)) return false;
+        out.set(x, level.getHeight(Heightmap.Types.WORLD_SURFACE, x, z), z);
+        return level.isPositionEntityTicking(out);
+    }
+
+    private static boolean isStillValid(ServerLevel level, BlockPos pos) {
+        int x = pos.getX();
+        int z = pos.getZ();
+        if (!level.hasChunksAt(x - 10, z - 10, x + 10, z + 10)) return false;
+        if (!level.isPositionEntityTicking(pos)) return false;
+        return level.getHeight(Heightmap.Types.WORLD_SURFACE, x, z) == pos.getY();
+    }
+}
@@ -0,0 +1,163 @@
+package net.eca.util.selector;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/*
+ * 选择器的二级索引：每个服务端维度一份 id / UUID → 弱引用实体。
+ * 原版 byId / byUuid 未命中时(受保护实体被原版容器"遗忘"的常见情形)，选择器据此 O(1) 取得候选，
+ * 再由选择器按原始容器核实实体仍物理存在，不必线性扫描全部实体分区。
+ * 实体经分区管理器 addEntity 加入维度时登记一次(新生成与区块加载都经过这里)，
+ * 分区回调真正完成 onRemove 时移除。弱引用不延长实体寿命，已回收的条目经引用队列清理。
+ * 每个维度同时持有区域查询的游离实体追踪器(见 OrphanTracker)，各替换容器报告的成员变化按 id 直接记到所属维度。
+ */
+public final class EcaEntityIndex {
+
+    private EcaEntityIndex() {}
+
+    private static final class EntityRef extends WeakReference<Entity> {
+        final int id;
+        final UUID uuid;
+
+        EntityRef(Entity entity, ReferenceQueue<Entity> queue) {
+            super(entity, queue);
+            this.id = entity.getId();
+            this.uuid = entity.getUUID();
+        }
+    }
+
+    private static final class LevelIndex {
+        final Int2ObjectOpenHashMap<EntityRef> byId = new Int2ObjectOpenHashMap<>();
+        final Map<UUID, EntityRef> byUuid = new HashMap<>();
+        final ReferenceQueue<Entity> queue = new ReferenceQueue<>();
+        final OrphanTracker<Entity> orphans = new OrphanTracker<>();
+
+        synchronized void record(Entity entity) {
+            expunge();
+            int id = entity.getId();
+            EntityRef existing = byId.get(id);
+            if (existing != null && existing.get() == entity && existing.uuid.equals(entity.getUUID())) return;
+            EntityRef ref = new EntityRef(entity, queue);
+            byId.put(id, ref);
+            byUuid.put(ref.uuid, ref);
+        }
+
+        synchronized void forget(Entity entity) {
+            EntityRef byIdRef = byId.get(entity.getId());
+            if (byIdRef != null && byIdRef.get() == entity) {
+                byId.remove(entity.getId());
+            }
+            EntityRef byUuidRef = byUuid.get(entity.getUUID());
+            if (byUuidRef != null && byUuidRef.get() == entity) {
+                byUuid.remove(entity.getUUID());
+            }
+        }
+
+        synchronized Entity get(int id) {
+            EntityRef ref = byId.get(id);
+            return ref == null ? null : ref.get();
+        }
+
+        synchronized Entity get(UUID uuid) {
+            EntityRef ref = byUuid.get(uuid);
+            return ref == null ? null : ref.get();
+        }
+
+        // 只移除仍指向已回收引用的条目，同 id 已被新实体占用时保留新条目
+        private void expunge() {
+            EntityRef ref;
+            while ((ref = (EntityRef) queue.poll()) != null) {
+                byId.remove(ref.id, ref);
+                byUuid.remove(ref.uuid, ref);
+            }
+        }
+    }
+
+    private static final Map<ServerLevel, LevelIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /* ==================== 写入 ==================== */
+
+    public static void record(Entity entity) {
+        if (entity == null || !(entity.level() instanceof ServerLevel level)) return;
+        indexFor(level).record(entity);
+    }
+
+    private static LevelIndex indexFor(ServerLevel level) {
+        LevelIndex index = INDEXES.get(level);
+        if (index == null) {
+            synchronized (INDEXES) {
+                index = INDEXES.computeIfAbsent(level, ignored -> new LevelIndex());
+            }
+        }
+        return index;
+    }
+
+    public static void forget(Entity entity) {
+        if (entity == null || !(entity.level() instanceof ServerLevel level)) return;
+        LevelIndex index = INDEXES.get(level);
+        if (index != null) {
+            index.forget(entity);
+        }
+    }
+
+    public static void clearAll() {
+        INDEXES.clear();
+        trackingMembership = false;
+    }
+
+    /* ==================== 成员变化 ==================== */
+
+    // 有维度正在记录成员变化时为 true；从未做过区域查询、或各维度都已停止记录时写入口直接返回
+    private static volatile boolean trackingMembership;
+
+    // 实体离开/进入了某个原始容器或改变了包围盒；客户端实体不参与服务端区域查询
+    public static void noteMembershipChange(Entity entity) {
+        if (!trackingMembership || entity == null || !(entity.level() instanceof ServerLevel level)) return;
+        LevelIndex index = INDEXES.get(level);
+        if (index != null) {
+            index.orphans.changed(entity.getId());
+        }
+    }
+
+    static boolean isTrackingMembership() {
+        return trackingMembership;
+    }
+
+    static void setTrackingMembership(boolean tracking) {
+        trackingMembership = tracking;
+    }
+
+    static OrphanTracker<Entity> orphanTracker(ServerLevel level) {
+        return indexFor(level).orphans;
+    }
+
+    static OrphanTracker<Entity> existingOrphanTracker(ServerLevel level) {
+        LevelIndex index = INDEXES.get(level);
+        return index == null ? null : index.orphans;
+    }
+
+    /* ==================== 查询 ==================== */
+
+    static Entity get(ServerLevel level, int entityId) {
+        LevelIndex index = INDEXES.get(level);
+        if (index == null) return null;
+        Entity entity = index.get(entityId);
+        return entity != null && entity.getId() == entityId ? entity : null;
+    }
+
+    static Entity get(ServerLevel level, UUID uuid) {
+        LevelIndex index = INDEXES.get(level);
+        if (index == null) return null;
+        Entity entity = index.get(uuid);
+        return entity != null && uuid.equals(entity.getUUID()) ? entity : null;
+    }
+}
@@ -1,7 +1,11 @@
 package net.eca.util.selector;
 
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.eca.client.ClientEntityUtil;
+import net.eca.config.EcaConfiguration;
 import net.eca.coremod.EcaContainers;
+import net.eca.util.EcaLogger;
+import net.minecraft.core.SectionPos;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ChunkMap;
@@ -17,8 +21,10 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import net.minecraft.world.phys.Vec3;
@@ -46,8 +52,9 @@ public final class EcaEntitySelector {
             if (entity != null) {
                 return entity;
             }
-            entity = findEntityInServerSectionsById(serverLevel, entityId);
-            if (entity != null) {
+            // 原版映射未命中：二级索引取候选并核实仍在原始容器中，取代逐分区线性扫描
+            entity = EcaEntityIndex.get(serverLevel, entityId);
+            if (entity != null && isPhysicallyPresent(serverLevel, entity)) {
                 return entity;
             }
             entity = EcaContainers.rawGet(serverLevel.entityTickList.active, entityId);
@@ -67,7 +74,11 @@ public final class EcaEntitySelector {
             if (part != null) {
                 return part;
             }
-            return findEntityInServerCollectionsById(serverLevel, entityId);
+            entity = findEntityInServerCollectionsById(serverLevel, entityId);
+            if (entity == null && EcaConfiguration.getDefenceVerifyEntityIndexSafely()) {
+                entity = verifyIndexMiss(findEntityInServerSectionsById(serverLevel, entityId), "id=" + entityId);
+            }
+            return entity;
         }
 
         if (level.isClientSide()) {
@@ -87,23 +98,23 @@ public final class EcaEntitySelector {
             if (entity != null) {
                 return entity;
             }
-            entity = findEntityInServerSectionsByUuid(serverLevel, uuid);
-            if (entity != null) {
-                return entity;
-            }
-            entity = findEntityInTickListByUuid(serverLevel, uuid);
-            if (entity != null) {
+            entity = EcaEntityIndex.get(serverLevel, uuid);
+            if (entity != null && isPhysicallyPresent(serverLevel, entity)) {
                 return entity;
             }
             entity = findEntityInLoadingInboxByUuid(serverLevel, uuid);
             if (entity != null) {
                 return entity;
             }
-            entity = findTrackedEntityByUuid(serverLevel, uuid);
-            if (entity != null) {
-                return entity;
+            entity = findEntityInServerCollectionsByUuid(serverLevel, uuid);
+            if (entity == null && EcaConfiguration.getDefenceVerifyEntityIndexSafely()) {
+                // 分区、刷新列表与追踪表里的实体写入时都已登记索引，只在调试核对时线性扫描
+                Entity scanned = findEntityInServerSectionsByUuid(serverLevel, uuid);
+                if (scanned == null) scanned = findEntityInTickListByUuid(serverLevel, uuid);
+                if (scanned == null) scanned = findTrackedEntityByUuid(serverLevel, uuid);
+                entity = verifyIndexMiss(scanned, "uuid=" + uuid);
             }
-            return findEntityInServerCollectionsByUuid(serverLevel, uuid);
+            return entity;
         }
 
         if (level.isClientSide()) {
@@ -159,7 +170,7 @@ public final class EcaEntitySelector {
         if (area == null) {
             return Collections.emptyList();
         }
-        return getEntities(level, entity -> entity.getBoundingBox().intersects(area));
+        return getEntities(level, area, entity -> true);
     }
 
     public static List<Entity> getEntities(Level level, Predicate<Entity> filter) {
@@ -179,10 +190,15 @@ public final class EcaEntitySelector {
     }
 
     public static List<Entity> getEntities(Level level, AABB area, Predicate<Entity> filter) {
-        if (area == null || filter == null) {
+        if (level == null || area == null || filter == null) {
             return Collections.emptyList();
         }
-        return getEntities(level, entity -> entity.getBoundingBox().intersects(area) && filter.test(entity));
+        List<Entity> result = new ArrayList<>();
+        forEachEntity(level, area, filter, entity -> {
+            result.add(entity);
+            return true;
+        });
+        return result;
     }
 
     public static <T extends Entity> List<T> getEntities(Level level, Class<T> entityClass) {
@@ -229,47 +245,174 @@ public final class EcaEntitySelector {
     }
 
     // 使用 raw 容器按实例身份判断，避免逻辑 getter 的过滤造成删除成功假象。
+    // 先按实体自身 id 与分区键逐容器定点核对；只有定点核对全部落空时才做全量确认，肯定结论不再需要扫描。
     public static boolean containsPhysicalInstance(ServerLevel level, Entity target) {
         if (level == null || target == null) return false;
+        if (isPhysicallyPresent(level, target)) return true;
         return !collectServerEntities(level, entity -> entity == target).isEmpty();
     }
 
+    // 按实体 id / UUID / 分区键定点查各原始容器；仅玩家列表与加载队列这类小集合逐个比较
+    private static boolean isPhysicallyPresent(ServerLevel level, Entity target) {
+        int id = target.getId();
+        if (EcaContainers.rawGet(level.entityManager.visibleEntityStorage.byId, id) == target) return true;
+        if (EcaContainers.rawGet(level.entityManager.visibleEntityStorage.byUuid, target.getUUID()) == target) return true;
+        // 分区表未覆写 get，读取即原始值
+        EntitySection<Entity> section = level.entityManager.sectionStorage.sections.get(SectionPos.asLong(target.blockPosition()));
+        if (section != null && containsInstance(section.storage.allInstances, target)) return true;
+        if (EcaContainers.rawGet(level.entityTickList.active, id) == target) return true;
+        ChunkMap.TrackedEntity tracked = EcaContainers.rawGet(level.chunkSource.chunkMap.entityMap, id);
+        if (tracked != null && tracked.entity == target) return true;
+        if (EcaContainers.rawGet(level.dragonParts, id) == target) return true;
+        if (containsInstance(level.players, target)) return true;
+        if (target instanceof Mob mob && level.navigatingMobs.contains(mob)) return true;
+        for (ChunkEntities<Entity> chunkEntities : level.entityManager.loadingInbox) {
+            if (chunkEntities != null && containsInstance(chunkEntities.entities, target)) return true;
+        }
+        return false;
+    }
+
+    // 按下标读原始元素：EcaArrayList 未覆写 get，不受隔离过滤也不复制
+    private static boolean containsInstance(List<?> list, Object target) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (list.get(i) == target) return true;
+        }
+        return false;
+    }
+
+    private static Entity verifyIndexMiss(Entity scanned, String key) {
+        if (scanned != null) {
+            EcaLogger.warn("[EntityIndex] lookup {} missed by index, found by scan: {}", key, scanned);
+        }
+        return scanned;
+    }
+
     // ==================== 最近实体查询 ====================
 
     public static Entity getNearestEntity(Level level, Vec3 pos, Predicate<Entity> filter) {
         if (level == null || pos == null || filter == null) {
             return null;
         }
-        return getEntities(level, filter).stream()
-                .min(Comparator.comparingDouble(e -> e.distanceToSqr(pos)))
-                .orElse(null);
+        NearestCollector collector = new NearestCollector(pos, 1);
+        forEachEntity(level, filter, collector);
+        return collector.first();
     }
 
     public static Entity getNearestEntity(Level level, Vec3 pos, AABB area, Predicate<Entity> filter) {
         if (level == null || pos == null || area == null || filter == null) {
             return null;
         }
-        return getEntities(level, area, filter).stream()
-                .min(Comparator.comparingDouble(e -> e.distanceToSqr(pos)))
-                .orElse(null);
+        NearestCollector collector = new NearestCollector(pos, 1);
+        forEachEntity(level, area, filter, collector);
+        return collector.first();
     }
 
     public static <T extends Entity> T getNearestEntity(Level level, Vec3 pos, Class<T> entityClass) {
         if (level == null || pos == null || entityClass == null) {
             return null;
         }
-        return getEntities(level, entityClass).stream()
-                .min(Comparator.comparingDouble(e -> e.distanceToSqr(pos)))
-                .orElse(null);
+        return entityClass.cast(getNearestEntity(level, pos, entityClass::isInstance));
     }
 
     public static <T extends Entity> T getNearestEntity(Level level, Vec3 pos, AABB area, Class<T> entityClass) {
         if (level == null || pos == null || area == null || entityClass == null) {
             return null;
         }
-        return getEntities(level, area, entityClass).stream()
-                .min(Comparator.comparingDouble(e -> e.distanceToSqr(pos)))
-                .orElse(null);
+        return entityClass.cast(getNearestEntity(level, pos, area, entityClass::isInstance));
+    }
+
+    // 区域内按距离升序取最近的 count 个实体：有界大顶堆，只保留当前最近的 count 个候选
+    public static List<Entity> getNearestEntities(Level level, Vec3 pos, AABB area, Predicate<Entity> filter, int count) {
+        if (level == null || pos == null || area == null || filter == null || count <= 0) {
+            return Collections.emptyList();
+        }
+        NearestCollector collector = new NearestCollector(pos, count);
+        forEachEntity(level, area, filter, collector);
+        return collector.sorted();
+    }
+
+    private record Candidate(Entity entity, double distanceSqr) {}
+
+    private static final class NearestCollector implements EntityVisitor {
+        private final Vec3 pos;
+        private final int limit;
+        private final PriorityQueue<Candidate> heap;
+
+        private NearestCollector(Vec3 pos, int limit) {
+            this.pos = pos;
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 64) + 1,
+                    Comparator.comparingDouble(Candidate::distanceSqr).reversed());
+        }
+
+        @Override
+        public boolean visit(Entity entity) {
+            double distance = entity.distanceToSqr(pos);
+            if (heap.size() < limit) {
+                heap.add(new Candidate(entity, distance));
+            } else if (distance < heap.peek().distanceSqr()) {
+                heap.poll();
+                heap.add(new Candidate(entity, distance));
+            }
+            return true;
+        }
+
+        private Entity first() {
+            // limit 为 1 时堆顶即最近者
+            Candidate top = heap.peek();
+            return top == null ? null : top.entity();
+        }
+
+        private List<Entity> sorted() {
+            List<Candidate> candidates = new ArrayList<>(heap);
+            candidates.sort(Comparator.comparingDouble(Candidate::distanceSqr));
+            List<Entity> result = new ArrayList<>(candidates.size());
+            for (Candidate candidate : candidates) {
+                result.add(candidate.entity());
+            }
+            return result;
+        }
+    }
+
+    // ==================== 流式访问 ====================
+
+    @FunctionalInterface
+    public interface EntityVisitor {
+        // 返回 false 提前结束遍历
+        boolean visit(Entity entity);
+    }
+
+    // 全量流式访问：来源与 getEntities(level, filter) 相同，但不组装结果列表
+    public static void forEachEntity(Level level, Predicate<Entity> filter, EntityVisitor visitor) {
+        if (level == null || filter == null || visitor == null) {
+            return;
+        }
+        if (level instanceof ServerLevel serverLevel) {
+            visitServerEntities(serverLevel, filter, visitor);
+            return;
+        }
+        if (level.isClientSide()) {
+            for (Entity entity : ClientEntityUtil.getEntities(level, filter)) {
+                if (!visitor.visit(entity)) return;
+            }
+        }
+    }
+
+    // 区域流式访问：服务端只遍历与区域相交的实体分区及少量辅助来源
+    public static void forEachEntity(Level level, AABB area, Predicate<Entity> filter, EntityVisitor visitor) {
+        if (level == null || area == null || filter == null || visitor == null) {
+            return;
+        }
+        if (level instanceof ServerLevel serverLevel) {
+            visitServerEntitiesInArea(serverLevel, area, filter, visitor);
+            return;
+        }
+        if (level.isClientSide()) {
+            for (Entity entity : ClientEntityUtil.getEntities(level,
+                    entity -> entity.getBoundingBox().intersects(area) && filter.test(entity))) {
+                if (!visitor.visit(entity)) return;
+            }
+        }
     }
 
     private static Entity findEntityInServerSectionsById(ServerLevel level, int entityId) {
@@ -302,33 +445,207 @@ public final class EcaEntitySelector {
 
     private static List<Entity> collectServerEntities(ServerLevel level, Predicate<Entity> filter) {
         List<Entity> result = new ArrayList<>();
+        visitServerEntities(level, filter, entity -> {
+            result.add(entity);
+            return true;
+        });
+        return result;
+    }
+
+    // 八个来源逐一合并并按实例去重；任一容器被第三方移除的实体仍能从其余来源找到
+    private static void visitServerEntities(ServerLevel level, Predicate<Entity> filter, EntityVisitor visitor) {
         Set<Entity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
 
-        addAll(result, seen, EcaContainers.rawValues(level.entityManager.visibleEntityStorage.byId), filter);
+        if (!visitAll(seen, EcaContainers.rawValues(level.entityManager.visibleEntityStorage.byId), filter, visitor)) return;
         for (EntitySection<Entity> section : EcaContainers.rawValues(level.entityManager.sectionStorage.sections)) {
-            if (section != null) {
-                addAll(result, seen, EcaContainers.rawValues(section.storage.allInstances), filter);
-            }
+            if (section != null && !visitAll(seen, EcaContainers.rawValues(section.storage.allInstances), filter, visitor)) return;
         }
-        addAll(result, seen, EcaContainers.rawValues(level.entityTickList.active), filter);
+        if (!visitAll(seen, EcaContainers.rawValues(level.entityTickList.active), filter, visitor)) return;
         for (ChunkEntities<Entity> chunkEntities : level.entityManager.loadingInbox) {
-            if (chunkEntities != null) {
-                addAll(result, seen, EcaContainers.rawValues(chunkEntities.entities), filter);
-            }
+            if (chunkEntities != null && !visitAll(seen, EcaContainers.rawValues(chunkEntities.entities), filter, visitor)) return;
         }
         for (ChunkMap.TrackedEntity tracked : EcaContainers.rawValues(level.chunkSource.chunkMap.entityMap)) {
-            if (tracked != null) {
-                add(result, seen, tracked.entity, filter);
+            if (tracked != null && !visit(seen, tracked.entity, filter, visitor)) return;
+        }
+        if (!visitAll(seen, EcaContainers.rawValues(level.players), filter, visitor)) return;
+        for (Mob mob : level.navigatingMobs) {
+            if (!visit(seen, mob, filter, visitor)) return;
+        }
+        visitAll(seen, EcaContainers.rawValues(level.dragonParts), filter, visitor);
+    }
+
+    // ==================== 分区空间查询 ====================
+
+    /*
+     * 区域查询不再合并全部来源：实体分区本身按坐标组织，只需取与区域相交的分区。
+     * 其余大来源(byId / 刷新列表 / 追踪表)里的实体正常情况下都在所在坐标的分区内；
+     * 不在的"游离"实体(被第三方从分区摘掉、但仍留在其他容器)由 OrphanTracker 按容器写入口报告的变化增量维护，
+     * 每 tick 首次区域查询时与 tick 末尾各复核一次，游离实体逐个按包围盒判定，保证与全量扫描结果一致。
+     * 变化只按 id 记在所属维度，且只在近期有区域查询的维度记录。
+     * 玩家、加载中的区块、寻路生物与末影龙部件这几类小来源每次查询照常逐个判定。
+     */
+    // 记录开关与各维度的复核互斥，避免 tick 末尾关掉记录时漏掉并发查询刚重建的维度
+    private static final Object MEMBERSHIP_LOCK = new Object();
+
+    private static OrphanTracker<Entity> orphanTracker(ServerLevel level) {
+        OrphanTracker<Entity> tracker = EcaEntityIndex.orphanTracker(level);
+        synchronized (MEMBERSHIP_LOCK) {
+            // 先打开记录再复核：复核之后的写入都会被记下
+            EcaEntityIndex.setTrackingMembership(true);
+            tracker.refresh(level.getGameTime(), new LevelMembership(level));
+        }
+        return tracker;
+    }
+
+    // server tick 末尾：近期查询过的维度复核本 tick 积压的变化，长时间未查询的维度停止记录
+    public static void onServerTick(MinecraftServer server) {
+        if (!EcaEntityIndex.isTrackingMembership()) return;
+        synchronized (MEMBERSHIP_LOCK) {
+            boolean tracking = false;
+            for (ServerLevel level : server.getAllLevels()) {
+                OrphanTracker<Entity> tracker = EcaEntityIndex.existingOrphanTracker(level);
+                if (tracker != null && tracker.endTick(level.getGameTime(), new LevelMembership(level))) {
+                    tracking = true;
+                }
+            }
+            EcaEntityIndex.setTrackingMembership(tracking);
+        }
+    }
+
+    // 游离判定与整体重建读取的原始容器；成员判定均按 id / 分区键定点查找
+    private record LevelMembership(ServerLevel level) implements OrphanTracker.Membership<Entity> {
+        @Override
+        public Entity resolve(int id) {
+            Entity entity = EcaContainers.rawGet(level.entityManager.visibleEntityStorage.byId, id);
+            if (entity != null) return entity;
+            entity = EcaContainers.rawGet(level.entityTickList.active, id);
+            if (entity != null) return entity;
+            ChunkMap.TrackedEntity tracked = EcaContainers.rawGet(level.chunkSource.chunkMap.entityMap, id);
+            if (tracked != null && tracked.entity != null) return tracked.entity;
+            // 只在分区列表中的实体
+            return EcaEntityIndex.get(level, id);
+        }
+
+        @Override
+        public boolean inLargeSource(Entity entity) {
+            int id = entity.getId();
+            if (EcaContainers.rawGet(level.entityManager.visibleEntityStorage.byId, id) == entity) return true;
+            if (EcaContainers.rawGet(level.entityTickList.active, id) == entity) return true;
+            ChunkMap.TrackedEntity tracked = EcaContainers.rawGet(level.chunkSource.chunkMap.entityMap, id);
+            return tracked != null && tracked.entity == entity;
+        }
+
+        @Override
+        public boolean inOwnSection(Entity entity) {
+            // 分区表未覆写 get，读取即原始值
+            EntitySection<Entity> section = level.entityManager.sectionStorage.sections.get(SectionPos.asLong(entity.blockPosition()));
+            return section != null && containsInstance(section.storage.allInstances, entity);
+        }
+
+        @Override
+        public AABB boundingBox(Entity entity) {
+            return entity.getBoundingBox();
+        }
+
+        @Override
+        public Vec3 position(Entity entity) {
+            return entity.position();
+        }
+
+        @Override
+        public void forEachSectionMember(Consumer<Entity> action) {
+            for (EntitySection<Entity> section : EcaContainers.rawValues(level.entityManager.sectionStorage.sections)) {
+                if (section == null) continue;
+                for (Entity entity : EcaContainers.rawValues(section.storage.allInstances)) {
+                    if (entity != null) action.accept(entity);
+                }
+            }
+        }
+
+        @Override
+        public void forEachLargeSourceMember(Consumer<Entity> action) {
+            for (Entity entity : EcaContainers.rawValues(level.entityManager.visibleEntityStorage.byId)) {
+                if (entity != null) action.accept(entity);
             }
+            for (Entity entity : EcaContainers.rawValues(level.entityTickList.active)) {
+                if (entity != null) action.accept(entity);
+            }
+            for (ChunkMap.TrackedEntity tracked : EcaContainers.rawValues(level.chunkSource.chunkMap.entityMap)) {
+                if (tracked != null && tracked.entity != null) action.accept(tracked.entity);
+            }
+        }
+    }
+
+    private static void visitServerEntitiesInArea(ServerLevel level, AABB area, Predicate<Entity> filter,
+                                                  EntityVisitor visitor) {
+        OrphanTracker<Entity> tracker = orphanTracker(level);
+        Set<Entity> seen = new ReferenceOpenHashSet<>();
+
+        for (EntitySection<Entity> section : overlappingSections(level, tracker.sectionBounds(area))) {
+            if (!visitAllInArea(seen, EcaContainers.rawValues(section.storage.allInstances), area, filter, visitor)) return;
         }
-        addAll(result, seen, EcaContainers.rawValues(level.players), filter);
+        if (!visitAllInArea(seen, tracker.orphans(), area, filter, visitor)) return;
+        for (ChunkEntities<Entity> chunkEntities : level.entityManager.loadingInbox) {
+            if (chunkEntities != null
+                    && !visitAllInArea(seen, EcaContainers.rawValues(chunkEntities.entities), area, filter, visitor)) return;
+        }
+        if (!visitAllInArea(seen, EcaContainers.rawValues(level.players), area, filter, visitor)) return;
         for (Mob mob : level.navigatingMobs) {
-            add(result, seen, mob, filter);
+            if (!visitInArea(seen, mob, area, filter, visitor)) return;
+        }
+        visitAllInArea(seen, EcaContainers.rawValues(level.dragonParts), area, filter, visitor);
+    }
+
+    // 区域覆盖的分区坐标数少于已存在的分区数时逐坐标查表，否则遍历分区表按坐标筛选
+    private static List<EntitySection<Entity>> overlappingSections(ServerLevel level, int[] bounds) {
+        int minX = bounds[0];
+        int maxX = bounds[1];
+        int minY = bounds[2];
+        int maxY = bounds[3];
+        int minZ = bounds[4];
+        int maxZ = bounds[5];
+
+        var sections = level.entityManager.sectionStorage.sections;
+        List<EntitySection<Entity>> result = new ArrayList<>();
+        long span = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if (span > 0 && span <= sections.size()) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        // 分区表未覆写 get，读取即原始值
+                        EntitySection<Entity> section = sections.get(SectionPos.asLong(x, y, z));
+                        if (section != null) result.add(section);
+                    }
+                }
+            }
+            return result;
+        }
+        for (var entry : sections.long2ObjectEntrySet()) {
+            long key = entry.getLongKey();
+            int x = SectionPos.x(key);
+            int y = SectionPos.y(key);
+            int z = SectionPos.z(key);
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ && entry.getValue() != null) {
+                result.add(entry.getValue());
+            }
         }
-        addAll(result, seen, EcaContainers.rawValues(level.dragonParts), filter);
         return result;
     }
 
+    private static boolean visitAllInArea(Set<Entity> seen, Iterable<? extends Entity> entities, AABB area,
+                                          Predicate<Entity> filter, EntityVisitor visitor) {
+        for (Entity entity : entities) {
+            if (!visitInArea(seen, entity, area, filter, visitor)) return false;
+        }
+        return true;
+    }
+
+    private static boolean visitInArea(Set<Entity> seen, Entity entity, AABB area,
+                                       Predicate<Entity> filter, EntityVisitor visitor) {
+        if (entity == null || !entity.getBoundingBox().intersects(area) || !seen.add(entity)) return true;
+        return !filter.test(entity) || visitor.visit(entity);
+    }
+
     private static Entity findEntityInTickListByUuid(ServerLevel level, UUID uuid) {
         return findByUuid(EcaContainers.rawValues(level.entityTickList.active), uuid);
     }
@@ -386,16 +703,16 @@ public final class EcaEntitySelector {
         return null;
     }
 
-    private static void addAll(List<Entity> result, Set<Entity> seen,
-                               Iterable<? extends Entity> entities, Predicate<Entity> filter) {
+    private static boolean visitAll(Set<Entity> seen, Iterable<? extends Entity> entities,
+                                    Predicate<Entity> filter, EntityVisitor visitor) {
         for (Entity entity : entities) {
-            add(result, seen, entity, filter);
+            if (!visit(seen, entity, filter, visitor)) return false;
         }
+        return true;
     }
 
-    private static void add(List<Entity> result, Set<Entity> seen, Entity entity, Predicate<Entity> filter) {
-        if (entity != null && seen.add(entity) && filter.test(entity)) {
-            result.add(entity);
-        }
+    private static boolean visit(Set<Entity> seen, Entity entity, Predicate<Entity> filter, EntityVisitor visitor) {
+        if (entity == null || !seen.add(entity)) return true;
+        return !filter.test(entity) || visitor.visit(entity);
     }
 }
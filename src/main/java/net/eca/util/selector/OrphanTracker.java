@@ -0,0 +1,151 @@
+package net.eca.util.selector;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+ * 区域查询的游离实体与包围盒伸出量，按容器写入口报告的成员变化增量维护。
+ * 游离实体：仍在大来源(byId / 刷新列表 / 追踪表)中、但坐标所在分区不含它的实体，区域查询逐个按包围盒判定。
+ * 实体只会因以下写入变成游离或改变包围盒：离开分区列表、分区被整体移出分区表、写入大来源、尺寸刷新；
+ * 这些写入口把实体 id 报告为待复核，每 tick 首次区域查询与 tick 末尾只复核待复核实体与现有游离实体，开销与变化量成正比。
+ * 待复核只记 id，不持有实体；长时间没有区域查询时停止记录。首次使用、停止记录后再次查询、积压溢出时整体重建一次。
+ * 伸出量只增不减，分区范围按它放宽，不会漏掉超大包围盒的实体。
+ */
+final class OrphanTracker<E> {
+
+    // 与原版 EntitySectionStorage 相同的分区放宽量，统计得到的伸出量只会在此基础上增大
+    static final double MIN_REACH_XZ = 2.0;
+    static final double MIN_REACH_UP = 4.0;
+    // 两次复核之间最多积压的待复核实体，超出后丢弃并在下次复核时整体重建
+    static final int MAX_PENDING = 1 << 16;
+    // 超过这么多 tick 没有区域查询就停止记录变化
+    static final long IDLE_TICKS = 100;
+
+    interface Membership<E> {
+        // 按 id 取回实体；已不在任何来源中时返回 null
+        E resolve(int id);
+
+        boolean inLargeSource(E entity);
+
+        boolean inOwnSection(E entity);
+
+        AABB boundingBox(E entity);
+
+        Vec3 position(E entity);
+
+        void forEachSectionMember(Consumer<E> action);
+
+        void forEachLargeSourceMember(Consumer<E> action);
+    }
+
+    private final Set<E> orphans = new ReferenceOpenHashSet<>();
+    private final IntOpenHashSet pending = new IntOpenHashSet();
+    private boolean stale = true;
+    private long refreshedAt = Long.MIN_VALUE;
+    private List<E> orphanSnapshot = List.of();
+    private double reachXZ = MIN_REACH_XZ;
+    private double reachUp = MIN_REACH_UP;
+    private double reachDown;
+
+    synchronized void changed(int id) {
+        if (stale) return;
+        if (pending.size() >= MAX_PENDING) {
+            invalidate();
+            return;
+        }
+        pending.add(id);
+    }
+
+    synchronized void invalidate() {
+        stale = true;
+        pending.clear();
+    }
+
+    // 同一 tick 内只复核一次，结果在该 tick 的所有区域查询间共享
+    synchronized void refresh(long tick, Membership<E> membership) {
+        if (tick == refreshedAt) return;
+        refreshedAt = tick;
+        if (stale) {
+            rebuild(membership);
+        } else {
+            apply(membership);
+        }
+    }
+
+    /* tick 末尾调用：近期有区域查询时复核积压的变化，否则停止记录并丢弃积压，下次查询时重建。
+     * 返回是否仍在记录变化。 */
+    synchronized boolean endTick(long tick, Membership<E> membership) {
+        if (stale) return false;
+        if (tick - refreshedAt > IDLE_TICKS) {
+            invalidate();
+            orphans.clear();
+            orphanSnapshot = List.of();
+            return false;
+        }
+        if (!pending.isEmpty()) apply(membership);
+        return true;
+    }
+
+    private void apply(Membership<E> membership) {
+        orphans.removeIf(entity -> !isOrphan(membership, entity));
+        for (IntIterator it = pending.iterator(); it.hasNext(); ) {
+            E entity = membership.resolve(it.nextInt());
+            if (entity == null) continue;
+            widen(membership, entity);
+            if (isOrphan(membership, entity)) orphans.add(entity);
+        }
+        pending.clear();
+        orphanSnapshot = new ArrayList<>(orphans);
+    }
+
+    private void rebuild(Membership<E> membership) {
+        orphans.clear();
+        pending.clear();
+        membership.forEachSectionMember(entity -> widen(membership, entity));
+        membership.forEachLargeSourceMember(entity -> {
+            widen(membership, entity);
+            if (!membership.inOwnSection(entity)) orphans.add(entity);
+        });
+        stale = false;
+        orphanSnapshot = new ArrayList<>(orphans);
+    }
+
+    private static <E> boolean isOrphan(Membership<E> membership, E entity) {
+        return membership.inLargeSource(entity) && !membership.inOwnSection(entity);
+    }
+
+    private void widen(Membership<E> membership, E entity) {
+        AABB box = membership.boundingBox(entity);
+        Vec3 position = membership.position(entity);
+        reachXZ = Math.max(reachXZ, Math.max(
+                Math.max(box.maxX - position.x, position.x - box.minX),
+                Math.max(box.maxZ - position.z, position.z - box.minZ)));
+        reachUp = Math.max(reachUp, box.maxY - position.y);
+        reachDown = Math.max(reachDown, position.y - box.minY);
+    }
+
+    synchronized List<E> orphans() {
+        return orphanSnapshot;
+    }
+
+    // 可能含有与区域相交实体的分区坐标范围：minX, maxX, minY, maxY, minZ, maxZ
+    synchronized int[] sectionBounds(AABB area) {
+        return new int[]{
+                SectionPos.posToSectionCoord(area.minX - reachXZ),
+                SectionPos.posToSectionCoord(area.maxX + reachXZ),
+                SectionPos.posToSectionCoord(area.minY - reachUp),
+                SectionPos.posToSectionCoord(area.maxY + reachDown),
+                SectionPos.posToSectionCoord(area.minZ - reachXZ),
+                SectionPos.posToSectionCoord(area.maxZ + reachXZ)
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package net.eca.coremod;
+
+import net.eca.coremod.EcaContainers.EcaArrayList;
+import net.eca.coremod.EcaContainers.EcaInt2ObjectOpenHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 替换容器的零拷贝迭代：遍历中的重入写入对在途迭代器不可见，迭代器删除后继续遍历，
+ * 中途放弃的迭代器不被容器持有。元素用不含实体字段的普通对象，保护与隔离逻辑不参与。
+ */
+class EcaContainersTest {
+
+    @Test
+    void listIterationIgnoresReentrantWrites() {
+        EcaArrayList<String> list = new EcaArrayList<>(List.of("a", "b", "c", "d", "e"));
+        List<String> seen = new ArrayList<>();
+        for (String element : list) {
+            seen.add(element);
+            if (element.equals("b")) {
+                list.add("f");
+                list.remove("c");
+                list.add(0, "z");
+            }
+        }
+        assertEquals(List.of("a", "b", "c", "d", "e"), seen);
+        assertEquals(List.of("z", "a", "b", "d", "e", "f"), new ArrayList<>(list));
+    }
+
+    @Test
+    void nestedIteratorsEachKeepTheirOwnView() {
+        EcaArrayList<String> list = new EcaArrayList<>(List.of("a", "b", "c"));
+        Iterator<String> outer = list.iterator();
+        assertEquals("a", outer.next());
+        list.add("d");
+        Iterator<String> inner = list.iterator();
+        list.remove("a");
+        List<String> innerSeen = new ArrayList<>();
+        inner.forEachRemaining(innerSeen::add);
+        List<String> outerSeen = new ArrayList<>();
+        outer.forEachRemaining(outerSeen::add);
+        assertEquals(List.of("a", "b", "c", "d"), innerSeen);
+        assertEquals(List.of("b", "c"), outerSeen);
+    }
+
+    @Test
+    void iteratorRemoveDeletesAndContinues() {
+        EcaArrayList<String> list = new EcaArrayList<>(List.of("a", "b", "c", "d", "e"));
+        List<String> seen = new ArrayList<>();
+        Iterator<String> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            String element = iterator.next();
+            seen.add(element);
+            if (!element.equals("c")) iterator.remove();
+        }
+        assertEquals(List.of("a", "b", "c", "d", "e"), seen);
+        assertEquals(List.of("c"), new ArrayList<>(list));
+    }
+
+    @Test
+    void abandonedIteratorIsNotRetained() throws InterruptedException {
+        EcaArrayList<String> list = new EcaArrayList<>(List.of("a", "b", "c"));
+        WeakReference<Iterator<String>> abandoned = abandonAfterFirst(list);
+        list.add("d");
+        for (int attempt = 0; attempt < 20 && abandoned.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(abandoned.get());
+        // 放弃的迭代器让一次写入冻结过旧代次之后，新迭代器照常工作
+        List<String> seen = new ArrayList<>();
+        for (String element : list) {
+            seen.add(element);
+            list.remove("d");
+        }
+        assertEquals(List.of("a", "b", "c", "d"), seen);
+    }
+
+    private static WeakReference<Iterator<String>> abandonAfterFirst(EcaArrayList<String> list) {
+        Iterator<String> iterator = list.iterator();
+        iterator.next();
+        return new WeakReference<>(iterator);
+    }
+
+    @Test
+    void mapValuesIgnoreReentrantWritesAcrossRehash() {
+        EcaInt2ObjectOpenHashMap<String> map = new EcaInt2ObjectOpenHashMap<>();
+        Set<String> expected = new HashSet<>();
+        for (int id = 0; id < 64; id++) {
+            map.put(id, "v" + id);
+            expected.add("v" + id);
+        }
+        Set<String> seen = new HashSet<>();
+        int next = 1000;
+        for (String value : map.values()) {
+            assertTrue(seen.add(value), value);
+            // 持续插入触发扩容，同时删除尚未访问到的键
+            for (int i = 0; i < 16; i++) map.put(next++, "n" + next);
+            map.remove(Integer.parseInt(value.substring(1)) ^ 1);
+        }
+        assertEquals(expected, seen);
+        assertFalse(map.containsKey(0) && map.containsKey(1));
+    }
+
+    @Test
+    void mapIteratorRemoveUsesCurrentKey() {
+        EcaInt2ObjectOpenHashMap<String> map = new EcaInt2ObjectOpenHashMap<>();
+        for (int id = 0; id < 32; id++) map.put(id, "v" + id);
+        int visited = 0;
+        Iterator<String> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            String value = iterator.next();
+            visited++;
+            if (Integer.parseInt(value.substring(1)) % 2 == 0) iterator.remove();
+        }
+        assertEquals(32, visited);
+        assertEquals(16, map.size());
+        for (int id = 0; id < 32; id++) assertEquals(id % 2 != 0, map.containsKey(id));
+    }
+}
@@ -0,0 +1,121 @@
+package net.eca.network;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 阵营发光同步包的编解码：全量包与增量包经线格式往返后内容不变，
+ * 增量包应用到上一次的映射上得到本次映射；并核对调色板 + id 差值编码的字节数。
+ */
+class FactionGlowSyncPacketTest {
+
+    private static final int[] COLORS = {0xFFFF5555, 0xFF55FF55, 0xFF5555FF, 0xFFFFFF55};
+
+    private static FactionGlowSyncPacket roundTrip(FactionGlowSyncPacket packet) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        FactionGlowSyncPacket.encode(packet, buf);
+        FactionGlowSyncPacket decoded = FactionGlowSyncPacket.decode(buf);
+        assertEquals(0, buf.readableBytes(), "decode must consume the whole payload");
+        return decoded;
+    }
+
+    private static int encodedSize(FactionGlowSyncPacket packet) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        FactionGlowSyncPacket.encode(packet, buf);
+        return buf.readableBytes();
+    }
+
+    private static Int2IntMap randomGlowMap(Random random, int size, int idRange) {
+        Int2IntOpenHashMap map = new Int2IntOpenHashMap();
+        while (map.size() < size) {
+            // 覆盖负 id 与 int 两端，验证差值回绕
+            int id = switch (random.nextInt(20)) {
+                case 0 -> Integer.MIN_VALUE + random.nextInt(4);
+                case 1 -> Integer.MAX_VALUE - random.nextInt(4);
+                case 2 -> -random.nextInt(idRange);
+                default -> random.nextInt(idRange);
+            };
+            map.put(id, COLORS[random.nextInt(COLORS.length)]);
+        }
+        return map;
+    }
+
+    @Test
+    void fullPacketRoundTrips() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 200; trial++) {
+            Int2IntMap glow = randomGlowMap(random, random.nextInt(300), 1 + random.nextInt(100_000));
+            int duration = random.nextInt(1 << 20);
+            FactionGlowSyncPacket decoded = roundTrip(FactionGlowSyncPacket.full(glow, duration));
+            assertTrue(decoded.isFull());
+            assertEquals(duration, decoded.durationTicks());
+            assertEquals(glow, decoded.upserts());
+            assertEquals(0, decoded.removals().length);
+        }
+    }
+
+    @Test
+    void deltaPacketRoundTripsAndReproducesCurrentMap() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 200; trial++) {
+            Int2IntMap previous = randomGlowMap(random, random.nextInt(200), 5_000);
+            Int2IntOpenHashMap current = new Int2IntOpenHashMap(previous);
+            for (int id : previous.keySet().toIntArray()) {
+                int roll = random.nextInt(5);
+                if (roll == 0) current.remove(id);
+                else if (roll == 1) current.put(id, COLORS[random.nextInt(COLORS.length)]);
+            }
+            current.putAll(randomGlowMap(random, random.nextInt(50), 5_000));
+
+            FactionGlowSyncPacket packet = FactionGlowSyncPacket.delta(previous, current, 40);
+            FactionGlowSyncPacket decoded = roundTrip(packet);
+            assertFalse(decoded.isFull());
+            assertEquals(40, decoded.durationTicks());
+            assertEquals(packet.upserts(), decoded.upserts());
+            assertEquals(new IntOpenHashSet(packet.removals()), new IntOpenHashSet(decoded.removals()));
+
+            // 客户端按 FactionGlowData.apply 的顺序应用：先移除再写入
+            Int2IntOpenHashMap applied = new Int2IntOpenHashMap(previous);
+            for (int id : decoded.removals()) applied.remove(id);
+            applied.putAll(decoded.upserts());
+            assertEquals(current, applied);
+        }
+    }
+
+    @Test
+    void unchangedDeltaOnlyRenewsExpiry() {
+        Int2IntMap glow = randomGlowMap(new Random(3), 100, 10_000);
+        FactionGlowSyncPacket decoded = roundTrip(FactionGlowSyncPacket.delta(glow, glow, 40));
+        assertTrue(decoded.upserts().isEmpty());
+        assertArrayEquals(new int[0], decoded.removals());
+        // 时长 1 字节 + full 1 字节 + 调色板、条目、移除三个计数各 1 字节
+        assertEquals(5, encodedSize(FactionGlowSyncPacket.delta(glow, glow, 40)));
+    }
+
+    @Test
+    void denseIdsCostTwoBytesPerEntry() {
+        // 附近实体的 id 通常相邻：差值与调色板下标各占 1 字节，颜色只在调色板里写一次
+        Int2IntOpenHashMap glow = new Int2IntOpenHashMap();
+        int id = 48_000;
+        for (int i = 0; i < 256; i++) {
+            id += 1 + (i * 7) % 60;
+            glow.put(id, COLORS[i % COLORS.length]);
+        }
+        int size = encodedSize(FactionGlowSyncPacket.full(glow, 40));
+        int header = 1 + 1 + 1 + COLORS.length * Integer.BYTES + 2 + 1;
+        // 首个 id 的差值是完整 varint，其余每条 2 字节
+        assertTrue(size <= header + 3 + 2 * glow.size(), "encoded " + size + " bytes");
+        assertTrue(size < glow.size() * 2 * Integer.BYTES / 3, "encoded " + size + " bytes");
+    }
+}
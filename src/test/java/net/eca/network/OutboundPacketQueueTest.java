@@ -0,0 +1,179 @@
+package net.eca.network;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 按玩家排队的出站包：同 tick 内可合并的包只留最后一次、保留首次入队的位置，
+ * 其余包逐条保留；多条按上限分组成 BatchedPacket，经线格式往返后每名玩家收到的内容与顺序不变。
+ */
+class OutboundPacketQueueTest {
+
+    private static final int MAX_BATCH = 256;
+    private static final int WRITES_PER_MOB = 3;
+    private static final int PLAYERS = 4;
+
+    private record Health(int entityId, float health) implements CoalescingPacket {
+        @Override
+        public Object coalesceKey() {
+            return entityId;
+        }
+
+        static void encode(Health msg, FriendlyByteBuf buf) {
+            buf.writeInt(msg.entityId);
+            buf.writeFloat(msg.health);
+        }
+
+        static Health decode(FriendlyByteBuf buf) {
+            return new Health(buf.readInt(), buf.readFloat());
+        }
+    }
+
+    //增量语义的包，不合并
+    private record Notice(int sequence) {
+        static void encode(Notice msg, FriendlyByteBuf buf) {
+            buf.writeVarInt(msg.sequence);
+        }
+
+        static Notice decode(FriendlyByteBuf buf) {
+            return new Notice(buf.readVarInt());
+        }
+    }
+
+    static {
+        BatchedPacket.registerCodec(Health.class, Health::encode, Health::decode, (msg, ctx) -> {});
+        BatchedPacket.registerCodec(Notice.class, Notice::encode, Notice::decode, (msg, ctx) -> {});
+    }
+
+    //经线格式往返后记录每名玩家收到的子包与发包数
+    private static class WireSink implements OutboundPacketQueue.Sink<Integer> {
+        final Map<Integer, List<Object>> received = new HashMap<>();
+        final Map<Integer, Integer> packets = new HashMap<>();
+
+        @Override
+        public void send(Integer player, Object message) {
+            packets.merge(player, 1, Integer::sum);
+            received.computeIfAbsent(player, k -> new ArrayList<>()).add(message);
+        }
+
+        @Override
+        public void sendBatch(Integer player, List<Object> messages) {
+            assertTrue(messages.size() > 1 && messages.size() <= MAX_BATCH, "batch of " + messages.size());
+            packets.merge(player, 1, Integer::sum);
+            FriendlyByteBuf wire = new FriendlyByteBuf(Unpooled.buffer());
+            BatchedPacket.encode(new BatchedPacket(messages), wire);
+            received.computeIfAbsent(player, k -> new ArrayList<>()).addAll(BatchedPacket.decode(wire).messages());
+            assertEquals(0, wire.readableBytes());
+        }
+
+        List<Object> receivedBy(int player) {
+            return received.getOrDefault(player, List.of());
+        }
+
+        int packetsTo(int player) {
+            return packets.getOrDefault(player, 0);
+        }
+    }
+
+    private static float health(int mob, int write) {
+        return 100.0f - mob * 0.1f - write * 7.5f;
+    }
+
+    @Test
+    void eachPlayerReceivesTheFinalHealthOfEveryMob() {
+        for (int mobs : new int[]{1, 50, 500}) {
+            OutboundPacketQueue<Integer> queue = new OutboundPacketQueue<>(MAX_BATCH);
+            for (int mob = 0; mob < mobs; mob++) {
+                for (int w = 0; w < WRITES_PER_MOB; w++) {
+                    Health packet = new Health(mob, health(mob, w));
+                    for (int p = 0; p < PLAYERS; p++) queue.enqueue(p, packet);
+                }
+            }
+            WireSink sink = new WireSink();
+            queue.flush(sink);
+
+            List<Object> expected = new ArrayList<>();
+            for (int mob = 0; mob < mobs; mob++) expected.add(new Health(mob, health(mob, WRITES_PER_MOB - 1)));
+            for (int p = 0; p < PLAYERS; p++) {
+                assertEquals(expected, sink.receivedBy(p), "player " + p + " with " + mobs + " mobs");
+                // 原先每次写血都给每名追踪者单独发一个包
+                assertEquals((mobs + MAX_BATCH - 1) / MAX_BATCH, sink.packetsTo(p));
+            }
+        }
+    }
+
+    @Test
+    void coalescedPacketKeepsItsFirstPositionAndOthersKeepOrder() {
+        OutboundPacketQueue<Integer> queue = new OutboundPacketQueue<>(MAX_BATCH);
+        queue.enqueue(0, new Health(1, 10.0f));
+        queue.enqueue(0, new Notice(1));
+        queue.enqueue(0, new Health(2, 20.0f));
+        queue.enqueue(0, new Notice(1));
+        queue.enqueue(0, new Health(1, 5.0f));
+        queue.enqueue(0, new Notice(2));
+
+        WireSink sink = new WireSink();
+        queue.flush(sink);
+        assertEquals(List.of(new Health(1, 5.0f), new Notice(1), new Health(2, 20.0f), new Notice(1), new Notice(2)),
+                sink.receivedBy(0));
+        assertEquals(1, sink.packetsTo(0));
+    }
+
+    @Test
+    void singleMessageIsSentWithoutBatchFrame() {
+        OutboundPacketQueue<Integer> queue = new OutboundPacketQueue<>(MAX_BATCH);
+        queue.enqueue(0, new Health(1, 1.0f));
+        queue.enqueue(0, new Health(1, 2.0f));
+        List<Object> direct = new ArrayList<>();
+        queue.flush(new OutboundPacketQueue.Sink<>() {
+            @Override
+            public void send(Integer player, Object message) {
+                direct.add(message);
+            }
+
+            @Override
+            public void sendBatch(Integer player, List<Object> messages) {
+                throw new AssertionError("one message must not be batched");
+            }
+        });
+        assertEquals(List.of(new Health(1, 2.0f)), direct);
+    }
+
+    @Test
+    void packetsQueuedDuringFlushWaitForTheNextFlush() {
+        OutboundPacketQueue<Integer> queue = new OutboundPacketQueue<>(MAX_BATCH);
+        queue.enqueue(0, new Notice(1));
+        WireSink sink = new WireSink() {
+            @Override
+            public void send(Integer player, Object message) {
+                super.send(player, message);
+                if (message instanceof Notice notice && notice.sequence() == 1) queue.enqueue(player, new Notice(2));
+            }
+        };
+        queue.flush(sink);
+        assertEquals(List.of(new Notice(1)), sink.receivedBy(0));
+        queue.flush(sink);
+        assertEquals(List.of(new Notice(1), new Notice(2)), sink.receivedBy(0));
+    }
+
+    @Test
+    void removedPlayerReceivesNothing() {
+        OutboundPacketQueue<Integer> queue = new OutboundPacketQueue<>(MAX_BATCH);
+        queue.enqueue(0, new Notice(1));
+        queue.enqueue(1, new Notice(1));
+        queue.remove(0);
+        WireSink sink = new WireSink();
+        queue.flush(sink);
+        assertTrue(sink.receivedBy(0).isEmpty());
+        assertEquals(List.of(new Notice(1)), sink.receivedBy(1));
+    }
+}
@@ -0,0 +1,152 @@
+package net.eca.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 复活检查由钩子驱动后的开销与延迟：没有死亡时每 tick 只有巡检周期分摊的检查，
+ * 死亡在触发钩子的同一 tick 被处理；对比原先每 25ms 轮询全部追踪实体的检查次数。
+ */
+class CandidateQueueTest {
+
+    private static final int TRACKED = 1000;
+    private static final long SWEEP_TICKS = 20;
+    //原实现：后台线程每 25ms 轮询一次全部追踪实体，即每 tick 两轮
+    private static final int LEGACY_ROUNDS_PER_TICK = 50 / 25;
+
+    private static final class Tracked {
+        final int id;
+        final AtomicBoolean queued = new AtomicBoolean(false);
+        boolean dead;
+
+        Tracked(int id) {
+            this.id = id;
+        }
+    }
+
+    private static List<Tracked> track(int count) {
+        List<Tracked> tracked = new ArrayList<>();
+        for (int i = 0; i < count; i++) tracked.add(new Tracked(i));
+        return tracked;
+    }
+
+    //与 ResurrectionManager.onServerTick 相同的顺序：到期先全量入队，再在 tick 末尾消费
+    private static int serverTick(CandidateQueue<Tracked> queue, List<Tracked> tracked, List<Tracked> revived) {
+        if (queue.sweepDue(SWEEP_TICKS)) {
+            for (Tracked entity : tracked) queue.offer(entity);
+        }
+        int checks = 0;
+        Tracked entity;
+        while ((entity = queue.poll()) != null) {
+            checks++;
+            if (entity.dead) {
+                entity.dead = false;
+                revived.add(entity);
+            }
+        }
+        return checks;
+    }
+
+    @Test
+    void idleCostIsOneSweepPerInterval() {
+        CandidateQueue<Tracked> queue = new CandidateQueue<>(tracked -> tracked.queued);
+        List<Tracked> tracked = track(TRACKED);
+        List<Tracked> revived = new ArrayList<>();
+
+        int ticks = 200;
+        int checks = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            checks += serverTick(queue, tracked, revived);
+        }
+
+        assertEquals(TRACKED * ticks / (int) SWEEP_TICKS, checks);
+        assertTrue(checks * 40 <= TRACKED * ticks * LEGACY_ROUNDS_PER_TICK,
+                "hook-driven checks " + checks + " vs polling " + TRACKED * ticks * LEGACY_ROUNDS_PER_TICK);
+        assertTrue(revived.isEmpty());
+    }
+
+    @Test
+    void deathIsHandledInTheTickItIsReported() {
+        CandidateQueue<Tracked> queue = new CandidateQueue<>(tracked -> tracked.queued);
+        List<Tracked> tracked = track(TRACKED);
+        List<Tracked> revived = new ArrayList<>();
+
+        //先走过一次巡检，之后的 tick 不再有周期性检查
+        for (int tick = 0; tick < SWEEP_TICKS; tick++) serverTick(queue, tracked, revived);
+
+        Tracked victim = tracked.get(123);
+        victim.dead = true;
+        //同一次死亡会依次触发 setHealth、die、remove 等多个钩子
+        for (int hook = 0; hook < 5; hook++) queue.offer(victim);
+
+        assertEquals(1, serverTick(queue, tracked, revived));
+        assertEquals(List.of(victim), revived);
+        assertFalse(victim.queued.get());
+    }
+
+    @Test
+    void candidateIsQueuedAtMostOnceUntilPolled() {
+        CandidateQueue<Tracked> queue = new CandidateQueue<>(tracked -> tracked.queued);
+        Tracked entity = new Tracked(0);
+
+        assertTrue(queue.offer(entity));
+        assertFalse(queue.offer(entity));
+        assertSame(entity, queue.poll());
+        assertNull(queue.poll());
+
+        //出队后再次触发钩子会重新入队
+        assertTrue(queue.offer(entity));
+        queue.clear();
+        assertFalse(entity.queued.get());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void concurrentHooksEnqueueEachCandidateOnce() throws InterruptedException {
+        CandidateQueue<Tracked> queue = new CandidateQueue<>(tracked -> tracked.queued);
+        List<Tracked> tracked = track(100);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread producer = new Thread(() -> {
+                for (int round = 0; round < 1000; round++) {
+                    for (Tracked entity : tracked) queue.offer(entity);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) producer.join();
+
+        boolean[] seen = new boolean[tracked.size()];
+        int polled = 0;
+        Tracked entity;
+        while ((entity = queue.poll()) != null) {
+            assertFalse(seen[entity.id], "entity " + entity.id + " queued twice");
+            seen[entity.id] = true;
+            polled++;
+        }
+        assertEquals(tracked.size(), polled);
+    }
+
+    @Test
+    void sweepCadenceRestartsAfterReset() {
+        CandidateQueue<Tracked> queue = new CandidateQueue<>(tracked -> tracked.queued);
+        for (int tick = 1; tick < SWEEP_TICKS; tick++) assertFalse(queue.sweepDue(SWEEP_TICKS));
+        assertTrue(queue.sweepDue(SWEEP_TICKS));
+
+        for (int tick = 1; tick < SWEEP_TICKS / 2; tick++) queue.sweepDue(SWEEP_TICKS);
+        queue.resetSweep();
+        for (int tick = 1; tick < SWEEP_TICKS; tick++) assertFalse(queue.sweepDue(SWEEP_TICKS));
+        assertTrue(queue.sweepDue(SWEEP_TICKS));
+    }
+}
@@ -0,0 +1,262 @@
+package net.eca.util;
+
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 位置锁按维度分桶后的检查开销：1000 个锁分布在 10 个维度，每个维度的 tick 只访问自己的锁，
+ * 稳态下不按 UUID 查找；换维度、实例替换、偏离拉回与长时间丢失删锁的行为保持不变。
+ */
+class LocationLockRegistryTest {
+
+    private static final int DIMENSIONS = 10;
+    private static final int LOCKS = 1000;
+
+    private static final class Mob {
+        final UUID uuid;
+        String dimension;
+        Vec3 position;
+        boolean removed;
+        boolean changingDimension;
+
+        Mob(UUID uuid, String dimension, Vec3 position) {
+            this.uuid = uuid;
+            this.dimension = dimension;
+            this.position = position;
+        }
+    }
+
+    private static final class FakeWorld implements LocationLockRegistry.World<String, Mob> {
+        final Map<String, Map<UUID, Mob>> levels = new HashMap<>();
+        final Map<String, Integer> visits = new HashMap<>();
+        final List<Mob> pulledBack = new ArrayList<>();
+        int lookups;
+        int globalLookups;
+
+        int visits(String dimension) {
+            return visits.getOrDefault(dimension, 0);
+        }
+
+        void add(Mob mob) {
+            levels.computeIfAbsent(mob.dimension, key -> new HashMap<>()).put(mob.uuid, mob);
+        }
+
+        void remove(Mob mob) {
+            mob.removed = true;
+            levels.get(mob.dimension).remove(mob.uuid);
+        }
+
+        @Override
+        public Mob lookup(String dimension, UUID uuid) {
+            lookups++;
+            Map<UUID, Mob> level = levels.get(dimension);
+            return level != null ? level.get(uuid) : null;
+        }
+
+        @Override
+        public Mob lookupAnywhere(UUID uuid) {
+            globalLookups++;
+            for (Map<UUID, Mob> level : levels.values()) {
+                lookups++;
+                Mob mob = level.get(uuid);
+                if (mob != null) return mob;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isRemoved(Mob mob) {
+            visits.merge(mob.dimension, 1, Integer::sum);
+            return mob.removed;
+        }
+
+        @Override
+        public String dimensionOf(Mob mob) {
+            return mob.dimension;
+        }
+
+        @Override
+        public boolean isChangingDimension(Mob mob) {
+            return mob.changingDimension;
+        }
+
+        @Override
+        public Vec3 position(Mob mob) {
+            return mob.position;
+        }
+
+        @Override
+        public void pullBack(Mob mob, Vec3 position) {
+            pulledBack.add(mob);
+            mob.position = position;
+        }
+    }
+
+    private static String dimension(int index) {
+        return "dim" + index;
+    }
+
+    private static void tickAll(LocationLockRegistry<String, Mob> registry, FakeWorld world) {
+        for (int d = 0; d < DIMENSIONS; d++) {
+            registry.check(dimension(d), world);
+        }
+    }
+
+    private static List<Mob> populate(LocationLockRegistry<String, Mob> registry, FakeWorld world) {
+        List<Mob> mobs = new ArrayList<>();
+        for (int i = 0; i < LOCKS; i++) {
+            Mob mob = new Mob(new UUID(0, i), dimension(i % DIMENSIONS), new Vec3(i, 64, -i));
+            world.add(mob);
+            registry.lock(mob.uuid, mob.dimension, mob, mob.position);
+            mobs.add(mob);
+        }
+        return mobs;
+    }
+
+    @Test
+    void eachDimensionVisitsOnlyItsOwnLocks() {
+        LocationLockRegistry<String, Mob> registry = new LocationLockRegistry<>(1200, 1.0E-6);
+        FakeWorld world = new FakeWorld();
+        populate(registry, world);
+
+        for (int tick = 0; tick < 20; tick++) {
+            tickAll(registry, world);
+        }
+
+        // 一个服务端 tick 检查全部维度，每个锁只被访问一次，而不是每个维度各查一次全部锁
+        for (int d = 0; d < DIMENSIONS; d++) {
+            assertEquals(20 * LOCKS / DIMENSIONS, world.visits(dimension(d)));
+        }
+        assertEquals(0, world.lookups, "steady state must resolve from the cached reference");
+        assertTrue(world.pulledBack.isEmpty());
+    }
+
+    @Test
+    void replacedInstanceIsRelookedUpOnceInItsOwnDimension() {
+        LocationLockRegistry<String, Mob> registry = new LocationLockRegistry<>(1200, 1.0E-6);
+        FakeWorld world = new FakeWorld();
+        List<Mob> mobs = populate(registry, world);
+
+        Mob original = mobs.get(7);
+        world.remove(original);
+        Mob reloaded = new Mob(original.uuid, original.dimension, original.position);
+        world.add(reloaded);
+
+        tickAll(registry, world);
+        tickAll(registry, world);
+        assertEquals(1, world.lookups);
+        assertEquals(0, world.globalLookups);
+        assertSame(reloaded, registry.get(original.uuid).entityRef.get());
+    }
+
+    @Test
+    void dimensionChangeMovesTheLockToTheNewBucket() {
+        LocationLockRegistry<String, Mob> registry = new LocationLockRegistry<>(1200, 1.0E-6);
+        FakeWorld world = new FakeWorld();
+        List<Mob> mobs = populate(registry, world);
+
+        // changeDimension 钩子重新绑定到新实例
+        Mob traveller = mobs.get(3);
+        world.remove(traveller);
+        Mob arrived = new Mob(traveller.uuid, dimension(9), new Vec3(5, 70, 5));
+        world.add(arrived);
+        registry.rebind(traveller.uuid, arrived, arrived.dimension, arrived.position);
+
+        // 未经钩子的换维度：缓存失效后全维度找到，迁入实际所在维度的桶
+        Mob stray = mobs.get(4);
+        world.remove(stray);
+        Mob elsewhere = new Mob(stray.uuid, dimension(8), stray.position);
+        world.add(elsewhere);
+
+        tickAll(registry, world);
+        world.visits.clear();
+        world.lookups = 0;
+        world.globalLookups = 0;
+        tickAll(registry, world);
+
+        assertEquals(0, world.lookups);
+        assertEquals(dimension(9), registry.get(traveller.uuid).dimension);
+        assertEquals(dimension(8), registry.get(stray.uuid).dimension);
+        assertEquals(LOCKS / DIMENSIONS - 1, world.visits(dimension(3)));
+        assertEquals(LOCKS / DIMENSIONS + 1, world.visits(dimension(9)));
+        assertEquals(new Vec3(5, 70, 5), registry.get(traveller.uuid).lockedPosition);
+    }
+
+    @Test
+    void driftIsPulledBackAndDimensionChangeUpdatesTheLock() {
+        LocationLockRegistry<String, Mob> registry = new LocationLockRegistry<>(1200, 1.0E-6);
+        FakeWorld world = new FakeWorld();
+        List<Mob> mobs = populate(registry, world);
+
+        Mob drifted = mobs.get(10);
+        Vec3 locked = drifted.position;
+        drifted.position = locked.add(0.01, 0, 0);
+        Mob nudged = mobs.get(11);
+        nudged.position = nudged.position.add(0.0001, 0, 0);
+        Mob leaving = mobs.get(12);
+        leaving.changingDimension = true;
+        leaving.position = new Vec3(0, 0, 0);
+
+        tickAll(registry, world);
+
+        assertEquals(List.of(drifted), world.pulledBack);
+        assertEquals(locked, drifted.position);
+        assertEquals(new Vec3(0, 0, 0), registry.get(leaving.uuid).lockedPosition);
+    }
+
+    @Test
+    void lockSurvivesShortAbsenceAndIsDroppedAfterMaxMisses() {
+        LocationLockRegistry<String, Mob> registry = new LocationLockRegistry<>(5, 1.0E-6);
+        FakeWorld world = new FakeWorld();
+        Mob mob = new Mob(new UUID(1, 1), dimension(0), new Vec3(0, 64, 0));
+        world.add(mob);
+        registry.lock(mob.uuid, mob.dimension, mob, mob.position);
+
+        world.remove(mob);
+        for (int tick = 0; tick < 5; tick++) registry.check(dimension(0), world);
+        assertFalse(registry.isEmpty());
+
+        // 缺席期间重新出现：计数归零
+        Mob back = new Mob(mob.uuid, dimension(0), mob.position);
+        world.add(back);
+        registry.check(dimension(0), world);
+        assertEquals(0, registry.get(mob.uuid).missCount);
+
+        world.remove(back);
+        for (int tick = 0; tick < 6; tick++) registry.check(dimension(0), world);
+        assertNull(registry.get(mob.uuid));
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    void relockAndUnlockKeepBucketsConsistent() {
+        LocationLockRegistry<String, Mob> registry = new LocationLockRegistry<>(1200, 1.0E-6);
+        FakeWorld world = new FakeWorld();
+        List<Mob> mobs = populate(registry, world);
+
+        Mob moved = mobs.get(0);
+        world.levels.get(moved.dimension).remove(moved.uuid);
+        moved.dimension = dimension(5);
+        world.add(moved);
+        registry.lock(moved.uuid, moved.dimension, moved, moved.position);
+        registry.unlock(mobs.get(1).uuid);
+
+        tickAll(registry, world);
+        assertEquals(LOCKS - 1, registry.size());
+        assertEquals(LOCKS / DIMENSIONS - 1, world.visits(dimension(0)));
+        assertEquals(LOCKS / DIMENSIONS - 1, world.visits(dimension(1)));
+        assertEquals(LOCKS / DIMENSIONS + 1, world.visits(dimension(5)));
+    }
+}
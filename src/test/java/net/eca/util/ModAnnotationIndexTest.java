@@ -0,0 +1,163 @@
+package net.eca.util;
+
+import net.minecraftforge.forgespi.language.ModFileScanData;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Type;
+
+import java.lang.annotation.ElementType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 单遍注解索引与改动前逐注册器扫描的对比。合成 mod 文件：每个文件 CLASSES_PER_MOD 个类，
+ * 带常见第三方注解与方法级注解；每 8 个 mod 中有一个声明 ECA 注册注解（部分同时标在方法上），
+ * 每 10 个文件中有一个是含两个 mod 的多 mod jar。索引得到的类列表应等于旧扫描去重后的结果，
+ * 按包反查的所属文件应等于逐文件遍历全部类的结果。
+ */
+class ModAnnotationIndexTest {
+
+    private static final int MODS = 60;
+    private static final int CLASSES_PER_MOD = 120;
+    private static final int ECA_MOD_INTERVAL = 8;
+    private static final int MULTI_MOD_INTERVAL = 10;
+    private static final Type[] FOREIGN_ANNOTATIONS = {
+        Type.getObjectType("org/spongepowered/asm/mixin/Mixin"),
+        Type.getObjectType("net/minecraftforge/fml/common/Mod$EventBusSubscriber"),
+        Type.getObjectType("net/minecraftforge/eventbus/api/SubscribeEvent"),
+        Type.getObjectType("net/minecraftforge/api/distmarker/OnlyIn")
+    };
+    private static final List<String> ECA_ANNOTATIONS = List.of(
+        "net.eca.api.RegisterFaction", "net.eca.api.RegisterRaid", "net.eca.api.RegisterEntityExtension",
+        "net.eca.api.RegisterBossShow", "net.eca.api.RegisterItemExtension", "net.eca.api.RegisterBlockExtension",
+        "net.eca.api.RegisterShaderPreset"
+    );
+
+    private final List<String> modIds = new ArrayList<>();
+    private final List<Integer> modsPerFile = new ArrayList<>();
+    private final List<ModAnnotationIndex.FileRef> files = new ArrayList<>();
+    private final Set<String> annotationTypes = new LinkedHashSet<>(ECA_ANNOTATIONS);
+
+    ModAnnotationIndexTest() {
+        for (int m = 0; m < MODS; m++) {
+            String modId = "mod" + m;
+            ModFileScanData scanData = new ModFileScanData();
+            for (int c = 0; c < CLASSES_PER_MOD; c++) {
+                Type clazz = Type.getObjectType("com/example/" + modId + "/pkg" + (c % 6) + "/Class" + c);
+                scanData.getClasses().add(new ModFileScanData.ClassData(clazz, Type.getObjectType("java/lang/Object"), Set.of()));
+                Type foreign = FOREIGN_ANNOTATIONS[c % FOREIGN_ANNOTATIONS.length];
+                scanData.getAnnotations().add(new ModFileScanData.AnnotationData(foreign, ElementType.TYPE, clazz, clazz.getClassName(), Map.of()));
+                for (int method = 0; method < c % 3; method++) {
+                    scanData.getAnnotations().add(new ModFileScanData.AnnotationData(FOREIGN_ANNOTATIONS[2], ElementType.METHOD, clazz, "on" + method + "()V", Map.of()));
+                }
+                if (m % ECA_MOD_INTERVAL == 0 && c < ECA_ANNOTATIONS.size()) {
+                    Type eca = Type.getObjectType(ECA_ANNOTATIONS.get(c).replace('.', '/'));
+                    scanData.getAnnotations().add(new ModFileScanData.AnnotationData(eca, ElementType.TYPE, clazz, clazz.getClassName(), Map.of("value", modId + ":preset" + c)));
+                    //同一类方法上的同名注解不应让类重复出现
+                    if (c % 2 == 0) {
+                        scanData.getAnnotations().add(new ModFileScanData.AnnotationData(eca, ElementType.METHOD, clazz, "init()V", Map.of()));
+                    }
+                }
+            }
+            modIds.add(modId);
+            modsPerFile.add(m % MULTI_MOD_INTERVAL == 0 ? 2 : 1);
+            files.add(new ModAnnotationIndex.FileRef(modId + ".jar", scanData));
+        }
+    }
+
+    @Test
+    void annotatedMatchesDedupedPerRegistrarScan() {
+        ModAnnotationIndex index = ModAnnotationIndex.build(modIds, files, annotationTypes);
+        for (String type : annotationTypes) {
+            List<String> expected = new ArrayList<>(new LinkedHashSet<>(legacyScan(type)));
+            List<String> actual = new ArrayList<>();
+            for (ModAnnotationIndex.Entry entry : index.annotated(type)) actual.add(entry.className());
+            assertEquals(expected, actual, type);
+            assertEquals((MODS + ECA_MOD_INTERVAL - 1) / ECA_MOD_INTERVAL, actual.size(), type);
+        }
+    }
+
+    @Test
+    void entriesKeepModIdAndTypeLevelValues() {
+        ModAnnotationIndex index = ModAnnotationIndex.build(modIds, files, annotationTypes);
+        List<ModAnnotationIndex.Entry> entries = index.annotated(ECA_ANNOTATIONS.get(2));
+        for (ModAnnotationIndex.Entry entry : entries) {
+            String modId = entry.className().split("\\.")[2];
+            assertEquals(modId, entry.modId());
+            assertEquals(Map.of("value", modId + ":preset2"), entry.values());
+        }
+        //未建索引的注解类型返回空列表
+        assertTrue(index.annotated(FOREIGN_ANNOTATIONS[0].getClassName()).isEmpty());
+    }
+
+    @Test
+    void packageLookupResolvesSameFileAsFullScan() {
+        ModAnnotationIndex index = ModAnnotationIndex.build(modIds, files, annotationTypes);
+        for (int m = 0; m < MODS; m += 7) {
+            for (int c = 0; c < CLASSES_PER_MOD; c += 13) {
+                String target = "com/example/mod" + m + "/pkg" + (c % 6) + "/Class" + c;
+                String expected = legacyResolve(target);
+                assertEquals(expected, indexedResolve(index, target), target);
+                assertEquals("mod" + m + ".jar", expected);
+            }
+        }
+        assertTrue(index.filesContainingPackageOf("com/example/unknown/Class0").isEmpty());
+        assertTrue(index.filesContainingPackageOf("Class0").isEmpty());
+    }
+
+    @Test
+    void filesWithoutScanDataAreSkipped() {
+        List<String> ids = new ArrayList<>(modIds);
+        List<ModAnnotationIndex.FileRef> refs = new ArrayList<>(files);
+        ids.add(0, "broken");
+        refs.add(0, new ModAnnotationIndex.FileRef("broken.jar", null));
+        ModAnnotationIndex index = ModAnnotationIndex.build(ids, refs, annotationTypes);
+        for (String type : annotationTypes) {
+            assertEquals(new ArrayList<>(new LinkedHashSet<>(legacyScan(type))),
+                index.annotated(type).stream().map(ModAnnotationIndex.Entry::className).toList(), type);
+        }
+    }
+
+    //改动前单个注册器的扫描：每个 IModInfo 各遍历一次文件的全部注解
+    private List<String> legacyScan(String annotationType) {
+        List<String> classNames = new ArrayList<>();
+        for (int f = 0; f < files.size(); f++) {
+            ModFileScanData scanData = files.get(f).scanData();
+            for (int modInfo = 0; modInfo < modsPerFile.get(f); modInfo++) {
+                for (ModFileScanData.AnnotationData data : scanData.getAnnotations()) {
+                    if (annotationType.equals(data.annotationType().getClassName())) {
+                        classNames.add(data.clazz().getClassName());
+                    }
+                }
+            }
+        }
+        return classNames;
+    }
+
+    //改动前 AllReturn 的反查：逐文件遍历全部类
+    private String legacyResolve(String target) {
+        for (ModAnnotationIndex.FileRef file : files) {
+            if (containsClass(file.scanData(), target)) return file.fileName();
+        }
+        return null;
+    }
+
+    private static String indexedResolve(ModAnnotationIndex index, String target) {
+        for (ModAnnotationIndex.FileRef file : index.filesContainingPackageOf(target)) {
+            if (containsClass(file.scanData(), target)) return file.fileName();
+        }
+        return null;
+    }
+
+    private static boolean containsClass(ModFileScanData scanData, String internalName) {
+        for (ModFileScanData.ClassData classData : scanData.getClasses()) {
+            if (internalName.equals(classData.clazz().getInternalName())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,110 @@
+package net.eca.util.bossshow;
+
+import io.netty.buffer.Unpooled;
+import net.eca.util.bossshow.BossShowDefinition.Frame;
+import net.eca.util.bossshow.BossShowDefinition.Keyframe;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * BossShow 帧流的原始编码与精简量化编码往返。两段合成的录制演出（1 分钟，每 tick 一帧）：
+ * orbit 为绕目标平滑环绕的镜头，handheld 在其上叠加手持抖动，是精简最不利的情形；每 300 帧一个显式关键帧。
+ * 原始编码逐帧精确还原；精简编码帧数一致、关键帧逐帧保留、位置与角度误差不超过容差，且体积更小。
+ */
+class BossShowFrameCodecTest {
+
+    private static final int FRAMES = 1200;
+    private static final double POS_TOLERANCE = 0.01;
+    private static final double ANGLE_TOLERANCE = 0.1;
+
+    private static byte[] encode(List<Frame> frames, double posTolerance, double angleTolerance) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        BossShowNetCodec.writeFrames(buf, frames, posTolerance, angleTolerance);
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+
+    private static List<Frame> decode(byte[] bytes) {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.wrappedBuffer(bytes));
+        List<Frame> frames = BossShowNetCodec.readFrames(buf);
+        assertEquals(0, buf.readableBytes(), "decode must consume the whole payload");
+        return frames;
+    }
+
+    private static List<Frame> record(boolean handheld) {
+        Random random = new Random(42L);
+        Curve[] curves = Curve.values();
+        List<Frame> out = new ArrayList<>(FRAMES);
+        double x = 0.0, y = 2.0, z = -8.0;
+        float yaw = 170.0f;
+        for (int t = 0; t < FRAMES; t++) {
+            x += Math.cos(t / 40.0) * 0.3;
+            z += Math.sin(t / 40.0) * 0.3;
+            y += Math.sin(t / 13.0) * 0.05;
+            yaw += 1.7f;
+            if (yaw >= 180.0f) yaw -= 360.0f;
+            float pitch = (float) (20.0 * Math.sin(t / 50.0));
+            double jitter = handheld ? 0.004 : 0.0;
+            Keyframe keyframe = t % 300 == 0 ? new Keyframe("beat_" + t, null, curves[(t / 300) % curves.length]) : null;
+            out.add(new Frame(
+                    x + (random.nextDouble() - 0.5) * jitter,
+                    y + (random.nextDouble() - 0.5) * jitter,
+                    z + (random.nextDouble() - 0.5) * jitter,
+                    yaw + (handheld ? (float) ((random.nextDouble() - 0.5) * 0.2) : 0.0f),
+                    pitch,
+                    keyframe));
+        }
+        return out;
+    }
+
+    @Test
+    void rawStreamRoundTripsExactly() {
+        for (boolean handheld : new boolean[]{false, true}) {
+            List<Frame> frames = record(handheld);
+            assertEquals(frames, decode(encode(frames, 0.0, 0.0)));
+        }
+    }
+
+    @Test
+    void orbitStaysWithinToleranceAndShrinks() {
+        assertCompressedWithinTolerance(record(false));
+    }
+
+    @Test
+    void handheldStaysWithinToleranceAndShrinks() {
+        assertCompressedWithinTolerance(record(true));
+    }
+
+    private static void assertCompressedWithinTolerance(List<Frame> frames) {
+        byte[] raw = encode(frames, 0.0, 0.0);
+        byte[] compressed = encode(frames, POS_TOLERANCE, ANGLE_TOLERANCE);
+        List<Frame> decoded = decode(compressed);
+
+        assertEquals(frames.size(), decoded.size());
+        double maxPos = 0.0;
+        double maxAngle = 0.0;
+        for (int i = 0; i < frames.size(); i++) {
+            Frame a = frames.get(i);
+            Frame b = decoded.get(i);
+            assertEquals(a.keyframe(), b.keyframe(), "keyframe mismatch at frame " + i);
+            double ex = a.dx() - b.dx();
+            double ey = a.dy() - b.dy();
+            double ez = a.dz() - b.dz();
+            maxPos = Math.max(maxPos, Math.sqrt(ex * ex + ey * ey + ez * ez));
+            float yawError = BossShowInterpolator.lerpYaw(a.yaw(), b.yaw(), 1.0) - a.yaw();
+            maxAngle = Math.max(maxAngle, Math.max(Math.abs(yawError), Math.abs(a.pitch() - b.pitch())));
+        }
+        assertTrue(maxPos <= POS_TOLERANCE, "position error " + maxPos);
+        //float 存储的角度允许极小的舍入余量
+        assertTrue(maxAngle <= ANGLE_TOLERANCE + 1e-3, "angle error " + maxAngle);
+        assertTrue(compressed.length < raw.length, "compressed " + compressed.length + " vs raw " + raw.length);
+    }
+}
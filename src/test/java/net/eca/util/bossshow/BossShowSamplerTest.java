@@ -0,0 +1,162 @@
+package net.eca.util.bossshow;
+
+import net.eca.util.bossshow.BossShowDefinition.Frame;
+import net.eca.util.bossshow.BossShowDefinition.Keyframe;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * 游标式 BossShowSampler 与改动前逐次线性查找关键帧的 computePose 逐点比对：
+ * 顺序播放（每 tick 3 个 partialTick）、随机跳转与回退、不规则关键帧间距与边界帧数。
+ */
+class BossShowSamplerTest {
+
+    private static final double[] PARTIALS = {0.0, 0.33, 0.66};
+    private static final double ANCHOR_X = 12.5;
+    private static final double ANCHOR_Y = 64.0;
+    private static final double ANCHOR_Z = -3.0;
+    private static final float ANCHOR_YAW = 30.0f;
+
+    private static List<Frame> frames(Random random, int count, int keyframeChance) {
+        Curve[] curves = Curve.values();
+        List<Frame> frames = new ArrayList<>(count);
+        for (int t = 0; t < count; t++) {
+            Keyframe keyframe = random.nextInt(keyframeChance) == 0
+                    ? new Keyframe(null, null, curves[random.nextInt(curves.length)]) : null;
+            frames.add(new Frame(Math.cos(t / 40.0) * 6.0, 2.0 + Math.sin(t / 13.0), Math.sin(t / 40.0) * 6.0,
+                    (t * 1.7f) % 360.0f - 180.0f, (float) (20.0 * Math.sin(t / 50.0)), keyframe));
+        }
+        return frames;
+    }
+
+    private static void assertSamePose(List<Frame> frames, BossShowSampler sampler, double cursor) {
+        BossShowPose expected = new BossShowPose();
+        BossShowPose actual = new BossShowPose();
+        legacyComputePose(frames, cursor, expected);
+        sampler.computePose(false, cursor, ANCHOR_X, ANCHOR_Y, ANCHOR_Z, ANCHOR_YAW, actual);
+        String where = "cursor " + cursor + " of " + frames.size() + " frames";
+        assertEquals(expected.x, actual.x, 1e-9, where);
+        assertEquals(expected.y, actual.y, 1e-9, where);
+        assertEquals(expected.z, actual.z, 1e-9, where);
+        assertEquals(expected.yaw, actual.yaw, where);
+        assertEquals(expected.pitch, actual.pitch, where);
+    }
+
+    @Test
+    void sequentialPlaybackMatchesLegacy() {
+        Random random = new Random(1);
+        for (int keyframeChance : new int[]{1, 3, 100, 10_000}) {
+            List<Frame> frames = frames(random, 2000, keyframeChance);
+            BossShowSampler sampler = new BossShowSampler(frames);
+            for (int tick = -2; tick < frames.size() + 2; tick++) {
+                for (double partial : PARTIALS) {
+                    assertSamePose(frames, sampler, tick + partial);
+                }
+            }
+        }
+    }
+
+    @Test
+    void seeksAndRewindsMatchLegacy() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 20; trial++) {
+            List<Frame> frames = frames(random, 1 + random.nextInt(1500), 1 + random.nextInt(120));
+            BossShowSampler sampler = new BossShowSampler(frames);
+            double cursor = 0.0;
+            for (int step = 0; step < 2000; step++) {
+                cursor = switch (random.nextInt(4)) {
+                    case 0 -> random.nextDouble() * frames.size();
+                    case 1 -> cursor - random.nextDouble() * 50;
+                    default -> cursor + random.nextDouble() * 2;
+                };
+                assertSamePose(frames, sampler, cursor);
+            }
+        }
+    }
+
+    @Test
+    void degenerateFrameListsMatchLegacy() {
+        Random random = new Random(3);
+        for (int count = 1; count <= 4; count++) {
+            for (int trial = 0; trial < 20; trial++) {
+                List<Frame> frames = frames(random, count, 2);
+                BossShowSampler sampler = new BossShowSampler(frames);
+                for (double cursor = -1.0; cursor <= count + 1; cursor += 0.25) {
+                    assertSamePose(frames, sampler, cursor);
+                }
+            }
+        }
+
+        BossShowPose pose = new BossShowPose();
+        new BossShowSampler(List.of()).computePose(true, 5.0, ANCHOR_X, ANCHOR_Y, ANCHOR_Z, ANCHOR_YAW, pose);
+        assertEquals(ANCHOR_X, pose.x);
+        assertEquals(ANCHOR_YAW, pose.yaw);
+    }
+
+    @Test
+    void nextKeyframeMatchesLinearScan() {
+        List<Frame> frames = frames(new Random(4), 500, 25);
+        BossShowSampler sampler = new BossShowSampler(frames);
+        for (int index = 0; index <= frames.size(); index++) {
+            int expected = -1;
+            for (int i = index; i < frames.size(); i++) {
+                if (frames.get(i).keyframe() != null) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, sampler.nextKeyframeAtOrAfter(index), "index " + index);
+        }
+    }
+
+    //改动前的 computePose：每次取样都从第 0 帧线性查找关键帧区间
+    private static void legacyComputePose(List<Frame> frames, double tickCursor, BossShowPose out) {
+        int last = frames.size() - 1;
+        if (tickCursor <= 0) tickCursor = 0;
+        if (tickCursor >= last) tickCursor = last;
+
+        int cursorInt = (int) tickCursor;
+        int segStart = -1;
+        Curve segCurve = Curve.NONE;
+        for (int i = 0; i <= cursorInt && i < frames.size(); i++) {
+            Keyframe kf = frames.get(i).keyframe();
+            if (kf != null) {
+                segStart = i;
+                segCurve = kf.curve();
+            }
+        }
+        if (segStart >= 0 && segCurve != Curve.NONE) {
+            int segEnd = last;
+            for (int i = segStart + 1; i < frames.size(); i++) {
+                if (frames.get(i).keyframe() != null) {
+                    segEnd = i;
+                    break;
+                }
+            }
+            double segLen = segEnd - segStart;
+            if (segLen > 0) {
+                tickCursor = segStart + segCurve.apply((tickCursor - segStart) / segLen) * segLen;
+            }
+        }
+
+        int i0 = (int) Math.floor(tickCursor);
+        int i1 = Math.min(last, i0 + 1);
+        double t = tickCursor - i0;
+        Frame a = frames.get(i0);
+        Frame b = frames.get(i1);
+        double dx = a.dx() + (b.dx() - a.dx()) * t;
+        double dy = a.dy() + (b.dy() - a.dy()) * t;
+        double dz = a.dz() + (b.dz() - a.dz()) * t;
+        double rad = Math.toRadians(ANCHOR_YAW);
+        out.x = ANCHOR_X + (dx * Math.cos(rad) + dz * Math.sin(rad));
+        out.y = ANCHOR_Y + dy;
+        out.z = ANCHOR_Z + (-dx * Math.sin(rad) + dz * Math.cos(rad));
+        out.yaw = BossShowInterpolator.lerpYaw(a.yaw(), b.yaw(), t) + ANCHOR_YAW;
+        out.pitch = BossShowInterpolator.lerpPitch(a.pitch(), b.pitch(), t);
+    }
+}
@@ -0,0 +1,198 @@
+package net.eca.util.bossshow;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * range 触发扫描的分桶与玩家网格，对比改动前的全量扫描。合成世界：生物按区块分组、类型取自 32 种，
+ * 玩家随机分布；第 i 个定义指向第 i 种类型，超过 32 个后新增定义所指类型在世界中不存在。
+ * 全量扫描遍历全部实体 × 定义 × 玩家；网格扫描按 RangeTriggerIndex.cellSizeFor 分桶，
+ * 只查询玩家附近的区块。两者命中的（实体, 定义, 玩家）三元组应完全一致，玩家取加入顺序最靠前的一个。
+ */
+class PlayerGridTest {
+
+    private static final int ENTITY_TYPES = 32;
+    private static final double[] RADII = {0.0, 8.0, 16.0, 24.0, 48.0, 96.0, 300.0};
+
+    private static final class World {
+        final int worldSize;
+        final double[][] entities;
+        final int[] entityTypes;
+        final double[][] players;
+        final int[] defTypes;
+        final double[] defRadii;
+        final Long2ObjectOpenHashMap<List<Integer>> sections = new Long2ObjectOpenHashMap<>();
+
+        World(Random random, int worldSize, int entityCount, int playerCount, int definitions) {
+            this.worldSize = worldSize;
+            entities = new double[entityCount][];
+            entityTypes = new int[entityCount];
+            for (int i = 0; i < entityCount; i++) {
+                entities[i] = randomPosition(random);
+                entityTypes[i] = random.nextInt(ENTITY_TYPES);
+                sections.computeIfAbsent(chunkKey((int) Math.floor(entities[i][0]) >> 4, (int) Math.floor(entities[i][2]) >> 4),
+                        k -> new ArrayList<>()).add(i);
+            }
+            players = new double[playerCount][];
+            for (int i = 0; i < playerCount; i++) {
+                // 部分玩家挤在一起，覆盖同格多人
+                players[i] = i > 0 && random.nextInt(4) == 0
+                        ? new double[]{players[i - 1][0] + random.nextDouble() * 4, players[i - 1][1], players[i - 1][2] - random.nextDouble() * 4}
+                        : randomPosition(random);
+            }
+            defTypes = new int[definitions];
+            defRadii = new double[definitions];
+            for (int i = 0; i < definitions; i++) {
+                defTypes[i] = i;
+                defRadii[i] = RADII[random.nextInt(RADII.length)];
+            }
+        }
+
+        private double[] randomPosition(Random random) {
+            // 包含负坐标，覆盖格子与区块坐标的向下取整
+            return new double[]{random.nextDouble() * worldSize - worldSize / 2.0, 64.0 + random.nextDouble() * 16.0,
+                    random.nextDouble() * worldSize - worldSize / 2.0};
+        }
+
+        List<Long> fullScan() {
+            List<Long> out = new ArrayList<>();
+            for (int e = 0; e < entities.length; e++) {
+                for (int d = 0; d < defTypes.length; d++) {
+                    if (defTypes[d] != entityTypes[e]) continue;
+                    double radiusSq = defRadii[d] * defRadii[d];
+                    for (int p = 0; p < players.length; p++) {
+                        if (distanceSq(players[p], entities[e]) > radiusSq) continue;
+                        out.add(triple(e, d, p));
+                        break;
+                    }
+                }
+            }
+            out.sort(null);
+            return out;
+        }
+
+        List<Long> gridScan() {
+            TreeMap<Integer, Map<Integer, List<Integer>>> bucketed = new TreeMap<>();
+            TreeMap<Integer, Double> bucketReach = new TreeMap<>();
+            for (int d = 0; d < defTypes.length; d++) {
+                int cellSize = RangeTriggerIndex.cellSizeFor(defRadii[d]);
+                bucketed.computeIfAbsent(cellSize, k -> new HashMap<>()).computeIfAbsent(defTypes[d], k -> new ArrayList<>()).add(d);
+                bucketReach.merge(cellSize, defRadii[d], Math::max);
+            }
+
+            List<Long> out = new ArrayList<>();
+            for (Map.Entry<Integer, Map<Integer, List<Integer>>> bucket : bucketed.entrySet()) {
+                Map<Integer, List<Integer>> byType = bucket.getValue();
+                double reach = bucketReach.get(bucket.getKey());
+                PlayerGrid<Integer> grid = new PlayerGrid<>(bucket.getKey());
+                for (int p = 0; p < players.length; p++) {
+                    grid.add(p, players[p][0], players[p][1], players[p][2]);
+                }
+                List<Integer> candidates = new ArrayList<>();
+                boolean[] seen = new boolean[entities.length];
+                grid.forEachCell((minX, minY, minZ, maxX, maxY, maxZ) ->
+                        querySections(minX - reach, minY - reach, minZ - reach, maxX + reach, maxY + reach, maxZ + reach,
+                                byType, seen, candidates));
+
+                for (int e : candidates) {
+                    for (int d : byType.get(entityTypes[e])) {
+                        Integer viewer = grid.firstWithin(entities[e][0], entities[e][1], entities[e][2], defRadii[d], p -> true);
+                        if (viewer != null) out.add(triple(e, d, viewer));
+                    }
+                }
+            }
+            out.sort(null);
+            return out;
+        }
+
+        //按区块遍历查询框覆盖的实体，等价于 level.getEntitiesOfClass 的区块分段查询
+        private void querySections(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                                   Map<Integer, List<Integer>> byType, boolean[] seen, List<Integer> out) {
+            int minCx = (int) Math.floor(minX) >> 4;
+            int maxCx = (int) Math.floor(maxX) >> 4;
+            int minCz = (int) Math.floor(minZ) >> 4;
+            int maxCz = (int) Math.floor(maxZ) >> 4;
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                for (int cz = minCz; cz <= maxCz; cz++) {
+                    List<Integer> section = sections.get(chunkKey(cx, cz));
+                    if (section == null) continue;
+                    for (int e : section) {
+                        double[] pos = entities[e];
+                        if (seen[e] || !byType.containsKey(entityTypes[e])) continue;
+                        if (pos[0] < minX || pos[0] > maxX || pos[1] < minY || pos[1] > maxY || pos[2] < minZ || pos[2] > maxZ) continue;
+                        seen[e] = true;
+                        out.add(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double distanceSq(double[] a, double[] b) {
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static long triple(int entity, int definition, int player) {
+        return ((long) entity << 32) | ((long) definition << 8) | player;
+    }
+
+    private static long chunkKey(int cx, int cz) {
+        return (cx & 0xFFFFFFFFL) | ((long) cz << 32);
+    }
+
+    @Test
+    void gridScanMatchesFullScan() {
+        int[] definitionCounts = {16, 256};
+        for (int seed = 0; seed < 20; seed++) {
+            for (int definitions : definitionCounts) {
+                Random random = new Random(seed);
+                // 小世界保证有足够命中，大世界覆盖稀疏分布
+                int worldSize = seed % 2 == 0 ? 512 : 4096;
+                World world = new World(random, worldSize, 1500, 1 + random.nextInt(12), definitions);
+                assertEquals(world.fullScan(), world.gridScan(), "seed " + seed + " definitions " + definitions);
+            }
+        }
+    }
+
+    @Test
+    void firstWithinReturnsEarliestMatchingMember() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 200; trial++) {
+            // 半径可能超过格子边长，覆盖向外扩圈
+            int cellSize = 1 + random.nextInt(64);
+            PlayerGrid<Integer> grid = new PlayerGrid<>(cellSize);
+            int count = random.nextInt(40);
+            double[][] members = new double[count][];
+            for (int i = 0; i < count; i++) {
+                members[i] = new double[]{random.nextDouble() * 200 - 100, random.nextDouble() * 20, random.nextDouble() * 200 - 100};
+                grid.add(i, members[i][0], members[i][1], members[i][2]);
+            }
+            for (int query = 0; query < 20; query++) {
+                double[] target = {random.nextDouble() * 200 - 100, random.nextDouble() * 20, random.nextDouble() * 200 - 100};
+                double radius = random.nextDouble() * 120;
+                int parity = random.nextInt(2);
+                Integer expected = null;
+                for (int i = 0; i < count; i++) {
+                    if (i % 2 == parity && distanceSq(members[i], target) <= radius * radius) {
+                        expected = i;
+                        break;
+                    }
+                }
+                assertEquals(expected, grid.firstWithin(target[0], target[1], target[2], radius, member -> member % 2 == parity),
+                        "trial " + trial + " query " + query);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.eca.util.entity_extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 扩展类型计数只由加入/离开事件维护：重复或未配对的事件不影响计数，
+ * 随机事件序列下计数始终等于当前在维度中的实例数。
+ */
+class ActiveTypeStateTest {
+
+    @Test
+    void duplicateJoinAndUnknownLeaveAreIgnored() {
+        ActiveTypeState state = new ActiveTypeState();
+        assertTrue(state.join(1));
+        assertFalse(state.join(1));
+        assertTrue(state.join(2));
+        assertEquals(2, state.count());
+
+        assertFalse(state.leave(3));
+        assertTrue(state.leave(1));
+        assertFalse(state.leave(1));
+        assertEquals(1, state.count());
+
+        //同一 id 离开后重新加入（区块重新加载）
+        assertTrue(state.join(1));
+        assertEquals(2, state.count());
+    }
+
+    @Test
+    void countMatchesMembersUnderRandomEvents() {
+        Random random = new Random(17);
+        ActiveTypeState state = new ActiveTypeState();
+        Set<Integer> present = new HashSet<>();
+        for (int step = 0; step < 100_000; step++) {
+            int id = random.nextInt(500);
+            if (random.nextBoolean()) {
+                state.join(id);
+                present.add(id);
+            } else {
+                state.leave(id);
+                present.remove(id);
+            }
+            if (step % 1000 == 0) {
+                assertEquals(present.size(), state.count(), "step " + step);
+            }
+        }
+        assertEquals(present.size(), state.count());
+
+        for (int id : present) state.leave(id);
+        assertEquals(0, state.count());
+    }
+}
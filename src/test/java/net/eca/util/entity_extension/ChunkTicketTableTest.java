@@ -0,0 +1,166 @@
+package net.eca.util.entity_extension;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.world.level.ChunkPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 强加载实体移动时的票据操作次数：按区块共享引用计数、延迟释放并预占前方区块后，
+ * 直线移动每个经过的区块只申请、释放各一次，且进入前已持有票据；
+ * 在区块边界来回时不产生任何票据操作；同一区块的多个实体共享一张票据。
+ */
+class ChunkTicketTableTest {
+
+    private static final int RELEASE_DELAY_TICKS = 100;
+
+    private static final class CountingSink implements ChunkTicketTable.TicketSink {
+        final LongOpenHashSet ticketed = new LongOpenHashSet();
+        final LongOpenHashSet everAdded = new LongOpenHashSet();
+        int adds;
+        int removes;
+
+        @Override
+        public void forceChunk(long chunkKey, boolean add) {
+            if (add) {
+                assertTrue(ticketed.add(chunkKey), "chunk ticketed twice");
+                everAdded.add(chunkKey);
+                adds++;
+            } else {
+                assertTrue(ticketed.remove(chunkKey), "released a chunk without a ticket");
+                removes++;
+            }
+        }
+
+        int operations() {
+            return adds + removes;
+        }
+    }
+
+    private static long chunkAt(double x, double z) {
+        return ChunkPos.asLong((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+    }
+
+    @Test
+    void straightMoveTicketsEachChunkOnceAndAhead() {
+        ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        CountingSink sink = new CountingSink();
+        ChunkClaims claims = new ChunkClaims();
+
+        double speed = 0.5;
+        double x = 8;
+        double z = 8;
+        int ticks = 800;
+        LongOpenHashSet visited = new LongOpenHashSet();
+        for (int tick = 0; tick < ticks; tick++) {
+            claims.update(table, x, z, speed, 0);
+            table.flush(sink);
+            visited.add(chunkAt(x, z));
+            assertTrue(sink.ticketed.contains(chunkAt(x, z)), "current chunk without ticket at tick " + tick);
+            // 预测距离 20 tick：下一区块在进入之前已持有票据
+            assertTrue(sink.ticketed.contains(chunkAt(x + speed * ChunkClaims.LOOKAHEAD_TICKS, z)));
+            x += speed;
+        }
+
+        // 经过的区块加上终点前方预占的区块，每个只申请一次
+        assertEquals(sink.everAdded.size(), sink.adds);
+        assertTrue(sink.everAdded.containsAll(visited));
+        assertTrue(sink.adds <= visited.size() + 1, "adds " + sink.adds + " for " + visited.size() + " chunks");
+
+        // 原先每个实体自带票据：每跨一个区块就释放旧票据、申请新票据
+        int perEntityOperations = 1 + 2 * (visited.size() - 1);
+        assertTrue(sink.operations() <= perEntityOperations,
+                "shared " + sink.operations() + " vs per-entity " + perEntityOperations);
+
+        claims.release(table);
+        for (int tick = 0; tick <= RELEASE_DELAY_TICKS; tick++) table.flush(sink);
+        assertEquals(sink.adds, sink.removes);
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    void borderOscillationDoesNotChurnTickets() {
+        ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        CountingSink sink = new CountingSink();
+        ChunkClaims claims = new ChunkClaims();
+
+        // 在 x=16 的区块边界两侧来回，周期 40 tick
+        for (int tick = 0; tick < 2000; tick++) {
+            double phase = (tick % 40) / 40.0;
+            double motion = phase < 0.5 ? 0.1 : -0.1;
+            double x = phase < 0.5 ? 14 + phase * 8 : 18 - (phase - 0.5) * 8;
+            claims.update(table, x, 8, motion, 0);
+            table.flush(sink);
+            assertTrue(sink.ticketed.contains(chunkAt(x, 8)));
+        }
+
+        assertEquals(2, sink.adds);
+        assertEquals(0, sink.removes);
+    }
+
+    @Test
+    void entitiesInOneChunkShareATicketUntilTheDelayExpires() {
+        ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        CountingSink sink = new CountingSink();
+        List<ChunkClaims> mobs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ChunkClaims claims = new ChunkClaims();
+            claims.update(table, 100 + i, 196 + i, 0, 0);
+            mobs.add(claims);
+        }
+        table.flush(sink);
+        assertEquals(1, sink.adds);
+
+        for (ChunkClaims claims : mobs) claims.release(table);
+        for (int tick = 0; tick < RELEASE_DELAY_TICKS; tick++) {
+            table.flush(sink);
+            assertEquals(0, sink.removes, "released early at tick " + tick);
+        }
+        table.flush(sink);
+        assertEquals(1, sink.removes);
+        assertTrue(table.isIdle());
+    }
+
+    @Test
+    void reclaimWithinDelayReusesTheTicket() {
+        ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        CountingSink sink = new CountingSink();
+        ChunkClaims claims = new ChunkClaims();
+
+        claims.update(table, 8, 8, 0, 0);
+        table.flush(sink);
+        claims.release(table);
+        for (int tick = 0; tick < RELEASE_DELAY_TICKS / 2; tick++) table.flush(sink);
+
+        // 换维度回来这类先离开、再重新加入的流程
+        claims.update(table, 8, 8, 0, 0);
+        for (int tick = 0; tick < RELEASE_DELAY_TICKS * 2; tick++) table.flush(sink);
+        assertEquals(1, sink.adds);
+        assertEquals(0, sink.removes);
+    }
+
+    @Test
+    void adoptedTicketIsReleasedWhenUnclaimed() {
+        ChunkTicketTable table = new ChunkTicketTable(RELEASE_DELAY_TICKS);
+        CountingSink sink = new CountingSink();
+        long orphan = ChunkPos.asLong(5, 5);
+        long reclaimed = ChunkPos.asLong(0, 0);
+        sink.ticketed.add(orphan);
+        sink.ticketed.add(reclaimed);
+        table.adopt(orphan, 200);
+        table.adopt(reclaimed, 200);
+
+        ChunkClaims claims = new ChunkClaims();
+        claims.update(table, 8, 8, 0, 0);
+        for (int tick = 0; tick <= 200; tick++) table.flush(sink);
+
+        assertEquals(0, sink.adds);
+        assertEquals(1, sink.removes);
+        assertTrue(sink.ticketed.contains(reclaimed));
+    }
+}
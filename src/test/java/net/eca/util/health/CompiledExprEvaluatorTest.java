@@ -0,0 +1,187 @@
+package net.eca.util.health;
+
+import net.eca.util.health.HealthDataflowAnalyzer.Call;
+import net.eca.util.health.HealthDataflowAnalyzer.Choice;
+import net.eca.util.health.HealthDataflowAnalyzer.EvalContext;
+import net.eca.util.health.HealthDataflowAnalyzer.Expr;
+import net.eca.util.health.HealthDataflowAnalyzer.Op;
+import net.eca.util.health.HealthDataflowAnalyzer.OptionalContentExpr;
+import net.eca.util.health.HealthDataflowAnalyzer.Primitive;
+import net.eca.util.health.HealthDataflowAnalyzer.Reference;
+import net.eca.util.health.HealthDataflowAnalyzer.UnknownExpr;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 编译求值器与反射解释器的差分测试：随机生成含算术、类型转换、choice、Optional 拆包、
+ * 内建规则调用与反射调用(静态/实例/接收者不可求值)的表达式树，两条路径的结果必须逐一相同。
+ * 树不含实体数据源，上下文实体为 null。
+ */
+class CompiledExprEvaluatorTest {
+
+    private static final int TREES = 4000;
+    private static final int MAX_DEPTH = 5;
+
+    private static final Map<Integer, Integer> TABLE = Map.of(0, 7, 1, -3, 2, 1 << 20, 5, 42);
+    private static final List<String> NAMES = List.of("alpha", "bravo", "charlie-delta");
+
+    private final EvalContext ctx = HealthDataflowAnalyzer.newContext(null);
+
+    @AfterEach
+    void clearSlots() {
+        CompiledExprEvaluator.clear();
+    }
+
+    @Test
+    void randomTreesMatchInterpreter() {
+        for (long seed = 0; seed < TREES; seed++) {
+            Random random = new Random(seed);
+            char type = "IJFD".charAt(random.nextInt(4));
+            Expr tree = new TreeGen(random).gen(type, MAX_DEPTH);
+            Object interpreted = HealthDataflowAnalyzer.evaluate(tree, ctx);
+            Object compiled = CompiledExprEvaluator.evaluateCompiled(tree, ctx);
+            long s = seed;
+            assertEquals(interpreted, compiled, () -> "seed " + s + " tree " + tree);
+        }
+    }
+
+    @Test
+    void cachedEntryPointMatchesAcrossCompileThreshold() {
+        for (long seed = 0; seed < 200; seed++) {
+            Expr tree = new TreeGen(new Random(seed)).gen('D', MAX_DEPTH);
+            Object interpreted = HealthDataflowAnalyzer.evaluate(tree, ctx);
+            for (int i = 0; i < 10; i++) {
+                long s = seed;
+                int round = i;
+                assertEquals(interpreted, CompiledExprEvaluator.evaluate(tree, ctx),
+                        () -> "seed " + s + " round " + round + " tree " + tree);
+            }
+        }
+    }
+
+    @Test
+    void slotTableEvictsAndStaysCorrect() {
+        // 远超槽位数的不同树实例：必须发生淘汰，且被淘汰后重新进入的树结果不变
+        List<Expr> trees = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            trees.add(new Op(Opcodes.IADD, List.of(new Primitive(i, 'I'), new Primitive(1, 'I'))));
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < trees.size(); i++) {
+                for (int round = 0; round < 4; round++) {
+                    assertEquals(i + 1, CompiledExprEvaluator.evaluate(trees.get(i), ctx));
+                }
+            }
+        }
+        assertFalse(CompiledExprEvaluator.stats().contains("evictions=0"), CompiledExprEvaluator.stats());
+    }
+
+    @Test
+    void sameResultTreatsNaNAsEqualButKeepsBoxType() {
+        assertTrue(CompiledExprEvaluator.sameResult(Float.NaN, Float.NaN));
+        assertFalse(CompiledExprEvaluator.sameResult(1, 1L));
+        assertFalse(CompiledExprEvaluator.sameResult(1.0f, null));
+    }
+
+    /* 按 JVM 类型字符生成表达式：I/J/F/D 为对应数值，叶子或调用失败时可能求得 null，两条路径须一致传播。 */
+    private static final class TreeGen {
+        private final Random random;
+
+        TreeGen(Random random) {
+            this.random = random;
+        }
+
+        Expr gen(char type, int depth) {
+            if (depth <= 0 || random.nextInt(4) == 0) return leaf(type);
+            return switch (random.nextInt(6)) {
+                case 0, 1 -> binary(type, depth);
+                case 2 -> convert(type, depth);
+                case 3 -> new Choice(List.of(
+                        random.nextBoolean() ? UnknownExpr.UNKNOWN : gen(type, depth - 1),
+                        gen(type, depth - 1)));
+                case 4 -> call(type, depth);
+                default -> type == 'I'
+                        ? new OptionalContentExpr(new Reference(Optional.of(random.nextInt(100)), "java/util/Optional"))
+                        : unary(type, depth);
+            };
+        }
+
+        private Expr leaf(char type) {
+            return switch (type) {
+                case 'I' -> new Primitive(random.nextInt(41) - 20, 'I');
+                case 'J' -> new Primitive(random.nextLong() >> random.nextInt(64), 'J');
+                case 'F' -> new Primitive(random.nextFloat() * 200f - 100f, 'F');
+                default -> new Primitive(random.nextGaussian() * 1e3, 'D');
+            };
+        }
+
+        private Expr binary(char type, int depth) {
+            int[] ops = switch (type) {
+                case 'I' -> new int[]{Opcodes.IADD, Opcodes.ISUB, Opcodes.IMUL, Opcodes.IDIV, Opcodes.IREM,
+                        Opcodes.IAND, Opcodes.IOR, Opcodes.IXOR, Opcodes.ISHL, Opcodes.ISHR, Opcodes.IUSHR};
+                case 'J' -> new int[]{Opcodes.LADD, Opcodes.LSUB, Opcodes.LMUL, Opcodes.LDIV, Opcodes.LREM,
+                        Opcodes.LAND, Opcodes.LXOR};
+                case 'F' -> new int[]{Opcodes.FADD, Opcodes.FSUB, Opcodes.FMUL, Opcodes.FDIV};
+                default -> new int[]{Opcodes.DADD, Opcodes.DSUB, Opcodes.DMUL, Opcodes.DDIV};
+            };
+            int op = ops[random.nextInt(ops.length)];
+            return new Op(op, List.of(gen(type, depth - 1), gen(type, depth - 1)));
+        }
+
+        private Expr unary(char type, int depth) {
+            int op = switch (type) {
+                case 'I' -> Opcodes.INEG;
+                case 'J' -> Opcodes.LNEG;
+                case 'F' -> Opcodes.FNEG;
+                default -> Opcodes.DNEG;
+            };
+            return new Op(op, List.of(gen(type, depth - 1)));
+        }
+
+        private Expr convert(char type, int depth) {
+            return switch (type) {
+                case 'I' -> random.nextBoolean()
+                        ? new Op(Opcodes.L2I, List.of(gen('J', depth - 1)))
+                        : new Op(Opcodes.F2I, List.of(gen('F', depth - 1)));
+                case 'J' -> new Op(Opcodes.I2L, List.of(gen('I', depth - 1)));
+                case 'F' -> random.nextBoolean()
+                        ? new Op(Opcodes.I2F, List.of(gen('I', depth - 1)))
+                        : new Op(Opcodes.D2F, List.of(gen('D', depth - 1)));
+                default -> new Op(Opcodes.F2D, List.of(gen('F', depth - 1)));
+            };
+        }
+
+        // 内建规则覆盖的调用、只能反射执行的静态/实例调用，以及接收者求值为 null 的调用
+        private Expr call(char type, int depth) {
+            return switch (type) {
+                case 'I' -> switch (random.nextInt(5)) {
+                    case 0 -> new Call("java/lang/Math", "max", "(II)I", List.of(gen('I', depth - 1), gen('I', depth - 1)));
+                    case 1 -> new Call("java/lang/Integer", "rotateLeft", "(II)I", List.of(gen('I', depth - 1), gen('I', depth - 1)));
+                    case 2 -> new Call("java/lang/String", "length", "()I",
+                            List.of(new Reference(NAMES.get(random.nextInt(NAMES.size())), "java/lang/String")));
+                    case 3 -> new Call("java/util/Map", "get", "(Ljava/lang/Object;)Ljava/lang/Object;",
+                            List.of(new Reference(TABLE, "java/util/Map"), new Primitive(random.nextInt(7), 'I')));
+                    default -> new Call("java/lang/String", "length", "()I", List.of(UnknownExpr.UNKNOWN));
+                };
+                case 'J' -> new Call("java/lang/Long", "reverse", "(J)J", List.of(gen('J', depth - 1)));
+                case 'F' -> random.nextBoolean()
+                        ? new Call("java/lang/Math", "max", "(FF)F", List.of(gen('F', depth - 1), gen('F', depth - 1)))
+                        : new Call("java/lang/Math", "copySign", "(FF)F", List.of(gen('F', depth - 1), gen('F', depth - 1)));
+                default -> random.nextBoolean()
+                        ? new Call("java/lang/Math", "sqrt", "(D)D", List.of(gen('D', depth - 1)))
+                        : new Call("java/lang/Math", "hypot", "(DD)D", List.of(gen('D', depth - 1), gen('D', depth - 1)));
+            };
+        }
+    }
+}
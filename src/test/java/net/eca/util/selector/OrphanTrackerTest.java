@@ -0,0 +1,289 @@
+package net.eca.util.selector;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * 分区区域查询与全量扫描的一致性。模拟一个维度：分区列表、大来源与带包围盒的实体，
+ * 随机执行生成、正常移动、绕过分区的摘除与移动、整段分区移除、尺寸变化与彻底移除，
+ * 每次写入都按容器写入口的做法把实体 id 报告给 OrphanTracker；每 tick 复核后对随机区域比较
+ * "相交分区 + 游离实体"的结果与遍历全部分区和大来源的结果。
+ */
+class OrphanTrackerTest {
+
+    private static final class Mob {
+        private static int nextId;
+
+        final int id = nextId++;
+        double x, y, z;
+        double halfWidth, height, sink;
+
+        AABB box() {
+            return new AABB(x - halfWidth, y - sink, z - halfWidth, x + halfWidth, y + height, z + halfWidth);
+        }
+
+        long sectionKey() {
+            return SectionPos.asLong(SectionPos.posToSectionCoord(x), SectionPos.posToSectionCoord(y), SectionPos.posToSectionCoord(z));
+        }
+    }
+
+    private static final class World implements OrphanTracker.Membership<Mob> {
+        final Long2ObjectOpenHashMap<List<Mob>> sections = new Long2ObjectOpenHashMap<>();
+        final Set<Mob> large = new ReferenceOpenHashSet<>();
+        final List<Mob> all = new ArrayList<>();
+        final Map<Integer, Mob> byId = new HashMap<>();
+        final OrphanTracker<Mob> tracker = new OrphanTracker<>();
+
+        @Override
+        public Mob resolve(int id) {
+            return byId.get(id);
+        }
+
+        @Override
+        public boolean inLargeSource(Mob mob) {
+            return large.contains(mob);
+        }
+
+        @Override
+        public boolean inOwnSection(Mob mob) {
+            List<Mob> section = sections.get(mob.sectionKey());
+            return section != null && containsInstance(section, mob);
+        }
+
+        @Override
+        public AABB boundingBox(Mob mob) {
+            return mob.box();
+        }
+
+        @Override
+        public Vec3 position(Mob mob) {
+            return new Vec3(mob.x, mob.y, mob.z);
+        }
+
+        @Override
+        public void forEachSectionMember(Consumer<Mob> action) {
+            for (List<Mob> section : sections.values()) section.forEach(action);
+        }
+
+        @Override
+        public void forEachLargeSourceMember(Consumer<Mob> action) {
+            large.forEach(action);
+        }
+
+        void addToOwnSection(Mob mob) {
+            sections.computeIfAbsent(mob.sectionKey(), k -> new ArrayList<>()).add(mob);
+        }
+
+        // 分区列表的移除会经过替换容器，报告给追踪器
+        boolean removeFromSection(Mob mob) {
+            List<Mob> section = sections.get(mob.sectionKey());
+            if (section == null || !section.removeIf(member -> member == mob)) return false;
+            tracker.changed(mob.id);
+            if (section.isEmpty()) sections.remove(mob.sectionKey());
+            return true;
+        }
+
+        Set<Mob> partitioned(AABB area) {
+            Set<Mob> result = new ReferenceOpenHashSet<>();
+            int[] bounds = tracker.sectionBounds(area);
+            for (int sx = bounds[0]; sx <= bounds[1]; sx++) {
+                for (int sy = bounds[2]; sy <= bounds[3]; sy++) {
+                    for (int sz = bounds[4]; sz <= bounds[5]; sz++) {
+                        List<Mob> section = sections.get(SectionPos.asLong(sx, sy, sz));
+                        if (section == null) continue;
+                        for (Mob mob : section) {
+                            if (mob.box().intersects(area)) result.add(mob);
+                        }
+                    }
+                }
+            }
+            for (Mob mob : tracker.orphans()) {
+                if (mob.box().intersects(area)) result.add(mob);
+            }
+            return result;
+        }
+
+        Set<Mob> fullScan(AABB area) {
+            Set<Mob> result = new ReferenceOpenHashSet<>();
+            forEachSectionMember(mob -> {
+                if (mob.box().intersects(area)) result.add(mob);
+            });
+            for (Mob mob : large) {
+                if (mob.box().intersects(area)) result.add(mob);
+            }
+            return result;
+        }
+    }
+
+    private static boolean containsInstance(List<Mob> list, Mob target) {
+        for (Mob mob : list) {
+            if (mob == target) return true;
+        }
+        return false;
+    }
+
+    @Test
+    void areaQueriesMatchFullScan() {
+        for (int seed = 0; seed < 200; seed++) {
+            runScenario(new Random(seed), seed);
+        }
+    }
+
+    private static void runScenario(Random random, int seed) {
+        World world = new World();
+        for (int tick = 0; tick < 60; tick++) {
+            int operations = random.nextInt(40);
+            for (int op = 0; op < operations; op++) {
+                mutate(world, random);
+            }
+            world.tracker.refresh(tick, world);
+            for (int query = 0; query < 8; query++) {
+                AABB area = randomArea(random);
+                assertEquals(world.fullScan(area), world.partitioned(area),
+                        "seed " + seed + " tick " + tick + " area " + area);
+            }
+        }
+    }
+
+    private static void mutate(World world, Random random) {
+        int choice = random.nextInt(world.all.isEmpty() ? 1 : 9);
+        if (choice == 0) {
+            Mob mob = new Mob();
+            placeRandomly(mob, random);
+            mob.halfWidth = 0.3 + random.nextDouble();
+            mob.height = 0.5 + random.nextDouble() * 2;
+            world.all.add(mob);
+            world.byId.put(mob.id, mob);
+            world.large.add(mob);
+            world.tracker.changed(mob.id);
+            world.addToOwnSection(mob);
+            return;
+        }
+        Mob mob = world.all.get(random.nextInt(world.all.size()));
+        switch (choice) {
+            case 1, 2 -> {
+                // 分区管理器回调下的正常移动：跨分区时从旧分区移除再加入新分区
+                boolean attached = world.removeFromSection(mob);
+                nudge(mob, random);
+                if (attached) world.addToOwnSection(mob);
+            }
+            case 3 -> world.removeFromSection(mob);
+            case 4 -> {
+                // 没有分区回调的移动由 setPosRaw 钩子报告
+                if (!world.inOwnSection(mob)) {
+                    nudge(mob, random);
+                    world.tracker.changed(mob.id);
+                }
+            }
+            case 5 -> {
+                List<Mob> section = world.sections.remove(mob.sectionKey());
+                if (section != null) section.forEach(member -> world.tracker.changed(member.id));
+            }
+            case 6 -> {
+                mob.halfWidth = random.nextInt(8) == 0 ? 4 + random.nextDouble() * 12 : 0.2 + random.nextDouble();
+                mob.height = random.nextInt(8) == 0 ? 8 + random.nextDouble() * 20 : 0.5 + random.nextDouble() * 2;
+                mob.sink = random.nextInt(10) == 0 ? random.nextDouble() * 6 : 0;
+                world.tracker.changed(mob.id);
+            }
+            case 7 -> {
+                // 重新挂回所在分区不会制造游离实体，无需报告
+                if (world.large.contains(mob) && !world.inOwnSection(mob)) world.addToOwnSection(mob);
+            }
+            default -> {
+                world.removeFromSection(mob);
+                if (world.large.remove(mob)) world.tracker.changed(mob.id);
+                world.all.remove(mob);
+                world.byId.remove(mob.id);
+            }
+        }
+    }
+
+    private static void placeRandomly(Mob mob, Random random) {
+        mob.x = random.nextDouble() * 160 - 80;
+        mob.y = random.nextDouble() * 96 - 32;
+        mob.z = random.nextDouble() * 160 - 80;
+    }
+
+    private static void nudge(Mob mob, Random random) {
+        if (random.nextInt(6) == 0) {
+            placeRandomly(mob, random);
+            return;
+        }
+        mob.x += random.nextGaussian() * 6;
+        mob.y += random.nextGaussian() * 3;
+        mob.z += random.nextGaussian() * 6;
+    }
+
+    private static AABB randomArea(Random random) {
+        double x = random.nextDouble() * 200 - 100;
+        double y = random.nextDouble() * 120 - 50;
+        double z = random.nextDouble() * 200 - 100;
+        double size = random.nextInt(4) == 0 ? random.nextDouble() * 80 : random.nextDouble() * 12;
+        return new AABB(x, y, z, x + size, y + size * 0.5, z + size);
+    }
+
+    @Test
+    void overflowRebuildsFromSources() {
+        World world = new World();
+        Random random = new Random(7);
+        for (int i = 0; i < 64; i++) mutate(world, random);
+        world.tracker.refresh(0, world);
+        for (int i = 0; i <= OrphanTracker.MAX_PENDING; i++) world.tracker.changed(-1 - i);
+        Mob detached = world.all.get(0);
+        world.removeFromSection(detached);
+        world.tracker.refresh(1, world);
+        assertTrue(world.tracker.orphans().contains(detached) == world.large.contains(detached));
+        AABB everywhere = new AABB(-1000, -1000, -1000, 1000, 1000, 1000);
+        assertEquals(world.fullScan(everywhere), world.partitioned(everywhere));
+    }
+
+    @Test
+    void endOfTickAppliesChangesWithoutAQuery() {
+        World world = new World();
+        Random random = new Random(11);
+        for (int i = 0; i < 64; i++) mutate(world, random);
+        world.tracker.refresh(0, world);
+        for (int tick = 1; tick <= OrphanTracker.IDLE_TICKS; tick++) {
+            for (int i = 0; i < 10; i++) mutate(world, random);
+            assertTrue(world.tracker.endTick(tick, world));
+            AABB everywhere = new AABB(-1000, -1000, -1000, 1000, 1000, 1000);
+            assertEquals(world.fullScan(everywhere), world.partitioned(everywhere), "tick " + tick);
+        }
+    }
+
+    @Test
+    void idleTrackerStopsRecordingAndRebuildsOnNextQuery() {
+        World world = new World();
+        Random random = new Random(13);
+        for (int i = 0; i < 64; i++) mutate(world, random);
+        world.tracker.refresh(0, world);
+        assertFalse(world.tracker.endTick(OrphanTracker.IDLE_TICKS + 1, world));
+        assertTrue(world.tracker.orphans().isEmpty());
+
+        // 停止记录期间的变化不会积压，再次查询时从各来源重建
+        for (int i = 0; i < 200; i++) mutate(world, random);
+        assertFalse(world.tracker.endTick(OrphanTracker.IDLE_TICKS + 2, world));
+        world.tracker.refresh(OrphanTracker.IDLE_TICKS + 3, world);
+        for (int query = 0; query < 50; query++) {
+            AABB area = randomArea(random);
+            assertEquals(world.fullScan(area), world.partitioned(area), "area " + area);
+        }
+        assertTrue(world.tracker.endTick(OrphanTracker.IDLE_TICKS + 3, world));
+    }
+}